@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The parse steps of the first release, kept to benchmark against: the
+ * mDNSPacketBuffer copy of the UDP payload and String search for the service
+ * label, then the fixed-offset SRV reads of mDNS_packet_parser. The URL map
+ * and the notification are left out.
+ */
+final class LegacyMdnsParser {
+
+    private static final int SRV_RECORD_VAL = 33;
+    private static final int SRV_RECORD_POS_OFFSET = 22;
+
+    private LegacyMdnsParser() {
+    }
+
+    /**
+     * @param packetPayload Ethernet frame of the mDNS packet
+     * @param ipHeaderLength IHL of the IPv4 header
+     * @return discovery url, null if the packet has no SRV where it was expected
+     */
+    static String parse(byte[] packetPayload, int ipHeaderLength) {
+        int start = (14 + 4 * ipHeaderLength + 8);
+        byte[] mDNSPayload = Arrays.copyOfRange(packetPayload, start, packetPayload.length);
+        String mDNSPacketSring = new String(mDNSPayload, StandardCharsets.UTF_8);
+        int protocol_pos = mDNSPacketSring.indexOf("_opcua-tcp");
+        if (protocol_pos < 0) {
+            return null;
+        }
+        return mDNSSRVRecordParser(mDNSPayload, protocol_pos);
+    }
+
+    static String mDNSSRVRecordParser(byte[] mDNSbinary, int PROTOCOL_POS) {
+        //Copy SRV value
+        byte[] RR_ByteArray = Arrays.copyOfRange(mDNSbinary, PROTOCOL_POS+SRV_RECORD_POS_OFFSET,
+                                                PROTOCOL_POS+SRV_RECORD_POS_OFFSET+2);
+        int record_val = ByteBuffer.wrap(RR_ByteArray).getShort();
+        // check is it SRV record
+        if (record_val != SRV_RECORD_VAL){
+            return null;
+        }
+        // Skip 6 bytes from record pos
+        int SRV_RECORD_END = PROTOCOL_POS+SRV_RECORD_POS_OFFSET+2;
+        int dataLength = ByteBuffer.wrap(Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END+6, SRV_RECORD_END+8)).getShort();
+        int port = ByteBuffer.wrap(Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END+12, SRV_RECORD_END+14)).getShort();
+        byte[] targetarray = Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END + 15, SRV_RECORD_END + 14 + dataLength - 7);
+        return new String(targetarray, StandardCharsets.UTF_8) + ":" + port;
+    }
+}
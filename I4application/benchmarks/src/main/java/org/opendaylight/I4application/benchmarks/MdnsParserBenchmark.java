@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+import org.opendaylight.I4application.impl.dns.DnsMessage;
+import org.opendaylight.I4application.impl.dns.OpcUaServiceRecord;
+import org.opendaylight.I4application.impl.dns.ServiceRecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads LDS-ME announcements of many servers with the DnsMessage and
+ * ServiceRecordReader parser of mDNS_packet_parser and with the fixed-offset
+ * parser it replaced, {@link LegacyMdnsParser}.
+ *
+ * Both read the layout the old parser was written for. The new one is also
+ * run on the compressed layout the old one cannot read, with the SRV after
+ * the PTR records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MdnsParserBenchmark {
+
+    private static final int SERVERS = 64;
+    private static final int IPV4_IHL = 5;
+    private static final byte[] SERVICE_LABEL = MdnsTestPackets.SERVICE_LABEL.getBytes(StandardCharsets.US_ASCII);
+
+    private final DnsMessage dnsMessage = new DnsMessage();
+    private final ServiceRecordReader serviceRecordReader = new ServiceRecordReader();
+
+    private byte[][] srvFirstFrames;
+    private byte[][] compressedFrames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        srvFirstFrames = new byte[SERVERS][];
+        compressedFrames = new byte[SERVERS][];
+        for (int server = 0; server < SERVERS; server++) {
+            int address = MdnsTestPackets.address(10, 0, 1, 1 + server);
+            String instance = "UA Local Discovery Server-host" + server;
+            String host = "host" + server;
+            srvFirstFrames[server] = MdnsTestPackets.frame(address,
+                    MdnsTestPackets.srvFirstAnnouncement(instance, host, 4840, address, 120));
+            compressedFrames[server] = MdnsTestPackets.frame(address,
+                    MdnsTestPackets.announcement(instance, host, 4840, address, 120));
+
+            String expected = host + ":4840";
+            String legacy = LegacyMdnsParser.parse(srvFirstFrames[server], IPV4_IHL);
+            if (!expected.equals(legacy)) {
+                throw new IllegalStateException("Old parser read " + legacy + ", expected " + expected);
+            }
+            check(read(srvFirstFrames[server]), host);
+            check(read(compressedFrames[server]), host + ".local");
+        }
+    }
+
+    private static void check(OpcUaServiceRecord record, String host) {
+        if (record == null || !record.getHost().equals(host) || record.getPort() != 4840) {
+            throw new IllegalStateException("New parser read " + record + ", expected " + host + ":4840");
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) % SERVERS;
+        return index;
+    }
+
+    private OpcUaServiceRecord read(byte[] frame) {
+        int offset = MdnsTestPackets.payloadOffset();
+        return serviceRecordReader.read(dnsMessage.wrap(frame, offset, frame.length - offset), SERVICE_LABEL);
+    }
+
+    @Benchmark
+    public String legacyParser() {
+        return LegacyMdnsParser.parse(srvFirstFrames[nextIndex()], IPV4_IHL);
+    }
+
+    @Benchmark
+    public OpcUaServiceRecord parser() {
+        return read(srvFirstFrames[nextIndex()]);
+    }
+
+    @Benchmark
+    public OpcUaServiceRecord parserCompressed() {
+        return read(compressedFrames[nextIndex()]);
+    }
+}
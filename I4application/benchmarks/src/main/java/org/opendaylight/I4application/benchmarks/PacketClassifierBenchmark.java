@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+import org.opendaylight.I4application.impl.ingress.OpcUaClientRegistry;
+import org.opendaylight.I4application.impl.ingress.PacketClassifier;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.opendaylight.I4application.impl.utils.BitBufferHelper;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.basepacket.rev140528.packet.chain.grp.PacketChain;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.basepacket.rev140528.packet.chain.grp.PacketChainBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ethernet.rev140528.ethernet.packet.received.packet.chain.packet.EthernetPacket;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ethernet.rev140528.ethernet.packet.received.packet.chain.packet.EthernetPacketBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.Ipv4PacketReceived;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.Ipv4PacketReceivedBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.KnownIpProtocols;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.ipv4.packet.received.packet.chain.packet.Ipv4Packet;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.ipv4.packet.received.packet.chain.packet.Ipv4PacketBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifies a mix of mDNS, IGMP, OPC UA client and other IPv4 frames with
+ * {@link PacketClassifier} and with the path it replaced: the l2switch
+ * Ethernet and IPv4 decoders building the packet chain model, then
+ * IncomingPktHandler comparing the decoded addresses and protocol as Strings.
+ *
+ * The decoded path only fills the model fields the old handler read, so its
+ * numbers are a lower bound of what the full decoders cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PacketClassifierBenchmark {
+
+    private static final int OPCUA_CLIENT_ADDR = OpcUaClientRegistry.DEFAULT_OPCUA_CLIENT_ADDR;
+    private static final int IP_PROTOCOL_TCP = 6;
+    // Start of the IPv4 header, as the l2switch Ipv4Decoder counts it
+    private static final int IPV4_BIT_OFFSET = 14 * Byte.SIZE;
+
+    // As IncomingPktHandler held them
+    private final Ipv4Address opcua_client = Ipv4Address.getDefaultInstance("10.0.0.200");
+    private final Ipv4Address mDNSMCAddr = Ipv4Address.getDefaultInstance("224.0.0.251");
+
+    private PacketClassifier classifier;
+    private byte[][] frames;
+    private Ipv4PacketReceived[] decoded;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        classifier = new PacketClassifier(new OpcUaClientRegistry(new int[] {OPCUA_CLIENT_ADDR}));
+        int server = MdnsTestPackets.address(10, 0, 0, 1);
+        byte[] igmp = MdnsTestPackets.frame(server, MdnsTestPackets.address(224, 0, 0, 22), 0, 0, new byte[8]);
+        igmp[23] = PacketParsingUtils.IP_PROTOCOL_IGMP;
+        byte[] client = MdnsTestPackets.frame(OPCUA_CLIENT_ADDR, server, 49152, 4840, new byte[64]);
+        client[23] = IP_PROTOCOL_TCP;
+        byte[] other = MdnsTestPackets.frame(MdnsTestPackets.address(10, 0, 0, 2), server, 49153, 502, new byte[64]);
+        other[23] = IP_PROTOCOL_TCP;
+        byte[] mdns = MdnsTestPackets.frame(server, MdnsTestPackets.announcement(
+                "UA Local Discovery Server-host1", "host1", 4840, server, 120));
+        frames = new byte[][] {mdns, client, other, mdns, igmp, client, other, client};
+
+        decoded = new Ipv4PacketReceived[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            decoded[i] = decode(frames[i]);
+            TrafficClass expected = classifier.classify(frames[i]);
+            if (classifyDecoded(decoded[i], null) != expected) {
+                throw new IllegalStateException("Paths disagree on frame " + i + ", expected " + expected);
+            }
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) % frames.length;
+        return index;
+    }
+
+    @Benchmark
+    public TrafficClass classifier() {
+        return classifier.classify(frames[nextIndex()]);
+    }
+
+    @Benchmark
+    public TrafficClass decodedModel(Blackhole blackhole) throws Exception {
+        return classifyDecoded(decode(frames[nextIndex()]), blackhole);
+    }
+
+    /**
+     * The String comparisons alone, on notifications decoded in setUp
+     */
+    @Benchmark
+    public TrafficClass decodedModelCompareOnly(Blackhole blackhole) {
+        return classifyDecoded(decoded[nextIndex()], blackhole);
+    }
+
+    /**
+     * The fields of the chain IncomingPktHandler read, decoded the way the
+     * l2switch decoders do
+     */
+    private static Ipv4PacketReceived decode(byte[] frame) throws Exception {
+        EthernetPacket ethernetPacket = new EthernetPacketBuilder()
+                .setDestinationMac(PacketParsingUtils.rawMacToMac(Arrays.copyOfRange(frame, 0, 6)))
+                .setSourceMac(PacketParsingUtils.rawMacToMac(Arrays.copyOfRange(frame, 6, 12)))
+                .build();
+        Ipv4Packet ipv4Packet = new Ipv4PacketBuilder()
+                .setProtocol(KnownIpProtocols.forValue(
+                        BitBufferHelper.getInt(BitBufferHelper.getBits(frame, IPV4_BIT_OFFSET + 72, 8))))
+                .setSourceIpv4(Ipv4Address.getDefaultInstance(
+                        InetAddress.getByAddress(BitBufferHelper.getBits(frame, IPV4_BIT_OFFSET + 96, 32)).getHostAddress()))
+                .setDestinationIpv4(Ipv4Address.getDefaultInstance(
+                        InetAddress.getByAddress(BitBufferHelper.getBits(frame, IPV4_BIT_OFFSET + 128, 32)).getHostAddress()))
+                .build();
+        List<PacketChain> packetChain = new ArrayList<>(2);
+        packetChain.add(new PacketChainBuilder().setPacket(ethernetPacket).build());
+        packetChain.add(new PacketChainBuilder().setPacket(ipv4Packet).build());
+        return new Ipv4PacketReceivedBuilder().setPacketChain(packetChain).setPayload(frame).build();
+    }
+
+    /**
+     * The checks of IncomingPktHandler.processPacket, in its order
+     */
+    private TrafficClass classifyDecoded(Ipv4PacketReceived ipv4PacketReceived, Blackhole blackhole) {
+        List<PacketChain> packetChainList = ipv4PacketReceived.getPacketChain();
+        Ipv4Packet ipv4Packet = (Ipv4Packet) packetChainList.get(packetChainList.size() - 1).getPacket();
+        EthernetPacket ethernetPacket = (EthernetPacket) packetChainList.get(packetChainList.size() - 2).getPacket();
+
+        if (ipv4Packet.getDestinationIpv4().toString().equals(mDNSMCAddr.toString())) {
+            return TrafficClass.MDNS;
+        }
+        if (ipv4Packet.getProtocol().toString().equals("Igmp")) {
+            return TrafficClass.IGMP;
+        }
+        if (blackhole != null) {
+            blackhole.consume(ethernetPacket.getSourceMac());
+            blackhole.consume(ethernetPacket.getDestinationMac());
+        }
+        Ipv4Address srcIpAddr = ipv4Packet.getSourceIpv4();
+        Ipv4Address dstIpAddr = ipv4Packet.getDestinationIpv4();
+        if (srcIpAddr.toString().equals(opcua_client.toString())
+                || dstIpAddr.toString().equals(opcua_client.toString())) {
+            return TrafficClass.OPCUA_CLIENT;
+        }
+        return TrafficClass.IPV4;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.SlabAllocator;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Synthetic announcement load on the mDNS packet store, reporting the GC
+ * pauses it causes. Every round each server re-announces and a share of
+ * them change their announcement; the forwarder reads the packets of a few
+ * hosts. Each packet-in brings a fresh frame, as the OpenFlow plugin hands
+ * them over.
+ *
+ * "slab" runs the MdnsPacketStore of the controller, keeping packets
+ * off-heap. "heap" keeps them as byte[] copies per instance, as the store did
+ * before the slab allocator, reduced to what this load uses. Run each in its
+ * own JVM with the same heap settings, e.g.
+ *
+ * java -Xmx256m -cp benchmarks.jar org.opendaylight.I4application.benchmarks.PacketStoreGcLoad slab
+ *
+ * Usage: PacketStoreGcLoad slab|heap [servers] [rounds] [changes per round in percent]
+ */
+public final class PacketStoreGcLoad {
+
+    private static final int DEFAULT_SERVERS = 10000;
+    private static final int DEFAULT_ROUNDS = 300;
+    private static final double DEFAULT_CHANGE_PERCENT = 1;
+    private static final int WARMUP_ROUNDS = 20;
+    // Hosts whose packets the forwarder replays per round, in percent
+    private static final double READ_PERCENT = 1;
+
+    /** What the parser does with an announcement */
+    private interface Store {
+        void announce(int host, String instance, byte[] frame, boolean changed);
+
+        int read(int host);
+    }
+
+    private static final class SlabStore implements Store {
+        private final MdnsPacketStore store = new MdnsPacketStore(32, 256 * 1024 * 1024,
+                new SlabAllocator(1024 * 1024, 512 * 1024 * 1024, 0));
+
+        @Override
+        public void announce(int host, String instance, byte[] frame, boolean changed) {
+            List<byte[]> frames = Collections.singletonList(frame);
+            if (changed) {
+                store.replace(host, instance, frames);
+            } else if (store.contains(host, instance)) {
+                store.recordRepeats(host, frames);
+            } else {
+                store.append(host, instance, frames);
+            }
+        }
+
+        @Override
+        public int read(int host) {
+            List<ByteBuffer> packets = store.get(host);
+            return packets == null ? 0 : packets.size();
+        }
+    }
+
+    private static final class HeapStore implements Store {
+        private final Map<Integer, Map<String, byte[]>> hosts = new HashMap<>();
+
+        @Override
+        public synchronized void announce(int host, String instance, byte[] frame, boolean changed) {
+            Map<String, byte[]> instances = hosts.computeIfAbsent(host, key -> new HashMap<>());
+            if (changed || !instances.containsKey(instance)) {
+                instances.put(instance, frame.clone());
+            }
+        }
+
+        @Override
+        public synchronized int read(int host) {
+            Map<String, byte[]> instances = hosts.get(host);
+            if (instances == null) {
+                return 0;
+            }
+            List<ByteBuffer> packets = new ArrayList<>(instances.size());
+            for (byte[] packet : instances.values()) {
+                packets.add(ByteBuffer.wrap(packet).asReadOnlyBuffer());
+            }
+            return packets.size();
+        }
+    }
+
+    /** Pauses of one collector, as GC notifications report them */
+    private static final class Pauses {
+        long count;
+        long totalMillis;
+        long maxMillis;
+        final List<Long> durations = new ArrayList<>();
+
+        synchronized void add(long millis) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+            durations.add(millis);
+        }
+
+        synchronized long percentile(double percent) {
+            if (durations.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percent / 100 * sorted.size()) - 1));
+        }
+    }
+
+    private static final Map<String, Pauses> PAUSES = new TreeMap<>();
+    private static volatile boolean measuring;
+    private static long sink;
+
+    private PacketStoreGcLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || !("slab".equals(args[0]) || "heap".equals(args[0]))) {
+            System.err.println("Usage: PacketStoreGcLoad slab|heap [servers] [rounds] [changes per round in percent]");
+            System.exit(2);
+        }
+        int servers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVERS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+        double changePercent = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_CHANGE_PERCENT;
+        Store store = "slab".equals(args[0]) ? new SlabStore() : new HeapStore();
+        listenForPauses();
+
+        int[] ports = new int[servers];
+        for (int server = 0; server < servers; server++) {
+            ports[server] = 4840;
+        }
+        Random random = new Random(0x4934L);
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(store, ports, random, changePercent);
+        }
+
+        measuring = true;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            runRound(store, ports, random, changePercent);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        measuring = false;
+        // Notifications arrive on their own thread, give the last ones time
+        Thread.sleep(500);
+
+        System.out.printf("%s store, %d servers, %d rounds, %.1f%% changes per round, %d ms%n",
+                args[0], servers, rounds, changePercent, elapsedMillis);
+        synchronized (PAUSES) {
+            for (Map.Entry<String, Pauses> entry : PAUSES.entrySet()) {
+                Pauses pauses = entry.getValue();
+                System.out.printf("%-24s %6d pauses %8d ms total  p50 %4d ms  p99 %4d ms  max %4d ms%n",
+                        entry.getKey(), pauses.count, pauses.totalMillis, pauses.percentile(50),
+                        pauses.percentile(99), pauses.maxMillis);
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            System.out.printf("%-24s %6d collections %8d ms since start%n", gc.getName(), gc.getCollectionCount(),
+                    gc.getCollectionTime());
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void runRound(Store store, int[] ports, Random random, double changePercent) {
+        for (int server = 0; server < ports.length; server++) {
+            boolean changed = random.nextDouble() * 100 < changePercent;
+            if (changed) {
+                ports[server]++;
+            }
+            int address = address(server);
+            String instance = "UA Local Discovery Server-host" + server;
+            byte[] frame = MdnsTestPackets.frame(address,
+                    MdnsTestPackets.announcement(instance, "host" + server, ports[server], address, 120));
+            store.announce(address, instance + "._opcua-tcp._tcp.local", frame, changed);
+            if (random.nextDouble() * 100 < READ_PERCENT) {
+                sink += store.read(address(random.nextInt(ports.length)));
+            }
+        }
+    }
+
+    private static int address(int server) {
+        return MdnsTestPackets.address(10, 1 + (server >>> 16), (server >>> 8) & 0xFF, server & 0xFF);
+    }
+
+    private static void listenForPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!measuring || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                        .equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                Pauses pauses;
+                synchronized (PAUSES) {
+                    pauses = PAUSES.computeIfAbsent(info.getGcName(), name -> new Pauses());
+                }
+                pauses.add(info.getGcInfo().getDuration());
+            }, null, null);
+        }
+    }
+}
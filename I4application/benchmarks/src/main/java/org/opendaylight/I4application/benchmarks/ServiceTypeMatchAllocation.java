@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+import org.opendaylight.I4application.impl.utils.BytePatternMatcher;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Counts the bytes allocated per mDNS packet by the service type check of
+ * mDNSPacketHandler, before and after BytePatternMatcher: the old copy of
+ * the UDP payload decoded into a String for indexOf("_opcua-tcp"), against
+ * the in-place scan for "_opcua-tcp" and "_opcua-tls". Half of the packets
+ * announce another service type, as most mDNS traffic does.
+ *
+ * Usage: ServiceTypeMatchAllocation [packets]
+ */
+public final class ServiceTypeMatchAllocation {
+
+    private static final int DEFAULT_PACKETS = 1000000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int SERVERS = 64;
+
+    private static long sink;
+
+    private ServiceTypeMatchAllocation() {
+    }
+
+    public static void main(String[] args) {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PACKETS;
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM does not count allocated bytes per thread");
+            System.exit(1);
+        }
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        byte[][] frames = frames();
+        BytePatternMatcher matcher = new BytePatternMatcher("_opcua-tcp", "_opcua-tls");
+
+        // Let the JIT settle, escape analysis may remove allocations once compiled
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            stringSearch(frames, packets);
+            byteSearch(frames, packets, matcher);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        stringSearch(frames, packets);
+        long stringBytes = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        before = threadMXBean.getThreadAllocatedBytes(threadId);
+        byteSearch(frames, packets, matcher);
+        long matcherBytes = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("%d packets, %d bytes long on average%n", packets, averageLength(frames));
+        System.out.printf("%-28s %10.1f bytes/packet%n", "String indexOf", (double) stringBytes / packets);
+        System.out.printf("%-28s %10.1f bytes/packet%n", "BytePatternMatcher.find", (double) matcherBytes / packets);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * As mDNSPacketBuffer.run did: extractmDNSpayload, new String, indexOf
+     */
+    private static void stringSearch(byte[][] frames, int packets) {
+        long found = 0;
+        for (int i = 0; i < packets; i++) {
+            byte[] packetPayload = frames[i % frames.length];
+            byte[] mDNSPayload = Arrays.copyOfRange(packetPayload, MdnsTestPackets.payloadOffset(),
+                    packetPayload.length);
+            String mDNSPacketSring = new String(mDNSPayload, StandardCharsets.UTF_8);
+            found += mDNSPacketSring.indexOf("_opcua-tcp");
+        }
+        sink += found;
+    }
+
+    private static void byteSearch(byte[][] frames, int packets, BytePatternMatcher matcher) {
+        long found = 0;
+        for (int i = 0; i < packets; i++) {
+            byte[] frame = frames[i % frames.length];
+            found += matcher.find(frame, MdnsTestPackets.payloadOffset(), frame.length);
+        }
+        sink += found;
+    }
+
+    /**
+     * @return announcements of SERVERS servers, every other one for a service
+     * type of the same length that is not OPC UA
+     */
+    private static byte[][] frames() {
+        byte[] otherLabel = "_smb-share".getBytes(StandardCharsets.US_ASCII);
+        byte[] opcUaLabel = MdnsTestPackets.SERVICE_LABEL.getBytes(StandardCharsets.US_ASCII);
+        byte[][] frames = new byte[SERVERS][];
+        for (int server = 0; server < SERVERS; server++) {
+            int address = MdnsTestPackets.address(10, 0, 1, 1 + server);
+            byte[] message = MdnsTestPackets.announcement("Server-host" + server, "host" + server, 4840,
+                    address, 120);
+            if (server % 2 == 1) {
+                replaceAll(message, opcUaLabel, otherLabel);
+            }
+            frames[server] = MdnsTestPackets.frame(address, message);
+        }
+        return frames;
+    }
+
+    private static void replaceAll(byte[] data, byte[] target, byte[] replacement) {
+        for (int i = 0; i + target.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + target.length), target)) {
+                System.arraycopy(replacement, 0, data, i, replacement.length);
+            }
+        }
+    }
+
+    private static int averageLength(byte[][] frames) {
+        long total = 0;
+        for (byte[] frame : frames) {
+            total += frame.length - MdnsTestPackets.payloadOffset();
+        }
+        return (int) (total / frames.length);
+    }
+}
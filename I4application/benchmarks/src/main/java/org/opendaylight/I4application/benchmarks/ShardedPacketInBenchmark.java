@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.benchmarks;
+
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+import org.opendaylight.I4application.impl.ingress.OpcUaClientRegistry;
+import org.opendaylight.I4application.impl.ingress.PacketClassifier;
+import org.opendaylight.I4application.impl.ingress.PacketIn;
+import org.opendaylight.I4application.impl.ingress.PacketInHandler;
+import org.opendaylight.I4application.impl.ingress.ShardedPacketInHandler;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IPv4 packet-in throughput of {@link ShardedPacketInHandler} from one to
+ * several shard workers. Each invocation hands a batch of packets over many
+ * address pairs to the handler, as the pipeline consumer does, and waits for
+ * the workers to finish it.
+ *
+ * The delegate classifies the packet and burns workTokens of CPU in place of
+ * the flow install and packet-out of IncomingPktHandler, which need the
+ * switches. Scaling flattens out at the number of cores; go past the defaults
+ * with -p shards=1,2,4,8,16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ShardedPacketInBenchmark {
+
+    private static final int BATCH = 4096;
+    private static final int HOST_PAIRS = 1024;
+    private static final int IP_PROTOCOL_TCP = 6;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"1000"})
+    public long workTokens;
+
+    private PacketClassifier classifier;
+    private ShardedPacketInHandler sharded;
+    private PacketIn[] packets;
+    private volatile CountDownLatch batchDone;
+    private final AtomicLong misclassified = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        classifier = new PacketClassifier(new OpcUaClientRegistry(new int[0]));
+        PacketInHandler delegate = packetIn -> {
+            Blackhole.consumeCPU(workTokens);
+            if (classifier.classify(packetIn.getPayload()) != TrafficClass.IPV4) {
+                misclassified.incrementAndGet();
+            }
+            batchDone.countDown();
+        };
+        sharded = new ShardedPacketInHandler(delegate, shards, BATCH);
+
+        packets = new PacketIn[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int pair = i % HOST_PAIRS;
+            byte[] frame = MdnsTestPackets.frame(MdnsTestPackets.address(10, 1, pair >>> 8, pair & 0xFF),
+                    MdnsTestPackets.address(10, 2, 0, 1 + pair % 16), 49152 + pair, 4840, new byte[64]);
+            frame[23] = IP_PROTOCOL_TCP;
+            packets[i] = new PacketIn(frame, null, TrafficClass.IPV4);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharded.close();
+        if (misclassified.get() != 0) {
+            throw new IllegalStateException(misclassified.get() + " packets were not classified as IPv4");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void handleBatch() throws InterruptedException {
+        // Every shard queue holds a whole batch, so no packet is rejected
+        CountDownLatch done = new CountDownLatch(BATCH);
+        batchDone = done;
+        for (PacketIn packet : packets) {
+            sharded.handlePacket(packet);
+        }
+        done.await();
+    }
+}
@@ -7,6 +7,8 @@
  */
 package org.opendaylight.I4application.cli.api;
 
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.PacketInLatency;
+
 public interface I4applicationCliCommands {
 
     /**
@@ -14,4 +16,10 @@ public interface I4applicationCliCommands {
      * Below method is just an example
      */
     Object testCommand(Object testArgument);
+
+    /**
+     * Read the packet-in latency stages from the operational datastore.
+     * @return the stages, or null if no latency has been published yet
+     */
+    PacketInLatency packetInLatency();
 }
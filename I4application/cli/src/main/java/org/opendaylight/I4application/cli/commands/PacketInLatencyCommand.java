@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.I4application.cli.commands;
+
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.console.AbstractAction;
+import org.apache.karaf.shell.table.ShellTable;
+import org.opendaylight.I4application.cli.api.I4applicationCliCommands;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.PacketInLatency;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.packet.in.latency.Stage;
+
+import java.math.BigInteger;
+
+/**
+ * Print p50/p99/p999 of every packet-in handling stage in microseconds.
+ */
+@Command(name = "packet-in-latency", scope = "i4application", description = "Show packet-in latency per stage")
+public class PacketInLatencyCommand extends AbstractAction {
+
+    protected final I4applicationCliCommands service;
+
+    public PacketInLatencyCommand(final I4applicationCliCommands service) {
+        this.service = service;
+    }
+
+    @Override
+    protected Object doExecute() throws Exception {
+        PacketInLatency latency = service.packetInLatency();
+        if (latency == null || latency.getStage() == null) {
+            return "No packet-in latency published yet";
+        }
+
+        ShellTable table = new ShellTable();
+        table.column("Stage");
+        table.column("Count").alignRight();
+        table.column("p50 us").alignRight();
+        table.column("p99 us").alignRight();
+        table.column("p999 us").alignRight();
+        table.column("max us").alignRight();
+        for (Stage stage : latency.getStage()) {
+            table.addRow().addContent(stage.getName(), stage.getCount(),
+                    toMicros(stage.getP50Nanos()), toMicros(stage.getP99Nanos()),
+                    toMicros(stage.getP999Nanos()), toMicros(stage.getMaxNanos()));
+        }
+        table.print(System.out);
+        return null;
+    }
+
+    private static String toMicros(BigInteger nanos) {
+        if (nanos == null) {
+            return "-";
+        }
+        return String.format("%.1f", nanos.longValue() / 1000.0);
+    }
+}
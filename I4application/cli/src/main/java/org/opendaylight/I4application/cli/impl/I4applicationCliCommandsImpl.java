@@ -7,7 +7,13 @@
  */
 package org.opendaylight.I4application.cli.impl;
 
+import com.google.common.base.Optional;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.PacketInLatency;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.opendaylight.I4application.cli.api.I4applicationCliCommands;
@@ -26,4 +32,19 @@ public class I4applicationCliCommandsImpl implements I4applicationCliCommands {
     public Object testCommand(Object testArgument) {
         return "This is a test implementation of test-command";
     }
+
+    @Override
+    public PacketInLatency packetInLatency() {
+        ReadOnlyTransaction readTx = dataBroker.newReadOnlyTransaction();
+        try {
+            Optional<PacketInLatency> latency = readTx.read(LogicalDatastoreType.OPERATIONAL,
+                    InstanceIdentifier.create(PacketInLatency.class)).checkedGet();
+            return latency.orNull();
+        } catch (ReadFailedException e) {
+            LOG.warn("Failed to read packet-in latency", e);
+            return null;
+        } finally {
+            readTx.close();
+        }
+    }
 }
\ No newline at end of file
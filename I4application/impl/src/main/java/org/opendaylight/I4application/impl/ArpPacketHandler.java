@@ -8,62 +8,53 @@
 
 package org.opendaylight.I4application.impl;
 
-import org.opendaylight.controller.md.sal.binding.api.NotificationService;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.arp.rev140528.ArpPacketListener;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.arp.rev140528.ArpPacketReceived;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.arp.rev140528.arp.packet.received.packet.chain.packet.ArpPacket;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.basepacket.rev140528.packet.chain.grp.PacketChain;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.ipv4.packet.received.packet.chain.packet.Ipv4Packet;
+import org.opendaylight.I4application.impl.ingress.OpcUaClientRegistry;
+import org.opendaylight.I4application.impl.ingress.PacketIn;
+import org.opendaylight.I4application.impl.ingress.PacketInHandler;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ArpPacketHandler implements ArpPacketListener {
+public class ArpPacketHandler implements PacketInHandler {
 
     private final static Logger LOG = LoggerFactory.getLogger(ArpPacketHandler.class);
-    private Ipv4Address opcua_client = Ipv4Address.getDefaultInstance("10.0.0.200");
-    private Ipv4Address dstIpAddr = null;
-    private Ipv4Address srcIpAddr = null;
     private PacketDispatcher packetDispatcher;
-    private NotificationService notificationService;
+    private ProxyArpResponder proxyArpResponder;
+    private OpcUaClientRegistry opcUaClientRegistry;
 
-    public ArpPacketHandler(PacketDispatcher packetDispatcher, NotificationService notificationService) {
+    public ArpPacketHandler(PacketDispatcher packetDispatcher, ProxyArpResponder proxyArpResponder,
+                            OpcUaClientRegistry opcUaClientRegistry) {
         this.packetDispatcher = packetDispatcher;
-        this.notificationService = notificationService;
-        notificationService.registerNotificationListener(this);
+        this.proxyArpResponder = proxyArpResponder;
+        this.opcUaClientRegistry = opcUaClientRegistry;
     }
 
     @Override
-    public void onArpPacketReceived(ArpPacketReceived notification) {
+    public void handlePacket(PacketIn packetIn) {
         LOG.debug("Arp Packet Received");
-        ArpPacket arpPacket = null;
-        Ipv4Packet ipv4Packet = null;
-        byte[] payload = null;
+        byte[] payload = packetIn.getPayload();
 
-        if (notification == null || notification.getPacketChain() == null){
+        if (payload.length < PacketParsingUtils.MIN_ARP_FRAME_LENGTH){
             return;
         }
 
-        for(PacketChain packetChain : notification.getPacketChain()){
-            if (packetChain.getPacket() instanceof ArpPacket){
-                arpPacket = (ArpPacket) packetChain.getPacket();
-            }
-        }
-
-        if (arpPacket == null){
+        // Requests for known hosts are answered by the controller
+        if (proxyArpResponder.handleArp(payload, packetIn.getIngress()) != ProxyArpResponder.Result.PASS){
             return;
         }
 
-        if (!( opcua_client.getValue().matches(arpPacket.getSourceProtocolAddress())
-                || opcua_client.getValue().matches(arpPacket.getDestinationProtocolAddress()))){
-            LOG.debug("not an OPCUA client arp");;
+        int senderAddr = PacketParsingUtils.arpSenderIPAddrToInt(payload);
+        int targetAddr = PacketParsingUtils.arpTargetIPAddrToInt(payload);
+
+        if (!opcUaClientRegistry.involvesClient(senderAddr, targetAddr)){
+            LOG.debug("not an OPCUA client arp");
             return;
         }
 
-        srcIpAddr = Ipv4Address.getDefaultInstance(arpPacket.getSourceProtocolAddress());
-        dstIpAddr = Ipv4Address.getDefaultInstance(arpPacket.getDestinationProtocolAddress());
         LOG.debug("Dispatch opcua arp packets");
-        packetDispatcher.dispatchPacket(notification.getPayload(), srcIpAddr, dstIpAddr);
+        boolean dispatched = packetDispatcher.dispatchPacket(payload, packetIn.getBufferId(),
+                packetIn.getIngress(), senderAddr, targetAddr);
+        opcUaClientRegistry.recordDispatch(senderAddr, targetAddr, dispatched);
         return;
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import org.opendaylight.I4application.impl.dns.ServiceRecordCache;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.I4application.impl.utils.SnapshotFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps discovery state across restarts of the bundle: the cached
+ * announcements with the TTL they have left, the announcement packets kept
+ * for replay, and the servers and workstation coordinators the AMQP round
+ * trip has found. Written to a {@link SnapshotFile} periodically and on
+ * close, read back once before the first packet-in, so servers need not
+ * re-announce and go through the OPC UA client again.
+ *
+ * Announcements whose TTL ran out while the controller was down are not
+ * restored, nor are the packets of hosts left without announcements.
+ */
+public class DiscoveryStateSnapshot implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiscoveryStateSnapshot.class);
+
+    // "I4DS"
+    private static final int MAGIC = 0x49344453;
+    // 2: stored packets carry their service instance
+    private static final int VERSION = 2;
+
+    private final SnapshotFile file;
+    private final ServiceRecordCache serviceRecordCache;
+    private final MdnsPacketStore mdnsPacketStore;
+    private final UrlNotificationHandler urlNotificationHandler;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discovery-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param periodMillis how often the state is written
+     */
+    public DiscoveryStateSnapshot(Path path, long periodMillis, ServiceRecordCache serviceRecordCache,
+                                  MdnsPacketStore mdnsPacketStore, UrlNotificationHandler urlNotificationHandler) {
+        this.file = new SnapshotFile(path, MAGIC, VERSION);
+        this.serviceRecordCache = serviceRecordCache;
+        this.mdnsPacketStore = mdnsPacketStore;
+        this.urlNotificationHandler = urlNotificationHandler;
+        writer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take back the state of the last snapshot, if there is a valid one
+     * @return false if there was none
+     */
+    public boolean restore() {
+        long start = System.nanoTime();
+        ByteBuffer in = file.read();
+        if (in == null) {
+            return false;
+        }
+        try {
+            long writtenMillis = in.getLong();
+            // A clock set back must not make announcements younger than they were
+            long elapsedMillis = Math.max(0, System.currentTimeMillis() - writtenMillis);
+            int records = serviceRecordCache.readFrom(in, elapsedMillis);
+            int hosts = mdnsPacketStore.readFrom(in, host ->
+                    serviceRecordCache.hasHost(PacketParsingUtils.intToIpv4Address(host)));
+            int coordinators = urlNotificationHandler.readFrom(in);
+            LOG.info("Restored {} announcements, packets of {} hosts and {} coordinators from {}, "
+                            + "written {} s ago, in {} ms", records, hosts, coordinators, file.getPath(),
+                    elapsedMillis / 1000, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Checksum matched but the content does not, written by a broken writer
+            LOG.warn("Snapshot {} could not be read, restored what came before the error", file.getPath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @return false if the state could not be written
+     */
+    public synchronized boolean write() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(System.currentTimeMillis());
+            serviceRecordCache.writeTo(out);
+            mdnsPacketStore.writeTo(out);
+            urlNotificationHandler.writeTo(out);
+            out.flush();
+            return file.write(bytes.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            // Keep the schedule alive, the next period writes again
+            LOG.warn("Failed to snapshot discovery state", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stop writing periodically and write once more
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        write();
+    }
+}
@@ -11,23 +11,92 @@ import org.opendaylight.I4application.impl.Topology.HostManager;
 import org.opendaylight.I4application.impl.Topology.NetworkGraphImpl;
 import org.opendaylight.I4application.impl.Topology.NetworkGraphService;
 import org.opendaylight.I4application.impl.Topology.TopologyChangeListener;
+import org.opendaylight.I4application.impl.dns.ServiceRecordCache;
 import org.opendaylight.I4application.impl.flow.FlowManager;
 import org.opendaylight.I4application.impl.flow.FlowWriter;
 import org.opendaylight.I4application.impl.flow.MDNSFlowWriter;
+import org.opendaylight.I4application.impl.flow.PendingFlowTable;
+import org.opendaylight.I4application.impl.ingress.IngressRingBuffer;
+import org.opendaylight.I4application.impl.ingress.OpcUaClientRegistry;
+import org.opendaylight.I4application.impl.ingress.PacketClassifier;
+import org.opendaylight.I4application.impl.ingress.PacketInPipeline;
+import org.opendaylight.I4application.impl.ingress.ShardedPacketInHandler;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStatsWriter;
+import org.opendaylight.I4application.impl.utils.BytePatternMatcher;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.SlabAllocator;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
+import org.opendaylight.controller.sal.binding.api.BindingAwareBroker.RpcRegistration;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SalFlowService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.group.service.rev130918.SalGroupService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.OpcuaClientsService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketProcessingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
 public class I4applicationProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(I4applicationProvider.class);
 
+    // Packet-in ring buffer between the notification thread and the packet handlers
+    private static final int INGRESS_RING_CAPACITY = 4096;
+    private static final int INGRESS_CONSUMERS = 1;
+    private static final IngressRingBuffer.OverloadPolicy INGRESS_OVERLOAD_POLICY =
+            IngressRingBuffer.OverloadPolicy.SHED_BY_CLASS;
+    // Reactive forwarding is retried by the next packet of the flow, discovery traffic is not
+    private static final EnumSet<TrafficClass> INGRESS_SHEDDABLE_CLASSES = EnumSet.of(TrafficClass.IPV4);
+    // IPv4 packet-ins are hashed by (srcIP, dstIP) onto one worker per core
+    private static final int IPV4_SHARDS = Runtime.getRuntime().availableProcessors();
+    private static final int IPV4_SHARD_QUEUE_CAPACITY = 1024;
+    // Installed host pairs skip reinstallation for this long, well below the 15s flow idle timeout
+    private static final long PENDING_FLOW_HOLD_MILLIS = 2000;
+    // ARP requests for an unknown target are passed on once per second per target
+    private static final long PROXY_ARP_MISS_INTERVAL_MILLIS = 1000;
+    private static final int PROXY_ARP_MAX_TRACKED_MISSES = 4096;
+    // OPC UA clients at startup, replaced at runtime through the set-opcua-clients RPC
+    private static final int[] OPCUA_CLIENT_ADDRS = {OpcUaClientRegistry.DEFAULT_OPCUA_CLIENT_ADDR};
+    // Packet-in latency percentiles are copied to the operational datastore this often
+    private static final long LATENCY_STATS_PERIOD_MILLIS = 10000;
+
+    private static final String[] MDNS_SERVICE_TYPES = {"_opcua-tcp", "_opcua-tls"};
+
+    // Announcements expire within a second of their TTL, TTLs up to 8.5 minutes take one wheel round
+    private static final long SERVICE_RECORD_TICK_MILLIS = 1000;
+    private static final int SERVICE_RECORD_WHEEL_SIZE = 512;
+    // TC-flagged mDNS responses wait this long for their last part, holding up to the
+    // largest mDNS message (RFC 6762 section 17) per server
+    private static final long MDNS_REASSEMBLY_WINDOW_MILLIS = 500;
+    private static final int MDNS_REASSEMBLY_MAX_BYTES = 9000;
+    private static final int MDNS_REASSEMBLY_MAX_SOURCES = 256;
+    // mDNS messages waiting for the parser thread, a discovery burst beyond this is dropped
+    private static final int MDNS_PARSE_QUEUE_CAPACITY = 1024;
+    // Announcement packets kept for replay, per server and for all servers together
+    private static final int MDNS_STORE_MAX_PACKETS_PER_HOST = 32;
+    private static final long MDNS_STORE_MAX_BYTES = 16 * 1024 * 1024;
+    // Off-heap arenas behind the store, room for its budget rounded up to slot sizes; the store
+    // copies packets out under its lock, so freed slots can be reused at once
+    private static final int MDNS_SLAB_ARENA_BYTES = 1024 * 1024;
+    private static final long MDNS_SLAB_MAX_BYTES = 32 * 1024 * 1024;
+    private static final long MDNS_SLAB_RECLAIM_MILLIS = 0;
+    // Discovery state survives bundle restarts in this file, written this often and on close
+    private static final Path DISCOVERY_SNAPSHOT_PATH = Paths.get(
+            System.getProperty("karaf.data", System.getProperty("java.io.tmpdir")),
+            "i4application", "discovery-state.snapshot");
+    private static final long DISCOVERY_SNAPSHOT_PERIOD_MILLIS = 30000;
+    // Cached announcements are replayed to a coordinator at this pace per switch port,
+    // replays beyond the queue limit of a port are dropped
+    private static final int MDNS_REPLAY_PACKETS_PER_SECOND = 500;
+    private static final int MDNS_REPLAY_MAX_QUEUED_PACKETS = 4096;
+
     private DataBroker dataBroker;
     private NotificationService notificationService;
     private NetworkGraphService networkGraphService;
@@ -36,6 +105,18 @@ public class I4applicationProvider {
     private PacketProcessingService packetProcessingService;
     private SalGroupService salGroupService;
     private RpcProviderRegistry rpcProviderRegistry;
+    private RpcRegistration<OpcuaClientsService> opcuaClientsRegistration;
+    private PacketInPipeline packetInPipeline;
+    private ShardedPacketInHandler ipv4ShardedHandler;
+    private PendingFlowTable pendingFlowTable;
+    private LatencyStatsWriter latencyStatsWriter;
+    private LatencyRecorder latencyRecorder;
+    private ServiceRecordCache serviceRecordCache;
+    private MdnsReassemblyBuffer mdnsReassemblyBuffer;
+    private mDNSPacketHandler mDNSPacketHandler;
+    private MdnsPacketStore mdnsPacketStore;
+    private DiscoveryStateSnapshot discoveryStateSnapshot;
+    private PacketReplayScheduler packetReplayScheduler;
 
 
     /**
@@ -69,6 +150,12 @@ public class I4applicationProvider {
 
         networkGraphService = new NetworkGraphImpl();
 
+        /**
+         * Latency recorder - per stage packet-in latency, published to the operational datastore
+         */
+        latencyRecorder = new LatencyRecorder();
+        latencyStatsWriter = new LatencyStatsWriter(dataBroker, latencyRecorder, LATENCY_STATS_PERIOD_MILLIS);
+
         /**
          * TopologyChangeListerner - Listen for topology changes
          */
@@ -79,25 +166,35 @@ public class I4applicationProvider {
          *
          */
 
-        FlowWriter flowWriter = new FlowWriter(salFlowService); // In Future need to pass SALGroup Serive for flow writing
+        FlowWriter flowWriter = new FlowWriter(salFlowService, latencyRecorder); // In Future need to pass SALGroup Serive for flow writing
         MDNSFlowWriter mdnsFlowWriter = new MDNSFlowWriter(salFlowService, notificationService, salGroupService, rpcProviderRegistry);
 
         /**
          * Create a Flow Manager and pass and Instance of Host Manager
          */
-        FlowManager flowManager = new FlowManager(hostManager, networkGraphService, flowWriter, mdnsFlowWriter);
+        FlowManager flowManager = new FlowManager(hostManager, networkGraphService, flowWriter, mdnsFlowWriter,
+                latencyRecorder);
 
 
         /**
          * Packet Handler - used to perform PacketOut
          */
 
-        PacketDispatcher packetDispatcher = new PacketDispatcher(packetProcessingService, hostManager);
+        PacketDispatcher packetDispatcher = new PacketDispatcher(packetProcessingService, hostManager, latencyRecorder);
+
+        /**
+         * OPC UA clients - their packets are relayed without installing flows
+         */
+        OpcUaClientRegistry opcUaClientRegistry = new OpcUaClientRegistry(OPCUA_CLIENT_ADDRS);
+        opcuaClientsRegistration = rpcProviderRegistry.addRpcImplementation(OpcuaClientsService.class,
+                opcUaClientRegistry);
 
         /**
          * Create InComingPktHandler - Handle non-mDNS packets, non ICMP packets
          */
-        IncomingPktHandler incomingPktHandler = new IncomingPktHandler(notificationService, flowManager, packetDispatcher);
+        pendingFlowTable = new PendingFlowTable(PENDING_FLOW_HOLD_MILLIS);
+        IncomingPktHandler incomingPktHandler = new IncomingPktHandler(flowManager, packetDispatcher, pendingFlowTable,
+                opcUaClientRegistry, latencyRecorder);
         LOG.info("Imcoming Packet Handler is instantiated");
 
         /**
@@ -108,26 +205,120 @@ public class I4applicationProvider {
 
 
         /**
-         * Create arp Packet Handler - Handle Arp packets from to opcuaclient
+         * Create arp Packet Handler - Answer Arp requests for known hosts and
+         * relay Arp packets from to opcuaclient
          */
-        ArpPacketHandler arpPacketHandler = new ArpPacketHandler(packetDispatcher, notificationService);
+        ProxyArpResponder proxyArpResponder = new ProxyArpResponder(hostManager, packetDispatcher,
+                PROXY_ARP_MISS_INTERVAL_MILLIS, PROXY_ARP_MAX_TRACKED_MISSES);
+        ArpPacketHandler arpPacketHandler = new ArpPacketHandler(packetDispatcher, proxyArpResponder,
+                opcUaClientRegistry);
 
         /**
          * Create an Instance of mDNSPacket Handler
          */
 
-        mDNS_packet_parser mDNS_packet_parser = new mDNS_packet_parser(notificationPublishService);
+        serviceRecordCache = new ServiceRecordCache(SERVICE_RECORD_TICK_MILLIS, SERVICE_RECORD_WHEEL_SIZE);
+        mdnsPacketStore = new MdnsPacketStore(MDNS_STORE_MAX_PACKETS_PER_HOST, MDNS_STORE_MAX_BYTES,
+                new SlabAllocator(MDNS_SLAB_ARENA_BYTES, MDNS_SLAB_MAX_BYTES, MDNS_SLAB_RECLAIM_MILLIS));
+        mDNS_packet_parser mDNS_packet_parser = new mDNS_packet_parser(notificationPublishService, serviceRecordCache,
+                mdnsPacketStore);
+
+        MdnsProxyResponder mdnsProxyResponder = new MdnsProxyResponder(hostManager, packetDispatcher, serviceRecordCache);
+        mdnsReassemblyBuffer = new MdnsReassemblyBuffer(MDNS_REASSEMBLY_WINDOW_MILLIS, MDNS_REASSEMBLY_MAX_BYTES,
+                MDNS_REASSEMBLY_MAX_SOURCES);
+        mDNSPacketHandler = new mDNSPacketHandler(notificationService, mDNS_packet_parser, flowManager,
+                packetDispatcher, rpcProviderRegistry, new BytePatternMatcher(MDNS_SERVICE_TYPES), mdnsProxyResponder,
+                mdnsReassemblyBuffer, mdnsPacketStore, MDNS_PARSE_QUEUE_CAPACITY);
+
+        packetReplayScheduler = new PacketReplayScheduler(packetDispatcher, MDNS_REPLAY_PACKETS_PER_SECOND,
+                MDNS_REPLAY_MAX_QUEUED_PACKETS);
+        mDNSPacketForwarder mDNSPacketForwarder = new mDNSPacketForwarder(notificationService, flowManager,
+                packetReplayScheduler, mdnsPacketStore);
+
+        /**
+         * Discovery state snapshot - restore what the last run knew before the first packet-in
+         */
+        discoveryStateSnapshot = new DiscoveryStateSnapshot(DISCOVERY_SNAPSHOT_PATH, DISCOVERY_SNAPSHOT_PERIOD_MILLIS,
+                serviceRecordCache, mdnsPacketStore, urlNotificationHandler);
+        discoveryStateSnapshot.restore();
+
+        /**
+         * Packet-in pipeline - single packet-in listener, classifies each packet once
+         * and dispatches it to the handler registered for its traffic class
+         */
+        IngressRingBuffer ingressRingBuffer = new IngressRingBuffer(INGRESS_RING_CAPACITY,
+                INGRESS_OVERLOAD_POLICY, INGRESS_SHEDDABLE_CLASSES);
+        packetInPipeline = new PacketInPipeline(notificationService, new PacketClassifier(opcUaClientRegistry),
+                ingressRingBuffer, INGRESS_CONSUMERS);
+        ipv4ShardedHandler = new ShardedPacketInHandler(incomingPktHandler, IPV4_SHARDS, IPV4_SHARD_QUEUE_CAPACITY);
+        packetInPipeline.registerHandler(TrafficClass.IPV4, ipv4ShardedHandler);
+        packetInPipeline.registerHandler(TrafficClass.OPCUA_CLIENT, ipv4ShardedHandler);
+        packetInPipeline.registerHandler(TrafficClass.ARP, arpPacketHandler);
+        packetInPipeline.registerHandler(TrafficClass.MDNS, mDNSPacketHandler);
+    }
+
+    /**
+     * @return the packet-in pipeline, null before init()
+     */
+    public PacketInPipeline getPacketInPipeline() {
+        return packetInPipeline;
+    }
+
+    /**
+     * @return per stage packet-in latencies, null before init()
+     */
+    public LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
 
-        mDNSPacketHandler mDNSPacketHandler = new mDNSPacketHandler(notificationService, mDNS_packet_parser, flowManager,
-                packetDispatcher, rpcProviderRegistry);
+    /**
+     * @return announcement packets kept for replay, null before init()
+     */
+    public MdnsPacketStore getMdnsPacketStore() {
+        return mdnsPacketStore;
+    }
 
-        mDNSPacketForwarder mDNSPacketForwarder = new mDNSPacketForwarder(notificationService, flowManager, packetDispatcher);
+    /**
+     * @return paced replays of announcement packets, null before init()
+     */
+    public PacketReplayScheduler getPacketReplayScheduler() {
+        return packetReplayScheduler;
     }
 
     /**
      * Method called when the blueprint container is destroyed.
      */
     public void close() {
+        if (opcuaClientsRegistration != null) {
+            opcuaClientsRegistration.close();
+        }
+        if (packetInPipeline != null) {
+            packetInPipeline.close();
+        }
+        if (ipv4ShardedHandler != null) {
+            ipv4ShardedHandler.close();
+        }
+        if (discoveryStateSnapshot != null) {
+            discoveryStateSnapshot.close();
+        }
+        if (pendingFlowTable != null) {
+            pendingFlowTable.close();
+        }
+        if (latencyStatsWriter != null) {
+            latencyStatsWriter.close();
+        }
+        if (serviceRecordCache != null) {
+            serviceRecordCache.close();
+        }
+        if (mdnsReassemblyBuffer != null) {
+            mdnsReassemblyBuffer.close();
+        }
+        if (mDNSPacketHandler != null) {
+            mDNSPacketHandler.close();
+        }
+        if (packetReplayScheduler != null) {
+            packetReplayScheduler.close();
+        }
         LOG.info("I4applicationProvider Closed");
     }
 }
\ No newline at end of file
@@ -9,91 +9,103 @@
 package org.opendaylight.I4application.impl;
 
 import org.opendaylight.I4application.impl.flow.FlowManager;
-import org.opendaylight.controller.md.sal.binding.api.NotificationService;
+import org.opendaylight.I4application.impl.flow.PendingFlowTable;
+import org.opendaylight.I4application.impl.ingress.OpcUaClientRegistry;
+import org.opendaylight.I4application.impl.ingress.PacketIn;
+import org.opendaylight.I4application.impl.ingress.PacketInHandler;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStage;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev130715.MacAddress;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.basepacket.rev140528.packet.chain.grp.PacketChain;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ethernet.rev140528.ethernet.packet.received.packet.chain.packet.EthernetPacket;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.Ipv4PacketListener;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.Ipv4PacketReceived;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.ipv4.packet.received.packet.chain.packet.Ipv4Packet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
-public class IncomingPktHandler implements Ipv4PacketListener {
+/**
+ * Handles IPV4 and OPCUA_CLIENT packet-ins handed over by the ingress pipeline.
+ * Keeps no per-packet state, so it can be called from several shard workers at once.
+ */
+public class IncomingPktHandler implements PacketInHandler {
     private final static Logger LOG = LoggerFactory.getLogger(org.opendaylight.I4application.impl.IncomingPktHandler.class);
 
-    private NotificationService notificationService;
-    private PacketDispatcher packetDispatcher;
-    private FlowManager flowManager;
-
-    private Ipv4Address opcua_client = Ipv4Address.getDefaultInstance("10.0.0.200");
-    private Ipv4Address dstIpAddr = null;
-    private Ipv4Address srcIpAddr = null;
-    private Ipv4Address mDNSMCAddr = Ipv4Address.getDefaultInstance("224.0.0.251");
-    private boolean rulecreated;
-
-    public IncomingPktHandler(NotificationService notificationService
-                                , FlowManager flowManager
-                                , PacketDispatcher packetDispatcher) {
+    private final PacketDispatcher packetDispatcher;
+    private final FlowManager flowManager;
+    private final PendingFlowTable pendingFlowTable;
+    private final OpcUaClientRegistry opcUaClientRegistry;
+    private final LatencyRecorder latencyRecorder;
 
-        this.notificationService = notificationService;
-        notificationService.registerNotificationListener(this);
+    public IncomingPktHandler(FlowManager flowManager, PacketDispatcher packetDispatcher,
+                              PendingFlowTable pendingFlowTable, OpcUaClientRegistry opcUaClientRegistry,
+                              LatencyRecorder latencyRecorder) {
         this.flowManager = flowManager;
         this.packetDispatcher = packetDispatcher;
+        this.pendingFlowTable = pendingFlowTable;
+        this.opcUaClientRegistry = opcUaClientRegistry;
+        this.latencyRecorder = latencyRecorder;
     }
 
     @Override
-    public void onIpv4PacketReceived(Ipv4PacketReceived notification) {
-        LOG.debug("Incoming Packet Handler recvied notification");
-        processPacket(notification);
+    public void handlePacket(PacketIn packetIn) {
+        LOG.debug("Incoming Packet Handler recvied packet");
+        long startNanos = System.nanoTime();
+        latencyRecorder.record(LatencyStage.QUEUE_WAIT, startNanos - packetIn.getReceivedNanos());
+        processPacket(packetIn);
+        latencyRecorder.recordSince(LatencyStage.PACKET_IN, startNanos);
     }
 
-    public void processPacket(Ipv4PacketReceived ipv4PacketReceived){
+    public void processPacket(PacketIn packetIn){
         LOG.debug("Process Incoming Packet");
 
-        List<PacketChain> packetChainList = ipv4PacketReceived.getPacketChain();
-        Ipv4Packet ipv4Packet = (Ipv4Packet) packetChainList.get(packetChainList.size() - 1).getPacket();
-        EthernetPacket ethernetPacket = (EthernetPacket) packetChainList.get(packetChainList.size() - 2).getPacket();
-        byte[] payload = ipv4PacketReceived.getPayload();
+        byte[] payload = packetIn.getPayload();
+        int srcAddr = PacketParsingUtils.srcIPAddrToInt(payload);
+        int dstAddr = PacketParsingUtils.dstIPAddrToInt(payload);
 
-        dstIpAddr = ipv4Packet.getDestinationIpv4();
-
-        if(ipv4Packet.getDestinationIpv4().toString().equals(mDNSMCAddr.toString())){
-            LOG.debug("Recieved mDNS packet destination IP Address: " + ipv4Packet.getDestinationIpv4().toString());
+        if (packetIn.getTrafficClass() == TrafficClass.OPCUA_CLIENT){
+            opcUaClientRegistry.recordDispatch(srcAddr, dstAddr, dispatchPacket(packetIn));
+            latencyRecorder.recordSince(LatencyStage.END_TO_END, packetIn.getReceivedNanos());
             return;
         }
 
-        if (ipv4Packet.getProtocol().toString().equals("Igmp")){
-            LOG.debug("Recieved IGMP packet destination IP Address: " + ipv4Packet.getDestinationIpv4().toString());
+        // Packets of a pair whose path was just installed are only forwarded
+        if (pendingFlowTable.admit(srcAddr, dstAddr) == PendingFlowTable.Admission.INSTALLED){
+            dispatchPacket(packetIn);
+            latencyRecorder.recordSince(LatencyStage.END_TO_END, packetIn.getReceivedNanos());
             return;
         }
 
-        MacAddress srcMac = ethernetPacket.getSourceMac();
-        MacAddress dstMac = ethernetPacket.getDestinationMac();
-
-        srcIpAddr = ipv4Packet.getSourceIpv4();
+        boolean rulecreated = false;
+        try {
+            rulecreated = installFlows(packetIn, srcAddr, dstAddr);
+        } finally {
+            pendingFlowTable.complete(srcAddr, dstAddr, rulecreated);
+        }
+    }
 
+    private boolean installFlows(PacketIn packetIn, int srcAddr, int dstAddr){
+        byte[] payload = packetIn.getPayload();
+        Ipv4Address srcIpAddr = PacketParsingUtils.intToIpv4Address(srcAddr);
+        Ipv4Address dstIpAddr = PacketParsingUtils.intToIpv4Address(dstAddr);
 
-        if (srcIpAddr.toString().equals(opcua_client.toString())
-                || dstIpAddr.toString().equals(opcua_client.toString())){
-            boolean result = packetDispatcher.dispatchPacket(payload, srcIpAddr, dstIpAddr);
-            if (result){
-                return;
-            }
-            return;
-        }
+        MacAddress srcMac = PacketParsingUtils.rawMacToMac(PacketParsingUtils.extractSrcMac(payload));
+        MacAddress dstMac = PacketParsingUtils.rawMacToMac(PacketParsingUtils.extractDstMac(payload));
 
-        if (srcMac == null || dstMac == null
-                || dstIpAddr == null || srcIpAddr ==null){
-            return;
+        if (srcMac == null || dstMac == null){
+            return false;
         }
         //Create a rule and packetout received packet-out
-        rulecreated = flowManager.ipPktFlowManager(srcIpAddr, srcMac, dstIpAddr, dstMac);
+        boolean rulecreated = flowManager.ipPktFlowManager(srcIpAddr, srcMac, dstIpAddr, dstMac);
         if (rulecreated){
-            packetDispatcher.dispatchPacket(payload, srcIpAddr, dstIpAddr);
+            packetDispatcher.dispatchPacket(payload, packetIn.getBufferId(), packetIn.getIngress(),
+                    srcAddr, dstAddr);
+            latencyRecorder.recordSince(LatencyStage.END_TO_END, packetIn.getReceivedNanos());
         }
+        return rulecreated;
+    }
+
+    private boolean dispatchPacket(PacketIn packetIn){
+        byte[] payload = packetIn.getPayload();
+        return packetDispatcher.dispatchPacket(payload, packetIn.getBufferId(), packetIn.getIngress(),
+                PacketParsingUtils.srcIPAddrToInt(payload), PacketParsingUtils.dstIPAddrToInt(payload));
     }
 }
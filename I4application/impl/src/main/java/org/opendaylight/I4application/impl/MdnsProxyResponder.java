@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import org.opendaylight.I4application.impl.Topology.HostManager;
+import org.opendaylight.I4application.impl.dns.DnsMessage;
+import org.opendaylight.I4application.impl.dns.MdnsResponseWriter;
+import org.opendaylight.I4application.impl.dns.ServiceRecordCache;
+import org.opendaylight.I4application.impl.utils.NetUtils;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers mDNS queries for OPC UA services from the announcements in
+ * ServiceRecordCache, on behalf of the servers, so the query is not relayed.
+ * Each cached instance which answers the query gets its own response, sent as
+ * its server would: from the server's addresses, to the group or, for
+ * unicast-response and legacy queries, to the querier (RFC 6762 section 5.4
+ * and 6.7). Responses are packeted out on the port the query came in on.
+ */
+public class MdnsProxyResponder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MdnsProxyResponder.class);
+
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+    private static final int IP_HEADER_LENGTH = 20;
+    private static final int UDP_HEADER_LENGTH = 8;
+    private static final int DNS_START = ETHERNET_HEADER_LENGTH + IP_HEADER_LENGTH + UDP_HEADER_LENGTH;
+    // Ethernet MTU without FCS
+    private static final int MAX_FRAME_LENGTH = ETHERNET_HEADER_LENGTH + 1500;
+    // RFC 6762 section 11, responses are sent with IP TTL 255
+    private static final int IP_TTL = 255;
+
+    private static final int MDNS_GROUP_ADDR = 0xE00000FB;
+    private static final byte[] MDNS_GROUP_MAC = {0x01, 0x00, 0x5E, 0x00, 0x00, (byte) 0xFB};
+
+    private static final int DNS_FLAGS_OFFSET = 2;
+    private static final int DNS_FLAG_RESPONSE = 0x80;
+
+    /**
+     * Query view, response writer and frame of the thread answering. The frame is
+     * reused for every response, only the bytes sent are copied out of it.
+     */
+    private static final class ResponseContext {
+        final DnsMessage query = new DnsMessage();
+        final MdnsResponseWriter writer = new MdnsResponseWriter();
+        final byte[] frame = new byte[MAX_FRAME_LENGTH];
+    }
+
+    private static final ThreadLocal<ResponseContext> RESPONSE_CONTEXT = new ThreadLocal<ResponseContext>() {
+        @Override
+        protected ResponseContext initialValue() {
+            return new ResponseContext();
+        }
+    };
+
+    private final HostManager hostManager;
+    private final PacketDispatcher packetDispatcher;
+    private final ServiceRecordCache serviceRecordCache;
+
+    private final AtomicLong answeredCount = new AtomicLong();
+    private final AtomicLong unansweredCount = new AtomicLong();
+    private final AtomicLong responseCount = new AtomicLong();
+
+    public MdnsProxyResponder(HostManager hostManager, PacketDispatcher packetDispatcher,
+                              ServiceRecordCache serviceRecordCache) {
+        this.hostManager = hostManager;
+        this.packetDispatcher = packetDispatcher;
+        this.serviceRecordCache = serviceRecordCache;
+    }
+
+    public enum Result {
+        /** At least one response sent, the query must not be relayed */
+        ANSWERED,
+        /** A query no cached instance answers, or the querier knows all answers */
+        UNANSWERED,
+        /** Not a query to answer from the cache, handle the packet as usual */
+        PASS
+    }
+
+    /**
+     * @param payload IPv4 frame of an mDNS message
+     * @return true if the message is a query, which handleQuery takes over
+     */
+    public static boolean isQuery(byte[] payload) {
+        int flags = PacketParsingUtils.mDNSPayloadOffset(payload) + DNS_FLAGS_OFFSET;
+        return flags < payload.length && (payload[flags] & DNS_FLAG_RESPONSE) == 0;
+    }
+
+    /**
+     * @param payload complete IPv4 frame of an mDNS query
+     * @param ingress port the frame was received on
+     */
+    public Result handleQuery(byte[] payload, NodeConnectorRef ingress) {
+        if (ingress == null || PacketParsingUtils.isTruncated(payload)) {
+            return Result.PASS;
+        }
+        int dnsOffset = PacketParsingUtils.mDNSPayloadOffset(payload);
+        if (dnsOffset + DnsMessage.HEADER_LENGTH > payload.length) {
+            return Result.PASS;
+        }
+        ResponseContext context = RESPONSE_CONTEXT.get();
+        DnsMessage query = context.query.wrap(payload, dnsOffset, payload.length - dnsOffset);
+        MdnsResponseWriter writer = context.writer;
+        if (!writer.readQuery(query)) {
+            return Result.PASS;
+        }
+
+        int querierAddr = PacketParsingUtils.srcIPAddrToInt(payload);
+        int querierPort = PacketParsingUtils.udpSrcPort(payload);
+        boolean legacy = querierPort != MdnsResponseWriter.MDNS_PORT;
+        byte[] frame = context.frame;
+        long now = System.nanoTime();
+        int sent = 0;
+        for (ServiceRecordCache.CachedRecord cached : serviceRecordCache.snapshot()) {
+            int serverAddr = cached.getSourceAddr();
+            if (serverAddr == querierAddr) {
+                // The server itself asking, it answers its own query
+                continue;
+            }
+            long serverMac = hostManager.getIpMac(serverAddr);
+            if (serverMac == 0) {
+                continue;
+            }
+            int dnsLength = writer.write(cached, now, legacy, frame, DNS_START, frame.length);
+            if (dnsLength == 0) {
+                continue;
+            }
+            boolean unicast = legacy || writer.unicastRequested();
+            writeHeaders(frame, payload, serverMac, serverAddr, unicast ? querierAddr : MDNS_GROUP_ADDR,
+                    unicast, legacy ? querierPort : MdnsResponseWriter.MDNS_PORT, dnsLength);
+            // transmitPacket keeps the frame until the packet out is done
+            if (packetDispatcher.sendPacketOut(Arrays.copyOf(frame, DNS_START + dnsLength), ingress)) {
+                sent++;
+            }
+        }
+
+        if (sent == 0) {
+            unansweredCount.incrementAndGet();
+            return Result.UNANSWERED;
+        }
+        answeredCount.incrementAndGet();
+        responseCount.addAndGet(sent);
+        LOG.debug("Answered mDNS query from {} with {} responses", Integer.toHexString(querierAddr), sent);
+        return Result.ANSWERED;
+    }
+
+    /**
+     * Ethernet, IPv4 and UDP headers in front of the DNS message, with checksums
+     * @param unicast send to the querier's MAC, else to the mDNS group MAC
+     */
+    private static void writeHeaders(byte[] frame, byte[] query, long serverMac, int srcAddr, int dstAddr,
+                                     boolean unicast, int dstPort, int dnsLength) {
+        if (unicast) {
+            System.arraycopy(query, 6, frame, 0, 6);
+        } else {
+            System.arraycopy(MDNS_GROUP_MAC, 0, frame, 0, 6);
+        }
+        System.arraycopy(NetUtils.longToByteArray6(serverMac), 0, frame, 6, 6);
+        putShort(frame, 12, PacketParsingUtils.ETHER_TYPE_IPV4);
+
+        int ip = ETHERNET_HEADER_LENGTH;
+        int udpLength = UDP_HEADER_LENGTH + dnsLength;
+        frame[ip] = 0x45;
+        frame[ip + 1] = 0;
+        putShort(frame, ip + 2, IP_HEADER_LENGTH + udpLength);
+        putShort(frame, ip + 4, 0);
+        // Don't fragment
+        putShort(frame, ip + 6, 0x4000);
+        frame[ip + 8] = (byte) IP_TTL;
+        frame[ip + 9] = PacketParsingUtils.IP_PROTOCOL_UDP;
+        putShort(frame, ip + 10, 0);
+        putInt(frame, ip + 12, srcAddr);
+        putInt(frame, ip + 16, dstAddr);
+        putShort(frame, ip + 10, ~checksum(frame, ip, IP_HEADER_LENGTH, 0));
+
+        int udp = ip + IP_HEADER_LENGTH;
+        putShort(frame, udp, MdnsResponseWriter.MDNS_PORT);
+        putShort(frame, udp + 2, dstPort);
+        putShort(frame, udp + 4, udpLength);
+        putShort(frame, udp + 6, 0);
+        int pseudoHeader = (srcAddr >>> 16) + (srcAddr & 0xFFFF) + (dstAddr >>> 16) + (dstAddr & 0xFFFF)
+                + PacketParsingUtils.IP_PROTOCOL_UDP + udpLength;
+        int udpChecksum = ~checksum(frame, udp, udpLength, pseudoHeader) & 0xFFFF;
+        // 0 means no checksum in UDP, an all ones sum is sent as 0xFFFF
+        putShort(frame, udp + 6, udpChecksum == 0 ? 0xFFFF : udpChecksum);
+    }
+
+    /**
+     * @return ones' complement sum of the 16 bit words of frame[offset, offset + length), folded
+     */
+    private static int checksum(byte[] frame, int offset, int length, int initial) {
+        long sum = initial;
+        int end = offset + (length & ~1);
+        for (int i = offset; i < end; i += 2) {
+            sum += ((frame[i] & 0xFF) << 8) | (frame[i + 1] & 0xFF);
+        }
+        if ((length & 1) != 0) {
+            sum += (frame[end] & 0xFF) << 8;
+        }
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return (int) sum;
+    }
+
+    private static void putShort(byte[] frame, int offset, int value) {
+        frame[offset] = (byte) (value >>> 8);
+        frame[offset + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] frame, int offset, int value) {
+        putShort(frame, offset, value >>> 16);
+        putShort(frame, offset + 2, value);
+    }
+
+    /**
+     * @return queries answered with at least one response
+     */
+    public long getAnsweredCount() {
+        return answeredCount.get();
+    }
+
+    /**
+     * @return queries no cached instance answered, or whose answers the querier knew
+     */
+    public long getUnansweredCount() {
+        return unansweredCount.get();
+    }
+
+    public long getResponseCount() {
+        return responseCount.get();
+    }
+}
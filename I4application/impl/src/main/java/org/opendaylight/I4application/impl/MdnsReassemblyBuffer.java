@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import org.opendaylight.I4application.impl.dns.DnsMessage;
+import org.opendaylight.I4application.impl.dns.DnsMessageMerger;
+import org.opendaylight.I4application.impl.utils.HashedTimerWheel;
+import org.opendaylight.I4application.impl.utils.IntObjectHashMap;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the TC-flagged mDNS responses of a server until its packet without TC
+ * arrives, then hands the packets on as one message, so the records of a
+ * response sent in parts are parsed together and only once. Other packets are
+ * handed on at once, on the thread offering them.
+ *
+ * Each source holds at most maxBytes of DNS messages. A packet which would go
+ * over that, and the window running out before the last packet came, both
+ * hand on what is held as a message of its own.
+ */
+public class MdnsReassemblyBuffer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MdnsReassemblyBuffer.class);
+
+    private static final int DNS_FLAGS_OFFSET = 2;
+    private static final int DNS_FLAG_RESPONSE = 0x80;
+    private static final int DNS_FLAG_TRUNCATED = 0x02;
+    // Largest DNS message over UDP, merged names are written out in full
+    private static final int MAX_MERGED_LENGTH = 0xFFFF;
+    private static final int WINDOW_TICKS = 10;
+
+    public interface Listener {
+        void onMessage(Message message);
+    }
+
+    /**
+     * The frames of one DNS message and where the message is: inside the only
+     * frame, or merged into an array of its own
+     */
+    public static final class Message {
+        private final int srcAddr;
+        private final List<byte[]> frames;
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+
+        Message(int srcAddr, List<byte[]> frames, byte[] data, int offset, int length) {
+            this.srcAddr = srcAddr;
+            this.frames = frames;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int getSrcAddr() {
+            return srcAddr;
+        }
+
+        /**
+         * @return the frames as received, in order, do not modify
+         */
+        public List<byte[]> getFrames() {
+            return frames;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    /** Packets held for one source, guarded by the buffer */
+    private static final class Pending {
+        final int srcAddr;
+        final List<byte[]> frames = new ArrayList<>(2);
+        int bytes;
+        HashedTimerWheel.Timeout<Pending> timeout;
+
+        Pending(int srcAddr) {
+            this.srcAddr = srcAddr;
+        }
+    }
+
+    private final long windowMillis;
+    private final int maxBytes;
+    private final int maxSources;
+    private final IntObjectHashMap<Pending> pending = new IntObjectHashMap<>();
+    private final HashedTimerWheel<Pending> timerWheel;
+    private volatile Listener listener;
+
+    private final AtomicLong reassembledCount = new AtomicLong();
+    private final AtomicLong incompleteCount = new AtomicLong();
+    private final AtomicLong overBudgetCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * @param windowMillis how long the first TC packet of a source waits for the last one
+     * @param maxBytes DNS message bytes held per source
+     * @param maxSources sources held at once, TC packets of others are handed on alone
+     */
+    public MdnsReassemblyBuffer(long windowMillis, int maxBytes, int maxSources) {
+        this.windowMillis = windowMillis;
+        this.maxBytes = maxBytes;
+        this.maxSources = maxSources;
+        this.timerWheel = new HashedTimerWheel<>("mdns-reassembly",
+                Math.max(1, windowMillis / WINDOW_TICKS), WINDOW_TICKS * 2, this::expire);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param frame IPv4 frame of an mDNS message
+     */
+    public void offer(byte[] frame) {
+        int dnsOffset = PacketParsingUtils.mDNSPayloadOffset(frame);
+        int dnsLength = frame.length - dnsOffset;
+        int srcAddr = PacketParsingUtils.srcIPAddrToInt(frame);
+        boolean truncated = isTruncatedResponse(frame, dnsOffset);
+
+        Pending flushed = null;
+        Pending completed = null;
+        boolean alone = true;
+        synchronized (this) {
+            Pending held = pending.get(srcAddr);
+            if (held != null && held.bytes + dnsLength > maxBytes) {
+                flushed = take(held);
+                held = null;
+            }
+            if (held == null && truncated && dnsLength <= maxBytes) {
+                if (pending.size() < maxSources) {
+                    held = new Pending(srcAddr);
+                    held.timeout = timerWheel.schedule(held, windowMillis);
+                    pending.put(srcAddr, held);
+                } else {
+                    overflowCount.incrementAndGet();
+                }
+            }
+            if (held != null) {
+                held.frames.add(frame);
+                held.bytes += dnsLength;
+                alone = false;
+                if (!truncated) {
+                    completed = take(held);
+                }
+            }
+        }
+
+        if (flushed != null) {
+            overBudgetCount.incrementAndGet();
+            LOG.debug("mDNS response parts of {} over {} bytes, parsing them without the rest",
+                    Integer.toHexString(srcAddr), maxBytes);
+            emit(flushed);
+        }
+        if (completed != null) {
+            emit(completed);
+        } else if (alone) {
+            deliver(new Message(srcAddr, Collections.singletonList(frame), frame, dnsOffset, dnsLength));
+        }
+    }
+
+    /**
+     * Window ran out before the packet without TC came
+     */
+    private void expire(Pending expired) {
+        synchronized (this) {
+            if (pending.get(expired.srcAddr) != expired) {
+                return;
+            }
+            pending.remove(expired.srcAddr);
+        }
+        incompleteCount.incrementAndGet();
+        LOG.debug("mDNS response of {} incomplete after {} ms, parsing {} parts",
+                Integer.toHexString(expired.srcAddr), windowMillis, expired.frames.size());
+        emit(expired);
+    }
+
+    /**
+     * Stop holding packets for the source, the caller hands them on
+     */
+    private Pending take(Pending held) {
+        pending.remove(held.srcAddr);
+        held.timeout.cancel();
+        return held;
+    }
+
+    private void emit(Pending held) {
+        List<byte[]> frames = held.frames;
+        if (frames.size() == 1) {
+            byte[] frame = frames.get(0);
+            int dnsOffset = PacketParsingUtils.mDNSPayloadOffset(frame);
+            deliver(new Message(held.srcAddr, frames, frame, dnsOffset, frame.length - dnsOffset));
+            return;
+        }
+        List<DnsMessage> parts = new ArrayList<>(frames.size());
+        for (byte[] frame : frames) {
+            int dnsOffset = PacketParsingUtils.mDNSPayloadOffset(frame);
+            parts.add(new DnsMessage().wrap(frame, dnsOffset, frame.length - dnsOffset));
+        }
+        byte[] merged = DnsMessageMerger.merge(parts, MAX_MERGED_LENGTH);
+        if (merged != null) {
+            reassembledCount.incrementAndGet();
+            deliver(new Message(held.srcAddr, frames, merged, 0, merged.length));
+            return;
+        }
+        LOG.debug("Could not merge the {} mDNS response parts of {}, parsing them one by one",
+                frames.size(), Integer.toHexString(held.srcAddr));
+        for (byte[] frame : frames) {
+            int dnsOffset = PacketParsingUtils.mDNSPayloadOffset(frame);
+            deliver(new Message(held.srcAddr, Collections.singletonList(frame), frame, dnsOffset,
+                    frame.length - dnsOffset));
+        }
+    }
+
+    private void deliver(Message message) {
+        Listener current = listener;
+        if (current != null) {
+            current.onMessage(message);
+        }
+    }
+
+    private static boolean isTruncatedResponse(byte[] frame, int dnsOffset) {
+        int flags = dnsOffset + DNS_FLAGS_OFFSET;
+        return dnsOffset + DnsMessage.HEADER_LENGTH <= frame.length
+                && (frame[flags] & (DNS_FLAG_RESPONSE | DNS_FLAG_TRUNCATED)) == (DNS_FLAG_RESPONSE | DNS_FLAG_TRUNCATED);
+    }
+
+    /**
+     * @return responses handed on merged from several packets
+     */
+    public long getReassembledCount() {
+        return reassembledCount.get();
+    }
+
+    /**
+     * @return responses handed on when the window ran out before their last packet
+     */
+    public long getIncompleteCount() {
+        return incompleteCount.get();
+    }
+
+    /**
+     * @return responses handed on early as the next packet would go over the byte budget
+     */
+    public long getOverBudgetCount() {
+        return overBudgetCount.get();
+    }
+
+    /**
+     * @return TC packets handed on alone as too many sources were held
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    @Override
+    public void close() {
+        timerWheel.close();
+    }
+}
@@ -8,8 +8,15 @@
 
 package org.opendaylight.I4application.impl;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.JdkFutureAdapters;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.opendaylight.I4application.impl.Topology.HostManager;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStage;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.openflowplugin.api.OFConstants;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeRef;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
@@ -17,28 +24,50 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.Pa
 import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.TransmitPacketInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.TransmitPacketInputBuilder;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.common.RpcResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
 public class PacketDispatcher {
     private final static Logger LOG = LoggerFactory.getLogger(PacketDispatcher.class);
 
     private PacketProcessingService packetProcessingService;
     private HostManager hostManager;
+    private LatencyRecorder latencyRecorder;
 
-    public PacketDispatcher(PacketProcessingService packetProcessingService, HostManager hostManager) {
+    public PacketDispatcher(PacketProcessingService packetProcessingService, HostManager hostManager,
+                            LatencyRecorder latencyRecorder) {
         this.packetProcessingService = packetProcessingService;
         this.hostManager = hostManager;
+        this.latencyRecorder = latencyRecorder;
     }
 
 
-    public boolean dispatchPacket(byte[] payload, Ipv4Address srcIP, Ipv4Address dstIP){
+    /**
+     * @param srcIP source address in network byte order
+     * @param dstIP destination address in network byte order
+     */
+    public boolean dispatchPacket(byte[] payload, int srcIP, int dstIP){
+        return dispatchPacket(payload, OFConstants.OFP_NO_BUFFER, null, srcIP, dstIP);
+    }
+
+    /**
+     * @param bufferId switch buffer holding the packet, OFP_NO_BUFFER to send payload instead
+     * @param ingress port the buffered packet was received on
+     */
+    public boolean dispatchPacket(byte[] payload, long bufferId, NodeConnectorRef ingress,
+                                  int srcIP, int dstIP){
         LOG.debug("Dispatch packet");
         NodeConnectorRef srcNCRef = hostManager.getIpNodeConnectorRef(srcIP);
         NodeConnectorRef dstNCRef = hostManager.getIpNodeConnectorRef(dstIP);
 
         if (srcNCRef != null && dstNCRef != null){
-            return sendPacketOut(payload, srcNCRef, dstNCRef);
+            return sendPacketOut(payload, bufferId, ingress, dstNCRef);
         }
         return false;
     }
@@ -49,19 +78,142 @@ public class PacketDispatcher {
         if (srcNCRef == null || dstNCRef == null){
             return false;
         }
+        return sendPacketOut(payload, OFConstants.OFP_NO_BUFFER, null, dstNCRef);
+    }
 
-        InstanceIdentifier<Node> egressNode = getNodeIID(dstNCRef);
-
+    /**
+     * Packet out a controller generated frame on a single switch port.
+     */
+    public boolean sendPacketOut(byte[] payload, NodeConnectorRef egress){
+        if (egress == null){
+            return false;
+        }
         TransmitPacketInput transmitPacketInput = new TransmitPacketInputBuilder()
-                            .setPayload(payload)
+                .setPayload(payload)
+                .setNode(new NodeRef(getNodeIID(egress)))
+                .setEgress(egress)
+                .build();
+        transmitPacket(transmitPacketInput);
+        return true;
+    }
+
+    /**
+     * Release a switch buffered packet by its buffer id, or send the full payload when
+     * the buffer is not on the egress switch. A header-only payload is never sent out on its own.
+     */
+    private boolean sendPacketOut(byte[] payload, long bufferId,
+                                  NodeConnectorRef ingress, NodeConnectorRef dstNCRef){
+
+        InstanceIdentifier<Node> egressNode = getNodeIID(dstNCRef);
+        TransmitPacketInputBuilder builder = new TransmitPacketInputBuilder()
                             .setNode(new NodeRef(egressNode))
-                            .setEgress(dstNCRef)
-                            .build();
-        packetProcessingService.transmitPacket(transmitPacketInput);
+                            .setEgress(dstNCRef);
+
+        // A buffer id is only valid on the switch which sent the packet-in
+        if (bufferId != OFConstants.OFP_NO_BUFFER && ingress != null
+                && getNodeIID(ingress).equals(egressNode)){
+            builder.setBufferId(bufferId);
+        } else if (PacketParsingUtils.isTruncated(payload)){
+            LOG.debug("Not sending truncated packet without buffer id");
+            return false;
+        } else {
+            builder.setPayload(payload);
+        }
+
+        TransmitPacketInput transmitPacketInput = builder.build();
+        transmitPacket(transmitPacketInput);
         return true;
     }
 
+    /**
+     * Packet out a batch of payloads towards the same destination host. Both hosts are
+     * looked up in HostManager once for the whole batch and all transmits are issued
+     * without waiting for the previous one to complete.
+     * @param payloads views of the packets, e.g. into MdnsPacketStore, read before this returns
+     * @return future completing when every transmit has completed
+     */
+    public ListenableFuture<BatchResult> dispatchPackets(List<ByteBuffer> payloads, int srcIP, int dstIP){
+        LOG.debug("Dispatch batch of {} packets", payloads.size());
+        NodeConnectorRef dstNCRef = getEgress(srcIP, dstIP);
+        if (dstNCRef == null){
+            return Futures.immediateFuture(new BatchResult(0, payloads.size()));
+        }
+        return sendPacketsOut(payloads, dstNCRef);
+    }
+
+    /**
+     * @return port of the destination host packets between the hosts go out of,
+     *         null if either host is unknown
+     */
+    public NodeConnectorRef getEgress(int srcIP, int dstIP){
+        NodeConnectorRef srcNCRef = hostManager.getIpNodeConnectorRef(srcIP);
+        NodeConnectorRef dstNCRef = hostManager.getIpNodeConnectorRef(dstIP);
+        return srcNCRef == null ? null : dstNCRef;
+    }
+
+    public ListenableFuture<BatchResult> sendPacketsOut(List<ByteBuffer> payloads, NodeConnectorRef dstNCRef){
+
+        NodeRef egressNode = new NodeRef(getNodeIID(dstNCRef));
+        final List<ListenableFuture<RpcResult<Void>>> transmits = new ArrayList<>(payloads.size());
+
+        for (ByteBuffer payload : payloads){
+            // The transmit input takes an array, copied here as the buffer may be read-only
+            byte[] packet = new byte[payload.remaining()];
+            payload.duplicate().get(packet);
+            TransmitPacketInput transmitPacketInput = new TransmitPacketInputBuilder()
+                    .setPayload(packet)
+                    .setNode(egressNode)
+                    .setEgress(dstNCRef)
+                    .build();
+            Future<RpcResult<Void>> transmit = transmitPacket(transmitPacketInput);
+            transmits.add(JdkFutureAdapters.listenInPoolThread(transmit));
+        }
+
+        // successfulAsList yields null for failed transmits instead of failing the batch
+        return Futures.transform(Futures.successfulAsList(transmits),
+                new Function<List<RpcResult<Void>>, BatchResult>() {
+                    @Override
+                    public BatchResult apply(List<RpcResult<Void>> results) {
+                        int success = 0;
+                        for (RpcResult<Void> result : results){
+                            if (result != null && result.isSuccessful()){
+                                success++;
+                            }
+                        }
+                        return new BatchResult(success, results.size() - success);
+                    }
+                });
+    }
+
+    private Future<RpcResult<Void>> transmitPacket(TransmitPacketInput transmitPacketInput){
+        long startNanos = System.nanoTime();
+        Future<RpcResult<Void>> transmit = packetProcessingService.transmitPacket(transmitPacketInput);
+        latencyRecorder.recordCompletion(LatencyStage.PACKET_OUT, transmit, startNanos);
+        return transmit;
+    }
+
     private InstanceIdentifier<Node> getNodeIID(final NodeConnectorRef NCRef){
         return NCRef.getValue().firstIdentifierOf(Node.class);
     }
+
+    /**
+     * Outcome of a batched packet out.
+     */
+    public static class BatchResult {
+        private final int successCount;
+        private final int failureCount;
+
+        public BatchResult(int successCount, int failureCount) {
+            this.successCount = successCount;
+            this.failureCount = failureCount;
+        }
+
+        public int getSuccessCount() {
+            return successCount;
+        }
+
+        public int getFailureCount() {
+            return failureCount;
+        }
+    }
 }
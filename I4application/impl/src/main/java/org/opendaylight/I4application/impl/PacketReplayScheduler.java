@@ -0,0 +1,380 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.opendaylight.I4application.impl.utils.IntObjectHashMap;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays cached mDNS packets towards a host at a steady pace instead of in
+ * one burst. Each egress port sends at most one packet per interval; replays
+ * going out of the same port take turns packet by packet, so a long replay
+ * does not hold up a short one. Sending runs on a timer thread of its own,
+ * the caller only queues the replay and gets a future of its outcome.
+ *
+ * Replays are counted per coordinator: how many, their packets, the packets
+ * lost and how long they took from queueing to the last transmit completing.
+ */
+public class PacketReplayScheduler implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PacketReplayScheduler.class);
+
+    /**
+     * Outcome of one replay
+     */
+    public static final class ReplayResult {
+        private final int sentCount;
+        private final int lostCount;
+        private final long durationNanos;
+
+        ReplayResult(int sentCount, int lostCount, long durationNanos) {
+            this.sentCount = sentCount;
+            this.lostCount = lostCount;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * @return packets the switch took
+         */
+        public int getSentCount() {
+            return sentCount;
+        }
+
+        /**
+         * @return packets not sent, their host unknown, the port queue full, or the transmit failed
+         */
+        public int getLostCount() {
+            return lostCount;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+    }
+
+    /**
+     * Totals of the replays for one coordinator, at the time they were read
+     */
+    public static final class CoordinatorStats {
+        private final long replayCount;
+        private final long packetCount;
+        private final long lostCount;
+        private final long totalDurationNanos;
+        private final long maxDurationNanos;
+
+        CoordinatorStats(long replayCount, long packetCount, long lostCount, long totalDurationNanos,
+                         long maxDurationNanos) {
+            this.replayCount = replayCount;
+            this.packetCount = packetCount;
+            this.lostCount = lostCount;
+            this.totalDurationNanos = totalDurationNanos;
+            this.maxDurationNanos = maxDurationNanos;
+        }
+
+        public long getReplayCount() {
+            return replayCount;
+        }
+
+        public long getPacketCount() {
+            return packetCount;
+        }
+
+        public long getLostCount() {
+            return lostCount;
+        }
+
+        public long getTotalDurationNanos() {
+            return totalDurationNanos;
+        }
+
+        public long getMaxDurationNanos() {
+            return maxDurationNanos;
+        }
+    }
+
+    /** A replay under way, its packets copied out of the store */
+    private static final class Replay {
+        final int coordinator;
+        final List<byte[]> packets;
+        final long startNanos;
+        final SettableFuture<ReplayResult> future = SettableFuture.create();
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger lost = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        /** Next packet to send, guarded by the scheduler */
+        int next;
+
+        Replay(int coordinator, List<byte[]> packets, long startNanos) {
+            this.coordinator = coordinator;
+            this.packets = packets;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /** Replays waiting for one port, guarded by the scheduler */
+    private static final class Egress {
+        final NodeConnectorRef port;
+        final ArrayDeque<Replay> replays = new ArrayDeque<>();
+        int queuedPackets;
+        long nextSendNanos;
+        boolean scheduled;
+
+        Egress(NodeConnectorRef port) {
+            this.port = port;
+        }
+    }
+
+    /** Guarded by the scheduler */
+    private static final class CoordinatorCounters {
+        long replays;
+        long packets;
+        long lost;
+        long totalNanos;
+        long maxNanos;
+    }
+
+    private final PacketDispatcher packetDispatcher;
+    private final long intervalNanos;
+    private final int maxQueuedPackets;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this
+    private final Map<NodeConnectorRef, Egress> egresses = new HashMap<>();
+    private final IntObjectHashMap<CoordinatorCounters> coordinators = new IntObjectHashMap<>();
+    private boolean closed;
+
+    /**
+     * @param packetsPerSecond packets sent out of one port per second
+     * @param maxQueuedPackets packets waiting for one port, replays beyond it are lost whole
+     */
+    public PacketReplayScheduler(PacketDispatcher packetDispatcher, int packetsPerSecond, int maxQueuedPackets) {
+        if (packetsPerSecond <= 0 || maxQueuedPackets <= 0) {
+            throw new IllegalArgumentException("Replay rate and queue must be positive");
+        }
+        this.packetDispatcher = packetDispatcher;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / packetsPerSecond;
+        this.maxQueuedPackets = maxQueuedPackets;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mdns-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue packets to be sent from srcIP's side to dstIP
+     * @param coordinator coordinator the replay is counted for
+     * @param packets packets to send, copied before this returns
+     * @return future completing when every packet was sent or lost, never failing
+     */
+    public ListenableFuture<ReplayResult> replay(int coordinator, List<ByteBuffer> packets, int srcIP, int dstIP) {
+        List<byte[]> copies = new ArrayList<>(packets.size());
+        for (ByteBuffer packet : packets) {
+            byte[] copy = new byte[packet.remaining()];
+            packet.duplicate().get(copy);
+            copies.add(copy);
+        }
+        Replay replay = new Replay(coordinator, copies, System.nanoTime());
+        NodeConnectorRef port = copies.isEmpty() ? null : packetDispatcher.getEgress(srcIP, dstIP);
+        if (port == null || !enqueue(replay, port)) {
+            replay.lost.set(copies.size());
+            finish(replay);
+        }
+        return replay.future;
+    }
+
+    /**
+     * @return false if the port has no room for the replay
+     */
+    private synchronized boolean enqueue(Replay replay, NodeConnectorRef port) {
+        if (closed) {
+            return false;
+        }
+        Egress egress = egresses.get(port);
+        if (egress == null) {
+            egress = new Egress(port);
+            egresses.put(port, egress);
+        }
+        if (egress.queuedPackets + replay.packets.size() > maxQueuedPackets) {
+            LOG.debug("Replay queue of {} full, dropping {} packets", port.getValue(), replay.packets.size());
+            return false;
+        }
+        egress.replays.addLast(replay);
+        egress.queuedPackets += replay.packets.size();
+        if (!egress.scheduled) {
+            egress.scheduled = true;
+            schedule(egress, egress.nextSendNanos - System.nanoTime());
+        }
+        return true;
+    }
+
+    private void schedule(Egress egress, long delayNanos) {
+        try {
+            timer.schedule(() -> sendNext(egress), Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile, close() counts what is left as lost
+            egress.scheduled = false;
+        }
+    }
+
+    /**
+     * Send one packet of the replay whose turn it is, then let the next replay
+     * have the port once the interval has passed
+     */
+    private void sendNext(Egress egress) {
+        Replay replay;
+        byte[] packet;
+        synchronized (this) {
+            replay = egress.replays.pollFirst();
+            if (replay == null) {
+                egress.scheduled = false;
+                return;
+            }
+            packet = replay.packets.get(replay.next++);
+            egress.queuedPackets--;
+            if (replay.next < replay.packets.size()) {
+                egress.replays.addLast(replay);
+            }
+        }
+        transmit(replay, packet, egress.port);
+        synchronized (this) {
+            // Counted from the end of the call, so no two packets go out closer than the interval
+            egress.nextSendNanos = System.nanoTime() + intervalNanos;
+            if (egress.replays.isEmpty()) {
+                egress.scheduled = false;
+            } else {
+                schedule(egress, egress.nextSendNanos - System.nanoTime());
+            }
+        }
+    }
+
+    private void transmit(Replay replay, byte[] packet, NodeConnectorRef port) {
+        ListenableFuture<PacketDispatcher.BatchResult> transmit;
+        try {
+            transmit = packetDispatcher.sendPacketsOut(Collections.singletonList(ByteBuffer.wrap(packet)), port);
+        } catch (RuntimeException e) {
+            LOG.debug("Replay packet out failed", e);
+            packetDone(replay, false);
+            return;
+        }
+        Futures.addCallback(transmit, new FutureCallback<PacketDispatcher.BatchResult>() {
+            @Override
+            public void onSuccess(PacketDispatcher.BatchResult result) {
+                packetDone(replay, result.getSuccessCount() == 1);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.debug("Replay packet out failed", t);
+                packetDone(replay, false);
+            }
+        });
+    }
+
+    private void packetDone(Replay replay, boolean sent) {
+        (sent ? replay.sent : replay.lost).incrementAndGet();
+        if (replay.done.incrementAndGet() == replay.packets.size()) {
+            finish(replay);
+        }
+    }
+
+    private void finish(Replay replay) {
+        long durationNanos = System.nanoTime() - replay.startNanos;
+        ReplayResult result = new ReplayResult(replay.sent.get(), replay.lost.get(), durationNanos);
+        synchronized (this) {
+            CoordinatorCounters counters = coordinators.get(replay.coordinator);
+            if (counters == null) {
+                counters = new CoordinatorCounters();
+                coordinators.put(replay.coordinator, counters);
+            }
+            counters.replays++;
+            counters.packets += replay.packets.size();
+            counters.lost += result.getLostCount();
+            counters.totalNanos += durationNanos;
+            counters.maxNanos = Math.max(counters.maxNanos, durationNanos);
+        }
+        if (result.getLostCount() != 0) {
+            LOG.debug("Replay for coordinator {} lost {} of {} packets", Integer.toHexString(replay.coordinator),
+                    result.getLostCount(), replay.packets.size());
+        }
+        replay.future.set(result);
+    }
+
+    /**
+     * @param coordinator address in network byte order
+     * @return totals of the replays for the coordinator, null if none finished yet
+     */
+    public synchronized CoordinatorStats getCoordinatorStats(int coordinator) {
+        CoordinatorCounters counters = coordinators.get(coordinator);
+        if (counters == null) {
+            return null;
+        }
+        return new CoordinatorStats(counters.replays, counters.packets, counters.lost, counters.totalNanos,
+                counters.maxNanos);
+    }
+
+    /**
+     * @return packets waiting to be sent out of any port
+     */
+    public synchronized int getQueuedPacketCount() {
+        int queued = 0;
+        for (Egress egress : egresses.values()) {
+            queued += egress.queuedPackets;
+        }
+        return queued;
+    }
+
+    /**
+     * Stop sending, packets not sent yet are counted as lost
+     */
+    @Override
+    public void close() {
+        List<Replay> unfinished = new ArrayList<>();
+        List<Integer> unsent = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            timer.shutdownNow();
+            for (Egress egress : egresses.values()) {
+                for (Replay replay : egress.replays) {
+                    unfinished.add(replay);
+                    unsent.add(replay.packets.size() - replay.next);
+                }
+                egress.replays.clear();
+                egress.queuedPackets = 0;
+            }
+        }
+        for (int i = 0; i < unfinished.size(); i++) {
+            Replay replay = unfinished.get(i);
+            replay.lost.addAndGet(unsent.get(i));
+            // Transmits still in flight finish the replay if they complete last
+            if (replay.done.addAndGet(unsent.get(i)) == replay.packets.size()) {
+                finish(replay);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import org.opendaylight.I4application.impl.Topology.HostManager;
+import org.opendaylight.I4application.impl.utils.BoundedIntLongMap;
+import org.opendaylight.I4application.impl.utils.NetUtils;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers ARP requests on behalf of hosts known to HostManager, so the request
+ * is neither flooded nor relayed. The reply is packeted out on the port the
+ * request came in on.
+ */
+public class ProxyArpResponder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProxyArpResponder.class);
+
+    private static final int ARP_OPCODE_START = 20;
+    private static final int ARP_SENDER_MAC_START = 22;
+    private static final int ARP_SENDER_IP_START = 28;
+    private static final int ARP_TARGET_MAC_START = 32;
+    private static final int ARP_TARGET_IP_START = 38;
+    private static final int ARP_REQUEST = 1;
+    private static final int ARP_REPLY = 2;
+    // Minimum Ethernet frame without FCS
+    private static final int ARP_REPLY_FRAME_LENGTH = 60;
+
+    /**
+     * Fixed part of every reply: EtherType ARP, Ethernet/IPv4, opcode reply
+     */
+    private static final byte[] REPLY_TEMPLATE = new byte[ARP_REPLY_FRAME_LENGTH];
+    static {
+        REPLY_TEMPLATE[12] = 0x08;
+        REPLY_TEMPLATE[13] = 0x06;
+        REPLY_TEMPLATE[15] = 0x01;
+        REPLY_TEMPLATE[16] = 0x08;
+        REPLY_TEMPLATE[18] = 0x06;
+        REPLY_TEMPLATE[19] = 0x04;
+        REPLY_TEMPLATE[ARP_OPCODE_START + 1] = ARP_REPLY;
+    }
+
+    private final HostManager hostManager;
+    private final PacketDispatcher packetDispatcher;
+    private final long missIntervalNanos;
+    // Guarded by itself
+    private final BoundedIntLongMap lastMiss;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+
+    /**
+     * @param missIntervalMillis requests for the same unknown target passed on at most once per interval
+     * @param maxTrackedMisses unknown targets remembered for rate limiting, the
+     *        least recently asked for are forgotten first
+     */
+    public ProxyArpResponder(HostManager hostManager, PacketDispatcher packetDispatcher,
+                             long missIntervalMillis, int maxTrackedMisses) {
+        this.hostManager = hostManager;
+        this.packetDispatcher = packetDispatcher;
+        this.missIntervalNanos = TimeUnit.MILLISECONDS.toNanos(missIntervalMillis);
+        this.lastMiss = new BoundedIntLongMap(maxTrackedMisses);
+    }
+
+    public enum Result {
+        /** Reply sent, the request must not be forwarded */
+        ANSWERED,
+        /** Not answered here, forward the packet as usual */
+        PASS,
+        /** Unknown target asked again within the miss interval, drop the request */
+        RATE_LIMITED
+    }
+
+    /**
+     * @param payload ARP frame of at least {@link PacketParsingUtils#MIN_ARP_FRAME_LENGTH} bytes
+     * @param ingress port the frame was received on
+     */
+    public Result handleArp(byte[] payload, NodeConnectorRef ingress) {
+        if (opcode(payload) != ARP_REQUEST || ingress == null) {
+            return Result.PASS;
+        }
+        int senderAddr = PacketParsingUtils.readInt(payload, ARP_SENDER_IP_START);
+        int targetAddr = PacketParsingUtils.readInt(payload, ARP_TARGET_IP_START);
+        if (senderAddr == targetAddr) {
+            // Gratuitous ARP or address probe, nothing to answer
+            return Result.PASS;
+        }
+
+        long targetMac = hostManager.getIpMac(targetAddr);
+        if (targetMac == 0) {
+            missCount.incrementAndGet();
+            return admitMiss(targetAddr) ? Result.PASS : Result.RATE_LIMITED;
+        }
+
+        byte[] reply = buildReply(payload, NetUtils.longToByteArray6(targetMac));
+        if (!packetDispatcher.sendPacketOut(reply, ingress)) {
+            return Result.PASS;
+        }
+        hitCount.incrementAndGet();
+        LOG.debug("Answered ARP request for {}", Long.toHexString(targetMac));
+        return Result.ANSWERED;
+    }
+
+    /**
+     * The frame is handed to transmitPacket, which keeps it until the packet out is
+     * done, so each reply gets its own copy of the template.
+     */
+    private static byte[] buildReply(byte[] request, byte[] targetMac) {
+        byte[] reply = REPLY_TEMPLATE.clone();
+        // Ethernet destination and ARP target are the requester
+        System.arraycopy(request, ARP_SENDER_MAC_START, reply, 0, 6);
+        System.arraycopy(request, ARP_SENDER_MAC_START, reply, ARP_TARGET_MAC_START, 10);
+        // Ethernet source and ARP sender are the host asked for
+        System.arraycopy(targetMac, 0, reply, 6, 6);
+        System.arraycopy(targetMac, 0, reply, ARP_SENDER_MAC_START, 6);
+        System.arraycopy(request, ARP_TARGET_IP_START, reply, ARP_SENDER_IP_START, 4);
+        return reply;
+    }
+
+    private boolean admitMiss(int targetAddr) {
+        if (targetAddr == 0) {
+            // Not a host anyone can answer for, and not a key the map holds
+            return true;
+        }
+        long now = System.nanoTime();
+        synchronized (lastMiss) {
+            if (lastMiss.containsKey(targetAddr) && now - lastMiss.get(targetAddr, 0) < missIntervalNanos) {
+                rateLimitedCount.incrementAndGet();
+                return false;
+            }
+            lastMiss.put(targetAddr, now);
+        }
+        return true;
+    }
+
+    private static int opcode(byte[] payload) {
+        return ((payload[ARP_OPCODE_START] & 0xFF) << 8) | (payload[ARP_OPCODE_START + 1] & 0xFF);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+}
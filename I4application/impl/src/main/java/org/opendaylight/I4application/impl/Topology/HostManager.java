@@ -10,6 +10,9 @@ package org.opendaylight.I4application.impl.Topology;
 
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListenableFuture;
+import org.opendaylight.I4application.impl.utils.IntObjectHashMap;
+import org.opendaylight.I4application.impl.utils.LongObjectHashMap;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
@@ -39,8 +42,14 @@ public class HostManager {
     private static final Logger LOG = LoggerFactory.getLogger(HostManager.class);
     private final DataBroker dataBroker;
 
-    private HashMap<Ipv4Address, InstanceIdentifier<NodeConnector>> ipv4Address_port_Map;
-    private HashMap<MacAddress, InstanceIdentifier<NodeConnector>> macAddress_port_Map;
+    /*
+     * Keyed by IPv4 address as int and MAC address as long, see PacketParsingUtils.
+     * Read without locking from the packet-in shard workers: host changes are rare,
+     * so writers copy the map under the lock and publish the copy.
+     */
+    private volatile IntObjectHashMap<InstanceIdentifier<NodeConnector>> ipv4Address_port_Map;
+    private volatile LongObjectHashMap<InstanceIdentifier<NodeConnector>> macAddress_port_Map;
+    private volatile IntObjectHashMap<Long> ipv4Address_mac_Map;
     private HashMap<String, NodeConnectorRef> controllerswitchconnector;
 
     private NotificationPublishService notificationProvider;
@@ -50,8 +59,9 @@ public class HostManager {
         this.notificationProvider = notificationPublishService;
 
 //        //Initialize all the Mappings
-        ipv4Address_port_Map = new HashMap<>();
-        macAddress_port_Map = new HashMap<>();
+        ipv4Address_port_Map = new IntObjectHashMap<>();
+        macAddress_port_Map = new LongObjectHashMap<>();
+        ipv4Address_mac_Map = new IntObjectHashMap<>();
         controllerswitchconnector = new HashMap<>();
     }
 
@@ -70,12 +80,20 @@ public class HostManager {
     public synchronized void addIpv4Address(Ipv4Address ipv4Address,
                                             InstanceIdentifier<NodeConnector> ncid) {
         if (ncid != null) {
+            int address = PacketParsingUtils.ipv4AddressToInt(ipv4Address);
+            if (address == 0) {
+                // ARP probes and DHCP clients report 0.0.0.0, it is nobody's address
+                LOG.debug("Ignoring address 0.0.0.0 on {}", ncid);
+                return;
+            }
             NodeConnector nc = getNodeConnectorFromII(ncid);                           // We need to access the inventory to the value stored at the given IID
             if (nc != null) {
-                if (!ipv4Address_port_Map.containsKey(ipv4Address)) {
+                if (!ipv4Address_port_Map.containsKey(address)) {
                     LOG.debug("Adding " + ipv4Address.getValue()
                             + " node Connector: " + nc.getId());
-                    ipv4Address_port_Map.put(ipv4Address, ncid);
+                    IntObjectHashMap<InstanceIdentifier<NodeConnector>> ports = new IntObjectHashMap<>(ipv4Address_port_Map);
+                    ports.put(address, ncid);
+                    ipv4Address_port_Map = ports;
                     // Notify about Host Addition
                     HostAddedNotification hostAddedNotification =  new HostAddedNotificationBuilder()
                             .setIPAddress(ipv4Address)
@@ -94,11 +112,54 @@ public class HostManager {
         }
     }
 
+    /**
+     * Record the MAC address a host answers for on the given IP, as learned by the address tracker.
+     */
+    public synchronized void addIpv4MacBinding(Ipv4Address ipv4Address, MacAddress macAddress) {
+        if (ipv4Address != null && macAddress != null) {
+            int address = PacketParsingUtils.ipv4AddressToInt(ipv4Address);
+            if (address == 0) {
+                LOG.debug("Ignoring binding of address 0.0.0.0 to {}", macAddress.getValue());
+                return;
+            }
+            IntObjectHashMap<Long> bindings = new IntObjectHashMap<>(ipv4Address_mac_Map);
+            bindings.put(address, PacketParsingUtils.macAddressToLong(macAddress));
+            ipv4Address_mac_Map = bindings;
+        }
+    }
+
+    /**
+     * @return MAC address bound to ipv4Address, null if unknown
+     */
+    public MacAddress getIpMacAddress(Ipv4Address ipv4Address) {
+        long mac = getIpMac(PacketParsingUtils.ipv4AddressToInt(ipv4Address));
+        return mac == 0 ? null : PacketParsingUtils.longToMacAddress(mac);
+    }
+
+    /**
+     * @param address IPv4 address in network byte order
+     * @return MAC address bound to address in the low 48 bits, 0 if unknown
+     */
+    public long getIpMac(int address) {
+        Long mac = ipv4Address_mac_Map.get(address);
+        return mac == null ? 0 : mac;
+    }
+
     public synchronized void removeIpv4Address(Ipv4Address ipv4Address){
 
         if (ipv4Address != null){
             LOG.debug("Remove Ipv4Address {} from HostManager", ipv4Address.getValue());
-            ipv4Address_port_Map.remove(ipv4Address);
+            int address = PacketParsingUtils.ipv4AddressToInt(ipv4Address);
+            if (ipv4Address_port_Map.containsKey(address)) {
+                IntObjectHashMap<InstanceIdentifier<NodeConnector>> ports = new IntObjectHashMap<>(ipv4Address_port_Map);
+                ports.remove(address);
+                ipv4Address_port_Map = ports;
+            }
+            if (ipv4Address_mac_Map.containsKey(address)) {
+                IntObjectHashMap<Long> bindings = new IntObjectHashMap<>(ipv4Address_mac_Map);
+                bindings.remove(address);
+                ipv4Address_mac_Map = bindings;
+            }
             HostRemovedNotification hostRemovedNotification = new HostRemovedNotificationBuilder()
                                         .setIPAddress(ipv4Address).build();
             notificationProvider.offerNotification(hostRemovedNotification);
@@ -108,7 +169,12 @@ public class HostManager {
     public synchronized void removeMacAddress(MacAddress macAddress){
         if (macAddress != null){
             LOG.debug("Remove MacAddress {} from HostManager", macAddress.getValue());
-            macAddress_port_Map.remove(macAddress);
+            long mac = PacketParsingUtils.macAddressToLong(macAddress);
+            if (macAddress_port_Map.containsKey(mac)) {
+                LongObjectHashMap<InstanceIdentifier<NodeConnector>> ports = new LongObjectHashMap<>(macAddress_port_Map);
+                ports.remove(mac);
+                macAddress_port_Map = ports;
+            }
         }
     }
 
@@ -116,12 +182,19 @@ public class HostManager {
 
     public synchronized void addMacAddress(MacAddress macAddress,
                                            InstanceIdentifier<NodeConnector> ncid) {
+        long mac = PacketParsingUtils.macAddressToLong(macAddress);
+        if (mac == 0) {
+            LOG.debug("Ignoring MAC address 00:00:00:00:00:00 on {}", ncid);
+            return;
+        }
         NodeConnector nc = getNodeConnectorFromII(ncid);
         if (nc != null) {
-            if (macAddress_port_Map.containsKey(macAddress)) {
+            if (!macAddress_port_Map.containsKey(mac)) {
                 LOG.info("Adding " + macAddress.getValue().toString()
                         + " node Connector: " + nc.getId());
-                macAddress_port_Map.put(macAddress, ncid);
+                LongObjectHashMap<InstanceIdentifier<NodeConnector>> ports = new LongObjectHashMap<>(macAddress_port_Map);
+                ports.put(mac, ncid);
+                macAddress_port_Map = ports;
             } else {
                 NodeConnector oldNc = getMacNodeConnector(macAddress);
                 if(oldNc != null) {
@@ -182,66 +255,56 @@ public class HostManager {
     }
 
     public NodeConnector getIpNodeConnector(Ipv4Address ipv4Address) {
-        NodeConnector nodeConnector = null;
-
-        if (ipv4Address_port_Map.containsKey(ipv4Address)) {
-            InstanceIdentifier<NodeConnector> nodeConnectorId = ipv4Address_port_Map
-                    .get(ipv4Address);
-            nodeConnector = getNodeConnectorFromII(nodeConnectorId);
-        }
+        return getIpNodeConnector(PacketParsingUtils.ipv4AddressToInt(ipv4Address));
+    }
 
-        return nodeConnector;
+    /**
+     * @param address IPv4 address in network byte order
+     */
+    public NodeConnector getIpNodeConnector(int address) {
+        InstanceIdentifier<NodeConnector> nodeConnectorId = ipv4Address_port_Map.get(address);
+        return nodeConnectorId == null ? null : getNodeConnectorFromII(nodeConnectorId);
     }
 
     public Node getIpNode(Ipv4Address ipv4Address) {
-        Node node = null;
-        if (ipv4Address_port_Map.containsKey(ipv4Address)) {
-
-
-            InstanceIdentifier<NodeConnector> nodeConnectorId = ipv4Address_port_Map
-                    .get(ipv4Address);
+        return getIpNode(PacketParsingUtils.ipv4AddressToInt(ipv4Address));
+    }
 
-            InstanceIdentifier<Node> nodeId = nodeConnectorId
-                    .firstIdentifierOf(Node.class);
-            node = getNodeFromII(nodeId);
-        }
-        return node;
+    /**
+     * @param address IPv4 address in network byte order
+     */
+    public Node getIpNode(int address) {
+        InstanceIdentifier<NodeConnector> nodeConnectorId = ipv4Address_port_Map.get(address);
+        return nodeConnectorId == null ? null : getNodeFromII(nodeConnectorId.firstIdentifierOf(Node.class));
     }
 
     public NodeConnector getMacNodeConnector(MacAddress macAddress) {
-        NodeConnector nodeConnector = null;
-
-        if (macAddress_port_Map.containsKey(macAddress)) {
-            InstanceIdentifier<NodeConnector> nodeConnectorId = macAddress_port_Map
-                    .get(macAddress);
-            nodeConnector = getNodeConnectorFromII(nodeConnectorId);
-        }
-        return nodeConnector;
+        InstanceIdentifier<NodeConnector> nodeConnectorId = macAddress_port_Map
+                .get(PacketParsingUtils.macAddressToLong(macAddress));
+        return nodeConnectorId == null ? null : getNodeConnectorFromII(nodeConnectorId);
     }
 
     public Node getMacNode(MacAddress macAddress) {
-        Node node = null;
-
-        if (macAddress_port_Map.containsKey(macAddress)) {
-            InstanceIdentifier<NodeConnector> nodeConnectorId = macAddress_port_Map
-                    .get(macAddress);
-            InstanceIdentifier<Node> nodeId = nodeConnectorId
-                    .firstIdentifierOf(Node.class);
-            node = getNodeFromII(nodeId);
-        }
-        return node;
+        InstanceIdentifier<NodeConnector> nodeConnectorId = macAddress_port_Map
+                .get(PacketParsingUtils.macAddressToLong(macAddress));
+        return nodeConnectorId == null ? null : getNodeFromII(nodeConnectorId.firstIdentifierOf(Node.class));
     }
 
     public NodeConnectorRef getIpNodeConnectorRef(Ipv4Address ipv4Address) {
-        NodeConnectorRef ncRef = null;
-        Node node;
-        NodeConnector nc;
-        if (ipv4Address_port_Map.containsKey(ipv4Address)) {
-            node = getIpNode(ipv4Address);
-            nc = getIpNodeConnector(ipv4Address);
-            return getNCRef(node, nc);
+        return getIpNodeConnectorRef(PacketParsingUtils.ipv4AddressToInt(ipv4Address));
+    }
+
+    /**
+     * @param address IPv4 address in network byte order
+     */
+    public NodeConnectorRef getIpNodeConnectorRef(int address) {
+        InstanceIdentifier<NodeConnector> nodeConnectorId = ipv4Address_port_Map.get(address);
+        if (nodeConnectorId == null) {
+            return null;
         }
-        return ncRef;
+        Node node = getNodeFromII(nodeConnectorId.firstIdentifierOf(Node.class));
+        NodeConnector nc = getNodeConnectorFromII(nodeConnectorId);
+        return node == null || nc == null ? null : getNCRef(node, nc);
     }
 
     // Move these methods to Flow Writer class
@@ -120,6 +120,7 @@ public class TopologyChangeListener implements DataChangeListener {
         if (mac !=null){
             hostManager.addMacAddress(mac, nodeConnectorId);
         }
+        hostManager.addIpv4MacBinding(ipv4Address, mac);
     }
 
 
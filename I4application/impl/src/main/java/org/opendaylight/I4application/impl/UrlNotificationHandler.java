@@ -14,6 +14,9 @@ import com.google.common.util.concurrent.Futures;
 import org.apache.qpid.amqp_1_0.jms.impl.ConnectionFactoryImpl;
 import org.apache.qpid.amqp_1_0.jms.impl.QueueImpl;
 import org.opendaylight.I4application.impl.Topology.HostManager;
+import org.opendaylight.I4application.impl.utils.IntObjectHashMap;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.I4application.impl.utils.SnapshotFile;
 import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
@@ -24,6 +27,7 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.hostmana
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.i4application.rev150105.CoOrdinatorIdentified;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.i4application.rev150105.CoOrdinatorIdentifiedBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.updateskills.rev181201.UpdateSkillsService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlExpired;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlNotification;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.UrlNotificationListener;
 import org.opendaylight.yangtools.yang.common.RpcResult;
@@ -32,10 +36,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jms.*;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 
@@ -54,8 +62,10 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
     private NotificationPublishService notificationPublishService;
 
 
-    private HashMap<String, Ipv4Address> ipRecord = new HashMap<>();
-    private HashMap<String, Ipv4Address> coordinator_ws_map = new HashMap<>();
+    // Keyed by server address in network byte order, the AMQP listener thread reads it too
+    private final IntObjectHashMap<Ipv4Address> ipRecord = new IntObjectHashMap<>();
+    // Written from the AMQP listener thread, read by the snapshot writer too
+    private final HashMap<String, Ipv4Address> coordinator_ws_map = new HashMap<>();
     private HashMap<String, String> switch_workstation_map = new HashMap<>();
     private HashMap<String, ArrayList<String>> workstation_skillMap = new HashMap<>();
 
@@ -142,10 +152,8 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
         LOG.debug("Got discovery URL {} notification",notification.getDiscoveryUrl());
         Ipv4Address opcua_server_Address = notification.getSrcIPAddress();
 
-        try {
-            ipRecord.put(notification.getSrcIPAddress().toString(), opcua_server_Address);
-        } catch (Exception e){
-            e.printStackTrace();
+        synchronized (ipRecord) {
+            ipRecord.put(PacketParsingUtils.ipv4AddressToInt(opcua_server_Address), opcua_server_Address);
         }
 
         try {
@@ -161,12 +169,45 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
         MapMessage ip2urlMap = session.createMapMessage();
         ip2urlMap.setString("IPAddr", notification.getSrcIPAddress().toString());
         ip2urlMap.setString("URL", notification.getDiscoveryUrl());
+        // Announcement details, so the skill lookup does not have to ask the server for them
+        if (notification.getInstanceName() != null){
+            ip2urlMap.setString("InstanceName", notification.getInstanceName());
+        }
+        if (notification.getPath() != null){
+            ip2urlMap.setString("Path", notification.getPath());
+        }
+        if (notification.getCapabilities() != null && !notification.getCapabilities().isEmpty()){
+            ip2urlMap.setString("Capabilities", String.join(",", notification.getCapabilities()));
+        }
+        // A changed announcement replaces the URL the client has for the server
+        ip2urlMap.setBoolean("Updated", Boolean.TRUE.equals(notification.isUpdated()));
 
         ip2urlMap.setJMSReplyTo(response_queue);
         url_publisher.send(ip2urlMap, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
                 Message.DEFAULT_TIME_TO_LIVE);
     }
 
+    /**
+     * Tell the OPC UA client to stop using a discovery URL, the server said goodbye,
+     * did not re-announce within the TTL or left the network
+     */
+    @Override
+    public void onDiscoveryUrlExpired(DiscoveryUrlExpired notification) {
+        LOG.debug("Discovery URL {} expired, {}", notification.getDiscoveryUrl(), notification.getReason());
+        try {
+            MapMessage expiredUrl = session.createMapMessage();
+            expiredUrl.setString("IPAddr", notification.getSrcIPAddress().toString());
+            expiredUrl.setString("URL", notification.getDiscoveryUrl());
+            expiredUrl.setString("InstanceName", notification.getInstanceName());
+            expiredUrl.setBoolean("Expired", true);
+            expiredUrl.setString("Reason", String.valueOf(notification.getReason()));
+            url_publisher.send(expiredUrl, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                    Message.DEFAULT_TIME_TO_LIVE);
+        } catch (JMSException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Used to listen for the messages from Activemq queue
      */
@@ -181,7 +222,10 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
             org.apache.qpid.amqp_1_0.jms.MapMessage recievedMessage = (org.apache.qpid.amqp_1_0.jms.MapMessage) message;
             try {
                 String IP_Addr = recievedMessage.getObject("IPAddr").toString();
-                opc_ser_Addr = ipRecord.get(IP_Addr);
+                int key = ipRecordKey(IP_Addr);
+                synchronized (ipRecord) {
+                    opc_ser_Addr = ipRecord.get(key);
+                }
                 Skill = recievedMessage.get("Skill").toString();
             } catch (JMSException e) {
                 e.printStackTrace();
@@ -191,12 +235,24 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
     }
 
 
+    /**
+     * The client echoes IPAddr as sent, Ipv4Address.toString(), e.g. "Ipv4Address [_value=10.0.0.1]"
+     */
+    private static int ipRecordKey(String IP_Addr){
+        int from = IP_Addr.lastIndexOf('=') + 1;
+        int to = IP_Addr.indexOf(']', from);
+        return PacketParsingUtils.ipv4StringToInt(IP_Addr, from, to < 0 ? IP_Addr.length() : to);
+    }
+
+
     private void identify_coordinator(Ipv4Address ipv4Address, String skill){
 
         if (skill.equals("coordinator")){
             String switch_id = hostManager.getIpNode(ipv4Address).getId().getValue();
             String workstation = switch_workstation_map.get(switch_id);
-            coordinator_ws_map.put(workstation, ipv4Address);
+            synchronized (coordinator_ws_map) {
+                coordinator_ws_map.put(workstation, ipv4Address);
+            }
             return;
         }
 
@@ -204,7 +260,10 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
         String switch_id = hostManager.getIpNode(ipv4Address).getId().getValue();
         String workstation = switch_workstation_map.get(switch_id);
         if (workstation_skillMap.get(workstation).contains(skill)){
-            Ipv4Address coordinator_ip_addr = coordinator_ws_map.get(workstation);
+            Ipv4Address coordinator_ip_addr;
+            synchronized (coordinator_ws_map) {
+                coordinator_ip_addr = coordinator_ws_map.get(workstation);
+            }
             System.out.println("Coordinator found\n");
             LOG.info("Coordinator for {} is {}", ipv4Address.getValue(), coordinator_ip_addr.getValue());
             CoOrdinatorIdentified notification =  new CoOrdinatorIdentifiedBuilder()
@@ -225,18 +284,68 @@ public class UrlNotificationHandler implements UrlNotificationListener, HostNoti
     @Override
     public void onHostRemovedNotification(HostRemovedNotification notification) {
         LOG.debug("Remove Coordinator entry from workstation coordinator map");
-        if (coordinator_ws_map.containsValue(notification.getIPAddress())){
-            for (String workstation: coordinator_ws_map.keySet()){
-                if(coordinator_ws_map.get(workstation).equals(notification.getIPAddress())){
-                    try {
-                        System.out.println("Removed Coordinator Entry\n");
-                        coordinator_ws_map.remove(workstation);
-                    } catch (Exception e){
-                        e.printStackTrace();
-                    }
+        synchronized (coordinator_ws_map) {
+            Iterator<Ipv4Address> coordinators = coordinator_ws_map.values().iterator();
+            while (coordinators.hasNext()){
+                if (coordinators.next().equals(notification.getIPAddress())){
+                    System.out.println("Removed Coordinator Entry\n");
+                    coordinators.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the OPC UA servers whose skill responses are expected and the
+     * coordinator of each workstation
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int[] servers;
+        synchronized (ipRecord) {
+            servers = ipRecord.keys();
+        }
+        out.writeInt(servers.length);
+        for (int server : servers) {
+            out.writeInt(server);
+        }
+        Map<String, Ipv4Address> coordinators;
+        synchronized (coordinator_ws_map) {
+            coordinators = new HashMap<>(coordinator_ws_map);
+        }
+        out.writeInt(coordinators.size());
+        for (Map.Entry<String, Ipv4Address> coordinator : coordinators.entrySet()) {
+            SnapshotFile.writeString(out, coordinator.getKey());
+            out.writeInt(PacketParsingUtils.ipv4AddressToInt(coordinator.getValue()));
+        }
+    }
+
+    /**
+     * Take back what writeTo wrote, entries made since are kept
+     * @return coordinators read back
+     */
+    public int readFrom(ByteBuffer in) {
+        int serverCount = in.getInt();
+        for (int i = 0; i < serverCount; i++) {
+            int server = in.getInt();
+            synchronized (ipRecord) {
+                if (!ipRecord.containsKey(server)) {
+                    ipRecord.put(server, PacketParsingUtils.intToIpv4Address(server));
+                }
+            }
+        }
+        int coordinatorCount = in.getInt();
+        int restored = 0;
+        for (int i = 0; i < coordinatorCount; i++) {
+            String workstation = SnapshotFile.readString(in);
+            Ipv4Address coordinator = PacketParsingUtils.intToIpv4Address(in.getInt());
+            synchronized (coordinator_ws_map) {
+                if (!coordinator_ws_map.containsKey(workstation)) {
+                    coordinator_ws_map.put(workstation, coordinator);
+                    restored++;
                 }
             }
         }
+        return restored;
     }
 
     @Override
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of a DNS message (RFC 1035 section 4.1, RFC 6762) over a
+ * read-only ByteBuffer of the packet. Nothing is copied, all fields are read
+ * at absolute offsets when asked for. An instance can be re-pointed at the
+ * next packet with {@link #wrap(byte[], int, int)}.
+ */
+public final class DnsMessage {
+
+    public static final int HEADER_LENGTH = 12;
+
+    public static final int TYPE_A = 1;
+    public static final int TYPE_PTR = 12;
+    public static final int TYPE_TXT = 16;
+    public static final int TYPE_AAAA = 28;
+    public static final int TYPE_SRV = 33;
+    public static final int TYPE_NSEC = 47;
+    public static final int TYPE_ANY = 255;
+    public static final int CLASS_IN = 1;
+
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_TRUNCATED = 0x0200;
+
+    private ByteBuffer buffer;
+
+    /**
+     * Point the view at a DNS message, typically the UDP payload of an mDNS packet
+     */
+    public DnsMessage wrap(byte[] data, int offset, int length) {
+        this.buffer = ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+        return this;
+    }
+
+    /**
+     * @return read-only buffer of the message, offset 0 is the first header byte
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return buffer.limit();
+    }
+
+    /**
+     * @return false if the message is too short for a header
+     */
+    public boolean hasHeader() {
+        return buffer != null && buffer.limit() >= HEADER_LENGTH;
+    }
+
+    public int id() {
+        return readUnsignedShort(0);
+    }
+
+    public int flags() {
+        return readUnsignedShort(2);
+    }
+
+    public boolean isResponse() {
+        return (flags() & FLAG_RESPONSE) != 0;
+    }
+
+    /**
+     * @return true if the sender has more known answers in a following packet
+     */
+    public boolean isTruncated() {
+        return (flags() & FLAG_TRUNCATED) != 0;
+    }
+
+    public int questionCount() {
+        return readUnsignedShort(4);
+    }
+
+    public int answerCount() {
+        return readUnsignedShort(6);
+    }
+
+    public int authorityCount() {
+        return readUnsignedShort(8);
+    }
+
+    public int additionalCount() {
+        return readUnsignedShort(10);
+    }
+
+    /**
+     * @return cursor over all records of the message, starting before the first question
+     */
+    public DnsRecordCursor records() {
+        return new DnsRecordCursor().reset(this);
+    }
+
+    int readUnsignedShort(int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Joins the packets of a DNS message sent in parts, TC-flagged packets
+ * followed by their last packet, into one message. Compression pointers only
+ * point into their own packet, so the records can not be copied as they are:
+ * every name, including those in PTR, SRV and NSEC data, is written out in
+ * full. The merged message is longer than its packets together but readable
+ * by everything that reads a single packet.
+ */
+public final class DnsMessageMerger {
+
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final int MAX_SECTION_COUNT = 0xFFFF;
+    // Type, class, TTL before the rdata length of a record
+    private static final int RECORD_FIXED_LENGTH = 8;
+    private static final int QUESTION_FIXED_LENGTH = 4;
+    private static final int SRV_TARGET_START = 6;
+    private static final int TYPE_NS = 2;
+    private static final int TYPE_CNAME = 5;
+
+    private DnsMessageMerger() {
+    }
+
+    /**
+     * @param messages the packets in the order they were sent
+     * @param maxLength longest merged message to build
+     * @return header of the first message with TC cleared, then the questions, answers,
+     *         authority and additional records of all messages in order; null if a
+     *         message is malformed or the merged one would be longer than maxLength
+     */
+    public static byte[] merge(List<DnsMessage> messages, int maxLength) {
+        if (messages.isEmpty() || !messages.get(0).hasHeader()) {
+            return null;
+        }
+        DnsRecordCursor.Section[] sectionValues = DnsRecordCursor.Section.values();
+        ByteArrayOutputStream[] sections = new ByteArrayOutputStream[sectionValues.length];
+        int[] counts = new int[sectionValues.length];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new ByteArrayOutputStream();
+        }
+        int length = DnsMessage.HEADER_LENGTH;
+        for (DnsMessage message : messages) {
+            ByteBuffer buffer = message.buffer();
+            DnsRecordCursor cursor = message.records();
+            while (cursor.next()) {
+                int section = cursor.section().ordinal();
+                ByteArrayOutputStream out = sections[section];
+                int before = out.size();
+                if (!writeRecord(buffer, cursor, out) || ++counts[section] > MAX_SECTION_COUNT) {
+                    return null;
+                }
+                length += out.size() - before;
+                if (length > maxLength) {
+                    return null;
+                }
+            }
+            if (cursor.isMalformed()) {
+                return null;
+            }
+        }
+
+        DnsMessage first = messages.get(0);
+        ByteArrayOutputStream merged = new ByteArrayOutputStream(length);
+        writeShort(merged, first.id());
+        writeShort(merged, first.flags() & ~FLAG_TRUNCATED);
+        for (int count : counts) {
+            writeShort(merged, count);
+        }
+        for (ByteArrayOutputStream section : sections) {
+            byte[] records = section.toByteArray();
+            merged.write(records, 0, records.length);
+        }
+        return merged.toByteArray();
+    }
+
+    /**
+     * Copy the record at the cursor with its names uncompressed
+     * @return false if a name is malformed
+     */
+    private static boolean writeRecord(ByteBuffer buffer, DnsRecordCursor cursor, ByteArrayOutputStream out) {
+        if (!writeName(buffer, cursor.nameOffset(), out)) {
+            return false;
+        }
+        int fixedStart = DnsNames.skip(buffer, cursor.nameOffset());
+        if (cursor.section() == DnsRecordCursor.Section.QUESTION) {
+            copy(buffer, fixedStart, fixedStart + QUESTION_FIXED_LENGTH, out);
+            return true;
+        }
+        copy(buffer, fixedStart, fixedStart + RECORD_FIXED_LENGTH, out);
+
+        int rdataStart = cursor.rdataOffset();
+        int rdataEnd = rdataStart + cursor.rdataLength();
+        int nameStart;
+        switch (cursor.type()) {
+            case DnsMessage.TYPE_PTR:
+            case TYPE_NS:
+            case TYPE_CNAME:
+            case DnsMessage.TYPE_NSEC:
+                nameStart = rdataStart;
+                break;
+            case DnsMessage.TYPE_SRV:
+                nameStart = rdataStart + SRV_TARGET_START;
+                break;
+            default:
+                writeShort(out, rdataEnd - rdataStart);
+                copy(buffer, rdataStart, rdataEnd, out);
+                return true;
+        }
+        int nameEnd = nameStart < rdataEnd ? DnsNames.skip(buffer, nameStart) : -1;
+        byte[] name = nameEnd < 0 || nameEnd > rdataEnd ? null : DnsNames.toWireFormat(buffer, nameStart);
+        if (name == null) {
+            return false;
+        }
+        // PTR, NS and CNAME end with the name, NSEC goes on with its type bitmaps
+        writeShort(out, (nameStart - rdataStart) + name.length + (rdataEnd - nameEnd));
+        copy(buffer, rdataStart, nameStart, out);
+        out.write(name, 0, name.length);
+        copy(buffer, nameEnd, rdataEnd, out);
+        return true;
+    }
+
+    private static boolean writeName(ByteBuffer buffer, int offset, ByteArrayOutputStream out) {
+        byte[] name = DnsNames.toWireFormat(buffer, offset);
+        if (name == null) {
+            return false;
+        }
+        out.write(name, 0, name.length);
+        return true;
+    }
+
+    private static void copy(ByteBuffer buffer, int from, int to, ByteArrayOutputStream out) {
+        for (int i = from; i < to; i++) {
+            out.write(buffer.get(i));
+        }
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
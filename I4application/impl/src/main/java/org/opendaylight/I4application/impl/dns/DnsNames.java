@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads domain names in DNS wire format directly from a message buffer,
+ * following compression pointers (RFC 1035 section 4.1.4).
+ *
+ * A pointer is only accepted if it points before every label read so far for
+ * the name, so a crafted packet can not make the walk loop.
+ */
+public final class DnsNames {
+
+    private static final int POINTER_MASK = 0xC0;
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private DnsNames() {
+    }
+
+    /**
+     * @param offset start of a name
+     * @return offset of the first byte after the name as stored at offset, -1 if malformed
+     */
+    public static int skip(ByteBuffer buffer, int offset) {
+        int pos = offset;
+        int limit = buffer.limit();
+        while (pos < limit) {
+            int length = buffer.get(pos) & 0xFF;
+            if (length == 0) {
+                return pos + 1;
+            }
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                return pos + 2 <= limit ? pos + 2 : -1;
+            }
+            if ((length & POINTER_MASK) != 0) {
+                return -1;
+            }
+            pos += 1 + length;
+        }
+        return -1;
+    }
+
+    /**
+     * @param label label to look for, compared ignoring ASCII case
+     * @return true if any label of the name, after following pointers, equals label
+     */
+    public static boolean hasLabel(ByteBuffer buffer, int offset, byte[] label) {
+        int pos = offset;
+        int segmentStart = offset;
+        int limit = buffer.limit();
+        while (pos >= 0 && pos < limit) {
+            int length = buffer.get(pos) & 0xFF;
+            if (length == 0) {
+                return false;
+            }
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                pos = pointerTarget(buffer, pos, segmentStart);
+                segmentStart = pos;
+                continue;
+            }
+            if ((length & POINTER_MASK) != 0 || pos + 1 + length > limit) {
+                return false;
+            }
+            if (length == label.length && labelEquals(buffer, pos + 1, label)) {
+                return true;
+            }
+            pos += 1 + length;
+        }
+        return false;
+    }
+
+    /**
+     * Compare two names of the same message label by label, ignoring ASCII case.
+     * @return false if the names differ or either is malformed
+     */
+    public static boolean equals(ByteBuffer buffer, int offset, int otherOffset) {
+        int pos = offset;
+        int segmentStart = offset;
+        int otherPos = otherOffset;
+        int otherSegmentStart = otherOffset;
+        int limit = buffer.limit();
+        while (true) {
+            // Resolve pointers on both sides until each is at a label or the end
+            while (pos >= 0 && pos < limit && (buffer.get(pos) & POINTER_MASK) == POINTER_MASK) {
+                pos = pointerTarget(buffer, pos, segmentStart);
+                segmentStart = pos;
+            }
+            while (otherPos >= 0 && otherPos < limit && (buffer.get(otherPos) & POINTER_MASK) == POINTER_MASK) {
+                otherPos = pointerTarget(buffer, otherPos, otherSegmentStart);
+                otherSegmentStart = otherPos;
+            }
+            if (pos < 0 || pos >= limit || otherPos < 0 || otherPos >= limit) {
+                return false;
+            }
+            int length = buffer.get(pos) & 0xFF;
+            if (length != (buffer.get(otherPos) & 0xFF) || (length & POINTER_MASK) != 0
+                    || pos + 1 + length > limit || otherPos + 1 + length > limit) {
+                return false;
+            }
+            if (length == 0) {
+                return true;
+            }
+            for (int i = 1; i <= length; i++) {
+                if (toLowerCase(buffer.get(pos + i)) != toLowerCase(buffer.get(otherPos + i))) {
+                    return false;
+                }
+            }
+            pos += 1 + length;
+            otherPos += 1 + length;
+        }
+    }
+
+    /**
+     * Compare a name of the message with a name in uncompressed wire format,
+     * label by label, ignoring ASCII case.
+     * @param name labels ending with the root label, e.g. as built by {@link #toWireFormat(ByteBuffer, int)}
+     * @param nameOffset start of the name in name, e.g. past the instance label for the service type
+     * @return false if the names differ or the message name is malformed
+     */
+    public static boolean equals(ByteBuffer buffer, int offset, byte[] name, int nameOffset) {
+        int pos = offset;
+        int segmentStart = offset;
+        int namePos = nameOffset;
+        int limit = buffer.limit();
+        while (pos >= 0 && pos < limit && namePos < name.length) {
+            int length = buffer.get(pos) & 0xFF;
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                pos = pointerTarget(buffer, pos, segmentStart);
+                segmentStart = pos;
+                continue;
+            }
+            if (length != (name[namePos] & 0xFF) || (length & POINTER_MASK) != 0
+                    || pos + 1 + length > limit || namePos + 1 + length > name.length) {
+                return false;
+            }
+            if (length == 0) {
+                return true;
+            }
+            for (int i = 1; i <= length; i++) {
+                if (toLowerCase(buffer.get(pos + i)) != toLowerCase(name[namePos + i])) {
+                    return false;
+                }
+            }
+            pos += 1 + length;
+            namePos += 1 + length;
+        }
+        return false;
+    }
+
+    /**
+     * @return the name with pointers followed, in uncompressed wire format, null if malformed
+     */
+    public static byte[] toWireFormat(ByteBuffer buffer, int offset) {
+        byte[] name = new byte[MAX_NAME_LENGTH];
+        int pos = offset;
+        int segmentStart = offset;
+        int limit = buffer.limit();
+        int nameLength = 0;
+        while (pos >= 0 && pos < limit) {
+            int length = buffer.get(pos) & 0xFF;
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                pos = pointerTarget(buffer, pos, segmentStart);
+                segmentStart = pos;
+                continue;
+            }
+            if ((length & POINTER_MASK) != 0 || pos + 1 + length > limit
+                    || nameLength + 1 + length > MAX_NAME_LENGTH) {
+                return null;
+            }
+            for (int i = 0; i <= length; i++) {
+                name[nameLength++] = buffer.get(pos + i);
+            }
+            if (length == 0) {
+                return Arrays.copyOf(name, nameLength);
+            }
+            pos += 1 + length;
+        }
+        return null;
+    }
+
+    /**
+     * @return offset of the label after the first one in an uncompressed wire format name
+     */
+    public static int skipLabel(byte[] name, int offset) {
+        return offset + 1 + (name[offset] & 0xFF);
+    }
+
+    /**
+     * @return dotted name without the trailing dot, null if malformed
+     */
+    public static String toString(ByteBuffer buffer, int offset) {
+        StringBuilder sb = new StringBuilder(32);
+        return appendTo(buffer, offset, sb) ? sb.toString() : null;
+    }
+
+    /**
+     * Append the dotted name to sb. Label bytes are taken as ISO-8859-1.
+     * @return false if the name is malformed, sb then holds a partial name
+     */
+    public static boolean appendTo(ByteBuffer buffer, int offset, StringBuilder sb) {
+        int pos = offset;
+        int segmentStart = offset;
+        int limit = buffer.limit();
+        int nameLength = 0;
+        while (pos >= 0 && pos < limit) {
+            int length = buffer.get(pos) & 0xFF;
+            if (length == 0) {
+                return true;
+            }
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                pos = pointerTarget(buffer, pos, segmentStart);
+                segmentStart = pos;
+                continue;
+            }
+            nameLength += 1 + length;
+            if ((length & POINTER_MASK) != 0 || pos + 1 + length > limit || nameLength > MAX_NAME_LENGTH) {
+                return false;
+            }
+            if (nameLength > 1 + length) {
+                sb.append('.');
+            }
+            for (int i = pos + 1; i <= pos + length; i++) {
+                sb.append((char) (buffer.get(i) & 0xFF));
+            }
+            pos += 1 + length;
+        }
+        return false;
+    }
+
+    /**
+     * @param segmentStart offset the labels read since the last jump started at
+     * @return offset the pointer at pos refers to, -1 if it does not point before segmentStart
+     */
+    private static int pointerTarget(ByteBuffer buffer, int pos, int segmentStart) {
+        if (pos + 2 > buffer.limit()) {
+            return -1;
+        }
+        int target = buffer.getShort(pos) & 0x3FFF;
+        return target < segmentStart ? target : -1;
+    }
+
+    private static boolean labelEquals(ByteBuffer buffer, int pos, byte[] label) {
+        for (int i = 0; i < label.length; i++) {
+            if (toLowerCase(buffer.get(pos + i)) != toLowerCase(label[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Walks the questions, answers, authority and additional records of a
+ * {@link DnsMessage} one at a time. The cursor itself is the view of the
+ * current record, so iterating does not allocate and a record is only decoded
+ * as far as its accessors are called.
+ *
+ * Iteration stops at the first record that does not fit the message, after
+ * which {@link #isMalformed()} is true.
+ */
+public final class DnsRecordCursor {
+
+    public enum Section {
+        QUESTION, ANSWER, AUTHORITY, ADDITIONAL
+    }
+
+    private static final int CLASS_MASK = 0x7FFF;
+    private static final int CACHE_FLUSH_BIT = 0x8000;
+    private static final int SRV_TARGET_START = 6;
+
+    private ByteBuffer buffer;
+    private final int[] sectionCounts = new int[Section.values().length];
+    private int sectionIndex;
+    private int remainingInSection;
+    private int nextOffset;
+    private boolean malformed;
+
+    private int nameOffset;
+    private int type;
+    private int rawClass;
+    private int rdataOffset;
+    private int rdataLength;
+
+    /**
+     * Position the cursor before the first record of message
+     */
+    public DnsRecordCursor reset(DnsMessage message) {
+        this.malformed = !message.hasHeader();
+        this.buffer = message.buffer();
+        if (!malformed) {
+            sectionCounts[0] = message.questionCount();
+            sectionCounts[1] = message.answerCount();
+            sectionCounts[2] = message.authorityCount();
+            sectionCounts[3] = message.additionalCount();
+        }
+        this.sectionIndex = 0;
+        this.remainingInSection = malformed ? 0 : sectionCounts[0];
+        this.nextOffset = DnsMessage.HEADER_LENGTH;
+        return this;
+    }
+
+    /**
+     * @return true if the cursor moved to another record, false at the end or on malformed data
+     */
+    public boolean next() {
+        if (malformed) {
+            return false;
+        }
+        while (remainingInSection == 0) {
+            if (++sectionIndex >= sectionCounts.length) {
+                sectionIndex = sectionCounts.length - 1;
+                return false;
+            }
+            remainingInSection = sectionCounts[sectionIndex];
+        }
+
+        int nameEnd = DnsNames.skip(buffer, nextOffset);
+        // Questions carry type and class, records add ttl and rdata length
+        int fixedLength = sectionIndex == 0 ? 4 : 10;
+        if (nameEnd < 0 || nameEnd + fixedLength > buffer.limit()) {
+            return fail();
+        }
+        nameOffset = nextOffset;
+        type = buffer.getShort(nameEnd) & 0xFFFF;
+        rawClass = buffer.getShort(nameEnd + 2) & 0xFFFF;
+        if (sectionIndex == 0) {
+            rdataOffset = nameEnd + fixedLength;
+            rdataLength = 0;
+        } else {
+            rdataOffset = nameEnd + fixedLength;
+            rdataLength = buffer.getShort(nameEnd + 8) & 0xFFFF;
+            if (rdataOffset + rdataLength > buffer.limit()) {
+                return fail();
+            }
+        }
+        nextOffset = rdataOffset + rdataLength;
+        remainingInSection--;
+        return true;
+    }
+
+    private boolean fail() {
+        malformed = true;
+        return false;
+    }
+
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    public Section section() {
+        return Section.values()[sectionIndex];
+    }
+
+    /**
+     * @return offset of the owner name, read it with {@link DnsNames}
+     */
+    public int nameOffset() {
+        return nameOffset;
+    }
+
+    public int type() {
+        return type;
+    }
+
+    /**
+     * @return record class without the mDNS cache-flush / unicast-response bit
+     */
+    public int recordClass() {
+        return rawClass & CLASS_MASK;
+    }
+
+    /**
+     * @return true if the mDNS cache-flush bit is set, for questions the unicast-response bit
+     */
+    public boolean isCacheFlush() {
+        return (rawClass & CACHE_FLUSH_BIT) != 0;
+    }
+
+    /**
+     * @return time to live in seconds, 0 for questions
+     */
+    public long ttl() {
+        if (sectionIndex == 0) {
+            return 0;
+        }
+        return buffer.getInt(rdataOffset - 6) & 0xFFFFFFFFL;
+    }
+
+    public int rdataOffset() {
+        return rdataOffset;
+    }
+
+    public int rdataLength() {
+        return rdataLength;
+    }
+
+    /**
+     * @return true if the current record is an SRV record with room for its fixed fields and a target
+     */
+    public boolean isSrv() {
+        return sectionIndex != 0 && type == DnsMessage.TYPE_SRV && rdataLength > SRV_TARGET_START;
+    }
+
+    public int srvPriority() {
+        return buffer.getShort(rdataOffset) & 0xFFFF;
+    }
+
+    public int srvWeight() {
+        return buffer.getShort(rdataOffset + 2) & 0xFFFF;
+    }
+
+    public int srvPort() {
+        return buffer.getShort(rdataOffset + 4) & 0xFFFF;
+    }
+
+    /**
+     * @return offset of the SRV target name, read it with {@link DnsNames}
+     */
+    public int srvTargetOffset() {
+        return rdataOffset + SRV_TARGET_START;
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the mDNS response a service instance would send to a query, from its
+ * cached announcement (RFC 6762 section 6, RFC 6763 section 12). The query is
+ * read once with {@link #readQuery(DnsMessage)}, then {@link #write} is called
+ * per cached instance.
+ *
+ * A record the querier lists as known answer with at least half its TTL left
+ * is not sent (RFC 6762 section 7.1). TTLs are what is left of the announced
+ * ones. Names are compressed against the names already written.
+ *
+ * Not thread safe, keep one writer per thread.
+ */
+public final class MdnsResponseWriter {
+
+    public static final int MDNS_PORT = 5353;
+
+    private static final int FLAGS_RESPONSE = 0x8400;
+    private static final int OPCODE_MASK = 0x7800;
+    private static final int CACHE_FLUSH = 0x8000;
+    private static final int POINTER = 0xC000;
+    private static final int MAX_POINTER_OFFSET = 0x3FFF;
+    // RFC 6762 section 6.7
+    private static final long LEGACY_MAX_TTL = 10;
+
+    private static final int MAX_QUESTIONS = 16;
+    private static final int MAX_KNOWN_ANSWERS = 32;
+    private static final int MAX_WRITTEN_NAMES = 8;
+
+    private final DnsRecordCursor record = new DnsRecordCursor();
+    private ByteBuffer query;
+
+    private final int[] questionNames = new int[MAX_QUESTIONS];
+    private final int[] questionTypes = new int[MAX_QUESTIONS];
+    private final boolean[] questionUnicast = new boolean[MAX_QUESTIONS];
+    private int questionCount;
+    private int questionsEnd;
+
+    private final int[] knownNames = new int[MAX_KNOWN_ANSWERS];
+    private final int[] knownTypes = new int[MAX_KNOWN_ANSWERS];
+    private final int[] knownRdataOffsets = new int[MAX_KNOWN_ANSWERS];
+    private final int[] knownRdataLengths = new int[MAX_KNOWN_ANSWERS];
+    private final long[] knownTtls = new long[MAX_KNOWN_ANSWERS];
+    private int knownCount;
+
+    // Per write
+    private byte[] out;
+    private int start;
+    private int limit;
+    private int pos;
+    private boolean legacy;
+    private boolean unicast;
+    private final byte[][] writtenNames = new byte[MAX_WRITTEN_NAMES][];
+    private final int[] writtenFrom = new int[MAX_WRITTEN_NAMES];
+    private final int[] writtenAt = new int[MAX_WRITTEN_NAMES];
+    private int writtenCount;
+
+    /**
+     * Note the questions and known answers of a query
+     * @return false if the message is not a query to answer from the cache:
+     *         a response, a probe, malformed or without questions
+     */
+    public boolean readQuery(DnsMessage message) {
+        questionCount = 0;
+        knownCount = 0;
+        if (!message.hasHeader() || message.isResponse() || (message.flags() & OPCODE_MASK) != 0) {
+            return false;
+        }
+        // Probes carry the proposed records in the authority section, the prober must get no answer for them
+        if (message.authorityCount() != 0) {
+            return false;
+        }
+        query = message.buffer();
+        questionsEnd = DnsMessage.HEADER_LENGTH;
+        record.reset(message);
+        while (record.next()) {
+            if (record.section() == DnsRecordCursor.Section.QUESTION) {
+                questionsEnd = record.rdataOffset();
+                int recordClass = record.recordClass();
+                if (questionCount < MAX_QUESTIONS
+                        && (recordClass == DnsMessage.CLASS_IN || recordClass == DnsMessage.TYPE_ANY)) {
+                    questionNames[questionCount] = record.nameOffset();
+                    questionTypes[questionCount] = record.type();
+                    questionUnicast[questionCount] = record.isCacheFlush();
+                    questionCount++;
+                }
+            } else if (record.section() == DnsRecordCursor.Section.ANSWER && knownCount < MAX_KNOWN_ANSWERS) {
+                knownNames[knownCount] = record.nameOffset();
+                knownTypes[knownCount] = record.type();
+                knownRdataOffsets[knownCount] = record.rdataOffset();
+                knownRdataLengths[knownCount] = record.rdataLength();
+                knownTtls[knownCount] = record.ttl();
+                knownCount++;
+            }
+        }
+        return !record.isMalformed() && questionCount > 0;
+    }
+
+    /**
+     * Write the response of one cached instance to the last query read.
+     * @param legacy the query came from a port other than 5353 (RFC 6762 section 6.7), it is
+     *               answered with its id and questions and TTLs of at most 10 seconds
+     * @param out buffer for the DNS message, written from offset up to limit
+     * @return length of the message, 0 if the instance answers none of the questions
+     *         or the querier knows every answer
+     */
+    public int write(ServiceRecordCache.CachedRecord cached, long nowNanos, boolean legacy,
+                     byte[] out, int offset, int limit) {
+        OpcUaServiceRecord serviceRecord = cached.getRecord();
+        byte[] instanceName = serviceRecord.getInstanceNameWire();
+        byte[] host = serviceRecord.getHostWire();
+        if (instanceName == null || host == null || offset + DnsMessage.HEADER_LENGTH > limit) {
+            return 0;
+        }
+        int serviceType = DnsNames.skipLabel(instanceName, 0);
+        byte[] txt = serviceRecord.getTxtRdata();
+        int address = serviceRecord.getAddress() == null ? 0
+                : PacketParsingUtils.ipv4AddressToInt(serviceRecord.getAddress());
+
+        this.legacy = legacy;
+        // A PTR which was not announced is sent with the SRV TTL
+        long announcedPtrTtl = serviceRecord.getPtrTtl() < 0 ? serviceRecord.getSrvTtl() : serviceRecord.getPtrTtl();
+        long ptrTtl = ttl(cached, announcedPtrTtl, nowNanos);
+        long srvTtl = ttl(cached, serviceRecord.getSrvTtl(), nowNanos);
+        long txtTtl = txt == null ? 0 : ttl(cached, serviceRecord.getTxtTtl(), nowNanos);
+        long aTtl = address == 0 ? 0 : ttl(cached, serviceRecord.getAddressTtl(), nowNanos);
+
+        unicast = true;
+        boolean ptr = ptrTtl > 0 && asked(DnsMessage.TYPE_PTR, instanceName, serviceType)
+                && !knownPtr(instanceName, serviceType, announcedPtrTtl);
+        boolean srv = srvTtl > 0 && asked(DnsMessage.TYPE_SRV, instanceName, 0)
+                && !knownSrv(instanceName, serviceRecord.getPort(), host, serviceRecord.getSrvTtl());
+        boolean txtAnswer = txtTtl > 0 && asked(DnsMessage.TYPE_TXT, instanceName, 0)
+                && !knownTxt(instanceName, txt, serviceRecord.getTxtTtl());
+        boolean a = aTtl > 0 && asked(DnsMessage.TYPE_A, host, 0)
+                && !knownA(host, address, serviceRecord.getAddressTtl());
+        if (!ptr && !srv && !txtAnswer && !a) {
+            return 0;
+        }
+
+        this.out = out;
+        this.start = offset;
+        this.limit = limit;
+        this.writtenCount = 0;
+        this.pos = offset + DnsMessage.HEADER_LENGTH;
+
+        int questions = 0;
+        if (legacy) {
+            // The question section starts right after the header in both messages,
+            // so compression pointers inside it stay valid when copied as is
+            int length = questionsEnd - DnsMessage.HEADER_LENGTH;
+            if (pos + length > limit) {
+                return 0;
+            }
+            for (int i = 0; i < length; i++) {
+                out[pos + i] = query.get(DnsMessage.HEADER_LENGTH + i);
+            }
+            pos += length;
+            questions = query.getShort(4) & 0xFFFF;
+        }
+
+        int answers = 0;
+        if (ptr && writePtr(instanceName, serviceType, ptrTtl)) {
+            answers++;
+        }
+        if (srv && writeSrv(instanceName, srvTtl, serviceRecord.getPort(), host)) {
+            answers++;
+        }
+        if (txtAnswer && writeTxt(instanceName, txtTtl, txt)) {
+            answers++;
+        }
+        if (a && writeA(host, aTtl, address)) {
+            answers++;
+        }
+        if (answers == 0) {
+            return 0;
+        }
+
+        // RFC 6763 section 12.1 and 12.2, send what the querier will ask for next
+        int additionals = 0;
+        if (ptr && !srv && srvTtl > 0 && !knownSrv(instanceName, serviceRecord.getPort(), host, serviceRecord.getSrvTtl())
+                && writeSrv(instanceName, srvTtl, serviceRecord.getPort(), host)) {
+            additionals++;
+        }
+        if (ptr && !txtAnswer && txtTtl > 0 && !knownTxt(instanceName, txt, serviceRecord.getTxtTtl())
+                && writeTxt(instanceName, txtTtl, txt)) {
+            additionals++;
+        }
+        if ((ptr || srv) && !a && aTtl > 0 && !knownA(host, address, serviceRecord.getAddressTtl())
+                && writeA(host, aTtl, address)) {
+            additionals++;
+        }
+
+        putShort(start, legacy ? query.getShort(0) & 0xFFFF : 0);
+        putShort(start + 2, FLAGS_RESPONSE);
+        putShort(start + 4, questions);
+        putShort(start + 6, answers);
+        putShort(start + 8, 0);
+        putShort(start + 10, additionals);
+        return pos - start;
+    }
+
+    /**
+     * @return true if every question the last write answered asked for a unicast response
+     */
+    public boolean unicastRequested() {
+        return unicast;
+    }
+
+    private long ttl(ServiceRecordCache.CachedRecord cached, long announcedTtl, long nowNanos) {
+        if (announcedTtl <= 0) {
+            return 0;
+        }
+        long ttl = cached.remainingTtl(announcedTtl, nowNanos);
+        return legacyCap(ttl);
+    }
+
+    private long legacyCap(long ttl) {
+        return legacy ? Math.min(ttl, LEGACY_MAX_TTL) : ttl;
+    }
+
+    /**
+     * @return true if a question asks for type, or any type, of the name
+     */
+    private boolean asked(int type, byte[] name, int nameOffset) {
+        boolean asked = false;
+        for (int i = 0; i < questionCount; i++) {
+            if ((questionTypes[i] == type || questionTypes[i] == DnsMessage.TYPE_ANY)
+                    && DnsNames.equals(query, questionNames[i], name, nameOffset)) {
+                asked = true;
+                unicast &= questionUnicast[i];
+            }
+        }
+        return asked;
+    }
+
+    private boolean knownPtr(byte[] instanceName, int serviceType, long ttl) {
+        for (int i = 0; i < knownCount; i++) {
+            if (isKnown(i, DnsMessage.TYPE_PTR, instanceName, serviceType, ttl)
+                    && DnsNames.equals(query, knownRdataOffsets[i], instanceName, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean knownSrv(byte[] instanceName, int port, byte[] host, long ttl) {
+        for (int i = 0; i < knownCount; i++) {
+            if (isKnown(i, DnsMessage.TYPE_SRV, instanceName, 0, ttl) && knownRdataLengths[i] > 6
+                    && (query.getShort(knownRdataOffsets[i] + 4) & 0xFFFF) == port
+                    && DnsNames.equals(query, knownRdataOffsets[i] + 6, host, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean knownTxt(byte[] instanceName, byte[] txt, long ttl) {
+        for (int i = 0; i < knownCount; i++) {
+            if (isKnown(i, DnsMessage.TYPE_TXT, instanceName, 0, ttl) && knownRdataLengths[i] == txt.length
+                    && rdataEquals(knownRdataOffsets[i], txt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean knownA(byte[] host, int address, long ttl) {
+        for (int i = 0; i < knownCount; i++) {
+            if (isKnown(i, DnsMessage.TYPE_A, host, 0, ttl) && knownRdataLengths[i] == 4
+                    && query.getInt(knownRdataOffsets[i]) == address) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ttl announced TTL, the known answer counts if it has at least half of it left
+     */
+    private boolean isKnown(int i, int type, byte[] name, int nameOffset, long ttl) {
+        return knownTypes[i] == type && knownTtls[i] * 2 >= ttl
+                && DnsNames.equals(query, knownNames[i], name, nameOffset);
+    }
+
+    private boolean rdataEquals(int offset, byte[] rdata) {
+        for (int i = 0; i < rdata.length; i++) {
+            if (query.get(offset + i) != rdata[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean writePtr(byte[] instanceName, int serviceType, long ttl) {
+        int mark = pos;
+        int written = writtenCount;
+        if (writeName(instanceName, serviceType) && writeFixed(DnsMessage.TYPE_PTR, false, ttl)) {
+            int rdata = pos;
+            if (writeName(instanceName, 0) && endRdata(rdata)) {
+                return true;
+            }
+        }
+        return rollback(mark, written);
+    }
+
+    private boolean writeSrv(byte[] instanceName, long ttl, int port, byte[] host) {
+        int mark = pos;
+        int written = writtenCount;
+        if (writeName(instanceName, 0) && writeFixed(DnsMessage.TYPE_SRV, true, ttl) && pos + 6 <= limit) {
+            int rdata = pos;
+            // Priority and weight 0, one target per instance
+            putShort(pos, 0);
+            putShort(pos + 2, 0);
+            putShort(pos + 4, port);
+            pos += 6;
+            if (writeName(host, 0) && endRdata(rdata)) {
+                return true;
+            }
+        }
+        return rollback(mark, written);
+    }
+
+    private boolean writeTxt(byte[] instanceName, long ttl, byte[] txt) {
+        int mark = pos;
+        int written = writtenCount;
+        if (writeName(instanceName, 0) && writeFixed(DnsMessage.TYPE_TXT, true, ttl) && pos + txt.length <= limit) {
+            int rdata = pos;
+            System.arraycopy(txt, 0, out, pos, txt.length);
+            pos += txt.length;
+            if (endRdata(rdata)) {
+                return true;
+            }
+        }
+        return rollback(mark, written);
+    }
+
+    private boolean writeA(byte[] host, long ttl, int address) {
+        int mark = pos;
+        int written = writtenCount;
+        if (writeName(host, 0) && writeFixed(DnsMessage.TYPE_A, true, ttl) && pos + 4 <= limit) {
+            int rdata = pos;
+            putShort(pos, address >>> 16);
+            putShort(pos + 2, address);
+            pos += 4;
+            if (endRdata(rdata)) {
+                return true;
+            }
+        }
+        return rollback(mark, written);
+    }
+
+    /**
+     * Type, class, TTL and a placeholder rdata length
+     * @param unique set the cache-flush bit, never in legacy responses (RFC 6762 section 10.2)
+     */
+    private boolean writeFixed(int type, boolean unique, long ttl) {
+        if (pos + 10 > limit) {
+            return false;
+        }
+        putShort(pos, type);
+        putShort(pos + 2, DnsMessage.CLASS_IN | (unique && !legacy ? CACHE_FLUSH : 0));
+        putShort(pos + 4, (int) (ttl >>> 16));
+        putShort(pos + 6, (int) ttl);
+        pos += 10;
+        return true;
+    }
+
+    private boolean endRdata(int rdata) {
+        putShort(rdata - 2, pos - rdata);
+        return true;
+    }
+
+    private boolean rollback(int mark, int written) {
+        pos = mark;
+        writtenCount = written;
+        return false;
+    }
+
+    /**
+     * Write name[nameOffset..] as labels up to the longest suffix already in the
+     * message, then a pointer to it
+     */
+    private boolean writeName(byte[] name, int nameOffset) {
+        int label = nameOffset;
+        while (name[label] != 0) {
+            int target = findWritten(name, label);
+            if (target >= 0) {
+                if (pos + 2 > limit) {
+                    return false;
+                }
+                putShort(pos, POINTER | target);
+                pos += 2;
+                return true;
+            }
+            int length = 1 + (name[label] & 0xFF);
+            if (pos + length > limit) {
+                return false;
+            }
+            System.arraycopy(name, label, out, pos, length);
+            remember(name, label, pos - start);
+            pos += length;
+            label += length;
+        }
+        if (pos + 1 > limit) {
+            return false;
+        }
+        out[pos++] = 0;
+        return true;
+    }
+
+    /**
+     * @return message offset of a name written earlier which equals name[from..], -1 if none
+     */
+    private int findWritten(byte[] name, int from) {
+        for (int i = 0; i < writtenCount; i++) {
+            if (suffixEquals(name, from, writtenNames[i], writtenFrom[i])) {
+                return writtenAt[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Note that name[from..] starts at messageOffset, as labels up to its tail which
+     * may be a pointer
+     */
+    private void remember(byte[] name, int from, int messageOffset) {
+        if (writtenCount < MAX_WRITTEN_NAMES && messageOffset <= MAX_POINTER_OFFSET) {
+            writtenNames[writtenCount] = name;
+            writtenFrom[writtenCount] = from;
+            writtenAt[writtenCount] = messageOffset;
+            writtenCount++;
+        }
+    }
+
+    private static boolean suffixEquals(byte[] name, int from, byte[] other, int otherFrom) {
+        int length;
+        do {
+            length = name[from] & 0xFF;
+            if (length != (other[otherFrom] & 0xFF)) {
+                return false;
+            }
+            for (int i = 1; i <= length; i++) {
+                if (name[from + i] != other[otherFrom + i]) {
+                    return false;
+                }
+            }
+            from += 1 + length;
+            otherFrom += 1 + length;
+        } while (length != 0);
+        return true;
+    }
+
+    private void putShort(int offset, int value) {
+        out[offset] = (byte) (value >>> 8);
+        out[offset + 1] = (byte) value;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything one DNS-SD announcement of an OPC UA server tells about it:
+ * the PTR, SRV, TXT and A records of the announcement, read in one pass by
+ * {@link ServiceRecordReader}. Immutable.
+ *
+ * TTLs are in seconds, -1 if the announcement had no such record.
+ */
+public final class OpcUaServiceRecord {
+
+    /**
+     * TXT keys defined for OPC UA discovery (OPC 10000-12)
+     */
+    public static final String TXT_PATH = "path";
+    public static final String TXT_CAPABILITIES = "caps";
+
+    private final String instanceName;
+    private final String host;
+    private final int port;
+    private final Ipv4Address address;
+    private final Map<String, String> txt;
+    private final long ptrTtl;
+    private final long srvTtl;
+    private final long txtTtl;
+    private final long addressTtl;
+    // As announced, for answering queries from the cache
+    private final byte[] instanceNameWire;
+    private final byte[] hostWire;
+    private final byte[] txtRdata;
+
+    private OpcUaServiceRecord(Builder builder) {
+        this.instanceName = builder.instanceName;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.address = builder.address;
+        this.txt = Collections.unmodifiableMap(new LinkedHashMap<>(builder.txt));
+        this.ptrTtl = builder.ptrTtl;
+        this.srvTtl = builder.srvTtl;
+        this.txtTtl = builder.txtTtl;
+        this.addressTtl = builder.addressTtl;
+        this.instanceNameWire = builder.instanceNameWire;
+        this.hostWire = builder.hostWire;
+        this.txtRdata = builder.txtRdata;
+    }
+
+    /**
+     * @return service instance name, e.g. "server1._opcua-tcp._tcp.local"
+     */
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    /**
+     * @return SRV target host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return address of the host from an A record of the announcement, null if there was none
+     */
+    public Ipv4Address getAddress() {
+        return address;
+    }
+
+    /**
+     * @return host:port as published to the OPC UA client
+     */
+    public String getDiscoveryUrl() {
+        return host + ":" + port;
+    }
+
+    /**
+     * @return TXT key/values in announcement order, keys without value map to ""
+     */
+    public Map<String, String> getTxt() {
+        return txt;
+    }
+
+    /**
+     * @return server path from the TXT record, null if not announced
+     */
+    public String getPath() {
+        return txt.get(TXT_PATH);
+    }
+
+    /**
+     * @return server capability identifiers from the TXT record, empty if not announced
+     */
+    public List<String> getCapabilities() {
+        String caps = txt.get(TXT_CAPABILITIES);
+        if (caps == null || caps.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(caps.split(",")));
+    }
+
+    public long getPtrTtl() {
+        return ptrTtl;
+    }
+
+    public long getSrvTtl() {
+        return srvTtl;
+    }
+
+    public long getTxtTtl() {
+        return txtTtl;
+    }
+
+    public long getAddressTtl() {
+        return addressTtl;
+    }
+
+    /**
+     * @return instance name in uncompressed wire format, do not modify
+     */
+    byte[] getInstanceNameWire() {
+        return instanceNameWire;
+    }
+
+    /**
+     * @return SRV target in uncompressed wire format, do not modify
+     */
+    byte[] getHostWire() {
+        return hostWire;
+    }
+
+    /**
+     * @return TXT rdata as announced, null if there was no TXT record, do not modify
+     */
+    byte[] getTxtRdata() {
+        return txtRdata;
+    }
+
+    @Override
+    public String toString() {
+        return "OpcUaServiceRecord{" + instanceName + " at " + getDiscoveryUrl()
+                + (address == null ? "" : " (" + address.getValue() + ")") + ", txt=" + txt + "}";
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private String instanceName;
+        private String host;
+        private int port;
+        private Ipv4Address address;
+        private final Map<String, String> txt = new LinkedHashMap<>();
+        private long ptrTtl = -1;
+        private long srvTtl = -1;
+        private long txtTtl = -1;
+        private long addressTtl = -1;
+        private byte[] instanceNameWire;
+        private byte[] hostWire;
+        private byte[] txtRdata;
+
+        Builder setInstanceName(String instanceName) {
+            this.instanceName = instanceName;
+            return this;
+        }
+
+        Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        Builder setAddress(Ipv4Address address, long ttl) {
+            this.address = address;
+            this.addressTtl = ttl;
+            return this;
+        }
+
+        Builder putTxt(String key, String value) {
+            // RFC 6763 section 6.4, only the first occurrence of a key counts
+            if (!txt.containsKey(key)) {
+                txt.put(key, value);
+            }
+            return this;
+        }
+
+        Builder setWireFormat(byte[] instanceNameWire, byte[] hostWire) {
+            this.instanceNameWire = instanceNameWire;
+            this.hostWire = hostWire;
+            return this;
+        }
+
+        Builder setTxtRdata(byte[] txtRdata) {
+            this.txtRdata = txtRdata;
+            return this;
+        }
+
+        Builder setPtrTtl(long ptrTtl) {
+            this.ptrTtl = ptrTtl;
+            return this;
+        }
+
+        Builder setSrvTtl(long srvTtl) {
+            this.srvTtl = srvTtl;
+            return this;
+        }
+
+        Builder setTxtTtl(long txtTtl) {
+            this.txtTtl = txtTtl;
+            return this;
+        }
+
+        OpcUaServiceRecord build() {
+            return new OpcUaServiceRecord(this);
+        }
+    }
+}
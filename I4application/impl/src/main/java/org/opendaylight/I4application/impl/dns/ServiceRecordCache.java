@@ -0,0 +1,359 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import org.opendaylight.I4application.impl.utils.HashedTimerWheel;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.I4application.impl.utils.SnapshotFile;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Announced OPC UA service instances, keyed by instance name. An entry lives
+ * as long as the SRV TTL of the last announcement for it. A goodbye, an
+ * announcement with TTL 0 (RFC 6762 section 10.1), removes it right away.
+ * Expiry runs on a {@link HashedTimerWheel}, so a re-announcement only
+ * cancels one timeout and schedules another.
+ *
+ * Listeners are told of every removal, on the thread that caused it.
+ */
+public final class ServiceRecordCache implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(ServiceRecordCache.class);
+
+    public enum Outcome {
+        /** First announcement of the instance */
+        ADDED,
+        /** Known instance, announced with a different url, address, TXT or from another host */
+        UPDATED,
+        /** Known instance, same announcement, the TTL starts over */
+        REFRESHED,
+        /** Goodbye for a known instance */
+        REMOVED,
+        /** Goodbye for an instance that is not cached */
+        UNKNOWN
+    }
+
+    public enum RemovalReason {
+        GOODBYE,
+        TTL_EXPIRED,
+        HOST_REMOVED
+    }
+
+    public interface Listener {
+        void onRecordRemoved(OpcUaServiceRecord record, Ipv4Address source, RemovalReason reason);
+    }
+
+    /**
+     * A cached announcement, the host it came from and when. Immutable.
+     */
+    public static final class CachedRecord {
+        private final OpcUaServiceRecord record;
+        private final Ipv4Address source;
+        private final int sourceAddr;
+        private final long announcedNanos;
+
+        CachedRecord(OpcUaServiceRecord record, Ipv4Address source, long announcedNanos) {
+            this.record = record;
+            this.source = source;
+            this.sourceAddr = PacketParsingUtils.ipv4AddressToInt(source);
+            this.announcedNanos = announcedNanos;
+        }
+
+        public OpcUaServiceRecord getRecord() {
+            return record;
+        }
+
+        public Ipv4Address getSource() {
+            return source;
+        }
+
+        /**
+         * @return source in network byte order
+         */
+        public int getSourceAddr() {
+            return sourceAddr;
+        }
+
+        /**
+         * @param ttl TTL the record was announced with, in seconds
+         * @return seconds left of ttl at nowNanos, 0 once it ran out
+         */
+        public long remainingTtl(long ttl, long nowNanos) {
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(nowNanos - announcedNanos);
+            return Math.max(0, ttl - elapsed);
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final HashedTimerWheel<Entry> timerWheel;
+
+    /**
+     * @param tickMillis expiry resolution
+     * @param wheelSize timer wheel buckets, TTLs up to tickMillis * wheelSize take one round
+     */
+    public ServiceRecordCache(long tickMillis, int wheelSize) {
+        this.timerWheel = new HashedTimerWheel<>("service-record-expiry", tickMillis, wheelSize, this::expire);
+    }
+
+    public void registerListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Cache an announcement, or remove the instance if it is a goodbye.
+     * @param source host the announcement came from
+     */
+    public Outcome put(OpcUaServiceRecord record, Ipv4Address source) {
+        if (record.getSrvTtl() == 0 || record.getPtrTtl() == 0) {
+            return goodbye(record.getInstanceName());
+        }
+        String key = key(record.getInstanceName());
+        Entry entry = new Entry(key, new CachedRecord(record, source, System.nanoTime()));
+        Outcome outcome;
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous == null) {
+                outcome = Outcome.ADDED;
+            } else {
+                previous.timeout.cancel();
+                outcome = sameAnnouncement(previous, entry) ? Outcome.REFRESHED : Outcome.UPDATED;
+            }
+            entry.timeout = timerWheel.schedule(entry, record.getSrvTtl() * 1000);
+        }
+        LOG.debug("{} {} from {}, ttl {}s", outcome, record.getInstanceName(), source.getValue(),
+                record.getSrvTtl());
+        return outcome;
+    }
+
+    /**
+     * Remove an instance whose announcement had TTL 0
+     */
+    public Outcome goodbye(String instanceName) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(key(instanceName));
+            if (entry == null) {
+                return Outcome.UNKNOWN;
+            }
+            entry.timeout.cancel();
+        }
+        notifyRemoved(entry, RemovalReason.GOODBYE);
+        return Outcome.REMOVED;
+    }
+
+    /**
+     * Remove every instance announced by a host which left the network
+     */
+    public void removeHost(Ipv4Address source) {
+        List<Entry> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.source.equals(source)) {
+                    iterator.remove();
+                    entry.timeout.cancel();
+                    removed.add(entry);
+                }
+            }
+        }
+        for (Entry entry : removed) {
+            notifyRemoved(entry, RemovalReason.HOST_REMOVED);
+        }
+    }
+
+    /**
+     * @return true if any cached instance was announced by source
+     */
+    public synchronized boolean hasHost(Ipv4Address source) {
+        for (Entry entry : entries.values()) {
+            if (entry.source.equals(source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the cached announcement, null if the instance is not cached
+     */
+    public synchronized OpcUaServiceRecord get(String instanceName) {
+        Entry entry = entries.get(key(instanceName));
+        return entry == null ? null : entry.record;
+    }
+
+    /**
+     * @return every cached announcement, at the time of the call
+     */
+    public synchronized List<CachedRecord> snapshot() {
+        List<CachedRecord> records = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            records.add(entry.cached);
+        }
+        return records;
+    }
+
+    /**
+     * Write every cached announcement with how long ago it was made
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        long now = System.nanoTime();
+        out.writeInt(entries.size());
+        for (Entry entry : entries.values()) {
+            OpcUaServiceRecord record = entry.record;
+            out.writeInt(entry.cached.sourceAddr);
+            out.writeLong(TimeUnit.NANOSECONDS.toMillis(now - entry.cached.announcedNanos));
+            SnapshotFile.writeString(out, record.getInstanceName());
+            SnapshotFile.writeString(out, record.getHost());
+            out.writeInt(record.getPort());
+            out.writeBoolean(record.getAddress() != null);
+            if (record.getAddress() != null) {
+                out.writeInt(PacketParsingUtils.ipv4AddressToInt(record.getAddress()));
+            }
+            out.writeInt(record.getTxt().size());
+            for (Map.Entry<String, String> txt : record.getTxt().entrySet()) {
+                SnapshotFile.writeString(out, txt.getKey());
+                SnapshotFile.writeString(out, txt.getValue());
+            }
+            out.writeLong(record.getPtrTtl());
+            out.writeLong(record.getSrvTtl());
+            out.writeLong(record.getTxtTtl());
+            out.writeLong(record.getAddressTtl());
+            SnapshotFile.writeBytes(out, record.getInstanceNameWire());
+            SnapshotFile.writeBytes(out, record.getHostWire());
+            SnapshotFile.writeBytes(out, record.getTxtRdata());
+        }
+    }
+
+    /**
+     * Cache the announcements written by writeTo, each with the TTL it had left.
+     * Instances cached already and those whose TTL ran out meanwhile are skipped.
+     * Nothing is told to listeners, the announcements were not new.
+     * @param elapsedMillis time since writeTo
+     * @return announcements cached
+     */
+    public int readFrom(ByteBuffer in, long elapsedMillis) {
+        int count = in.getInt();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            Ipv4Address source = PacketParsingUtils.intToIpv4Address(in.getInt());
+            long ageMillis = in.getLong() + elapsedMillis;
+            OpcUaServiceRecord.Builder builder = OpcUaServiceRecord.builder()
+                    .setInstanceName(SnapshotFile.readString(in))
+                    .setHost(SnapshotFile.readString(in))
+                    .setPort(in.getInt());
+            Ipv4Address address = in.get() != 0 ? PacketParsingUtils.intToIpv4Address(in.getInt()) : null;
+            int txtCount = in.getInt();
+            for (int j = 0; j < txtCount; j++) {
+                builder.putTxt(SnapshotFile.readString(in), SnapshotFile.readString(in));
+            }
+            builder.setPtrTtl(in.getLong()).setSrvTtl(in.getLong()).setTxtTtl(in.getLong());
+            builder.setAddress(address, in.getLong())
+                    .setWireFormat(SnapshotFile.readBytes(in), SnapshotFile.readBytes(in))
+                    .setTxtRdata(SnapshotFile.readBytes(in));
+            if (restore(builder.build(), source, ageMillis)) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private boolean restore(OpcUaServiceRecord record, Ipv4Address source, long ageMillis) {
+        long remainingMillis = record.getSrvTtl() * 1000 - ageMillis;
+        if (remainingMillis <= 0 || record.getInstanceName() == null) {
+            return false;
+        }
+        String key = key(record.getInstanceName());
+        Entry entry = new Entry(key, new CachedRecord(record, source,
+                System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ageMillis)));
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return false;
+            }
+            entries.put(key, entry);
+            entry.timeout = timerWheel.schedule(entry, remainingMillis);
+        }
+        LOG.debug("Restored {} from {}, {}s left", record.getInstanceName(), source.getValue(),
+                remainingMillis / 1000);
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void expire(Entry entry) {
+        synchronized (this) {
+            // A re-announcement replaces the entry, only the current one may expire
+            if (!entries.remove(entry.key, entry)) {
+                return;
+            }
+        }
+        notifyRemoved(entry, RemovalReason.TTL_EXPIRED);
+    }
+
+    private void notifyRemoved(Entry entry, RemovalReason reason) {
+        LOG.debug("Removed {} from {}, {}", entry.record.getInstanceName(), entry.source.getValue(), reason);
+        for (Listener listener : listeners) {
+            listener.onRecordRemoved(entry.record, entry.source, reason);
+        }
+    }
+
+    private static boolean sameAnnouncement(Entry previous, Entry entry) {
+        return previous.source.equals(entry.source)
+                && previous.record.getPort() == entry.record.getPort()
+                && previous.record.getHost().equalsIgnoreCase(entry.record.getHost())
+                && Objects.equals(previous.record.getAddress(), entry.record.getAddress())
+                && previous.record.getTxt().equals(entry.record.getTxt());
+    }
+
+    /**
+     * DNS names compare ignoring ASCII case
+     */
+    private static String key(String instanceName) {
+        return instanceName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() {
+        timerWheel.close();
+    }
+
+    private static final class Entry {
+        final String key;
+        final CachedRecord cached;
+        final OpcUaServiceRecord record;
+        final Ipv4Address source;
+        /** Guarded by the cache */
+        HashedTimerWheel.Timeout<Entry> timeout;
+
+        Entry(String key, CachedRecord cached) {
+            this.key = key;
+            this.cached = cached;
+            this.record = cached.record;
+            this.source = cached.source;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Builds an {@link OpcUaServiceRecord} from a DNS-SD announcement in one walk
+ * over its records. The walk only notes record offsets. TXT and A records are
+ * then matched to the SRV instance and target by comparing names in place, so
+ * records may come in any order and section.
+ *
+ * Not thread safe, keep one reader per parsing thread.
+ */
+public final class ServiceRecordReader {
+
+    /**
+     * TXT and A records looked at per announcement, the rest are ignored
+     */
+    private static final int MAX_CANDIDATES = 16;
+
+    private final DnsRecordCursor record = new DnsRecordCursor();
+
+    private boolean hasPtr;
+    private int ptrTargetOffset;
+    private long ptrTtl;
+
+    private int srvNameOffset;
+    private int srvTargetOffset;
+    private int srvPort;
+    private long srvTtl;
+
+    private final int[] txtNameOffsets = new int[MAX_CANDIDATES];
+    private final int[] txtRdataOffsets = new int[MAX_CANDIDATES];
+    private final int[] txtRdataLengths = new int[MAX_CANDIDATES];
+    private final long[] txtTtls = new long[MAX_CANDIDATES];
+    private int txtCount;
+
+    private final int[] aNameOffsets = new int[MAX_CANDIDATES];
+    private final int[] aAddrs = new int[MAX_CANDIDATES];
+    private final long[] aTtls = new long[MAX_CANDIDATES];
+    private int aCount;
+
+    private String goodbyeInstanceName;
+
+    /**
+     * @param serviceLabel service type label, e.g. "_opcua-tcp"
+     * @return record of the first SRV of the service type, null if the message has none
+     */
+    public OpcUaServiceRecord read(DnsMessage message, byte[] serviceLabel) {
+        ByteBuffer buffer = message.buffer();
+        goodbyeInstanceName = null;
+        hasPtr = false;
+        srvNameOffset = -1;
+        txtCount = 0;
+        aCount = 0;
+
+        record.reset(message);
+        while (record.next()) {
+            if (record.section() == DnsRecordCursor.Section.QUESTION) {
+                continue;
+            }
+            switch (record.type()) {
+                case DnsMessage.TYPE_PTR:
+                    if (!hasPtr && DnsNames.hasLabel(buffer, record.nameOffset(), serviceLabel)) {
+                        hasPtr = true;
+                        ptrTargetOffset = record.rdataOffset();
+                        ptrTtl = record.ttl();
+                    }
+                    break;
+                case DnsMessage.TYPE_SRV:
+                    if (srvNameOffset < 0 && record.isSrv()
+                            && DnsNames.hasLabel(buffer, record.nameOffset(), serviceLabel)) {
+                        srvNameOffset = record.nameOffset();
+                        srvTargetOffset = record.srvTargetOffset();
+                        srvPort = record.srvPort();
+                        srvTtl = record.ttl();
+                    }
+                    break;
+                case DnsMessage.TYPE_TXT:
+                    if (txtCount < MAX_CANDIDATES) {
+                        txtNameOffsets[txtCount] = record.nameOffset();
+                        txtRdataOffsets[txtCount] = record.rdataOffset();
+                        txtRdataLengths[txtCount] = record.rdataLength();
+                        txtTtls[txtCount] = record.ttl();
+                        txtCount++;
+                    }
+                    break;
+                case DnsMessage.TYPE_A:
+                    if (record.rdataLength() == 4 && aCount < MAX_CANDIDATES) {
+                        aNameOffsets[aCount] = record.nameOffset();
+                        aAddrs[aCount] = buffer.getInt(record.rdataOffset());
+                        aTtls[aCount] = record.ttl();
+                        aCount++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (srvNameOffset < 0) {
+            // Goodbyes often carry the PTR only (RFC 6762 section 10.1)
+            if (hasPtr && ptrTtl == 0) {
+                goodbyeInstanceName = DnsNames.toString(buffer, ptrTargetOffset);
+            }
+            return null;
+        }
+        String host = DnsNames.toString(buffer, srvTargetOffset);
+        String instanceName = DnsNames.toString(buffer, srvNameOffset);
+        byte[] hostWire = DnsNames.toWireFormat(buffer, srvTargetOffset);
+        byte[] instanceNameWire = DnsNames.toWireFormat(buffer, srvNameOffset);
+        if (host == null || instanceName == null || hostWire == null || instanceNameWire == null) {
+            return null;
+        }
+
+        OpcUaServiceRecord.Builder builder = OpcUaServiceRecord.builder()
+                .setInstanceName(instanceName)
+                .setHost(host)
+                .setPort(srvPort)
+                .setSrvTtl(srvTtl)
+                .setWireFormat(instanceNameWire, hostWire);
+        if (hasPtr && DnsNames.equals(buffer, ptrTargetOffset, srvNameOffset)) {
+            builder.setPtrTtl(ptrTtl);
+        }
+        for (int i = 0; i < txtCount; i++) {
+            if (DnsNames.equals(buffer, txtNameOffsets[i], srvNameOffset)) {
+                readTxt(buffer, txtRdataOffsets[i], txtRdataLengths[i], builder);
+                builder.setTxtTtl(txtTtls[i]);
+                builder.setTxtRdata(copy(buffer, txtRdataOffsets[i], txtRdataLengths[i]));
+                break;
+            }
+        }
+        for (int i = 0; i < aCount; i++) {
+            if (DnsNames.equals(buffer, aNameOffsets[i], srvTargetOffset)) {
+                builder.setAddress(PacketParsingUtils.intToIpv4Address(aAddrs[i]), aTtls[i]);
+                break;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return instance named by a TTL 0 PTR if the last read found no SRV, else null
+     */
+    public String goodbyeInstanceName() {
+        return goodbyeInstanceName;
+    }
+
+    /**
+     * @return true if the last read stopped at a record which does not fit the message
+     */
+    public boolean isMalformed() {
+        return record.isMalformed();
+    }
+
+    /**
+     * TXT rdata is a sequence of length prefixed key=value strings (RFC 6763 section 6)
+     */
+    private static void readTxt(ByteBuffer buffer, int offset, int length, OpcUaServiceRecord.Builder builder) {
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end) {
+            int stringLength = buffer.get(pos) & 0xFF;
+            int start = pos + 1;
+            pos = start + stringLength;
+            if (pos > end) {
+                return;
+            }
+            int separator = start;
+            while (separator < pos && buffer.get(separator) != '=') {
+                separator++;
+            }
+            if (separator == start) {
+                // Empty string or missing key
+                continue;
+            }
+            String key = decode(buffer, start, separator - start).toLowerCase(Locale.ROOT);
+            String value = separator < pos ? decode(buffer, separator + 1, pos - separator - 1) : "";
+            builder.putTxt(key, value);
+        }
+    }
+
+    private static String decode(ByteBuffer buffer, int offset, int length) {
+        return new String(copy(buffer, offset, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] copy(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return bytes;
+    }
+}
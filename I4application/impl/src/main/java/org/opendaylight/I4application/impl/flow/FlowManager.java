@@ -16,6 +16,9 @@ package org.opendaylight.I4application.impl.flow;
 
 import org.opendaylight.I4application.impl.Topology.HostManager;
 import org.opendaylight.I4application.impl.Topology.NetworkGraphService;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStage;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev130715.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
@@ -39,16 +42,18 @@ public class FlowManager {
     private List<List<Link>> paths = null;
     private FlowWriter flowWriter;
     private MDNSFlowWriter mDNSFlowWriter;
+    private LatencyRecorder latencyRecorder;
 
     private Ipv4Address mDNSMulticastAddr = Ipv4Address.getDefaultInstance("224.0.0.251");
 
 
     public FlowManager(HostManager hostManager, NetworkGraphService networkGraphService,
-                       FlowWriter flowWriter, MDNSFlowWriter mDNSFlowWriter) {
+                       FlowWriter flowWriter, MDNSFlowWriter mDNSFlowWriter, LatencyRecorder latencyRecorder) {
         this.hostManager = hostManager;
         this.networkGraphService = networkGraphService;
         this.flowWriter = flowWriter;
         this.mDNSFlowWriter = mDNSFlowWriter;
+        this.latencyRecorder = latencyRecorder;
     }
 
 
@@ -57,6 +62,15 @@ public class FlowManager {
      *
      */
     public boolean ipPktFlowManager(Ipv4Address srcIP, MacAddress srcMAC, Ipv4Address dstIP, MacAddress dstMAC){
+        long startNanos = System.nanoTime();
+        try {
+            return setupIpPktFlows(srcIP, srcMAC, dstIP, dstMAC);
+        } finally {
+            latencyRecorder.recordSince(LatencyStage.FLOW_SETUP, startNanos);
+        }
+    }
+
+    private boolean setupIpPktFlows(Ipv4Address srcIP, MacAddress srcMAC, Ipv4Address dstIP, MacAddress dstMAC){
 
         List<Link> path = null;
         List<Link> revPath = null;
@@ -64,11 +78,13 @@ public class FlowManager {
         boolean forwardPath;
 
         // Use the srcIP, dstIP and get NodeConnectorRef and Node from Host Manager
-        NodeConnectorRef srcNodeConnRef = hostManager.getIpNodeConnectorRef(srcIP);
-        NodeConnectorRef dstNodeConnRef = hostManager.getIpNodeConnectorRef(dstIP);
+        int srcAddr = PacketParsingUtils.ipv4AddressToInt(srcIP);
+        int dstAddr = PacketParsingUtils.ipv4AddressToInt(dstIP);
+        NodeConnectorRef srcNodeConnRef = hostManager.getIpNodeConnectorRef(srcAddr);
+        NodeConnectorRef dstNodeConnRef = hostManager.getIpNodeConnectorRef(dstAddr);
 
-        Node srcNode = hostManager.getIpNode(srcIP);
-        Node dstNode = hostManager.getIpNode(dstIP);
+        Node srcNode = hostManager.getIpNode(srcAddr);
+        Node dstNode = hostManager.getIpNode(dstAddr);
 
         if (srcNode !=null && dstNode !=null){
 
@@ -15,6 +15,8 @@ package org.opendaylight.I4application.impl.flow;
 
 import com.google.common.collect.ImmutableList;
 import org.opendaylight.I4application.impl.Topology.HostManager;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStage;
 import org.opendaylight.I4application.impl.utils.InstanceIdentifierUtils;
 import org.opendaylight.openflowplugin.api.OFConstants;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
@@ -80,13 +82,16 @@ public class FlowWriter {
     private List<Link> path = null;
 
     private SalFlowService salFlowService;
+    private LatencyRecorder latencyRecorder;
 
-    public FlowWriter(SalFlowService salFlowService) {
+    public FlowWriter(SalFlowService salFlowService, LatencyRecorder latencyRecorder) {
         this.salFlowService = salFlowService;
+        this.latencyRecorder = latencyRecorder;
     }
 
 
     public boolean addFlowtoNode(Ipv4Address dstIP, MacAddress dstMac, NodeConnectorRef dstNCref){
+        long startNanos = System.nanoTime();
 
         Flow flow = createFlow(dstIP, dstMac, dstNCref);
         // Create Flow tableKey
@@ -99,7 +104,7 @@ public class FlowWriter {
           */
 
         InstanceIdentifier<Flow> flowPath = createFlowIID(dstNCref, flowTableKey);
-        writeFlowConfigData(flowPath, flow);
+        latencyRecorder.recordCompletion(LatencyStage.FLOW_WRITE, writeFlowConfigData(flowPath, flow), startNanos);
         return true;
     }
 
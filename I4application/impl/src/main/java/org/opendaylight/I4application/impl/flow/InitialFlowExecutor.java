@@ -87,6 +87,10 @@ public class InitialFlowExecutor implements DataChangeListener {
     private final int DEFAULT_FLOW_IDLE_TIMEOUT = 0;
     private final int DEFAULT_FLOW_HARD_TIMEOUT = 0;
 
+    // OFPCML_NO_BUFFER, switch sends the complete packet to the controller. Switch-buffered
+    // packet-ins need the OpenFlow buffer_id, which PacketReceived does not carry in this model.
+    private static final int FULL_PACKET_IN_MAX_LENGTH = 0xffff;
+
     private AtomicLong flowIdInc = new AtomicLong();
     private AtomicLong flowCookieInc = new AtomicLong(0x3b00000000000000L);
 
@@ -182,7 +186,7 @@ public class InitialFlowExecutor implements DataChangeListener {
                     .setOrder(0)
                     .setKey(new ActionKey(0))
                     .setAction(new OutputActionCaseBuilder()
-                            .setOutputAction(new OutputActionBuilder().setMaxLength(0x05dc)// Use 0xffff to set OFPCML_NO_BUFFER
+                            .setOutputAction(new OutputActionBuilder().setMaxLength(FULL_PACKET_IN_MAX_LENGTH)
                                     .setOutputNodeConnector(new Uri(OutputPortValues.CONTROLLER.toString()))
                                     .build())
                             .build())
@@ -17,6 +17,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import org.opendaylight.I4application.impl.Topology.HostManager;
 import org.opendaylight.I4application.impl.utils.InstanceIdentifierUtils;
+import org.opendaylight.I4application.impl.utils.IntObjectHashMap;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.openflowplugin.api.OFConstants;
@@ -108,7 +110,8 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
     private short flowTableId = 0;
     private final String MDNS_FLOW_ID_PREFIX = "L2switch-mDNS-";
     private List<Link> path = null;
-    private HashMap<Ipv4Address, Long> groupIdTable= new HashMap<>();
+    // Keyed by coordinator address in network byte order
+    private IntObjectHashMap<Long> groupIdTable = new IntObjectHashMap<>();
     private AtomicLong groupIdInc =  new AtomicLong(1L);
 
 
@@ -394,7 +397,8 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
 
     public void addGroup(Ipv4Address coordinator, NodeConnectorRef dstNCRef, Group group){
 
-        InstanceIdentifier<Group> groupIID = InstanceIdentifierUtils.generateGroupInstanceIdentifier(dstNCRef, groupIdTable.get(coordinator));
+        InstanceIdentifier<Group> groupIID = InstanceIdentifierUtils.generateGroupInstanceIdentifier(dstNCRef,
+                groupIdTable.get(PacketParsingUtils.ipv4AddressToInt(coordinator)));
         Future<RpcResult<AddGroupOutput>> future = addGrouptoConfigfData(groupIID, group);
 
         try {
@@ -409,7 +413,8 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
     public void updateGroup(Ipv4Address coordinator, NodeConnectorRef dstNCRef, OriginalGroup oldGroup, UpdatedGroup newGroup){
         LOG.debug("Updating Group");
 
-        InstanceIdentifier<Group> groupIID = InstanceIdentifierUtils.generateGroupInstanceIdentifier(dstNCRef, groupIdTable.get(coordinator));
+        InstanceIdentifier<Group> groupIID = InstanceIdentifierUtils.generateGroupInstanceIdentifier(dstNCRef,
+                groupIdTable.get(PacketParsingUtils.ipv4AddressToInt(coordinator)));
         Future<RpcResult<UpdateGroupOutput>> future = updateGrouptoConfigData(groupIID, oldGroup, newGroup);
     }
 
@@ -419,12 +424,11 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
         LOG.debug("Creating Group");
 
         List<Bucket> bucketList = new ArrayList<Bucket>();
-        Long groupId = 0L;
-        if (!(groupIdTable.containsKey(coordinator.getValue()))){
+        int coordinatorAddr = PacketParsingUtils.ipv4AddressToInt(coordinator);
+        Long groupId = groupIdTable.get(coordinatorAddr);
+        if (groupId == null){
             groupId = groupIdInc.getAndIncrement();
-            groupIdTable.put(coordinator, new Long(groupId));
-        }else{
-            groupId = groupIdTable.get(coordinator);
+            groupIdTable.put(coordinatorAddr, groupId);
         }
         // Create a bucket and associated action for each port
         for (NodeConnectorRef dstPort : portlist){
@@ -474,7 +478,7 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
         LOG.debug("Creating Original Group");
 
         List<Bucket> bucketList = new ArrayList<Bucket>();
-        Long groupId = groupIdTable.get(coordinator);
+        Long groupId = groupIdTable.get(PacketParsingUtils.ipv4AddressToInt(coordinator));
 
         // Create a bucket and associated action for each port
         for (NodeConnectorRef dstPort : portlist){
@@ -525,7 +529,7 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
         LOG.debug("Creating Updated Group");
 
         List<Bucket> bucketList = new ArrayList<Bucket>();
-        Long groupId = groupIdTable.get(coordinator);
+        Long groupId = groupIdTable.get(PacketParsingUtils.ipv4AddressToInt(coordinator));
 
         // Create a bucket and associated action for each port
         for (NodeConnectorRef dstPort : portlist){
@@ -577,7 +581,7 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
         LOG.debug("Create Multicast Group");
 
 //        long groupid = coordinator.hashCode();
-        Long groupId = groupIdTable.get(coordinator);
+        Long groupId = groupIdTable.get(PacketParsingUtils.ipv4AddressToInt(coordinator));
 
         FlowBuilder flowBuilder = new FlowBuilder().setTableId(flowTableId).setFlowName("MULTICAST_FLOW");
         flowBuilder.setId(new FlowId(Long.toString(flowBuilder.hashCode())));
@@ -694,9 +698,10 @@ public class MDNSFlowWriter implements HostNotificationListener, FlushGroupTable
             }
         }
 
-        if (groupIdTable.containsKey(notification.getIPAddress())){
+        int address = PacketParsingUtils.ipv4AddressToInt(notification.getIPAddress());
+        if (groupIdTable.containsKey(address)){
             System.out.println("Removing Group Id for: " + notification.getIPAddress());
-            groupIdTable.remove(notification.getIPAddress());
+            groupIdTable.remove(address);
         }
     }
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.flow;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers host pairs whose path was installed recently.
+ *
+ * Packets of a (srcIP, dstIP) pair that reach the controller after its path
+ * was installed, but before the switches apply the new flows, are forwarded
+ * for a short hold time instead of installing the path again. The pipeline
+ * hands the packets of a pair to one single threaded ShardedPacketInHandler
+ * worker, so a pair never has two installations in flight and the hold is
+ * all the coalescing there is. The key is unordered since FlowManager
+ * installs both directions of the path at once.
+ */
+public class PendingFlowTable implements AutoCloseable {
+
+    public enum Admission {
+        /** Caller must install the flows and then call complete */
+        INSTALL,
+        /** Flows were installed recently, forward the packet */
+        INSTALLED
+    }
+
+    // System.nanoTime() at which the path of a pair was installed
+    private final ConcurrentHashMap<Long, Long> installedAt = new ConcurrentHashMap<>();
+    private final long holdNanos;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pending-flow-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong installCount = new AtomicLong();
+    private final AtomicLong installedHitCount = new AtomicLong();
+
+    /**
+     * @param holdMillis how long an installed pair short-cuts installation
+     */
+    public PendingFlowTable(long holdMillis) {
+        this.holdNanos = TimeUnit.MILLISECONDS.toNanos(holdMillis);
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, holdMillis, holdMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Admission admit(int srcAddr, int dstAddr) {
+        Long completedAt = installedAt.get(key(srcAddr, dstAddr));
+        if (completedAt != null && System.nanoTime() - completedAt < holdNanos) {
+            installedHitCount.incrementAndGet();
+            return Admission.INSTALLED;
+        }
+        installCount.incrementAndGet();
+        return Admission.INSTALL;
+    }
+
+    /**
+     * Finish the installation started by an INSTALL admission.
+     * @param installed false lets the next packet of the pair retry
+     */
+    public void complete(int srcAddr, int dstAddr, boolean installed) {
+        Long key = key(srcAddr, dstAddr);
+        if (installed) {
+            installedAt.put(key, System.nanoTime());
+        } else {
+            installedAt.remove(key);
+        }
+    }
+
+    /**
+     * Forget pairs whose hold time is over
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        // Removes an entry only if it still holds the time read, a pair installed again meanwhile stays
+        installedAt.entrySet().removeIf(entry -> now - entry.getValue() >= holdNanos);
+    }
+
+    /**
+     * @return pairs remembered, including those whose hold ran out since the last sweep
+     */
+    int size() {
+        return installedAt.size();
+    }
+
+    private static Long key(int srcAddr, int dstAddr) {
+        long low = Math.min(srcAddr & 0xFFFFFFFFL, dstAddr & 0xFFFFFFFFL);
+        long high = Math.max(srcAddr & 0xFFFFFFFFL, dstAddr & 0xFFFFFFFFL);
+        return (high << 32) | low;
+    }
+
+    public long getInstallCount() {
+        return installCount.get();
+    }
+
+    public long getInstalledHitCount() {
+        return installedHitCount.get();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import org.opendaylight.openflowplugin.api.OFConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, preallocated ring of {@link PacketIn} slots between the packet-in
+ * notification thread and the pipeline consumers.
+ *
+ * One producer publishes with {@link #offer}, any number of consumers compete
+ * for slots with {@link #claim}, read them with {@link #get} and hand them back
+ * with {@link #release}. Each slot carries a sequence number, so neither side
+ * takes a lock. When the ring is full the configured {@link OverloadPolicy}
+ * decides which packet is dropped.
+ */
+public class IngressRingBuffer {
+
+    public enum OverloadPolicy {
+        /** Drop the packet being offered */
+        DROP_NEWEST,
+        /** Drop the oldest packet if no consumer has claimed it yet, else drop newest */
+        DROP_OLDEST,
+        /** Drop sheddable classes above the shed threshold, then drop newest */
+        SHED_BY_CLASS
+    }
+
+    private final PacketIn[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // Only the producer thread writes tail
+    private volatile long tail;
+
+    private final OverloadPolicy overloadPolicy;
+    private final EnumSet<TrafficClass> sheddableClasses;
+    private final int shedThreshold;
+    private final AtomicLongArray dropCounters = new AtomicLongArray(TrafficClass.values().length);
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     * @param overloadPolicy policy applied once the ring is full
+     * @param sheddableClasses classes dropped first under SHED_BY_CLASS
+     */
+    public IngressRingBuffer(int capacity, OverloadPolicy overloadPolicy, Set<TrafficClass> sheddableClasses) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Ring capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new PacketIn[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new PacketIn(null, null, null);
+            sequences.set(i, i);
+        }
+        this.overloadPolicy = overloadPolicy;
+        this.sheddableClasses = sheddableClasses.isEmpty()
+                ? EnumSet.noneOf(TrafficClass.class) : EnumSet.copyOf(sheddableClasses);
+        // Start shedding once the ring is three quarters full
+        this.shedThreshold = size - (size >> 2);
+    }
+
+    /**
+     * Publish a packet. Must only be called from the single producer thread.
+     * @return false if the packet was dropped
+     */
+    public boolean offer(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass) {
+        return offer(payload, ingress, trafficClass, OFConstants.OFP_NO_BUFFER, System.nanoTime());
+    }
+
+    /**
+     * Publish a packet held in a switch buffer. Must only be called from the single producer thread.
+     * @param receivedNanos System.nanoTime() of the packet-in notification
+     * @return false if the packet was dropped
+     */
+    public boolean offer(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass, long bufferId,
+                         long receivedNanos) {
+        if (overloadPolicy == OverloadPolicy.SHED_BY_CLASS
+                && sheddableClasses.contains(trafficClass) && depth() >= shedThreshold) {
+            dropCounters.incrementAndGet(trafficClass.ordinal());
+            return false;
+        }
+        if (tryPublish(payload, ingress, trafficClass, bufferId, receivedNanos)) {
+            return true;
+        }
+        if (overloadPolicy == OverloadPolicy.DROP_OLDEST && dropOldest()
+                && tryPublish(payload, ingress, trafficClass, bufferId, receivedNanos)) {
+            return true;
+        }
+        dropCounters.incrementAndGet(trafficClass.ordinal());
+        return false;
+    }
+
+    private boolean tryPublish(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass, long bufferId,
+                               long receivedNanos) {
+        long pos = tail;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos) {
+            // Previous occupant of the slot is not released yet
+            return false;
+        }
+        slots[index].set(payload, ingress, trafficClass, bufferId, receivedNanos);
+        sequences.set(index, pos + 1);
+        tail = pos + 1;
+        return true;
+    }
+
+    /**
+     * Drop the packet in the slot the producer needs next, if it is still waiting
+     * to be claimed. A slot held by a consumer only frees up on release, dropping
+     * any other packet then would lose it and the offered one both.
+     * @return true if the slot at tail is free now
+     */
+    private boolean dropOldest() {
+        long seq = tail - slots.length;
+        if (sequences.get((int) (seq & mask)) != seq + 1 || !head.compareAndSet(seq, seq + 1)) {
+            return false;
+        }
+        dropCounters.incrementAndGet(get(seq).getTrafficClass().ordinal());
+        release(seq);
+        return true;
+    }
+
+    /**
+     * Claim the oldest published packet.
+     * @return sequence of the claimed slot, or -1 if the ring is empty
+     */
+    public long claim() {
+        while (true) {
+            long pos = head.get();
+            long seq = sequences.get((int) (pos & mask));
+            long dif = seq - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+            } else if (dif < 0) {
+                return -1;
+            }
+            // Another consumer moved head, retry
+        }
+    }
+
+    /**
+     * @return packet held by a claimed slot, valid until {@link #release} is called
+     */
+    public PacketIn get(long seq) {
+        return slots[(int) (seq & mask)];
+    }
+
+    /**
+     * Hand a claimed slot back to the producer.
+     */
+    public void release(long seq) {
+        int index = (int) (seq & mask);
+        slots[index].set(null, null, null, OFConstants.OFP_NO_BUFFER, 0L);
+        sequences.set(index, seq + slots.length);
+    }
+
+    /**
+     * @return number of published packets not yet claimed
+     */
+    public int depth() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return number of packets of trafficClass dropped by the overload policy
+     */
+    public long getDropCount(TrafficClass trafficClass) {
+        return dropCounters.get(trafficClass.ordinal());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import com.google.common.util.concurrent.Futures;
+import org.opendaylight.I4application.impl.utils.IntOpenHashSet;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.GetOpcuaClientCountersOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.GetOpcuaClientCountersOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.OpcuaClientsService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.SetOpcuaClientsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.get.opcua.client.counters.output.Client;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.opcuaclients.rev181201.get.opcua.client.counters.output.ClientBuilder;
+import org.opendaylight.yangtools.yang.common.RpcError;
+import org.opendaylight.yangtools.yang.common.RpcResult;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Addresses of the OPC UA clients whose traffic is relayed without flow setup.
+ * Membership is an {@link IntOpenHashSet} of address ints, checked without
+ * allocation on the packet path. The set is replaced as a whole by the
+ * set-opcua-clients RPC, readers always see either the old or the new set.
+ *
+ * Each client has its own dispatch counters. They are kept when the client
+ * stays in the set across an update.
+ */
+public class OpcUaClientRegistry implements OpcuaClientsService {
+
+    private final static Logger LOG = LoggerFactory.getLogger(OpcUaClientRegistry.class);
+
+    /**
+     * 10.0.0.200 in network byte order
+     */
+    public static final int DEFAULT_OPCUA_CLIENT_ADDR = 0x0A0000C8;
+
+    private volatile Clients clients;
+
+    public OpcUaClientRegistry(int[] clientAddrs) {
+        this.clients = new Clients(IntOpenHashSet.of(clientAddrs), null);
+    }
+
+    public boolean isClient(int addr) {
+        return clients.addrs.contains(addr);
+    }
+
+    public boolean involvesClient(int srcAddr, int dstAddr) {
+        IntOpenHashSet addrs = clients.addrs;
+        return addrs.contains(srcAddr) || addrs.contains(dstAddr);
+    }
+
+    /**
+     * Count a relayed packet against every client among its endpoints
+     */
+    public void recordDispatch(int srcAddr, int dstAddr, boolean dispatched) {
+        Clients current = clients;
+        record(current, srcAddr, dispatched);
+        if (dstAddr != srcAddr) {
+            record(current, dstAddr, dispatched);
+        }
+    }
+
+    private static void record(Clients current, int addr, boolean dispatched) {
+        int slot = current.addrs.indexOf(addr);
+        if (slot < 0) {
+            return;
+        }
+        if (dispatched) {
+            current.dispatched[slot].incrementAndGet();
+        } else {
+            current.dispatchFailed[slot].incrementAndGet();
+        }
+    }
+
+    public long getDispatchedCount(int addr) {
+        Clients current = clients;
+        int slot = current.addrs.indexOf(addr);
+        return slot < 0 ? 0 : current.dispatched[slot].get();
+    }
+
+    public long getDispatchFailedCount(int addr) {
+        Clients current = clients;
+        int slot = current.addrs.indexOf(addr);
+        return slot < 0 ? 0 : current.dispatchFailed[slot].get();
+    }
+
+    /**
+     * Replace the client set, counters of retained clients carry over
+     */
+    public synchronized void setClients(int[] clientAddrs) {
+        clients = new Clients(IntOpenHashSet.of(clientAddrs), clients);
+        LOG.info("OPC UA clients updated, {} clients", clients.addrs.size());
+    }
+
+    @Override
+    public Future<RpcResult<Void>> setOpcuaClients(SetOpcuaClientsInput input) {
+        List<Ipv4Address> addresses = input.getClientAddress();
+        int[] clientAddrs = new int[addresses == null ? 0 : addresses.size()];
+        for (int i = 0; i < clientAddrs.length; i++) {
+            clientAddrs[i] = PacketParsingUtils.ipv4AddressToInt(addresses.get(i));
+            if (clientAddrs[i] == 0) {
+                return Futures.immediateFuture(RpcResultBuilder.<Void>failed()
+                        .withError(RpcError.ErrorType.APPLICATION,
+                                "0.0.0.0 is not a valid OPC UA client address")
+                        .build());
+            }
+        }
+        setClients(clientAddrs);
+        return Futures.immediateFuture(RpcResultBuilder.<Void>success().build());
+    }
+
+    @Override
+    public Future<RpcResult<GetOpcuaClientCountersOutput>> getOpcuaClientCounters() {
+        Clients current = clients;
+        List<Client> clientList = new ArrayList<>(current.addrs.size());
+        for (int slot = 0; slot < current.addrs.capacity(); slot++) {
+            int addr = current.addrs.keyAt(slot);
+            if (addr == 0) {
+                continue;
+            }
+            clientList.add(new ClientBuilder()
+                    .setAddress(PacketParsingUtils.intToIpv4Address(addr))
+                    .setDispatched(BigInteger.valueOf(current.dispatched[slot].get()))
+                    .setDispatchFailed(BigInteger.valueOf(current.dispatchFailed[slot].get()))
+                    .build());
+        }
+        return Futures.immediateFuture(RpcResultBuilder.success(
+                new GetOpcuaClientCountersOutputBuilder().setClient(clientList).build()).build());
+    }
+
+    /**
+     * One published version of the client set with counters indexed by slot
+     */
+    private static final class Clients {
+        final IntOpenHashSet addrs;
+        final AtomicLong[] dispatched;
+        final AtomicLong[] dispatchFailed;
+
+        Clients(IntOpenHashSet addrs, Clients previous) {
+            this.addrs = addrs;
+            this.dispatched = new AtomicLong[addrs.capacity()];
+            this.dispatchFailed = new AtomicLong[addrs.capacity()];
+            for (int slot = 0; slot < addrs.capacity(); slot++) {
+                int addr = addrs.keyAt(slot);
+                if (addr == 0) {
+                    continue;
+                }
+                int previousSlot = previous == null ? -1 : previous.addrs.indexOf(addr);
+                // Share the counter objects so updates racing with the swap are not lost
+                dispatched[slot] = previousSlot < 0 ? new AtomicLong() : previous.dispatched[previousSlot];
+                dispatchFailed[slot] = previousSlot < 0 ? new AtomicLong() : previous.dispatchFailed[previousSlot];
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+
+/**
+ * Sorts a raw packet-in payload into a {@link TrafficClass} by reading the
+ * Ethernet and IPv4 headers at fixed offsets. Addresses and protocol numbers
+ * are compared as ints, so no decoded model object or String is touched
+ * before the packet class is known.
+ */
+public class PacketClassifier {
+
+    /**
+     * 224.0.0.251 in network byte order
+     */
+    public static final int MDNS_MULTICAST_ADDR = 0xE00000FB;
+
+    private final OpcUaClientRegistry opcUaClientRegistry;
+
+    public PacketClassifier(OpcUaClientRegistry opcUaClientRegistry) {
+        this.opcUaClientRegistry = opcUaClientRegistry;
+    }
+
+    /**
+     * @param payload raw Ethernet frame as received in the packet-in
+     * @return traffic class of the frame, never null
+     */
+    public TrafficClass classify(final byte[] payload) {
+        if (payload == null || payload.length < PacketParsingUtils.MIN_IPV4_FRAME_LENGTH) {
+            return TrafficClass.OTHER;
+        }
+
+        int etherType = PacketParsingUtils.etherTypeToInt(payload);
+        if (etherType == PacketParsingUtils.ETHER_TYPE_ARP) {
+            return TrafficClass.ARP;
+        }
+        if (etherType != PacketParsingUtils.ETHER_TYPE_IPV4) {
+            return TrafficClass.OTHER;
+        }
+
+        int protocol = PacketParsingUtils.ProtocolNum(payload);
+        if (protocol == PacketParsingUtils.IP_PROTOCOL_IGMP) {
+            return TrafficClass.IGMP;
+        }
+        int dstAddr = PacketParsingUtils.dstIPAddrToInt(payload);
+        if (dstAddr == MDNS_MULTICAST_ADDR && protocol == PacketParsingUtils.IP_PROTOCOL_UDP) {
+            return TrafficClass.MDNS;
+        }
+        if (opcUaClientRegistry.involvesClient(PacketParsingUtils.srcIPAddrToInt(payload), dstAddr)) {
+            return TrafficClass.OPCUA_CLIENT;
+        }
+        return TrafficClass.IPV4;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import org.opendaylight.openflowplugin.api.OFConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+
+/**
+ * A classified packet-in as handed to a {@link PacketInHandler}.
+ */
+public class PacketIn {
+
+    private byte[] payload;
+    private NodeConnectorRef ingress;
+    private TrafficClass trafficClass;
+    private long bufferId;
+    private long receivedNanos;
+
+    public PacketIn(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass) {
+        this(payload, ingress, trafficClass, OFConstants.OFP_NO_BUFFER, System.nanoTime());
+    }
+
+    public PacketIn(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass, long bufferId,
+                    long receivedNanos) {
+        set(payload, ingress, trafficClass, bufferId, receivedNanos);
+    }
+
+    void set(byte[] payload, NodeConnectorRef ingress, TrafficClass trafficClass, long bufferId,
+             long receivedNanos) {
+        this.payload = payload;
+        this.ingress = ingress;
+        this.trafficClass = trafficClass;
+        this.bufferId = bufferId;
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * @return raw Ethernet frame
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return switch port the packet was received on
+     */
+    public NodeConnectorRef getIngress() {
+        return ingress;
+    }
+
+    public TrafficClass getTrafficClass() {
+        return trafficClass;
+    }
+
+    /**
+     * @return switch buffer holding the full packet, OFP_NO_BUFFER if the payload is all there is
+     */
+    public long getBufferId() {
+        return bufferId;
+    }
+
+    /**
+     * @return System.nanoTime() when the packet-in notification arrived
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+/**
+ * Handler registered with {@link PacketInPipeline} for one or more traffic classes.
+ */
+public interface PacketInHandler {
+
+    /**
+     * Called exactly once per packet-in of a registered traffic class.
+     * The {@link PacketIn} holder must not be kept after the call returns,
+     * copy out the payload reference instead.
+     */
+    void handlePacket(PacketIn packetIn);
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import org.opendaylight.I4application.impl.stats.LatencyHistogram;
+import org.opendaylight.controller.md.sal.binding.api.NotificationService;
+import org.opendaylight.openflowplugin.api.OFConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketProcessingListener;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketReceived;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single ingress point for packet-in notifications. Each packet is classified
+ * once on its raw bytes and handed to the one handler registered for its
+ * traffic class, replacing the separate Ipv4, Arp and Udp decoded listeners.
+ *
+ * When built with an {@link IngressRingBuffer} the notification thread only
+ * classifies and publishes, and a fixed set of consumer threads run the handlers.
+ */
+public class PacketInPipeline implements PacketProcessingListener, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PacketInPipeline.class);
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000L;
+
+    private final PacketClassifier packetClassifier;
+    private volatile EnumMap<TrafficClass, PacketInHandler> handlers = new EnumMap<>(TrafficClass.class);
+    private final AtomicLongArray receivedCounters = new AtomicLongArray(TrafficClass.values().length);
+    private final AtomicLongArray unhandledCounters = new AtomicLongArray(TrafficClass.values().length);
+    private final LatencyHistogram[] handlerLatencies = new LatencyHistogram[TrafficClass.values().length];
+
+    private final IngressRingBuffer ringBuffer;
+    private final ExecutorService consumerExecutor;
+    private final ListenerRegistration<PacketInPipeline> listenerRegistration;
+    private volatile boolean running = true;
+
+    /**
+     * Pipeline running the handlers directly on the notification thread.
+     */
+    public PacketInPipeline(NotificationService notificationService, PacketClassifier packetClassifier) {
+        this(notificationService, packetClassifier, null, 0);
+    }
+
+    /**
+     * Pipeline buffering packet-ins in ringBuffer, drained by consumers threads.
+     */
+    public PacketInPipeline(NotificationService notificationService, PacketClassifier packetClassifier,
+                            IngressRingBuffer ringBuffer, int consumers) {
+        this.packetClassifier = packetClassifier;
+        this.ringBuffer = ringBuffer;
+        for (int i = 0; i < handlerLatencies.length; i++) {
+            handlerLatencies[i] = new LatencyHistogram();
+        }
+        if (ringBuffer != null) {
+            AtomicInteger consumerIndex = new AtomicInteger();
+            consumerExecutor = Executors.newFixedThreadPool(consumers, runnable -> {
+                Thread thread = new Thread(runnable, "packet-in-consumer-" + consumerIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < consumers; i++) {
+                consumerExecutor.submit(new RingConsumer());
+            }
+        } else {
+            consumerExecutor = null;
+        }
+        listenerRegistration = notificationService.registerNotificationListener(this);
+    }
+
+    /**
+     * Register the handler for a traffic class, replacing any previous one.
+     */
+    public synchronized void registerHandler(TrafficClass trafficClass, PacketInHandler handler) {
+        EnumMap<TrafficClass, PacketInHandler> copy = new EnumMap<>(handlers);
+        copy.put(trafficClass, handler);
+        handlers = copy;
+    }
+
+    @Override
+    public void onPacketReceived(PacketReceived notification) {
+        if (notification == null || notification.getPayload() == null) {
+            return;
+        }
+        long receivedNanos = System.nanoTime();
+        // PacketReceived of this openflowplugin release does not carry the OpenFlow buffer_id,
+        // so packet-ins are handled as unbuffered until the model exposes it
+        byte[] payload = notification.getPayload();
+        TrafficClass trafficClass = packetClassifier.classify(payload);
+        int index = trafficClass.ordinal();
+        receivedCounters.incrementAndGet(index);
+
+        PacketInHandler handler = handlers.get(trafficClass);
+        if (handler == null) {
+            unhandledCounters.incrementAndGet(index);
+            return;
+        }
+        if (ringBuffer == null) {
+            dispatch(handler, new PacketIn(payload, notification.getIngress(), trafficClass,
+                    OFConstants.OFP_NO_BUFFER, receivedNanos));
+        } else {
+            ringBuffer.offer(payload, notification.getIngress(), trafficClass,
+                    OFConstants.OFP_NO_BUFFER, receivedNanos);
+        }
+    }
+
+    private void dispatch(PacketInHandler handler, PacketIn packetIn) {
+        long startNanos = System.nanoTime();
+        try {
+            handler.handlePacket(packetIn);
+        } catch (RuntimeException e) {
+            LOG.warn("Handler for {} failed", packetIn.getTrafficClass(), e);
+        }
+        handlerLatencies[packetIn.getTrafficClass().ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Drains the ring buffer, backing off from spinning to parking while it is empty.
+     */
+    private class RingConsumer implements Runnable {
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                long seq = ringBuffer.claim();
+                if (seq < 0) {
+                    idle = backOff(idle);
+                    continue;
+                }
+                idle = 0;
+                PacketIn packetIn = ringBuffer.get(seq);
+                try {
+                    PacketInHandler handler = handlers.get(packetIn.getTrafficClass());
+                    if (handler != null) {
+                        dispatch(handler, packetIn);
+                    }
+                } finally {
+                    ringBuffer.release(seq);
+                }
+            }
+        }
+
+        private int backOff(int idle) {
+            if (idle < SPIN_TRIES) {
+                return idle + 1;
+            }
+            if (idle < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+                return idle + 1;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+            return idle;
+        }
+    }
+
+    /**
+     * @return number of packet-ins classified as trafficClass
+     */
+    public long getReceivedCount(TrafficClass trafficClass) {
+        return receivedCounters.get(trafficClass.ordinal());
+    }
+
+    /**
+     * @return number of packet-ins of trafficClass dropped for lack of a handler
+     */
+    public long getUnhandledCount(TrafficClass trafficClass) {
+        return unhandledCounters.get(trafficClass.ordinal());
+    }
+
+    /**
+     * @return number of packet-ins of trafficClass dropped by the ring overload policy
+     */
+    public long getDroppedCount(TrafficClass trafficClass) {
+        return ringBuffer == null ? 0 : ringBuffer.getDropCount(trafficClass);
+    }
+
+    /**
+     * @return time the handler of trafficClass ran per packet-in, work it hands to
+     *         its own threads is not included
+     */
+    public LatencyHistogram getHandlerLatency(TrafficClass trafficClass) {
+        return handlerLatencies[trafficClass.ordinal()];
+    }
+
+    /**
+     * @return packet-ins waiting in the ring buffer
+     */
+    public int getQueueDepth() {
+        return ringBuffer == null ? 0 : ringBuffer.depth();
+    }
+
+    @Override
+    public void close() {
+        // Stop packet-ins first, nothing drains the ring once the consumers are gone
+        listenerRegistration.close();
+        running = false;
+        if (consumerExecutor != null) {
+            consumerExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Spreads IPv4 packet-ins over single threaded workers keyed by the
+ * (source, destination) address pair. Both directions of a conversation hash
+ * to the same worker, so packets of one flow stay ordered while different
+ * flows run in parallel. The delegate handler must not keep per-packet state.
+ */
+public class ShardedPacketInHandler implements PacketInHandler, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedPacketInHandler.class);
+
+    private final PacketInHandler delegate;
+    private final ThreadPoolExecutor[] workers;
+    private final AtomicLongArray dispatchedCounters;
+    private final AtomicLongArray rejectedCounters;
+
+    /**
+     * @param delegate stateless handler run on the shard workers
+     * @param shards number of single threaded workers
+     * @param queueCapacity packets each worker may hold before rejecting new ones
+     */
+    public ShardedPacketInHandler(PacketInHandler delegate, int shards, int queueCapacity) {
+        this.delegate = delegate;
+        this.workers = new ThreadPoolExecutor[shards];
+        for (int i = 0; i < shards; i++) {
+            String name = "packet-in-shard-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        this.dispatchedCounters = new AtomicLongArray(shards);
+        this.rejectedCounters = new AtomicLongArray(shards);
+    }
+
+    @Override
+    public void handlePacket(PacketIn packetIn) {
+        // The pipeline reuses its holder once we return, so hand the worker its own copy
+        final PacketIn packet = new PacketIn(packetIn.getPayload(), packetIn.getIngress(),
+                packetIn.getTrafficClass(), packetIn.getBufferId(), packetIn.getReceivedNanos());
+        int shard = shardOf(packet.getPayload());
+        try {
+            workers[shard].execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        delegate.handlePacket(packet);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Shard {} failed to handle packet", shard, e);
+                    }
+                }
+            });
+            dispatchedCounters.incrementAndGet(shard);
+        } catch (RejectedExecutionException e) {
+            rejectedCounters.incrementAndGet(shard);
+        }
+    }
+
+    /**
+     * @return worker index for the address pair of an IPv4 frame
+     */
+    int shardOf(byte[] payload) {
+        int key = PacketParsingUtils.srcIPAddrToInt(payload) ^ PacketParsingUtils.dstIPAddrToInt(payload);
+        // Spread the low address bits, hosts on one subnet differ only there
+        key *= 0x9E3779B9;
+        key ^= key >>> 16;
+        return (key & Integer.MAX_VALUE) % workers.length;
+    }
+
+    public int getShardCount() {
+        return workers.length;
+    }
+
+    public long getDispatchedCount(int shard) {
+        return dispatchedCounters.get(shard);
+    }
+
+    /**
+     * @return packets dropped because the worker queue of shard was full
+     */
+    public long getRejectedCount(int shard) {
+        return rejectedCounters.get(shard);
+    }
+
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+}
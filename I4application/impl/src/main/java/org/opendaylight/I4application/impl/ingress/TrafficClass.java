@@ -0,0 +1,27 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+/**
+ * Traffic classes a packet-in is sorted into by {@link PacketClassifier}.
+ */
+public enum TrafficClass {
+    /** ARP request or reply */
+    ARP,
+    /** UDP packet addressed to the mDNS multicast group 224.0.0.251 */
+    MDNS,
+    /** IGMP membership traffic */
+    IGMP,
+    /** IPv4 packet sent from or to the OPC UA client */
+    OPCUA_CLIENT,
+    /** Any other IPv4 packet, handled by reactive forwarding */
+    IPV4,
+    /** Truncated frames and non IPv4/ARP EtherTypes */
+    OTHER
+}
@@ -10,16 +10,19 @@
 package org.opendaylight.I4application.impl;
 
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import org.opendaylight.I4application.impl.flow.FlowManager;
-import org.opendaylight.I4application.impl.utils.MDNSPacketsQueue;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.i4application.rev150105.CoOrdinatorIdentified;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.i4application.rev150105.I4applicationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class mDNSPacketForwarder implements I4applicationListener {
@@ -28,15 +31,17 @@ public class mDNSPacketForwarder implements I4applicationListener {
 
     private NotificationService notificationService;
     private FlowManager flowManager;
-    private PacketDispatcher packetDispatcher;
+    private final PacketReplayScheduler packetReplayScheduler;
+    private final MdnsPacketStore mdnsPacketStore;
 
     public mDNSPacketForwarder(NotificationService notificationService, FlowManager flowManager,
-                               PacketDispatcher packetDispatcher) {
+                               PacketReplayScheduler packetReplayScheduler, MdnsPacketStore mdnsPacketStore) {
 
         this.notificationService = notificationService;
         notificationService.registerNotificationListener(this);
         this.flowManager = flowManager;
-        this.packetDispatcher = packetDispatcher;
+        this.packetReplayScheduler = packetReplayScheduler;
+        this.mdnsPacketStore = mdnsPacketStore;
     }
 
     @Override
@@ -44,8 +49,8 @@ public class mDNSPacketForwarder implements I4applicationListener {
         LOG.debug("Coordinator selection received");
         Boolean flowsetupResult;
 
-        Ipv4Address opcua_server = notification.getOpcuaServerAddress();
-        Ipv4Address coordinator = notification.getCoOrdinatorAddress();
+        int opcua_server = PacketParsingUtils.ipv4AddressToInt(notification.getOpcuaServerAddress());
+        int coordinator = PacketParsingUtils.ipv4AddressToInt(notification.getCoOrdinatorAddress());
 
         sendcoordinatorpkts(opcua_server, coordinator);
         sendOPCUAPkts(opcua_server, coordinator);
@@ -58,30 +63,46 @@ public class mDNSPacketForwarder implements I4applicationListener {
     }
 
 
-    private void sendOPCUAPkts(Ipv4Address opcuaServer, Ipv4Address coordinator){
-        ArrayList<byte[]> packetList = MDNSPacketsQueue.mDNSPackets.get(opcuaServer);
-        int packetcount = packetList.size();
-
-        for (byte[] packet:packetList){
-            boolean result = packetDispatcher.dispatchPacket(packet, opcuaServer, coordinator);
-            if (result) packetcount--;
-            TimeUnit.SECONDS.toMicros(100);
+    /**
+     * Replay the announcements of the OPC UA server to the coordinator
+     */
+    private void sendOPCUAPkts(int opcuaServer, int coordinator){
+        List<ByteBuffer> packetList = mdnsPacketStore.get(opcuaServer);
+        if (packetList == null){
+            return;
         }
 
-        if (packetcount != 0){
-            LOG.debug("Packet out failed");
-        }
-        LOG.debug("mDNS Packet out success");
-//        MDNSPacketsQueue.mDNSPackets.remove(opcuaServer);
+        Futures.addCallback(packetReplayScheduler.replay(coordinator, packetList, opcuaServer, coordinator),
+                new FutureCallback<PacketReplayScheduler.ReplayResult>() {
+                    @Override
+                    public void onSuccess(PacketReplayScheduler.ReplayResult result) {
+                        if (result.getLostCount() != 0){
+                            LOG.debug("Packet out failed for {} of {} packets", result.getLostCount(),
+                                    result.getSentCount() + result.getLostCount());
+                            return;
+                        }
+                        LOG.debug("mDNS Packet out success in {} ms",
+                                TimeUnit.NANOSECONDS.toMillis(result.getDurationNanos()));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        LOG.debug("Packet out failed", t);
+                    }
+                });
+//        mdnsPacketStore.remove(opcuaServer);
     }
 
-    private void sendcoordinatorpkts(Ipv4Address opcuaserver, Ipv4Address coordinator){
+    /**
+     * Replay the announcements of the coordinator to the OPC UA server
+     */
+    private void sendcoordinatorpkts(int opcuaserver, int coordinator){
 
-        ArrayList<byte[]> packetList = MDNSPacketsQueue.mDNSPackets.get(coordinator);
-        for (byte[] packet:packetList){
-            boolean result = packetDispatcher.dispatchPacket(packet, coordinator, opcuaserver);
-            TimeUnit.SECONDS.toMicros(100);
+        List<ByteBuffer> packetList = mdnsPacketStore.get(coordinator);
+        if (packetList == null){
+            return;
         }
+        packetReplayScheduler.replay(coordinator, packetList, coordinator, opcuaserver);
     }
 
 }
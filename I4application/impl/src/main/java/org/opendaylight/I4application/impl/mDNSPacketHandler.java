@@ -9,18 +9,16 @@
 package org.opendaylight.I4application.impl;
 
 import com.google.common.util.concurrent.Futures;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.opendaylight.I4application.impl.flow.FlowManager;
-import org.opendaylight.I4application.impl.utils.MDNSPacketsQueue;
+import org.opendaylight.I4application.impl.ingress.PacketIn;
+import org.opendaylight.I4application.impl.ingress.PacketInHandler;
+import org.opendaylight.I4application.impl.utils.BytePatternMatcher;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
 import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.basepacket.rev140528.packet.chain.grp.PacketChain;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.ipv4.rev140528.ipv4.packet.received.packet.chain.packet.Ipv4Packet;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.udp.rev181230.UdpPacketListener;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.udp.rev181230.UdpPacketReceived;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.flushpktrpc.rev181201.FlushPktRpcService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.hostmanagernotification.rev150105.HostAddedNotification;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.hostmanagernotification.rev150105.HostNotificationListener;
@@ -30,126 +28,134 @@ import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 
-public class mDNSPacketHandler implements UdpPacketListener, HostNotificationListener, FlushPktRpcService {
+public class mDNSPacketHandler implements PacketInHandler, HostNotificationListener, FlushPktRpcService,
+        AutoCloseable {
 
     private final static Logger LOG = LoggerFactory.getLogger(org.opendaylight.I4application.impl.mDNSPacketHandler.class);
 
-    private Queue<ImmutablePair<Ipv4Packet, byte[]>> queue = new ConcurrentLinkedQueue<>();
     private ConcurrentHashMap<Ipv4Address, String> urlRecord = new ConcurrentHashMap<>();
 
     private NotificationService notificationService;
     private NotificationPublishService notificationProvider;
     private FlowManager flowManager;
     private PacketDispatcher packetDispatcher;
-
-    ExecutorService mDNSPacketExecutor = Executors.newFixedThreadPool(5);
-    ExecutorService checkUDPExecutor =  Executors.newFixedThreadPool(10);
-    mDNSPacketBuffer mDNSPacketBufferThrd = new mDNSPacketBuffer();
-    private final Ipv4Address mDNSMCAddr = Ipv4Address.getDefaultInstance("224.0.0.251");
+    private final BytePatternMatcher serviceTypeMatcher;
+    private final MdnsProxyResponder mdnsProxyResponder;
+    private final MdnsReassemblyBuffer mdnsReassemblyBuffer;
+    private final MdnsPacketStore mdnsPacketStore;
+
+    // One parser thread keeps the messages of a server in order, a goodbye never overtakes its announcement
+    private final ThreadPoolExecutor mDNSPacketExecutor;
+    private final AtomicLong rejectedCount = new AtomicLong();
     mDNS_packet_parser mDNS_packet_parser;
 
 
 
     public mDNSPacketHandler(NotificationService notificationService, mDNS_packet_parser mDNS_packet_parser,
-                             FlowManager flowManager, PacketDispatcher packetDispatcher, RpcProviderRegistry rpcProviderRegistry) {
+                             FlowManager flowManager, PacketDispatcher packetDispatcher, RpcProviderRegistry rpcProviderRegistry,
+                             BytePatternMatcher serviceTypeMatcher, MdnsProxyResponder mdnsProxyResponder,
+                             MdnsReassemblyBuffer mdnsReassemblyBuffer, MdnsPacketStore mdnsPacketStore,
+                             int parseQueueCapacity) {
         this.notificationService = notificationService;
         notificationService.registerNotificationListener(this);
         rpcProviderRegistry.addRpcImplementation(FlushPktRpcService.class, this);
         this.mDNS_packet_parser = mDNS_packet_parser;
         this.flowManager = flowManager;
         this.packetDispatcher = packetDispatcher;
+        this.serviceTypeMatcher = serviceTypeMatcher;
+        this.mdnsProxyResponder = mdnsProxyResponder;
+        this.mdnsReassemblyBuffer = mdnsReassemblyBuffer;
+        this.mdnsPacketStore = mdnsPacketStore;
+        this.mDNSPacketExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(parseQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "mdns-parser");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        mdnsReassemblyBuffer.setListener(this::checkUDPacket);
     }
 
 
     @Override
-    public void onUdpPacketReceived(UdpPacketReceived notification) {
-        LOG.debug("Received an UDP Packet");
-        checkUDPacket(notification);
-    }
-
-
-    public void checkUDPacket(UdpPacketReceived udpPacketReceived){
-
-        //Find the latest packet in the packet-chain, which is an UDP Packet
-        List<PacketChain> packetChainList = udpPacketReceived.getPacketChain();
-        Ipv4Packet ipv4Packet = (Ipv4Packet) packetChainList.get(packetChainList.size() - 2).getPacket();
-        byte[] data = udpPacketReceived.getPayload();
-
-
-        if (!(ipv4Packet.getDestinationIpv4().equals(mDNSMCAddr))){
-            LOG.debug("Not an mDNS packet");
+    public void handlePacket(PacketIn packetIn) {
+        LOG.debug("Received an mDNS Packet");
+        byte[] payload = packetIn.getPayload();
+        // Queries are answered from the cache, there is no announcement in them to parse
+        if (MdnsProxyResponder.isQuery(payload)
+                && mdnsProxyResponder.handleQuery(payload, packetIn.getIngress()) != MdnsProxyResponder.Result.PASS) {
             return;
         }
+        // Responses sent in parts come back from the buffer once their last part is in
+        mdnsReassemblyBuffer.offer(payload);
+    }
 
-        // New on 29-04-2019
-        if((MDNSPacketsQueue.urlRecord.containsKey(ipv4Packet.getSourceIpv4()))){
-            LOG.info("URL Record Exist");
-            return;
-        }
+
+    /**
+     * Queue an mDNS message for parsing. The ingress pipeline only hands over
+     * UDP packets addressed to 224.0.0.251. Packets of known servers are parsed
+     * as well, they may refresh, change or say goodbye to an announcement.
+     * Messages beyond the queue capacity are dropped and counted, servers
+     * announce again.
+     */
+    public void checkUDPacket(MdnsReassemblyBuffer.Message message){
 
         try {
-            queue.add(new ImmutablePair<>(ipv4Packet,data));
-        }catch (Exception e){
-            LOG.debug("Could not add Packet to mDNSPacketsQueue");
+            mDNSPacketExecutor.execute(new mDNSPacketBuffer(message));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            LOG.debug("mDNS parse queue full, dropped a message of {}", Integer.toHexString(message.getSrcAddr()));
         }
-        mDNSPacketExecutor.submit(mDNSPacketBufferThrd);
     }
 
 
+    /**
+     * Parses one message on the mDNSPacketExecutor thread
+     */
     class mDNSPacketBuffer implements Runnable {
-        Ipv4Packet mDNSPacket = null;
-        byte[] packetPayload = null;
-        byte[] mDNSPayload = null;
-        String mDNSPacketSring = null;
 
-        ExecutorService srvRecordExecutor = Executors.newFixedThreadPool(5);
-        ArrayList<byte[]> oldlist = new ArrayList<>();
+        private final MdnsReassemblyBuffer.Message message;
+
+        mDNSPacketBuffer(MdnsReassemblyBuffer.Message message) {
+            this.message = message;
+        }
 
         @Override
         public void run() {
-            // Pop an Element from Queue
-            ImmutablePair<Ipv4Packet, byte[]> immutablePair = queue.remove();
-            this.packetPayload = immutablePair.getValue();
-            this.mDNSPacket = immutablePair.getKey();
-            mDNSPayload = PacketParsingUtils.extractmDNSpayload(packetPayload, mDNSPacket.getIhl());
-            mDNSPacketSring = new String(mDNSPayload, StandardCharsets.UTF_8);
-            int protocol_pos = mDNSPacketSring.indexOf("_opcua-tcp");
-
-            if (protocol_pos<0){
+            final byte[] data = message.getData();
+            final int mDNSOffset = message.getOffset();
+            // Scan the message in place for any of the service types, nothing is copied or decoded
+            long match = serviceTypeMatcher.find(data, mDNSOffset, mDNSOffset + message.getLength());
+
+            if (match<0){
                 LOG.debug("Not an OPC-UA mDNS Packet");
                 return;
             }
-
-            if(!(MDNSPacketsQueue.mDNSPackets.containsKey(mDNSPacket.getSourceIpv4()))){
-                LOG.debug("Adding IP address to Map" + mDNSPacket.getSourceIpv4().getValue());
-                MDNSPacketsQueue.mDNSPackets.put(mDNSPacket.getSourceIpv4(), new ArrayList<>(Arrays.asList(packetPayload)));
-            }else{
-                try {
-                    oldlist = MDNSPacketsQueue.mDNSPackets.get(mDNSPacket.getSourceIpv4());
-                }catch (NullPointerException e){
-                    LOG.debug("Null Pointer Exception {}", e);
-                }
-                oldlist.add(packetPayload);
-                MDNSPacketsQueue.mDNSPackets.put(mDNSPacket.getSourceIpv4(), oldlist);
+            final byte[] serviceLabel = serviceTypeMatcher.pattern(BytePatternMatcher.patternIndex(match));
+            try {
+                mDNS_packet_parser.mDNSSRVRecordParser(data, mDNSOffset, message.getLength(), serviceLabel,
+                        PacketParsingUtils.intToIpv4Address(message.getSrcAddr()), message.getFrames());
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to parse mDNS message of {}", Integer.toHexString(message.getSrcAddr()), e);
             }
-
-
-            /* Use executors and runnable to implements this. As Completable Future sometimes may block execution. */
-
-//            CompletableFuture.runAsync(()->SRVRecHandler(mDNSPacket, mDNSPayload), srvRecordExecutor);
-            CompletableFuture.runAsync(()->mDNS_packet_parser.mDNSSRVRecordParser(mDNSPayload, protocol_pos, mDNSPacket.getSourceIpv4()), srvRecordExecutor);
         }
     }
 
+    /**
+     * @return messages dropped because the parse queue was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
 
     /**
      * Method is called when HostManager removed any hosts from it's database upon
@@ -161,14 +167,13 @@ public class mDNSPacketHandler implements UdpPacketListener, HostNotificationLis
     public void onHostRemovedNotification(HostRemovedNotification notification) {
 
         if (notification != null){
-            if (MDNSPacketsQueue.mDNSPackets.containsKey(notification.getIPAddress())) {
+            int address = PacketParsingUtils.ipv4AddressToInt(notification.getIPAddress());
+            if (mdnsPacketStore.contains(address)) {
                 LOG.debug("Remove mDNS packets for " + notification.getIPAddress());
                 System.out.println("Remove mDNS packets for " + notification.getIPAddress());
-                MDNSPacketsQueue.mDNSPackets.remove(notification.getIPAddress());
-                mDNS_packet_parser.clear_url_record(notification.getIPAddress());
-            } else {
-                return;
+                mdnsPacketStore.remove(address);
             }
+            mDNS_packet_parser.clear_url_record(notification.getIPAddress());
         }
         return;
     }
@@ -180,7 +185,7 @@ public class mDNSPacketHandler implements UdpPacketListener, HostNotificationLis
 
     private void flushpkts(){
         System.out.println("Removing Cached Packets");
-        MDNSPacketsQueue.mDNSPackets.clear();
+        mdnsPacketStore.clear();
     }
 
     @Override
@@ -190,4 +195,8 @@ public class mDNSPacketHandler implements UdpPacketListener, HostNotificationLis
         return Futures.immediateFuture(RpcResultBuilder.<Void>success().build());
     }
 
+    @Override
+    public void close() {
+        mDNSPacketExecutor.shutdownNow();
+    }
 }
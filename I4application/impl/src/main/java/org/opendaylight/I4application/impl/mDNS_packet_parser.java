@@ -8,73 +8,175 @@
 
 package org.opendaylight.I4application.impl;
 
-import org.opendaylight.I4application.impl.utils.MDNSPacketsQueue;
+import org.opendaylight.I4application.impl.dns.DnsMessage;
+import org.opendaylight.I4application.impl.dns.OpcUaServiceRecord;
+import org.opendaylight.I4application.impl.dns.ServiceRecordCache;
+import org.opendaylight.I4application.impl.dns.ServiceRecordReader;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
 import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlExpired;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlExpiredBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlNotification;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.DiscoveryUrlNotificationBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.urlnotification.rev150105.ExpiryReason;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collections;
+import java.util.List;
 
-public class mDNS_packet_parser {
+public class mDNS_packet_parser implements ServiceRecordCache.Listener {
 
     private static final Logger LOG = LoggerFactory.getLogger(mDNS_packet_parser.class);
-    private static final int SRV_RECORD_VAL = 33;
-    private static int SRV_RECORD_POS_OFFSET = 22;
-    private static int SRV_RECORD_END;
-//    private static int PROTOCOL_POS = 0;
-    private static byte[] RR_ByteArray;
-    private static int record_val = 0;
-    private static int dataLength = 0;
-    private static int port = 0;
-    private static String discovery_url;
-
-    private ConcurrentHashMap<Ipv4Address, String> urlRecord = new ConcurrentHashMap<>();
+    private static final byte[] OPCUA_SERVICE_LABEL = "_opcua-tcp".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Parse state lives in one reusable context per parsing thread, so parsers
+     * running on the executor threads never share a cursor
+     */
+    private static final ThreadLocal<ParseContext> PARSE_CONTEXT = new ThreadLocal<ParseContext>() {
+        @Override
+        protected ParseContext initialValue() {
+            return new ParseContext();
+        }
+    };
+
     private NotificationPublishService notificationProvider;
+    private final ServiceRecordCache serviceRecordCache;
+    private final MdnsPacketStore mdnsPacketStore;
 
-    public mDNS_packet_parser(NotificationPublishService notificationPublishService) {
+    public mDNS_packet_parser(NotificationPublishService notificationPublishService,
+                              ServiceRecordCache serviceRecordCache, MdnsPacketStore mdnsPacketStore) {
         this.notificationProvider = notificationPublishService;
+        this.serviceRecordCache = serviceRecordCache;
+        this.mdnsPacketStore = mdnsPacketStore;
+        serviceRecordCache.registerListener(this);
+    }
+
+    /**
+     * Parses mDNS packet payload and return hostname for URL construction.
+     * Reads the _opcua-tcp announcement in the packet into an OpcUaServiceRecord,
+     * the discovery url is the SRV target and port.
+     * @param mDNSbinary UDP payload of the mDNS packet
+     */
+    public ServiceRecordCache.Outcome mDNSSRVRecordParser(byte[] mDNSbinary, Ipv4Address src_address){
+        return mDNSSRVRecordParser(mDNSbinary, 0, mDNSbinary.length, OPCUA_SERVICE_LABEL, src_address,
+                Collections.<byte[]>emptyList());
     }
 
     /**
-     * Parses mDNS packet payload and return hostname for URL construction
+     * @param packet buffer holding the mDNS message, e.g. the whole Ethernet frame
+     * @param offset start of the mDNS message in packet
+     * @param length length of the mDNS message
+     * @param serviceLabel service type to read the announcement of, e.g. "_opcua-tls"
+     * @param frames packets the announcement came in, kept for the forwarder to replay
+     * @return what the announcement changed in the cache, null if the packet holds none
      */
-    public void mDNSSRVRecordParser(byte[] mDNSbinary, int PROTOCOL_POS, Ipv4Address src_address){
+    public ServiceRecordCache.Outcome mDNSSRVRecordParser(byte[] packet, int offset, int length,
+                                                          byte[] serviceLabel, Ipv4Address src_address,
+                                                          List<byte[]> frames){
         LOG.debug("mDNS Record Parser");
 
-        if (MDNSPacketsQueue.urlRecord.containsKey(src_address)){
-            LOG.debug("URL already exists");
-            return;
+        ParseContext context = PARSE_CONTEXT.get();
+        DnsMessage dnsMessage = context.dnsMessage.wrap(packet, offset, length);
+        OpcUaServiceRecord serviceRecord = context.serviceRecordReader.read(dnsMessage, serviceLabel);
+        if (serviceRecord == null){
+            String goodbyeInstanceName = context.serviceRecordReader.goodbyeInstanceName();
+            if (goodbyeInstanceName != null){
+                return serviceRecordCache.goodbye(goodbyeInstanceName);
+            }
+            if (context.serviceRecordReader.isMalformed()){
+                LOG.debug("Malformed mDNS packet from {}", src_address.getValue());
+            } else {
+                LOG.debug("Not SRV Record mDNS packet");
+            }
+            return null;
+        }
+
+        // Only an announcement which changes the cache is published, re-announcements just refresh the TTL
+        ServiceRecordCache.Outcome outcome = serviceRecordCache.put(serviceRecord, src_address);
+        if (outcome == ServiceRecordCache.Outcome.ADDED || outcome == ServiceRecordCache.Outcome.UPDATED){
+            LOG.debug("Parsed {}", serviceRecord);
+            notificationProvider.offerNotification(toNotification(serviceRecord, src_address,
+                    outcome == ServiceRecordCache.Outcome.UPDATED));
+        }
+        storePackets(PacketParsingUtils.ipv4AddressToInt(src_address), serviceRecord.getInstanceName(), frames,
+                outcome);
+        return outcome;
+    }
+
+    /**
+     * Keep the packets the forwarder replays for a server: a new instance adds its
+     * announcement, a changed one replaces its stale packets, on whichever host they
+     * were, and re-announcements are only counted. An instance whose packets were
+     * evicted or flushed while its record stayed cached is stored again from its next
+     * re-announcement. An announcement sent in parts is kept as all of its packets.
+     */
+    private void storePackets(int srcAddr, String instanceName, List<byte[]> frames,
+                              ServiceRecordCache.Outcome outcome){
+        if (outcome == ServiceRecordCache.Outcome.ADDED){
+            mdnsPacketStore.append(srcAddr, instanceName, frames);
+        } else if (outcome == ServiceRecordCache.Outcome.UPDATED){
+            mdnsPacketStore.replace(srcAddr, instanceName, frames);
+        } else if (outcome == ServiceRecordCache.Outcome.REFRESHED){
+            if (mdnsPacketStore.contains(srcAddr, instanceName)){
+                mdnsPacketStore.recordRepeats(srcAddr, frames);
+            } else {
+                mdnsPacketStore.append(srcAddr, instanceName, frames);
+            }
         }
+    }
 
-        //Copy SRV value
-        RR_ByteArray = Arrays.copyOfRange(mDNSbinary, PROTOCOL_POS+SRV_RECORD_POS_OFFSET,
-                                                PROTOCOL_POS+SRV_RECORD_POS_OFFSET+2);
-        record_val = ByteBuffer.wrap(RR_ByteArray).getShort();
-        // check is it SRV record
-        if (record_val != SRV_RECORD_VAL){
-            LOG.debug("Not SRV Record mDNS packet");
-            return;
+    /**
+     * Publish that a discovery URL is gone and drop the cached packets of the instance,
+     * and those of its host once none of the host's instances is left
+     */
+    @Override
+    public void onRecordRemoved(OpcUaServiceRecord serviceRecord, Ipv4Address src_address,
+                                ServiceRecordCache.RemovalReason reason) {
+        LOG.info("Discovery URL {} of {} removed, {}", serviceRecord.getDiscoveryUrl(), src_address.getValue(), reason);
+        int srcAddr = PacketParsingUtils.ipv4AddressToInt(src_address);
+        mdnsPacketStore.removeInstance(srcAddr, serviceRecord.getInstanceName());
+        if (!serviceRecordCache.hasHost(src_address)){
+            mdnsPacketStore.remove(srcAddr);
         }
-        // Skip 6 bytes from record pos
-        SRV_RECORD_END = PROTOCOL_POS+SRV_RECORD_POS_OFFSET+2;
-        dataLength = ByteBuffer.wrap(Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END+6, SRV_RECORD_END+8)).getShort();
-        port = ByteBuffer.wrap(Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END+12, SRV_RECORD_END+14)).getShort();
-        byte[] targetarray = Arrays.copyOfRange(mDNSbinary, SRV_RECORD_END + 15, SRV_RECORD_END + 14 + dataLength - 7);
-        discovery_url = new String(targetarray, StandardCharsets.UTF_8) + ":" + port;
+        DiscoveryUrlExpired discoveryUrlExpired = new DiscoveryUrlExpiredBuilder()
+                .setSrcIPAddress(src_address)
+                .setDiscoveryUrl(serviceRecord.getDiscoveryUrl())
+                .setInstanceName(serviceRecord.getInstanceName())
+                .setReason(toExpiryReason(reason))
+                .build();
+        notificationProvider.offerNotification(discoveryUrlExpired);
+    }
 
+    private static ExpiryReason toExpiryReason(ServiceRecordCache.RemovalReason reason){
+        switch (reason){
+            case GOODBYE:
+                return ExpiryReason.Goodbye;
+            case HOST_REMOVED:
+                return ExpiryReason.HostRemoved;
+            default:
+                return ExpiryReason.TtlExpired;
+        }
+    }
 
-        MDNSPacketsQueue.urlRecord.put(src_address, discovery_url);
-        DiscoveryUrlNotification discoveryUrlNotification = new DiscoveryUrlNotificationBuilder()
+    private static DiscoveryUrlNotification toNotification(OpcUaServiceRecord serviceRecord, Ipv4Address src_address,
+                                                           boolean updated){
+        return new DiscoveryUrlNotificationBuilder()
                 .setSrcIPAddress(src_address)
-                .setDiscoveryUrl(discovery_url)
+                .setDiscoveryUrl(serviceRecord.getDiscoveryUrl())
+                .setInstanceName(serviceRecord.getInstanceName())
+                .setHostName(serviceRecord.getHost())
+                .setPort(serviceRecord.getPort())
+                .setHostAddress(serviceRecord.getAddress())
+                .setPath(serviceRecord.getPath())
+                .setCapabilities(serviceRecord.getCapabilities())
+                .setTtl(serviceRecord.getSrvTtl())
+                .setUpdated(updated)
                 .build();
-        notificationProvider.offerNotification(discoveryUrlNotification);
     }
 
 
@@ -89,6 +191,11 @@ public class mDNS_packet_parser {
     }
 
     public void clear_url_record(Ipv4Address ipv4Address){
-        MDNSPacketsQueue.urlRecord.remove(ipv4Address);
+        serviceRecordCache.removeHost(ipv4Address);
+    }
+
+    private static final class ParseContext {
+        final DnsMessage dnsMessage = new DnsMessage();
+        final ServiceRecordReader serviceRecordReader = new ServiceRecordReader();
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.stats;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.Future;
+
+/**
+ * One {@link LatencyHistogram} per {@link LatencyStage}, shared by every
+ * component on the packet-in path. Stage times are taken with System.nanoTime().
+ */
+public class LatencyRecorder {
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[LatencyStage.values().length];
+
+    public LatencyRecorder() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(LatencyStage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Record the time from startNanos until now
+     */
+    public void recordSince(LatencyStage stage, long startNanos) {
+        histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record the time from startNanos until the RPC future completes. The time is taken
+     * in a listener, so nothing waits on the future. Futures which can not take a
+     * listener are not recorded.
+     */
+    public void recordCompletion(final LatencyStage stage, Future<?> future, final long startNanos) {
+        if (!(future instanceof ListenableFuture)) {
+            return;
+        }
+        ((ListenableFuture<?>) future).addListener(new Runnable() {
+            @Override
+            public void run() {
+                recordSince(stage, startNanos);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    public LatencyHistogram getHistogram(LatencyStage stage) {
+        return histograms[stage.ordinal()];
+    }
+}
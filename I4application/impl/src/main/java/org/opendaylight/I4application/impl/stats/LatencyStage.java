@@ -0,0 +1,27 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.stats;
+
+/**
+ * Stages of reactive IPv4 packet-in handling with a latency histogram each.
+ */
+public enum LatencyStage {
+    /** Packet-in notification until a handler picks the packet up */
+    QUEUE_WAIT,
+    /** IncomingPktHandler run for one packet, flow setup and packet out included */
+    PACKET_IN,
+    /** FlowManager.ipPktFlowManager, path lookup and issuing the flow writes */
+    FLOW_SETUP,
+    /** FlowWriter.addFlowtoNode until the add-flow RPC completes */
+    FLOW_WRITE,
+    /** PacketDispatcher transmit until the transmit-packet RPC completes */
+    PACKET_OUT,
+    /** Packet-in notification until the packet out of the handled packet is issued */
+    END_TO_END
+}
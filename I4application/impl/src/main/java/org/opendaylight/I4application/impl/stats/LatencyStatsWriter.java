@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.stats;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.PacketInLatency;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.PacketInLatencyBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.packet.in.latency.Stage;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.packetinlatency.rev181201.packet.in.latency.StageBuilder;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically copies the percentiles of a {@link LatencyRecorder} into the
+ * operational packet-in-latency container. Histograms are only read here, the
+ * packet path never touches the datastore.
+ */
+public class LatencyStatsWriter {
+
+    private final static Logger LOG = LoggerFactory.getLogger(LatencyStatsWriter.class);
+
+    private static final InstanceIdentifier<PacketInLatency> LATENCY_IID =
+            InstanceIdentifier.create(PacketInLatency.class);
+
+    private final DataBroker dataBroker;
+    private final LatencyRecorder latencyRecorder;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "latency-stats-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LatencyStatsWriter(DataBroker dataBroker, LatencyRecorder latencyRecorder, long periodMillis) {
+        this.dataBroker = dataBroker;
+        this.latencyRecorder = latencyRecorder;
+        writer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                writeStats();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeStats() {
+        List<Stage> stages = new ArrayList<>(LatencyStage.values().length);
+        for (LatencyStage latencyStage : LatencyStage.values()) {
+            LatencyHistogram histogram = latencyRecorder.getHistogram(latencyStage);
+            stages.add(new StageBuilder()
+                    .setName(latencyStage.name())
+                    .setCount(BigInteger.valueOf(histogram.getTotalCount()))
+                    .setP50Nanos(BigInteger.valueOf(histogram.getValueAtPercentile(50.0)))
+                    .setP99Nanos(BigInteger.valueOf(histogram.getValueAtPercentile(99.0)))
+                    .setP999Nanos(BigInteger.valueOf(histogram.getValueAtPercentile(99.9)))
+                    .setMaxNanos(BigInteger.valueOf(histogram.getMaxValue()))
+                    .build());
+        }
+
+        try {
+            WriteTransaction writeTransaction = dataBroker.newWriteOnlyTransaction();
+            writeTransaction.put(LogicalDatastoreType.OPERATIONAL, LATENCY_IID,
+                    new PacketInLatencyBuilder().setStage(stages).build());
+            writeTransaction.submit();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the next period writes again
+            LOG.warn("Failed to write packet-in latency", e);
+        }
+    }
+
+    public void close() {
+        writer.shutdownNow();
+    }
+}
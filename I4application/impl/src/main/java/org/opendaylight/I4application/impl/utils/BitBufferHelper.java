@@ -11,14 +11,17 @@ package org.opendaylight.I4application.impl.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-
 /**
  * BitBufferHelper class that provides utility methods to
  * - fetch specific bits from a serialized stream of bits
  * - convert bits to primitive data type - like short, int, long
  * - store bits in specified location in stream of bits
  * - convert primitive data types to stream of bits
+ * <p/>
+ * Fields are read and written a 64 bit big-endian word at a time, masked to
+ * the field, instead of bit by bit. readBits, writeBits, copyBits and the
+ * getBits overload taking a destination work on caller supplied buffers and
+ * allocate nothing, the byte[] returning methods are thin adapters over them.
  */
 public class BitBufferHelper {
   protected static final Logger logger = LoggerFactory
@@ -39,11 +42,11 @@ public class BitBufferHelper {
    * @return byte value
    */
   public static byte getByte(byte[] data) {
-    if((data.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte) > Byte.SIZE) {
+    if((data.length * NetUtils.NumBitsInAByte) > Byte.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
@@ -60,9 +63,9 @@ public class BitBufferHelper {
   public static short getShort(byte[] data) {
     if(data.length > Short.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
@@ -79,9 +82,9 @@ public class BitBufferHelper {
   public static int getInt(byte[] data) {
     if(data.length > Integer.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
@@ -98,7 +101,7 @@ public class BitBufferHelper {
   public static long getLong(byte[] data) {
     if(data.length > Long.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
       } catch(Exception e) {
         logger.error("", e);
@@ -118,20 +121,13 @@ public class BitBufferHelper {
   public static short getShort(byte[] data, int numBits) {
     if(numBits > Short.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
-    int startOffset = data.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBits;
-    byte[] bits = null;
-    try {
-      bits = BitBufferHelper.getBits(data, startOffset, numBits);
-    } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
-      logger.error("", e);
-    }
-    return (short) toNumber(bits, numBits);
+    return (short) getLastBits(data, numBits);
   }
 
   /**
@@ -145,20 +141,13 @@ public class BitBufferHelper {
   public static int getInt(byte[] data, int numBits) {
     if(numBits > Integer.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
-    int startOffset = data.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBits;
-    byte[] bits = null;
-    try {
-      bits = BitBufferHelper.getBits(data, startOffset, numBits);
-    } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
-      logger.error("", e);
-    }
-    return (int) toNumber(bits, numBits);
+    return (int) getLastBits(data, numBits);
   }
 
   /**
@@ -172,28 +161,27 @@ public class BitBufferHelper {
   public static long getLong(byte[] data, int numBits) {
     if(numBits > Long.SIZE) {
       try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
+        throw new BufferException(
             "Container is too small for the number of requested bits");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      } catch(BufferException e) {
         logger.error("", e);
       }
     }
-    if(numBits > data.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte) {
-      try {
-        throw new org.opendaylight.I4application.impl.utils.BufferException(
-            "Trying to read more bits than contained in the data buffer");
-      } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
-        logger.error("", e);
-      }
-    }
-    int startOffset = data.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBits;
-    byte[] bits = null;
+    return getLastBits(data, numBits);
+  }
+
+  /**
+   * @return value of the last numBits of data, 0 if data is shorter than numBits
+   */
+  private static long getLastBits(byte[] data, int numBits) {
+    int startOffset = data.length * NetUtils.NumBitsInAByte - numBits;
     try {
-      bits = BitBufferHelper.getBits(data, startOffset, numBits);
-    } catch(org.opendaylight.I4application.impl.utils.BufferException e) {
+      checkExceptions(data, startOffset, numBits);
+    } catch(BufferException e) {
       logger.error("", e);
+      return 0;
     }
-    return (long) toNumber(bits, numBits);
+    return readBits(data, startOffset, Math.min(numBits, Long.SIZE));
   }
 
   /**
@@ -217,67 +205,153 @@ public class BitBufferHelper {
    *                                                                with the data buffer size
    */
   public static byte[] getBits(byte[] data, int startOffset, int numBits)
-      throws org.opendaylight.I4application.impl.utils.BufferException {
-
-    int startByteOffset = 0;
-    int valfromcurr, valfromnext;
-    int extranumBits = numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int extraOffsetBits = startOffset % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int numBytes = (numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte != 0) ? 1 + numBits
-        / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte : numBits / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    byte[] shiftedBytes = new byte[numBytes];
-    startByteOffset = startOffset / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    byte[] bytes = new byte[numBytes];
+      throws BufferException {
+    byte[] bytes = new byte[numBytes(numBits)];
     if(numBits == 0) {
       return bytes;
     }
+    getBits(data, startOffset, numBits, bytes, 0);
+    return bytes;
+  }
 
+  /**
+   * Same as {@link #getBits(byte[], int, int)}, the LSB aligned bits are written
+   * to dst from dstOffset on, ceil(numBits / 8) bytes
+   *
+   * @throws BufferException when startOffset and numBits do not fit data, or the bits do not fit dst
+   */
+  public static void getBits(byte[] data, int startOffset, int numBits, byte[] dst, int dstOffset)
+      throws BufferException {
+    if(numBits == 0) {
+      return;
+    }
     checkExceptions(data, startOffset, numBits);
+    int numBytes = numBytes(numBits);
+    if(dstOffset < 0 || dstOffset + numBytes > dst.length) {
+      throw new BufferException("Destination too small - dst.length = " + dst.length
+          + " dstOffset = " + dstOffset + " numBits " + numBits);
+    }
+    int padBits = numBytes * NetUtils.NumBitsInAByte - numBits;
+    int dstBitOffset = dstOffset * NetUtils.NumBitsInAByte;
+    if(padBits != 0) {
+      writeBits(dst, dstBitOffset, padBits, 0);
+    }
+    copyBits(data, startOffset, dst, dstBitOffset + padBits, numBits);
+  }
 
-    if(extraOffsetBits == 0) {
-      if(extranumBits == 0) {
-        System.arraycopy(data, startByteOffset, bytes, 0, numBytes);
-        return bytes;
-      } else {
-        System.arraycopy(data, startByteOffset, bytes, 0, numBytes - 1);
-        bytes[numBytes - 1] = (byte) ((int) data[startByteOffset
-            + numBytes - 1] & getMSBMask(extranumBits));
-      }
-    } else {
-      int i;
-      for(i = 0; i < numBits / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte; i++) {
-        // Reading numBytes starting from offset
-        valfromcurr = (data[startByteOffset + i])
-            & getLSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits);
-        valfromnext = (data[startByteOffset + i + 1])
-            & getMSBMask(extraOffsetBits);
-        bytes[i] = (byte) (valfromcurr << (extraOffsetBits) | (valfromnext >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)));
-      }
-      // Now adding the rest of the bits if any
-      if(extranumBits != 0) {
-        if(extranumBits < (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) {
-          valfromnext = (byte) (data[startByteOffset + i] & ((getMSBMask(extranumBits)) >> extraOffsetBits));
-          bytes[i] = (byte) (valfromnext << extraOffsetBits);
-        } else if(extranumBits == (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) {
-          valfromcurr = (data[startByteOffset + i])
-              & getLSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-              - extraOffsetBits);
-          bytes[i] = (byte) (valfromcurr << extraOffsetBits);
-        } else {
-          valfromcurr = (data[startByteOffset + i])
-              & getLSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-              - extraOffsetBits);
-          valfromnext = (data[startByteOffset + i + 1])
-              & (getMSBMask(extranumBits
-              - (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)));
-          bytes[i] = (byte) (valfromcurr << (extraOffsetBits) | (valfromnext >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)));
-        }
+  /**
+   * Reads a field of up to 64 bits as a big-endian number
+   *
+   * @param data        - buffer holding the field, bounds are not checked
+   * @param startOffset - bit offset of the field's most significant bit
+   * @param numBits     - field width, 0 to 64
+   * @return the field value in the low numBits bits
+   */
+  public static long readBits(byte[] data, int startOffset, int numBits) {
+    if(numBits == 0) {
+      return 0;
+    }
+    int byteOffset = startOffset >>> 3;
+    int bitOffset = startOffset & 7;
+    long word = loadLong(data, byteOffset) << bitOffset;
+    if(bitOffset + numBits > Long.SIZE) {
+      // The field reaches into a ninth byte
+      word |= (data[byteOffset + Long.BYTES] & 0xFF) >>> (NetUtils.NumBitsInAByte - bitOffset);
+    }
+    return word >>> (Long.SIZE - numBits);
+  }
+
+  /**
+   * Writes the low numBits bits of value as a big-endian field. Bits of data
+   * around the field are left as they are.
+   *
+   * @param data        - buffer to write the field to, bounds are not checked
+   * @param startOffset - bit offset of the field's most significant bit
+   * @param numBits     - field width, 0 to 64
+   */
+  public static void writeBits(byte[] data, int startOffset, int numBits, long value) {
+    if(numBits == 0) {
+      return;
+    }
+    int bitOffset = startOffset & 7;
+    if(bitOffset + numBits > Long.SIZE) {
+      // Split off the last byte so the rest fits one word
+      writeBits(data, startOffset, numBits - NetUtils.NumBitsInAByte, value >>> NetUtils.NumBitsInAByte);
+      writeBits(data, startOffset + numBits - NetUtils.NumBitsInAByte, NetUtils.NumBitsInAByte, value);
+      return;
+    }
+    int byteOffset = startOffset >>> 3;
+    int lastByte = (startOffset + numBits - 1) >>> 3;
+    // Field and value placed in a word starting at byteOffset
+    int tailBits = Long.SIZE - bitOffset - numBits;
+    long mask = (-1L >>> (Long.SIZE - numBits)) << tailBits;
+    long bits = (value << tailBits) & mask;
+    if(mask == -1L) {
+      storeLong(data, byteOffset, bits);
+      return;
+    }
+    for(int i = byteOffset, shift = Long.SIZE - NetUtils.NumBitsInAByte; i <= lastByte;
+        i++, shift -= NetUtils.NumBitsInAByte) {
+      int byteMask = (int) (mask >>> shift) & 0xFF;
+      data[i] = (byte) ((data[i] & ~byteMask) | ((int) (bits >>> shift) & byteMask));
+    }
+  }
+
+  /**
+   * Copies numBits bits from src to dst, a word at a time. Bits of dst around
+   * the copied range are left as they are. src and dst must not overlap.
+   */
+  public static void copyBits(byte[] src, int srcOffset, byte[] dst, int dstOffset, int numBits) {
+    if(((srcOffset | dstOffset | numBits) & 7) == 0) {
+      System.arraycopy(src, srcOffset >>> 3, dst, dstOffset >>> 3, numBits >>> 3);
+      return;
+    }
+    while(numBits >= Long.SIZE) {
+      writeBits(dst, dstOffset, Long.SIZE, readBits(src, srcOffset, Long.SIZE));
+      srcOffset += Long.SIZE;
+      dstOffset += Long.SIZE;
+      numBits -= Long.SIZE;
+    }
+    writeBits(dst, dstOffset, numBits, readBits(src, srcOffset, numBits));
+  }
 
+  /**
+   * @return 8 bytes from index on as a big-endian long, bytes past the end of data read as 0
+   */
+  private static long loadLong(byte[] data, int index) {
+    if(index + Long.BYTES <= data.length) {
+      return ((long) data[index] << 56)
+          | ((long) (data[index + 1] & 0xFF) << 48)
+          | ((long) (data[index + 2] & 0xFF) << 40)
+          | ((long) (data[index + 3] & 0xFF) << 32)
+          | ((long) (data[index + 4] & 0xFF) << 24)
+          | ((data[index + 5] & 0xFF) << 16)
+          | ((data[index + 6] & 0xFF) << 8)
+          | (data[index + 7] & 0xFFL);
+    }
+    long word = 0;
+    for(int i = 0; i < Long.BYTES; i++) {
+      word <<= NetUtils.NumBitsInAByte;
+      if(index + i < data.length) {
+        word |= data[index + i] & 0xFF;
       }
     }
-    // Aligns the bits to LSB
-    shiftedBytes = shiftBitsToLSB(bytes, numBits);
-    return shiftedBytes;
+    return word;
+  }
+
+  private static void storeLong(byte[] data, int index, long word) {
+    data[index] = (byte) (word >>> 56);
+    data[index + 1] = (byte) (word >>> 48);
+    data[index + 2] = (byte) (word >>> 40);
+    data[index + 3] = (byte) (word >>> 32);
+    data[index + 4] = (byte) (word >>> 24);
+    data[index + 5] = (byte) (word >>> 16);
+    data[index + 6] = (byte) (word >>> 8);
+    data[index + 7] = (byte) word;
+  }
+
+  private static int numBytes(int numBits) {
+    return (numBits + NetUtils.NumBitsInAByte - 1) / NetUtils.NumBitsInAByte;
   }
 
   // Setters
@@ -288,6 +362,12 @@ public class BitBufferHelper {
 
   /**
    * Bits are expected to be stored in the input byte array from LSB
+   * <p/>
+   * The low numBits bits of input replace the field, bits of data around it
+   * are left as they are. Up to the word-at-a-time rewrite an unaligned field
+   * was ORed into data, and an input with bits set above numBits had its high
+   * bits written instead; both give the same result for an input that fits
+   * numBits written into a zeroed field.
    *
    * @param byte[]      - data to set the input byte
    * @param byte        - input byte to be inserted
@@ -297,14 +377,16 @@ public class BitBufferHelper {
    *                                                                with the data buffer size
    */
   public static void setByte(byte[] data, byte input, int startOffset,
-                             int numBits) throws org.opendaylight.I4application.impl.utils.BufferException {
-    byte[] inputByteArray = new byte[1];
-    Arrays.fill(inputByteArray, 0, 1, input);
-    setBytes(data, inputByteArray, startOffset, numBits);
+                             int numBits) throws BufferException {
+    checkExceptions(data, startOffset, numBits);
+    writeBits(data, startOffset, numBits, input & ByteMask);
   }
 
   /**
    * Bits are expected to be stored in the input byte array from LSB
+   * <p/>
+   * The last numBits bits of input replace the field, as with
+   * {@link #setByte(byte[], byte, int, int)}.
    *
    * @param byte[]      - data to set the input byte
    * @param byte[]      - input bytes to be inserted
@@ -315,7 +397,7 @@ public class BitBufferHelper {
    *                                                                with data and input buffers' size
    */
   public static void setBytes(byte[] data, byte[] input, int startOffset,
-                              int numBits) throws org.opendaylight.I4application.impl.utils.BufferException {
+                              int numBits) throws BufferException {
     checkExceptions(data, startOffset, numBits);
     insertBits(data, input, startOffset, numBits);
   }
@@ -323,29 +405,21 @@ public class BitBufferHelper {
   /**
    * Returns numBits 1's in the MSB position
    *
-   * @param numBits
+   * @param numBits - 0 to 8
    * @return
    */
   public static int getMSBMask(int numBits) {
-    int mask = 0;
-    for(int i = 0; i < numBits; i++) {
-      mask = mask | (1 << (7 - i));
-    }
-    return mask;
+    return getLSBMask(numBits) << (Byte.SIZE - numBits);
   }
 
   /**
    * Returns numBits 1's in the LSB position
    *
-   * @param numBits
+   * @param numBits - 0 to 31
    * @return
    */
   public static int getLSBMask(int numBits) {
-    int mask = 0;
-    for(int i = 0; i < numBits; i++) {
-      mask = mask | (1 << i);
-    }
-    return mask;
+    return (1 << numBits) - 1;
   }
 
   /**
@@ -356,14 +430,8 @@ public class BitBufferHelper {
    */
   static public long toNumber(byte[] array) {
     long ret = 0;
-    long length = array.length;
-    int value = 0;
-    for(int i = 0; i < length; i++) {
-      value = array[i];
-      if(value < 0)
-        value += 256;
-      ret = ret
-          | (long) ((long) value << ((length - i - 1) * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte));
+    for(byte b : array) {
+      ret = (ret << NetUtils.NumBitsInAByte) | (b & ByteMask);
     }
     return ret;
   }
@@ -377,27 +445,7 @@ public class BitBufferHelper {
    * @return long - numerical value of byte array passed
    */
   static public long toNumber(byte[] array, int numBits) {
-    int length = numBits / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int bitsRest = numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int startOffset = array.length - length;
-    long ret = 0;
-    int value = 0;
-
-    value = array[startOffset - 1] & getLSBMask(bitsRest);
-    value = (array[startOffset - 1] < 0) ? (array[startOffset - 1] + 256)
-        : array[startOffset - 1];
-    ret = ret
-        | (value << ((array.length - startOffset) * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte));
-
-    for(int i = startOffset; i < array.length; i++) {
-      value = array[i];
-      if(value < 0)
-        value += 256;
-      ret = ret
-          | (long) ((long) value << ((array.length - i - 1) * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte));
-    }
-
-    return ret;
+    return readBits(array, array.length * NetUtils.NumBitsInAByte - numBits, numBits);
   }
 
   /**
@@ -427,14 +475,8 @@ public class BitBufferHelper {
           "Parameter must one of the following: Short/Int/Long\n");
     }
 
-    int length = size / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    byte bytes[] = new byte[length];
-
-    // Getting the bytes from input value
-    for(int i = 0; i < length; i++) {
-      bytes[i] = (byte) ((longValue >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte * (length
-          - i - 1))) & ByteMask);
-    }
+    byte bytes[] = new byte[size / NetUtils.NumBitsInAByte];
+    writeBits(bytes, 0, size, longValue);
     return bytes;
   }
 
@@ -463,45 +505,16 @@ public class BitBufferHelper {
           "Parameter must one of the following: Short/Int/Long\n");
     }
 
-    int length = size / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
+    int length = size / NetUtils.NumBitsInAByte;
     byte bytes[] = new byte[length];
-    byte[] inputbytes = new byte[length];
-    byte shiftedBytes[];
-
-    // Getting the bytes from input value
-    for(int i = 0; i < length; i++) {
-      bytes[i] = (byte) ((longValue >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte * (length
-          - i - 1))) & ByteMask);
-    }
-
-    if((bytes[0] == 0 && dataType == Long.class)
-        || (bytes[0] == 0 && dataType == Integer.class)) {
-      int index = 0;
-      for(index = 0; index < length; ++index) {
-        if(bytes[index] != 0) {
-          bytes[0] = bytes[index];
-          break;
-        }
-      }
-      System.arraycopy(bytes, index, inputbytes, 0, length - index);
-      Arrays.fill(bytes, length - index + 1, length - 1, (byte) 0);
+    if(numBits >= size) {
+      writeBits(bytes, 0, size, longValue);
     } else {
-      System.arraycopy(bytes, 0, inputbytes, 0, length);
+      writeBits(bytes, 0, numBits, longValue);
     }
-
-    shiftedBytes = shiftBitsToMSB(inputbytes, numBits);
-
-    return shiftedBytes;
+    return bytes;
   }
 
-  /**
-   * Takes an LSB aligned byte array and returned the LSB numBits in a MSB
-   * aligned byte array
-   *
-   * @param inputbytes
-   * @param numBits
-   * @return
-   */
   /**
    * It aligns the last numBits bits to the head of the byte array following
    * them with numBits % 8 zero bits.
@@ -514,49 +527,11 @@ public class BitBufferHelper {
    * @return byte[]
    */
   public static byte[] shiftBitsToMSB(byte[] inputBytes, int numBits) {
-    int numBitstoShiftBy = 0, leadZeroesMSB = 8, numEndRestBits = 0;
-    int size = inputBytes.length;
-    byte[] shiftedBytes = new byte[size];
-    int i;
-
-    for(i = 0; i < Byte.SIZE; i++) {
-      if(((byte) (inputBytes[0] & getMSBMask(i + 1))) != 0) {
-        leadZeroesMSB = i;
-        break;
-      }
-    }
-
-    if(numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte == 0) {
-      numBitstoShiftBy = 0;
-    } else {
-      numBitstoShiftBy = ((org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - (numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte)) < leadZeroesMSB) ? (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - (numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte))
-          : leadZeroesMSB;
-    }
-    if(numBitstoShiftBy == 0) {
+    if(numBits % NetUtils.NumBitsInAByte == 0) {
       return inputBytes;
     }
-
-    if(numBits < org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte) {
-      // inputbytes.length = 1 OR read less than a byte
-      shiftedBytes[0] = (byte) ((inputBytes[0] & getLSBMask(numBits)) << numBitstoShiftBy);
-    } else {
-      // # of bits to read from last byte
-      numEndRestBits = org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-          - (inputBytes.length * org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBits - numBitstoShiftBy);
-
-      for(i = 0; i < (size - 1); i++) {
-        if((i + 1) == (size - 1)) {
-          if(numEndRestBits > numBitstoShiftBy) {
-            shiftedBytes[i] = (byte) ((inputBytes[i] << numBitstoShiftBy) | ((inputBytes[i + 1] & getMSBMask(numBitstoShiftBy)) >> (numEndRestBits - numBitstoShiftBy)));
-            shiftedBytes[i + 1] = (byte) ((inputBytes[i + 1] & getLSBMask(numEndRestBits
-                - numBitstoShiftBy)) << numBitstoShiftBy);
-          } else
-            shiftedBytes[i] = (byte) ((inputBytes[i] << numBitstoShiftBy) | ((inputBytes[i + 1] & getMSBMask(numEndRestBits)) >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numEndRestBits)));
-        }
-        shiftedBytes[i] = (byte) ((inputBytes[i] << numBitstoShiftBy) | (inputBytes[i + 1] & getMSBMask(numBitstoShiftBy)) >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBitstoShiftBy));
-      }
-
-    }
+    byte[] shiftedBytes = new byte[inputBytes.length];
+    copyBits(inputBytes, inputBytes.length * NetUtils.NumBitsInAByte - numBits, shiftedBytes, 0, numBits);
     return shiftedBytes;
   }
 
@@ -566,33 +541,21 @@ public class BitBufferHelper {
    * <p/>
    * Example: For inputbytes = [01110111][00010000] and numBits = 12 it
    * returns: shiftedBytes = [00000111][01110001]
+   * <p/>
+   * The whole array moves right by 8 - numBits % 8 bits, so the bits only end
+   * at the right end for an array of ceil(numBits / 8) bytes.
    *
    * @param byte[] inputBytes
    * @param int    numBits - number of bits to be right aligned
    * @return byte[]
    */
   public static byte[] shiftBitsToLSB(byte[] inputBytes, int numBits) {
-    int numBytes = inputBytes.length;
-    int numBitstoShift = numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    byte[] shiftedBytes = new byte[numBytes];
-    int inputLsb = 0, inputMsb = 0;
-
-    if(numBitstoShift == 0) {
+    if(numBits % NetUtils.NumBitsInAByte == 0) {
       return inputBytes;
     }
-
-    for(int i = 1; i < numBytes; i++) {
-      inputLsb = inputBytes[i - 1]
-          & getLSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBitstoShift);
-      inputLsb = (inputLsb < 0) ? (inputLsb + 256) : inputLsb;
-      inputMsb = inputBytes[i] & getMSBMask(numBitstoShift);
-      inputMsb = (inputBytes[i] < 0) ? (inputBytes[i] + 256)
-          : inputBytes[i];
-      shiftedBytes[i] = (byte) ((inputLsb << numBitstoShift) | (inputMsb >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBitstoShift)));
-    }
-    inputMsb = inputBytes[0] & (getMSBMask(numBitstoShift));
-    inputMsb = (inputMsb < 0) ? (inputMsb + 256) : inputMsb;
-    shiftedBytes[0] = (byte) (inputMsb >> (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - numBitstoShift));
+    int shift = NetUtils.NumBitsInAByte - numBits % NetUtils.NumBitsInAByte;
+    byte[] shiftedBytes = new byte[inputBytes.length];
+    copyBits(inputBytes, 0, shiftedBytes, shift, inputBytes.length * NetUtils.NumBitsInAByte - shift);
     return shiftedBytes;
   }
 
@@ -608,76 +571,10 @@ public class BitBufferHelper {
    */
   public static void insertBits(byte[] data, byte[] inputdataLSB,
                                 int startOffset, int numBits) {
-    byte[] inputdata = shiftBitsToMSB(inputdataLSB, numBits); // Align to
-    // MSB the
-    // passed byte
-    // array
-    int numBytes = numBits / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int startByteOffset = startOffset / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int extraOffsetBits = startOffset % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int extranumBits = numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int RestBits = numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-    int InputMSBbits = 0, InputLSBbits = 0;
-    int i;
-
     if(numBits == 0) {
       return;
     }
-
-    if(extraOffsetBits == 0) {
-      if(extranumBits == 0) {
-        numBytes = numBits / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
-        System.arraycopy(inputdata, 0, data, startByteOffset, numBytes);
-      } else {
-        System.arraycopy(inputdata, 0, data, startByteOffset, numBytes);
-        data[startByteOffset + numBytes] = (byte) (data[startByteOffset
-            + numBytes] | (inputdata[numBytes] & getMSBMask(extranumBits)));
-      }
-    } else {
-      for(i = 0; i < numBytes; i++) {
-        if(i != 0)
-          InputLSBbits = (inputdata[i - 1] & getLSBMask(extraOffsetBits));
-        InputMSBbits = (byte) (inputdata[i] & (getMSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-            - extraOffsetBits)));
-        InputMSBbits = (InputMSBbits >= 0) ? InputMSBbits
-            : InputMSBbits + 256;
-        data[startByteOffset + i] = (byte) (data[startByteOffset + i]
-            | (InputLSBbits << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) | (InputMSBbits >> extraOffsetBits));
-        InputMSBbits = InputLSBbits = 0;
-      }
-      if(RestBits < (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) {
-        if(numBytes != 0)
-          InputLSBbits = (inputdata[i - 1] & getLSBMask(extraOffsetBits));
-        InputMSBbits = (byte) (inputdata[i] & (getMSBMask(RestBits)));
-        InputMSBbits = (InputMSBbits >= 0) ? InputMSBbits
-            : InputMSBbits + 256;
-        data[startByteOffset + i] = (byte) ((data[startByteOffset + i])
-            | (InputLSBbits << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) | (InputMSBbits >> extraOffsetBits));
-      } else if(RestBits == (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) {
-        if(numBytes != 0)
-          InputLSBbits = (inputdata[i - 1] & getLSBMask(extraOffsetBits));
-        InputMSBbits = (byte) (inputdata[i] & (getMSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-            - extraOffsetBits)));
-        InputMSBbits = (InputMSBbits >= 0) ? InputMSBbits
-            : InputMSBbits + 256;
-        data[startByteOffset + i] = (byte) (data[startByteOffset + i]
-            | (InputLSBbits << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) | (InputMSBbits >> extraOffsetBits));
-      } else {
-        if(numBytes != 0)
-          InputLSBbits = (inputdata[i - 1] & getLSBMask(extraOffsetBits));
-        InputMSBbits = (byte) (inputdata[i] & (getMSBMask(org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-            - extraOffsetBits)));
-        InputMSBbits = (InputMSBbits >= 0) ? InputMSBbits
-            : InputMSBbits + 256;
-        data[startByteOffset + i] = (byte) (data[startByteOffset + i]
-            | (InputLSBbits << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) | (InputMSBbits >> extraOffsetBits));
-
-        InputLSBbits = (inputdata[i] & (getLSBMask(RestBits
-            - (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)) << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - RestBits)));
-        data[startByteOffset + i + 1] = (byte) (data[startByteOffset
-            + i + 1] | (InputLSBbits << (org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte - extraOffsetBits)));
-      }
-    }
+    copyBits(inputdataLSB, inputdataLSB.length * NetUtils.NumBitsInAByte - numBits, data, startOffset, numBits);
   }
 
   /**
@@ -690,25 +587,25 @@ public class BitBufferHelper {
    *                                                                are not congruent with the data buffer's size
    */
   public static void checkExceptions(byte[] data, int startOffset, int numBits)
-      throws org.opendaylight.I4application.impl.utils.BufferException {
+      throws BufferException {
     int endOffsetByte;
     int startByteOffset;
     endOffsetByte = startOffset
-        / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
+        / NetUtils.NumBitsInAByte
         + numBits
-        / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte
-        + ((numBits % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte != 0) ? 1 : ((startOffset
-        % org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte != 0) ? 1 : 0));
-    startByteOffset = startOffset / org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte;
+        / NetUtils.NumBitsInAByte
+        + ((numBits % NetUtils.NumBitsInAByte != 0) ? 1 : ((startOffset
+        % NetUtils.NumBitsInAByte != 0) ? 1 : 0));
+    startByteOffset = startOffset / NetUtils.NumBitsInAByte;
 
     if(data == null) {
-      throw new org.opendaylight.I4application.impl.utils.BufferException("data[] is null\n");
+      throw new BufferException("data[] is null\n");
     }
 
     if((startOffset < 0) || (startByteOffset >= data.length)
         || (endOffsetByte > data.length) || (numBits < 0)
-        || (numBits > org.opendaylight.I4application.impl.utils.NetUtils.NumBitsInAByte * data.length)) {
-      throw new org.opendaylight.I4application.impl.utils.BufferException(
+        || (numBits > NetUtils.NumBitsInAByte * data.length)) {
+      throw new BufferException(
           "Illegal arguement/out of bound exception - data.length = "
               + data.length + " startOffset = " + startOffset
               + " numBits " + numBits);
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+/**
+ * Map from non-zero int keys, such as IPv4 host addresses, to long values,
+ * holding a fixed number of entries. Keys hash to a bucket of WAYS slots; a
+ * new key takes an empty slot of its bucket or the one written least
+ * recently, so a full map forgets old keys one at a time instead of all at
+ * once, and never boxes or allocates. 0 marks an empty slot, as in
+ * {@link IntObjectHashMap}.
+ *
+ * Not thread safe, callers synchronize.
+ */
+public final class BoundedIntLongMap {
+
+    private static final int EMPTY = 0;
+    private static final int WAYS = 4;
+
+    private final int[] keys;
+    private final long[] values;
+    // Write order of each slot, the lowest in a bucket is evicted first
+    private final long[] writes;
+    private final int bucketMask;
+    private long writeCount;
+    private int size;
+    private long evictionCount;
+
+    /**
+     * @param maxSize entries held, rounded up to a power of two
+     */
+    public BoundedIntLongMap(int maxSize) {
+        int capacity = WAYS;
+        while (capacity < maxSize) {
+            capacity <<= 1;
+        }
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.writes = new long[capacity];
+        this.bucketMask = capacity / WAYS - 1;
+    }
+
+    /**
+     * @return value of the key, defaultValue if the key is not in the map
+     */
+    public long get(int key, long defaultValue) {
+        int slot = slotOf(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Set the value of the key, evicting the least recently written key of
+     * its bucket if the bucket is full
+     * @throws IllegalArgumentException if the key is 0
+     */
+    public void put(int key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("0 keys can not be stored in the map");
+        }
+        int first = bucketOf(key);
+        int target = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                writes[slot] = ++writeCount;
+                return;
+            }
+            if (keys[target] != EMPTY && (keys[slot] == EMPTY || writes[slot] < writes[target])) {
+                target = slot;
+            }
+        }
+        if (keys[target] == EMPTY) {
+            size++;
+        } else {
+            evictionCount++;
+        }
+        keys[target] = key;
+        values[target] = value;
+        writes[target] = ++writeCount;
+    }
+
+    public void remove(int key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            keys[slot] = EMPTY;
+            size--;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return entries the map holds at most
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return keys dropped to make room for others
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private int slotOf(int key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int first = bucketOf(key);
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int bucketOf(int key) {
+        return (mix(key) & bucketMask) * WAYS;
+    }
+
+    /**
+     * Hosts of one subnet differ only in the low bits, spread them over the table
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
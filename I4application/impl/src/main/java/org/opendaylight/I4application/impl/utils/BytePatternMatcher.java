@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds any of a small fixed set of byte patterns in a byte array, in place
+ * and without allocating. Set Horspool: a window as long as the shortest
+ * pattern slides over the data, shifted by a precompiled table on its last
+ * byte, and the patterns are only compared where that byte can end one.
+ * ASCII letters match either case, as DNS names do.
+ *
+ * Immutable and safe to share between threads.
+ */
+public final class BytePatternMatcher {
+
+    private final byte[][] patterns;
+    /** Length of the shortest pattern, the window length */
+    private final int window;
+    /** Shift on the last byte of the window */
+    private final int[] shift = new int[256];
+    /** True if a pattern has the byte at window - 1 */
+    private final boolean[] verify = new boolean[256];
+
+    /**
+     * @param patterns ASCII patterns, e.g. "_opcua-tcp"
+     */
+    public BytePatternMatcher(String... patterns) {
+        if (patterns.length == 0) {
+            throw new IllegalArgumentException("At least one pattern is needed");
+        }
+        this.patterns = new byte[patterns.length][];
+        int shortest = Integer.MAX_VALUE;
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].isEmpty()) {
+                throw new IllegalArgumentException("Patterns must not be empty");
+            }
+            this.patterns[i] = patterns[i].getBytes(StandardCharsets.US_ASCII);
+            shortest = Math.min(shortest, this.patterns[i].length);
+        }
+        window = shortest;
+
+        Arrays.fill(shift, window);
+        for (byte[] pattern : this.patterns) {
+            for (int j = 0; j < window - 1; j++) {
+                setShift(pattern[j], window - 1 - j);
+            }
+            setVerify(pattern[window - 1]);
+        }
+    }
+
+    /**
+     * @return offset of the first match in data[from, to), -1 if there is none
+     */
+    public int indexOf(byte[] data, int from, int to) {
+        long match = find(data, from, to);
+        return match < 0 ? -1 : matchOffset(match);
+    }
+
+    /**
+     * Finds the match starting first, the first given pattern if several start there.
+     * @return pattern index in the high and start offset in the low 32 bits, -1 if there is no match
+     */
+    public long find(byte[] data, int from, int to) {
+        int last = to - window;
+        int i = from;
+        while (i <= last) {
+            int c = data[i + window - 1] & 0xFF;
+            if (verify[c]) {
+                for (int p = 0; p < patterns.length; p++) {
+                    if (matchesAt(patterns[p], data, i, to)) {
+                        return ((long) p << 32) | i;
+                    }
+                }
+            }
+            i += shift[c];
+        }
+        return -1;
+    }
+
+    public static int patternIndex(long match) {
+        return (int) (match >>> 32);
+    }
+
+    public static int matchOffset(long match) {
+        return (int) match;
+    }
+
+    /**
+     * @return pattern at index, do not modify
+     */
+    public byte[] pattern(int index) {
+        return patterns[index];
+    }
+
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    private static boolean matchesAt(byte[] pattern, byte[] data, int offset, int to) {
+        if (offset + pattern.length > to) {
+            return false;
+        }
+        for (int j = 0; j < pattern.length; j++) {
+            if (toLowerCase(data[offset + j]) != toLowerCase(pattern[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setShift(byte b, int distance) {
+        int lower = toLowerCase(b) & 0xFF;
+        int upper = toUpperCase(b) & 0xFF;
+        shift[lower] = Math.min(shift[lower], distance);
+        shift[upper] = Math.min(shift[upper], distance);
+    }
+
+    private void setVerify(byte b) {
+        verify[toLowerCase(b) & 0xFF] = true;
+        verify[toUpperCase(b) & 0xFF] = true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte toUpperCase(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel (Varghese and Lauck). Timeouts hash into one of a fixed
+ * number of buckets by expiry tick, so scheduling and cancelling are O(1) and
+ * a tick only looks at one bucket, however many timeouts are pending. Meant
+ * for many long, coarse timeouts such as record TTLs, not for precise timing:
+ * a timeout fires up to one tick late.
+ *
+ * Expired items are handed to the expiry consumer on the wheel's own thread.
+ */
+public final class HashedTimerWheel<T> implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    private final long tickMillis;
+    private final Timeout<T>[] wheel;
+    private final int mask;
+    private final Consumer<T> onExpiry;
+    private final ScheduledExecutorService ticker;
+
+    /** Ticks done so far, guarded by this */
+    private long tick;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two
+     */
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize, Consumer<T> onExpiry) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        @SuppressWarnings("unchecked")
+        Timeout<T>[] buckets = (Timeout<T>[]) new Timeout<?>[size];
+        this.wheel = buckets;
+        this.mask = size - 1;
+        this.onExpiry = onExpiry;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return handle to cancel the timeout with
+     */
+    public synchronized Timeout<T> schedule(T item, long delayMillis) {
+        // Round up, a timeout never fires early
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(this, item, tick + ticks);
+        int bucket = (int) (timeout.deadlineTick & mask);
+        timeout.next = wheel[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheel[bucket] = timeout;
+        return timeout;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.done) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    private void advance() {
+        List<T> expired = null;
+        synchronized (this) {
+            tick++;
+            int bucket = (int) (tick & mask);
+            Timeout<T> timeout = wheel[bucket];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                // Later rounds of the wheel share the bucket
+                if (timeout.deadlineTick <= tick) {
+                    unlink(timeout);
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(timeout.item);
+                }
+                timeout = next;
+            }
+        }
+        if (expired == null) {
+            return;
+        }
+        for (T item : expired) {
+            try {
+                onExpiry.accept(item);
+            } catch (RuntimeException e) {
+                LOG.warn("Expiry handler failed", e);
+            }
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        timeout.done = true;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    public static final class Timeout<T> {
+        private final HashedTimerWheel<T> timerWheel;
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean done;
+
+        private Timeout(HashedTimerWheel<T> timerWheel, T item, long deadlineTick) {
+            this.timerWheel = timerWheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * @return false if the timeout already fired or was cancelled
+         */
+        public boolean cancel() {
+            return timerWheel.cancel(this);
+        }
+    }
+}
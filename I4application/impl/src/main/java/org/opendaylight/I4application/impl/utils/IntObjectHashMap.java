@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map from non-zero int keys, such as IPv4 host addresses, to objects. Open
+ * addressing with linear probing in a power of two array, so lookups neither
+ * box the key nor hash a string. 0 marks an empty slot, as in
+ * {@link IntOpenHashSet}.
+ *
+ * Not thread safe. Shared maps are copied with {@link #IntObjectHashMap(IntObjectHashMap)},
+ * changed and published whole, so readers never see a map being changed.
+ */
+public final class IntObjectHashMap<V> {
+
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public IntObjectHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize number of keys the map holds without growing
+     */
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public IntObjectHashMap(IntObjectHashMap<V> other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+    }
+
+    /**
+     * @return value of the key, null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * @return previous value of the key, null if there was none
+     * @throws IllegalArgumentException if the key is 0 or the value null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == EMPTY || value == null) {
+            throw new IllegalArgumentException("0 keys and null values can not be stored in the map");
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or below one half so probe chains stay short
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return removed value, null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        size--;
+        // Shift the rest of the probe chain back instead of leaving a tombstone
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        int current;
+        while ((current = keys[next]) != EMPTY) {
+            int home = mix(current) & mask;
+            // Move the key into the gap unless its home slot lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = current;
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the keys in the map, in no particular order
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int slotOf(int key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Hosts of one subnet differ only in the low bits, spread them over the table
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+/**
+ * Immutable set of non-zero ints, stored in a power of two array with
+ * linear probing. Lookups do not box or allocate. 0 marks an empty slot,
+ * which is fine for IPv4 host addresses since 0.0.0.0 is never a host.
+ *
+ * The slot of a key is stable for the lifetime of the set, so callers can
+ * keep per-key data in arrays of {@link #capacity()} length.
+ */
+public final class IntOpenHashSet {
+
+    private static final int EMPTY = 0;
+
+    private final int[] slots;
+    private final int mask;
+    private final int size;
+
+    private IntOpenHashSet(int[] slots, int size) {
+        this.slots = slots;
+        this.mask = slots.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @param keys keys of the set, duplicates are ignored
+     * @throws IllegalArgumentException if a key is 0
+     */
+    public static IntOpenHashSet of(int[] keys) {
+        // Keep the load factor at or below one half so probe chains stay short
+        int capacity = 2;
+        while (capacity < keys.length * 2) {
+            capacity <<= 1;
+        }
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        int size = 0;
+        for (int key : keys) {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("0 can not be stored in the set");
+            }
+            int slot = mix(key) & mask;
+            while (slots[slot] != EMPTY && slots[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == EMPTY) {
+                slots[slot] = key;
+                size++;
+            }
+        }
+        return new IntOpenHashSet(slots, size);
+    }
+
+    /**
+     * @return slot of the key, or -1 if the key is not in the set
+     */
+    public int indexOf(int key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = slots[slot]) != EMPTY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean contains(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return key stored in the slot, or 0 if the slot is empty
+     */
+    public int keyAt(int slot) {
+        return slots[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Hosts of one subnet differ only in the low bits, spread them over the table
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package org.opendaylight.I4application.impl.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * mDNS announcements kept per OPC UA server, keyed by IPv4 address in network
+ * byte order, for the forwarder to replay.
+ *
+ * Each host keeps its latest maxPacketsPerHost packets in a ring, the oldest
+ * packet making room for a new one. All hosts together keep at most maxBytes;
+ * when a packet would go over, or the slab allocator has no slot left for
+ * it, the hosts least recently stored or read are dropped whole, their
+ * announcement being useless in part. Lists handed out
+ * are copies and never change.
+ *
+ * Repeats of a packet a host already has, told apart by
+ * {@link PacketFingerprint}, are not kept again, only counted, so a host
+ * keeps and replays each distinct packet once.
+ *
+ * Each packet is kept for the service instance whose announcement it
+ * carried, so a changed instance replaces its own packets only and its
+ * packets follow it when it moves to another host. Instance names compare
+ * ignoring case, as DNS names do.
+ *
+ * The packets themselves are kept off-heap in a {@link SlabAllocator}, the
+ * store only holds their handles. Slots are reused as soon as a packet is
+ * dropped, so readers get heap copies taken under the store lock, never views
+ * into the slab.
+ */
+public class MdnsPacketStore {
+
+    /** Packets of one host, oldest first, and its place in the LRU order */
+    private static final class HostPackets {
+        final int host;
+        final long[] ring;
+        final long[] fingerprints;
+        final int[] repeats;
+        final String[] instances;
+        int head;
+        int size;
+        long bytes;
+        HostPackets newer;
+        HostPackets older;
+
+        HostPackets(int host, int capacity) {
+            this.host = host;
+            this.ring = new long[capacity];
+            this.fingerprints = new long[capacity];
+            this.repeats = new int[capacity];
+            this.instances = new String[capacity];
+        }
+
+        long get(int index) {
+            return ring[(head + index) % ring.length];
+        }
+
+        /**
+         * @return ring position of the packet with fingerprint, -1 if none
+         */
+        int find(long fingerprint) {
+            for (int i = 0; i < size; i++) {
+                int position = (head + i) % ring.length;
+                if (fingerprints[position] == fingerprint) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+
+        boolean has(String instance) {
+            for (int i = 0; i < size; i++) {
+                if (instance.equalsIgnoreCase(instances[(head + i) % ring.length])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final int maxPacketsPerHost;
+    private final long maxBytes;
+    private final SlabAllocator slabAllocator;
+
+    // Guarded by this
+    private final IntObjectHashMap<HostPackets> hosts = new IntObjectHashMap<>();
+    private HostPackets newest;
+    private HostPackets oldest;
+    private long bytes;
+    private int packets;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictedPacketCount = new AtomicLong();
+    private final AtomicLong evictedHostCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong duplicateCount = new AtomicLong();
+
+    /**
+     * @param maxPacketsPerHost packets kept per host, older ones are dropped
+     * @param maxBytes packet bytes kept for all hosts together
+     * @param slabAllocator where the packets are kept, used by this store only
+     *        and reclaiming freed slots at once, so dropping packets makes room
+     */
+    public MdnsPacketStore(int maxPacketsPerHost, long maxBytes, SlabAllocator slabAllocator) {
+        if (maxPacketsPerHost <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Store limits must be positive");
+        }
+        if (slabAllocator.getReclaimMillis() != 0) {
+            throw new IllegalArgumentException("Slab allocator must reclaim freed slots at once");
+        }
+        this.maxPacketsPerHost = maxPacketsPerHost;
+        this.maxBytes = maxBytes;
+        this.slabAllocator = slabAllocator;
+    }
+
+    /**
+     * @return read-only copies of the packets of the host, oldest first, null if none are kept
+     */
+    public synchronized List<ByteBuffer> get(int host) {
+        HostPackets entry = hosts.get(host);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        touch(entry);
+        List<ByteBuffer> list = new ArrayList<>(entry.size);
+        for (int i = 0; i < entry.size; i++) {
+            list.add(copyOf(entry.get(i)).asReadOnlyBuffer());
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return how often each packet get(host) returns was stored or repeated, same order
+     */
+    public synchronized int[] getRepeatCounts(int host) {
+        HostPackets entry = hosts.get(host);
+        if (entry == null) {
+            return new int[0];
+        }
+        int[] counts = new int[entry.size];
+        for (int i = 0; i < entry.size; i++) {
+            counts[i] = entry.repeats[(entry.head + i) % entry.ring.length];
+        }
+        return counts;
+    }
+
+    public synchronized boolean contains(int host) {
+        return hosts.containsKey(host);
+    }
+
+    /**
+     * @return true if the host has packets kept for instance
+     */
+    public synchronized boolean contains(int host, String instance) {
+        HostPackets entry = hosts.get(host);
+        return entry != null && entry.has(instance);
+    }
+
+    /**
+     * Keep packets of instance in addition to those already kept for the host,
+     * repeats of kept packets are only counted
+     */
+    public synchronized void append(int host, String instance, List<byte[]> packets) {
+        for (byte[] packet : packets) {
+            add(host, instance, packet, 1);
+        }
+    }
+
+    /**
+     * Keep packet for host, or count it as repeats more if the host has it
+     */
+    private void add(int host, String instance, byte[] packet, int repeats) {
+        HostPackets entry = hosts.get(host);
+        long fingerprint = PacketFingerprint.of(packet);
+        if (entry != null && countRepeat(entry, fingerprint)) {
+            return;
+        }
+        if (packet.length == 0 || packet.length > maxBytes || packet.length > SlabAllocator.maxSlotSize()) {
+            rejectedCount.incrementAndGet();
+            return;
+        }
+        if (entry == null) {
+            entry = new HostPackets(host, maxPacketsPerHost);
+            hosts.put(host, entry);
+        }
+        touch(entry);
+        if (entry.size == entry.ring.length) {
+            dropOldest(entry);
+            evictedPacketCount.incrementAndGet();
+        }
+        makeRoom(entry, packet.length);
+        long handle = allocate(entry, packet);
+        if (handle == SlabAllocator.NO_HANDLE) {
+            rejectedCount.incrementAndGet();
+            if (entry.size == 0) {
+                hosts.remove(host);
+                unlink(entry);
+            }
+            return;
+        }
+        int position = (entry.head + entry.size) % entry.ring.length;
+        entry.ring[position] = handle;
+        entry.fingerprints[position] = fingerprint;
+        entry.repeats[position] = repeats;
+        entry.instances[position] = instance;
+        entry.size++;
+        entry.bytes += packet.length;
+        bytes += packet.length;
+        this.packets++;
+    }
+
+    /**
+     * Count the packets the host already has, others are not kept
+     */
+    public synchronized void recordRepeats(int host, List<byte[]> packets) {
+        HostPackets entry = hosts.get(host);
+        if (entry == null) {
+            return;
+        }
+        for (byte[] packet : packets) {
+            countRepeat(entry, PacketFingerprint.of(packet));
+        }
+    }
+
+    /**
+     * @return true if entry has the packet, its repeat count was raised
+     */
+    private boolean countRepeat(HostPackets entry, long fingerprint) {
+        int position = entry.find(fingerprint);
+        if (position < 0) {
+            return false;
+        }
+        entry.repeats[position]++;
+        duplicateCount.incrementAndGet();
+        touch(entry);
+        return true;
+    }
+
+    /**
+     * Keep these packets for instance instead of those kept for it before, on
+     * any host. Packets of the other instances of the host stay.
+     */
+    public synchronized void replace(int host, String instance, List<byte[]> packets) {
+        // Changes are rare, looking through every host finds an instance that moved
+        HostPackets entry = oldest;
+        while (entry != null) {
+            HostPackets next = entry.newer;
+            removeInstance(entry, instance);
+            entry = next;
+        }
+        append(host, instance, packets);
+    }
+
+    /**
+     * Drop the packets kept for instance on the host, the host goes once it has none left
+     */
+    public synchronized void removeInstance(int host, String instance) {
+        HostPackets entry = hosts.get(host);
+        if (entry != null) {
+            removeInstance(entry, instance);
+        }
+    }
+
+    private void removeInstance(HostPackets entry, String instance) {
+        int length = entry.ring.length;
+        int kept = 0;
+        for (int i = 0; i < entry.size; i++) {
+            int from = (entry.head + i) % length;
+            if (instance.equalsIgnoreCase(entry.instances[from])) {
+                int packetLength = SlabAllocator.length(entry.ring[from]);
+                slabAllocator.free(entry.ring[from]);
+                entry.bytes -= packetLength;
+                bytes -= packetLength;
+                packets--;
+                continue;
+            }
+            // Close the gap, the packets left keep their order
+            int to = (entry.head + kept) % length;
+            entry.ring[to] = entry.ring[from];
+            entry.fingerprints[to] = entry.fingerprints[from];
+            entry.repeats[to] = entry.repeats[from];
+            entry.instances[to] = entry.instances[from];
+            kept++;
+        }
+        for (int i = kept; i < entry.size; i++) {
+            entry.instances[(entry.head + i) % length] = null;
+        }
+        entry.size = kept;
+        if (kept == 0) {
+            hosts.remove(entry.host);
+            unlink(entry);
+        }
+    }
+
+    public synchronized void remove(int host) {
+        HostPackets entry = hosts.remove(host);
+        if (entry != null) {
+            unlink(entry);
+            for (int i = 0; i < entry.size; i++) {
+                slabAllocator.free(entry.get(i));
+            }
+            bytes -= entry.bytes;
+            this.packets -= entry.size;
+        }
+    }
+
+    public synchronized void clear() {
+        hosts.clear();
+        slabAllocator.clear();
+        newest = null;
+        oldest = null;
+        bytes = 0;
+        packets = 0;
+    }
+
+    /**
+     * Drop least recently used hosts, then the oldest packets of entry itself,
+     * until length more bytes fit
+     */
+    private void makeRoom(HostPackets entry, int length) {
+        while (bytes + length > maxBytes) {
+            HostPackets victim = oldest;
+            if (victim == entry) {
+                // entry is the only host left, it was touched last
+                dropOldest(entry);
+                evictedPacketCount.incrementAndGet();
+                continue;
+            }
+            evictedPacketCount.addAndGet(victim.size);
+            evictedHostCount.incrementAndGet();
+            remove(victim.host);
+        }
+    }
+
+    /**
+     * Copy packet into the slab, dropping least recently used hosts, then the
+     * oldest packets of entry itself, while no slot is left for it
+     * @return handle of the packet, NO_HANDLE once nothing is left to drop
+     */
+    private long allocate(HostPackets entry, byte[] packet) {
+        long handle = slabAllocator.allocate(packet);
+        while (handle == SlabAllocator.NO_HANDLE) {
+            HostPackets victim = oldest;
+            if (victim != entry) {
+                evictedPacketCount.addAndGet(victim.size);
+                evictedHostCount.incrementAndGet();
+                remove(victim.host);
+            } else if (entry.size > 0) {
+                dropOldest(entry);
+                evictedPacketCount.incrementAndGet();
+            } else {
+                return SlabAllocator.NO_HANDLE;
+            }
+            handle = slabAllocator.allocate(packet);
+        }
+        return handle;
+    }
+
+    private void dropOldest(HostPackets entry) {
+        long handle = entry.ring[entry.head];
+        int length = SlabAllocator.length(handle);
+        slabAllocator.free(handle);
+        entry.instances[entry.head] = null;
+        entry.head = (entry.head + 1) % entry.ring.length;
+        entry.size--;
+        entry.bytes -= length;
+        bytes -= length;
+        packets--;
+    }
+
+    /**
+     * @return heap copy of the packet of handle, only taken under the store lock
+     *         so no allocate can reuse the slot while it is read
+     */
+    private ByteBuffer copyOf(long handle) {
+        ByteBuffer view = slabAllocator.view(handle);
+        byte[] packet = new byte[view.remaining()];
+        view.get(packet);
+        return ByteBuffer.wrap(packet);
+    }
+
+    /**
+     * Make entry the most recently used host
+     */
+    private void touch(HostPackets entry) {
+        if (entry == newest) {
+            return;
+        }
+        unlink(entry);
+        entry.older = newest;
+        if (newest != null) {
+            newest.newer = entry;
+        }
+        newest = entry;
+        if (oldest == null) {
+            oldest = entry;
+        }
+    }
+
+    private void unlink(HostPackets entry) {
+        if (entry.newer != null) {
+            entry.newer.older = entry.older;
+        } else if (newest == entry) {
+            newest = entry.older;
+        }
+        if (entry.older != null) {
+            entry.older.newer = entry.newer;
+        } else if (oldest == entry) {
+            oldest = entry.newer;
+        }
+        entry.newer = null;
+        entry.older = null;
+    }
+
+    /**
+     * Write the packets of every host with their repeat counts and instances,
+     * least recently used host first, so readFrom keeps the LRU order
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(hosts.size());
+        for (HostPackets entry = oldest; entry != null; entry = entry.newer) {
+            out.writeInt(entry.host);
+            out.writeInt(entry.size);
+            for (int i = 0; i < entry.size; i++) {
+                int position = (entry.head + i) % entry.ring.length;
+                out.writeInt(entry.repeats[position]);
+                SnapshotFile.writeString(out, entry.instances[position]);
+                SnapshotFile.writeBytes(out, copyOf(entry.ring[position]).array());
+            }
+        }
+    }
+
+    /**
+     * Keep the packets written by writeTo, in addition to those kept already
+     * @param keep hosts to keep the packets of, those of others are skipped
+     * @return hosts read back
+     */
+    public synchronized int readFrom(ByteBuffer in, IntPredicate keep) {
+        int hostCount = in.getInt();
+        int restored = 0;
+        for (int i = 0; i < hostCount; i++) {
+            int host = in.getInt();
+            int packetCount = in.getInt();
+            boolean kept = keep.test(host);
+            for (int j = 0; j < packetCount; j++) {
+                int repeats = in.getInt();
+                String instance = SnapshotFile.readString(in);
+                byte[] packet = SnapshotFile.readBytes(in);
+                if (kept && packet != null) {
+                    add(host, instance, packet, repeats);
+                }
+            }
+            if (kept && hosts.containsKey(host)) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    public synchronized int getHostCount() {
+        return hosts.size();
+    }
+
+    public synchronized int getPacketCount() {
+        return packets;
+    }
+
+    /**
+     * @return packet bytes kept for all hosts
+     */
+    public synchronized long getByteCount() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return direct memory the packets take, slots and arenas included
+     */
+    public synchronized long getReservedBytes() {
+        return slabAllocator.getReservedBytes();
+    }
+
+    /**
+     * @return reads which found packets for the host
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return packets dropped for newer ones of their host or to stay within the byte budget
+     */
+    public long getEvictedPacketCount() {
+        return evictedPacketCount.get();
+    }
+
+    /**
+     * @return hosts dropped whole, least recently used first, to stay within the byte budget
+     *         or make room in the slab
+     */
+    public long getEvictedHostCount() {
+        return evictedHostCount.get();
+    }
+
+    /**
+     * @return repeats of kept packets, counted instead of kept
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * @return packets not kept as they are empty, alone larger than the byte budget
+     *         or the largest slab slot, or the slab allocator had no room for them
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64 bit fingerprint of an mDNS frame that is the same for repeats of one
+ * announcement. The fields a server changes from one send to the next, the IP
+ * identification and header checksum, the UDP checksum and the DNS transaction
+ * ID, are left out. Not a cryptographic hash, equal fingerprints are taken as
+ * equal frames.
+ */
+public final class PacketFingerprint {
+
+    private static final int IP_START = 14;
+    private static final int IP_ID_OFFSET = 4;
+    private static final int IP_CHECKSUM_OFFSET = 10;
+    private static final int UDP_HEADER_LENGTH = 8;
+    private static final int UDP_CHECKSUM_OFFSET = 6;
+    private static final int FIELD_LENGTH = 2;
+    private static final int MIN_IP_HEADER_WORDS = 5;
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    private PacketFingerprint() {
+    }
+
+    /**
+     * @param frame IPv4 frame of an mDNS message; other frames are hashed whole
+     */
+    public static long of(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        long hash = SEED ^ frame.length;
+        if (PacketParsingUtils.isTruncated(frame)
+                || PacketParsingUtils.etherTypeToInt(frame) != PacketParsingUtils.ETHER_TYPE_IPV4) {
+            return finish(mix(hash, buffer, 0, frame.length));
+        }
+        int ipHeaderWords = PacketParsingUtils.IPHeaderLength(frame);
+        int udp = IP_START + 4 * ipHeaderWords;
+        int dns = udp + UDP_HEADER_LENGTH;
+        if (ipHeaderWords < MIN_IP_HEADER_WORDS || dns + FIELD_LENGTH > frame.length) {
+            return finish(mix(hash, buffer, 0, frame.length));
+        }
+        hash = mix(hash, buffer, 0, IP_START + IP_ID_OFFSET);
+        hash = mix(hash, buffer, IP_START + IP_ID_OFFSET + FIELD_LENGTH, IP_START + IP_CHECKSUM_OFFSET);
+        hash = mix(hash, buffer, IP_START + IP_CHECKSUM_OFFSET + FIELD_LENGTH, udp + UDP_CHECKSUM_OFFSET);
+        hash = mix(hash, buffer, dns + FIELD_LENGTH, frame.length);
+        return finish(hash);
+    }
+
+    /**
+     * Fold frame[from, to) into hash eight bytes at a time
+     */
+    private static long mix(long hash, ByteBuffer frame, int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            hash = Long.rotateLeft(hash ^ (frame.getLong(i) * MULTIPLIER), 31) * SEED;
+        }
+        long tail = 0;
+        for (; i < to; i++) {
+            tail = (tail << 8) | (frame.get(i) & 0xFF);
+        }
+        return Long.rotateLeft(hash ^ (tail * MULTIPLIER), 31) * SEED;
+    }
+
+    /**
+     * Final avalanche of MurmurHash3
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE53A0A2FL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -8,6 +8,7 @@
 
 package org.opendaylight.I4application.impl.utils;
 
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev130715.MacAddress;
 
 import java.util.Arrays;
@@ -86,6 +87,43 @@ public abstract class PacketParsingUtils {
 
     private static final int IP_PROTOCOL_FEILD = 23;
 
+    /**
+     * Start of IPv4 total length field
+     */
+    private static final int IP_TOTAL_LENGTH_START = 16;
+
+    /**
+     * Start of ARP sender protocol address
+     */
+    private static final int ARP_SENDER_IP_ADDR_START = 28;
+
+    /**
+     * Start of ARP target protocol address
+     */
+    private static final int ARP_TARGET_IP_ADDR_START = 38;
+
+    /**
+     * Ethernet header plus an IPv4 over Ethernet ARP message
+     */
+    public static final int MIN_ARP_FRAME_LENGTH = 42;
+
+    /**
+     * Ethernet header plus the fixed part of the IPv4 header
+     */
+    public static final int MIN_IPV4_FRAME_LENGTH = 34;
+
+    /**
+     * EtherType values used by the classifier
+     */
+    public static final int ETHER_TYPE_IPV4 = 0x0800;
+    public static final int ETHER_TYPE_ARP = 0x0806;
+
+    /**
+     * IP protocol numbers used by the classifier
+     */
+    public static final int IP_PROTOCOL_IGMP = 2;
+    public static final int IP_PROTOCOL_UDP = 17;
+
 
 
 
@@ -122,9 +160,7 @@ public abstract class PacketParsingUtils {
      * @return IP Header Length
      */
     public static int IPHeaderLength(final byte[] payload){
-        byte[] Ver_IHL = Arrays.copyOfRange(payload, IP_HEADER_START_POSTION, IP_HEADER_VER_IHL);
-        int IHLValue = Ver_IHL[0] & 0x0F;
-        return IHLValue;
+        return payload[IP_HEADER_START_POSTION] & 0x0F;
     }
 
 
@@ -134,9 +170,87 @@ public abstract class PacketParsingUtils {
      * @return Protocol number inside IP Header. Useful to identfy UDP Packets
      */
     public static int ProtocolNum(final byte[] payload){
-        byte[] value = Arrays.copyOfRange(payload, IP_PROTOCOL_FEILD, IP_PROTOCOL_FEILD+1);
-        int protocolVal = value[0];
-        return protocolVal;
+        return payload[IP_PROTOCOL_FEILD] & 0xFF;
+    }
+
+    /**
+     * Reads the EtherType in place, without copying the header.
+     * @param payload
+     * @return EtherType as unsigned int
+     */
+    public static int etherTypeToInt(final byte[] payload){
+        return ((payload[ETHER_TYPE_START_POSITION] & 0xFF) << 8)
+                | (payload[ETHER_TYPE_START_POSITION + 1] & 0xFF);
+    }
+
+    /**
+     * A packet-in cut at the table-miss max length is shorter than its headers claim.
+     * @param payload
+     * @return true if payload is not the complete frame
+     */
+    public static boolean isTruncated(final byte[] payload){
+        if (payload.length < ETHER_TYPE_END_POSITION) {
+            return true;
+        }
+        int etherType = etherTypeToInt(payload);
+        if (etherType == ETHER_TYPE_ARP) {
+            return payload.length < MIN_ARP_FRAME_LENGTH;
+        }
+        if (etherType == ETHER_TYPE_IPV4) {
+            if (payload.length < MIN_IPV4_FRAME_LENGTH) {
+                return true;
+            }
+            int totalLength = ((payload[IP_TOTAL_LENGTH_START] & 0xFF) << 8)
+                    | (payload[IP_TOTAL_LENGTH_START + 1] & 0xFF);
+            return payload.length < IP_HEADER_START_POSTION + totalLength;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the IPv4 source address in place.
+     * @param payload
+     * @return SRC Ip Address in network byte order
+     */
+    public static int srcIPAddrToInt(final byte[] payload){
+        return readInt(payload, SRC_IP_ADDR_START);
+    }
+
+    /**
+     * Reads the IPv4 destination address in place.
+     * @param payload
+     * @return DST Ip Address in network byte order
+     */
+    public static int dstIPAddrToInt(final byte[] payload){
+        return readInt(payload, DST_IP_ADDR_START);
+    }
+
+    /**
+     * @param payload
+     * @return ARP sender protocol address in network byte order
+     */
+    public static int arpSenderIPAddrToInt(final byte[] payload){
+        return readInt(payload, ARP_SENDER_IP_ADDR_START);
+    }
+
+    /**
+     * @param payload
+     * @return ARP target protocol address in network byte order
+     */
+    public static int arpTargetIPAddrToInt(final byte[] payload){
+        return readInt(payload, ARP_TARGET_IP_ADDR_START);
+    }
+
+    /**
+     * @param payload
+     * @param offset
+     * @return four bytes starting at offset as a big-endian int
+     */
+    public static int readInt(final byte[] payload, int offset){
+        return ((payload[offset] & 0xFF) << 24)
+                | ((payload[offset + 1] & 0xFF) << 16)
+                | ((payload[offset + 2] & 0xFF) << 8)
+                | (payload[offset + 3] & 0xFF);
     }
 
     /**
@@ -153,6 +267,23 @@ public abstract class PacketParsingUtils {
         return (int)DstPort[0];
     }
 
+    /**
+     * Reads the UDP source port in place.
+     * @param payload
+     * @return UDP source port of an IPv4 frame
+     */
+    public static int udpSrcPort(final byte[] payload){
+        int start = IP_HEADER_START_POSTION + 4 * IPHeaderLength(payload);
+        return ((payload[start] & 0xFF) << 8) | (payload[start + 1] & 0xFF);
+    }
+
+    /**
+     * @return offset of the UDP payload, the mDNS message, in an IPv4 frame
+     */
+    public static int mDNSPayloadOffset(final byte[] payload){
+        return 14 + 4 * IPHeaderLength(payload) + 8;
+    }
+
     public static byte[] extractmDNSpayload(final byte[] payload, int ipHeaderLength){
         int start = (14 + 4 * ipHeaderLength + 8);
         byte[] mDNSpayload = Arrays.copyOfRange(payload, start, payload.length);
@@ -217,6 +348,62 @@ public abstract class PacketParsingUtils {
         return null;
     }
 
+    /**
+     * @param address IPv4 address in network byte order
+     * @return {@link Ipv4Address} in dotted decimal notation
+     */
+    public static Ipv4Address intToIpv4Address(int address){
+        StringBuilder sb = new StringBuilder(15);
+        sb.append((address >>> 24) & 0xFF).append('.')
+                .append((address >>> 16) & 0xFF).append('.')
+                .append((address >>> 8) & 0xFF).append('.')
+                .append(address & 0xFF);
+        return new Ipv4Address(sb.toString());
+    }
+
+    /**
+     * @return address in network byte order, the inverse of {@link #intToIpv4Address(int)}
+     */
+    public static int ipv4AddressToInt(Ipv4Address address){
+        String value = address.getValue();
+        return ipv4StringToInt(value, 0, value.length());
+    }
+
+    /**
+     * @return dotted decimal address in value[from, to) in network byte order
+     */
+    public static int ipv4StringToInt(CharSequence value, int from, int to){
+        int result = 0;
+        int octet = 0;
+        for (int i = from; i < to; i++){
+            char c = value.charAt(i);
+            if (c == '.'){
+                result = (result << 8) | octet;
+                octet = 0;
+            } else if (c == '%'){
+                // zone index is not part of the address
+                break;
+            } else {
+                octet = octet * 10 + (c - '0');
+            }
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * @return MAC address in the low 48 bits, the key HostManager stores MACs by
+     */
+    public static long macAddressToLong(MacAddress address){
+        return NetUtils.byteArray6ToLong(stringMacToRawMac(address.getValue()));
+    }
+
+    /**
+     * @return {@link MacAddress} of a MAC address in the low 48 bits
+     */
+    public static MacAddress longToMacAddress(long address){
+        return rawMacToMac(NetUtils.longToByteArray6(address));
+    }
+
     public static byte[] stringMacToRawMac(String address) {
         String[] elements = address.split(":");
         if (elements.length != MAC_ADDRESS_SIZE) {
@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap storage for long lived packets. Memory comes in direct ByteBuffer
+ * arenas, each cut into slots of one size class; a packet takes the smallest
+ * slot it fits. Callers hold a long handle instead of an array and read the
+ * packet through a read-only view, so cached packets neither sit in the old
+ * generation nor get copied by the collector.
+ *
+ * Arenas stay with their size class while any of their slots is in use.
+ * When a class needs an arena and maxBytes is reached, arenas whose slots
+ * are all free are given up first, so a shift in packet sizes moves memory
+ * to the classes now in demand instead of leaving them without room.
+ *
+ * A view reads whatever the slot holds when it is read, so it must be read
+ * under the same lock as the allocate that could reuse the slot. A freed slot
+ * is only reused after reclaimMillis, which keeps recently freed slots apart
+ * but does not make a view safe to read later. Not thread safe on its own,
+ * callers synchronize.
+ */
+public final class SlabAllocator {
+
+    public static final long NO_HANDLE = -1L;
+
+    // 128 bytes to 16 KiB, halfway steps between powers of two keep the waste under a third
+    private static final int[] SLOT_SIZES = {128, 256, 384, 512, 768, 1024, 1536, 2048, 3072, 4096,
+            6144, 8192, 12288, 16384};
+    private static final int LENGTH_BITS = 16;
+    private static final int SLOT_BITS = 32;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+
+    private static final class SizeClass {
+        final int slotSize;
+        final int slotsPerArena;
+        // Null where an arena was given up, its index is reused by the next one
+        final List<ByteBuffer> arenas = new ArrayList<>();
+        // Slots per arena allocated or not yet reclaimed
+        int[] live = new int[4];
+        int[] free = new int[16];
+        int freeCount;
+
+        SizeClass(int slotSize, int arenaBytes) {
+            this.slotSize = slotSize;
+            this.slotsPerArena = Math.max(1, arenaBytes / slotSize);
+        }
+    }
+
+    private final int arenaBytes;
+    private final long maxBytes;
+    private final long reclaimNanos;
+    private final SizeClass[] classes = new SizeClass[SLOT_SIZES.length];
+
+    // Freed handles and when they were freed, oldest first, in a growing ring
+    private long[] quarantine = new long[64];
+    private int quarantineHead;
+    private int quarantineCount;
+
+    private long reservedBytes;
+    private long usedBytes;
+    private int usedSlots;
+
+    /**
+     * @param arenaBytes size of each direct buffer, at least the largest slot
+     * @param maxBytes direct memory reserved for all arenas together
+     * @param reclaimMillis how long a freed slot stays unused
+     */
+    public SlabAllocator(int arenaBytes, long maxBytes, long reclaimMillis) {
+        if (arenaBytes < maxSlotSize() || maxBytes < arenaBytes) {
+            throw new IllegalArgumentException("Arena must hold the largest slot and fit in the maximum");
+        }
+        this.arenaBytes = arenaBytes;
+        this.maxBytes = maxBytes;
+        this.reclaimNanos = reclaimMillis * 1000000L;
+        for (int i = 0; i < SLOT_SIZES.length; i++) {
+            classes[i] = new SizeClass(SLOT_SIZES[i], arenaBytes);
+        }
+    }
+
+    public static int maxSlotSize() {
+        return SLOT_SIZES[SLOT_SIZES.length - 1];
+    }
+
+    /**
+     * Copy data into a slot
+     * @return handle of the slot, NO_HANDLE if data is empty, larger than the largest
+     *         slot, or no slot is left within maxBytes
+     */
+    public long allocate(byte[] data) {
+        int length = data.length;
+        int classIndex = classIndex(length);
+        if (length == 0 || classIndex < 0) {
+            return NO_HANDLE;
+        }
+        reclaim(System.nanoTime());
+        SizeClass sizeClass = classes[classIndex];
+        if (sizeClass.freeCount == 0 && !grow(sizeClass)) {
+            return NO_HANDLE;
+        }
+        int slot = sizeClass.free[--sizeClass.freeCount];
+        sizeClass.live[slot / sizeClass.slotsPerArena]++;
+        ByteBuffer target = sizeClass.arenas.get(slot / sizeClass.slotsPerArena).duplicate();
+        target.position((slot % sizeClass.slotsPerArena) * sizeClass.slotSize);
+        target.put(data);
+        usedBytes += sizeClass.slotSize;
+        usedSlots++;
+        return ((long) classIndex << (SLOT_BITS + LENGTH_BITS)) | ((long) slot << LENGTH_BITS) | length;
+    }
+
+    /**
+     * @return read-only view of the data of handle, position 0 and limit its length,
+     *         valid only until the caller lets go of the lock it allocates under
+     */
+    public ByteBuffer view(long handle) {
+        SizeClass sizeClass = classes[(int) (handle >>> (SLOT_BITS + LENGTH_BITS))];
+        int slot = (int) ((handle >>> LENGTH_BITS) & SLOT_MASK);
+        ByteBuffer view = sizeClass.arenas.get(slot / sizeClass.slotsPerArena).asReadOnlyBuffer();
+        int offset = (slot % sizeClass.slotsPerArena) * sizeClass.slotSize;
+        view.limit(offset + length(handle)).position(offset);
+        return view.slice();
+    }
+
+    public static int length(long handle) {
+        return (int) (handle & LENGTH_MASK);
+    }
+
+    /**
+     * Give the slot back, it is reused after reclaimMillis
+     */
+    public void free(long handle) {
+        if (quarantineCount * 2 == quarantine.length) {
+            long[] grown = new long[quarantine.length * 2];
+            for (int i = 0; i < quarantineCount * 2; i++) {
+                grown[i] = quarantine[(quarantineHead + i) % quarantine.length];
+            }
+            quarantine = grown;
+            quarantineHead = 0;
+        }
+        int tail = (quarantineHead + quarantineCount * 2) % quarantine.length;
+        quarantine[tail] = handle;
+        quarantine[tail + 1] = System.nanoTime();
+        quarantineCount++;
+        SizeClass sizeClass = classes[(int) (handle >>> (SLOT_BITS + LENGTH_BITS))];
+        usedBytes -= sizeClass.slotSize;
+        usedSlots--;
+    }
+
+    /**
+     * Drop all arenas, handles given out before are invalid
+     */
+    public void clear() {
+        for (SizeClass sizeClass : classes) {
+            sizeClass.arenas.clear();
+            sizeClass.live = new int[4];
+            sizeClass.freeCount = 0;
+        }
+        quarantineHead = 0;
+        quarantineCount = 0;
+        reservedBytes = 0;
+        usedBytes = 0;
+        usedSlots = 0;
+    }
+
+    /**
+     * @return direct memory taken by arenas
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @return bytes of the slots in use, packets round up to their slot size
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public int getUsedSlots() {
+        return usedSlots;
+    }
+
+    /**
+     * @return freed slots not yet reusable
+     */
+    public int getQuarantinedSlots() {
+        return quarantineCount;
+    }
+
+    public long getReclaimMillis() {
+        return reclaimNanos / 1000000L;
+    }
+
+    /**
+     * Move slots freed at least reclaimNanos ago back to their free lists
+     */
+    private void reclaim(long now) {
+        while (quarantineCount > 0 && now - quarantine[quarantineHead + 1] >= reclaimNanos) {
+            long handle = quarantine[quarantineHead];
+            quarantineHead = (quarantineHead + 2) % quarantine.length;
+            quarantineCount--;
+            SizeClass sizeClass = classes[(int) (handle >>> (SLOT_BITS + LENGTH_BITS))];
+            int slot = (int) ((handle >>> LENGTH_BITS) & SLOT_MASK);
+            sizeClass.live[slot / sizeClass.slotsPerArena]--;
+            pushFree(sizeClass, slot);
+        }
+    }
+
+    /**
+     * Add an arena to sizeClass, giving up unused arenas of any class if
+     * maxBytes is reached
+     * @return false if it would still go over maxBytes
+     */
+    private boolean grow(SizeClass sizeClass) {
+        if (reservedBytes + arenaBytes > maxBytes && !releaseUnusedArenas()) {
+            return false;
+        }
+        int arena = sizeClass.arenas.indexOf(null);
+        if (arena < 0) {
+            arena = sizeClass.arenas.size();
+            sizeClass.arenas.add(null);
+            if (arena == sizeClass.live.length) {
+                sizeClass.live = Arrays.copyOf(sizeClass.live, arena * 2);
+            }
+        }
+        sizeClass.arenas.set(arena, ByteBuffer.allocateDirect(arenaBytes));
+        reservedBytes += arenaBytes;
+        int first = arena * sizeClass.slotsPerArena;
+        // Hand out the slots of the new arena from its start
+        for (int slot = first + sizeClass.slotsPerArena - 1; slot >= first; slot--) {
+            pushFree(sizeClass, slot);
+        }
+        return true;
+    }
+
+    /**
+     * Give up the arenas with no slot allocated or quarantined and drop their
+     * slots from the free lists
+     * @return true if an arena now fits within maxBytes
+     */
+    private boolean releaseUnusedArenas() {
+        for (SizeClass sizeClass : classes) {
+            boolean released = false;
+            for (int arena = 0; arena < sizeClass.arenas.size(); arena++) {
+                if (sizeClass.arenas.get(arena) != null && sizeClass.live[arena] == 0) {
+                    sizeClass.arenas.set(arena, null);
+                    reservedBytes -= arenaBytes;
+                    released = true;
+                }
+            }
+            if (released) {
+                int kept = 0;
+                for (int i = 0; i < sizeClass.freeCount; i++) {
+                    int slot = sizeClass.free[i];
+                    if (sizeClass.arenas.get(slot / sizeClass.slotsPerArena) != null) {
+                        sizeClass.free[kept++] = slot;
+                    }
+                }
+                sizeClass.freeCount = kept;
+            }
+        }
+        return reservedBytes + arenaBytes <= maxBytes;
+    }
+
+    private static void pushFree(SizeClass sizeClass, int slot) {
+        if (sizeClass.freeCount == sizeClass.free.length) {
+            int[] grown = new int[sizeClass.free.length * 2];
+            System.arraycopy(sizeClass.free, 0, grown, 0, sizeClass.freeCount);
+            sizeClass.free = grown;
+        }
+        sizeClass.free[sizeClass.freeCount++] = slot;
+    }
+
+    /**
+     * @return index of the smallest size class length fits, -1 if none
+     */
+    private static int classIndex(int length) {
+        for (int i = 0; i < SLOT_SIZES.length; i++) {
+            if (length <= SLOT_SIZES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A payload kept in a memory-mapped file behind a header of magic, format
+ * version, payload length and CRC32 of the payload. A file of another
+ * version, cut short or with a wrong checksum reads as no file at all.
+ *
+ * Writes go to a file next to it which is then moved over it, so a crash
+ * while writing leaves the last complete file in place.
+ */
+public final class SnapshotFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotFile.class);
+
+    // Magic, version, payload length, CRC32
+    private static final int HEADER_LENGTH = 16;
+    private static final int NULL_LENGTH = -1;
+
+    private final Path path;
+    private final Path tmpPath;
+    private final int magic;
+    private final int version;
+
+    /**
+     * @param magic identifies what the file holds
+     * @param version payload format, files of other versions are not read
+     */
+    public SnapshotFile(Path path, int magic, int version) {
+        this.path = path;
+        this.tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.magic = magic;
+        this.version = version;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Replace the file with payload
+     * @return false if it could not be written, the previous file is left as it was
+     */
+    public boolean write(byte[] payload) {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_LENGTH + payload.length);
+                buffer.putInt(magic).putInt(version).putInt(payload.length).putInt((int) crc.getValue());
+                buffer.put(payload);
+                buffer.force();
+            }
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not write {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Map the file, only the pages read are loaded
+     * @return read-only payload, null if there is no file or it is not a valid one of this version
+     */
+    public ByteBuffer read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not read {}", path, e);
+            return null;
+        }
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != magic) {
+            LOG.warn("{} is not a snapshot file, ignored", path);
+            return null;
+        }
+        int fileVersion = buffer.getInt();
+        if (fileVersion != version) {
+            LOG.info("{} has format version {}, expected {}, ignored", path, fileVersion, version);
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length != buffer.remaining()) {
+            LOG.warn("{} holds {} payload bytes, header says {}, ignored", path, buffer.remaining(), length);
+            return null;
+        }
+        ByteBuffer payload = buffer.slice();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            LOG.warn("{} fails its checksum, ignored", path);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Write a length-prefixed array, null included
+     */
+    public static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return array written by writeBytes
+     * @throws java.nio.BufferUnderflowException if in ends before it
+     */
+    public static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Array length " + length + " with " + in.remaining() + " bytes left");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.dns.DnsMessage;
+
+/**
+ * TC-flagged responses held per source until their last packet, the byte
+ * budget or the window hands them on.
+ */
+public class MdnsReassemblyBufferTest {
+
+    private static final int SERVER = MdnsTestPackets.address(10, 0, 0, 1);
+    private static final int OTHER_SERVER = MdnsTestPackets.address(10, 0, 0, 2);
+
+    private final List<MdnsReassemblyBuffer.Message> messages =
+            Collections.synchronizedList(new ArrayList<MdnsReassemblyBuffer.Message>());
+    private final Semaphore delivered = new Semaphore(0);
+    private MdnsReassemblyBuffer buffer;
+
+    @After
+    public void tearDown() {
+        buffer.close();
+    }
+
+    private MdnsReassemblyBuffer buffer(long windowMillis, int maxBytes, int maxSources) {
+        buffer = new MdnsReassemblyBuffer(windowMillis, maxBytes, maxSources);
+        buffer.setListener(message -> {
+            messages.add(message);
+            delivered.release();
+        });
+        return buffer;
+    }
+
+    /**
+     * @return frame of one part of a response from src, announcing instance number part
+     */
+    private static byte[] part(int src, int part, boolean truncated) {
+        byte[] frame = MdnsTestPackets.frame(src, MdnsTestPackets.announcement(
+                "UA Local Discovery Server-host" + part, "host" + part, 4840 + part, src, 120));
+        if (truncated) {
+            frame[MdnsTestPackets.payloadOffset() + 2] |= 0x02;
+        }
+        return frame;
+    }
+
+    private static int dnsLength(byte[] frame) {
+        return frame.length - MdnsTestPackets.payloadOffset();
+    }
+
+    private static DnsMessage dnsMessage(MdnsReassemblyBuffer.Message message) {
+        return new DnsMessage().wrap(message.getData(), message.getOffset(), message.getLength());
+    }
+
+    @Test
+    public void packetWithoutTcIsHandedOnInPlace() {
+        byte[] frame = part(SERVER, 1, false);
+        buffer(500, 9000, 16).offer(frame);
+
+        assertEquals(1, messages.size());
+        MdnsReassemblyBuffer.Message message = messages.get(0);
+        assertSame(frame, message.getData());
+        assertEquals(MdnsTestPackets.payloadOffset(), message.getOffset());
+        assertEquals(Collections.singletonList(frame), message.getFrames());
+        assertEquals(SERVER, message.getSrcAddr());
+    }
+
+    @Test
+    public void tcPartsAreMergedWithTheLastPart() {
+        MdnsReassemblyBuffer reassembly = buffer(500, 9000, 16);
+        byte[] first = part(SERVER, 1, true);
+        byte[] second = part(SERVER, 2, true);
+        byte[] last = part(SERVER, 3, false);
+        reassembly.offer(first);
+        reassembly.offer(second);
+        assertTrue(messages.isEmpty());
+        reassembly.offer(last);
+
+        assertEquals(1, messages.size());
+        MdnsReassemblyBuffer.Message message = messages.get(0);
+        assertEquals(3, message.getFrames().size());
+        assertSame(last, message.getFrames().get(2));
+        DnsMessage merged = dnsMessage(message);
+        assertFalse(merged.isTruncated());
+        assertEquals(12, merged.answerCount());
+        assertEquals(3, merged.additionalCount());
+        assertEquals(1, reassembly.getReassembledCount());
+    }
+
+    @Test
+    public void sourcesAreHeldApart() {
+        MdnsReassemblyBuffer reassembly = buffer(500, 9000, 16);
+        reassembly.offer(part(SERVER, 1, true));
+        reassembly.offer(part(OTHER_SERVER, 2, true));
+        reassembly.offer(part(OTHER_SERVER, 3, false));
+
+        assertEquals(1, messages.size());
+        assertEquals(OTHER_SERVER, messages.get(0).getSrcAddr());
+        assertEquals(2, messages.get(0).getFrames().size());
+    }
+
+    @Test
+    public void partsOverTheBudgetAreFlushed() {
+        byte[] first = part(SERVER, 1, true);
+        byte[] second = part(SERVER, 2, true);
+        byte[] last = part(SERVER, 3, false);
+        // Room for two parts, the third flushes them
+        MdnsReassemblyBuffer reassembly = buffer(500, dnsLength(first) + dnsLength(second), 16);
+        reassembly.offer(first);
+        reassembly.offer(second);
+        reassembly.offer(last);
+
+        assertEquals(2, messages.size());
+        assertEquals(2, messages.get(0).getFrames().size());
+        assertEquals(8, dnsMessage(messages.get(0)).answerCount());
+        assertSame(last, messages.get(1).getData());
+        assertEquals(1, reassembly.getOverBudgetCount());
+        assertEquals(0, reassembly.getIncompleteCount());
+    }
+
+    @Test
+    public void tcPartOverTheBudgetIsHandedOnAlone() {
+        byte[] frame = part(SERVER, 1, true);
+        buffer(500, dnsLength(frame) - 1, 16).offer(frame);
+        assertEquals(1, messages.size());
+        assertSame(frame, messages.get(0).getData());
+    }
+
+    @Test
+    public void heldPartsAreHandedOnWhenTheWindowRunsOut() throws InterruptedException {
+        MdnsReassemblyBuffer reassembly = buffer(50, 9000, 16);
+        reassembly.offer(part(SERVER, 1, true));
+        reassembly.offer(part(SERVER, 2, true));
+
+        assertTrue(delivered.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(1, messages.size());
+        assertEquals(2, messages.get(0).getFrames().size());
+        assertEquals(1, reassembly.getIncompleteCount());
+
+        // The next part starts over instead of joining the expired ones
+        reassembly.offer(part(SERVER, 3, false));
+        assertEquals(2, messages.size());
+        assertEquals(1, messages.get(1).getFrames().size());
+    }
+
+    @Test
+    public void tcPartsOfTooManySourcesAreHandedOnAlone() {
+        MdnsReassemblyBuffer reassembly = buffer(500, 9000, 1);
+        reassembly.offer(part(SERVER, 1, true));
+        byte[] other = part(OTHER_SERVER, 2, true);
+        reassembly.offer(other);
+
+        assertEquals(1, messages.size());
+        assertSame(other, messages.get(0).getData());
+        assertEquals(1, reassembly.getOverflowCount());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds mDNS frames as a UA Local Discovery Server with multicast extension
+ * (LDS-ME) sends them: a response holding the DNS-SD enumeration PTR, the
+ * _opcua-tcp PTR, the SRV and TXT of the instance and the A record of its
+ * host, names compressed against earlier ones. Used by the tests and the
+ * benchmarks module.
+ */
+public final class MdnsTestPackets {
+
+    public static final String SERVICE_LABEL = "_opcua-tcp";
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_PTR = 12;
+    private static final int TYPE_TXT = 16;
+    private static final int TYPE_SRV = 33;
+    private static final int CLASS_IN = 1;
+    private static final int CACHE_FLUSH = 0x8000;
+    private static final int MDNS_PORT = 5353;
+    private static final int MDNS_MULTICAST_ADDR = 0xE00000FB;
+
+    private MdnsTestPackets() {
+    }
+
+    /**
+     * @return address a.b.c.d in network byte order
+     */
+    public static int address(int a, int b, int c, int d) {
+        return (a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    /**
+     * @param instance instance label, e.g. "UA Local Discovery Server-host1"
+     * @param host host label, announced as host.local
+     * @param address host address in network byte order
+     * @param ttl TTL of the SRV and PTR records, 0 for a goodbye
+     * @return the mDNS message
+     */
+    public static byte[] announcement(String instance, String host, int port, int address, long ttl) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(0);
+            out.writeShort(0x8400);
+            out.writeShort(0);
+            out.writeShort(4);
+            out.writeShort(0);
+            out.writeShort(1);
+
+            // _services._dns-sd._udp.local PTR _opcua-tcp._tcp.local
+            int services = bytes.size();
+            labels(out, "_services", "_dns-sd", "_udp", "local");
+            int local = services + 1 + "_services".length() + 1 + "_dns-sd".length() + 1 + "_udp".length();
+            header(out, TYPE_PTR, CLASS_IN, ttl);
+            out.writeShort(1 + SERVICE_LABEL.length() + 1 + "_tcp".length() + 2);
+            int serviceType = bytes.size();
+            label(out, SERVICE_LABEL);
+            label(out, "_tcp");
+            pointer(out, local);
+
+            // _opcua-tcp._tcp.local PTR instance._opcua-tcp._tcp.local
+            pointer(out, serviceType);
+            header(out, TYPE_PTR, CLASS_IN, ttl);
+            byte[] instanceLabel = instance.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(1 + instanceLabel.length + 2);
+            int instanceName = bytes.size();
+            label(out, instanceLabel);
+            pointer(out, serviceType);
+
+            // instance SRV 0 0 port host.local
+            pointer(out, instanceName);
+            header(out, TYPE_SRV, CLASS_IN | CACHE_FLUSH, ttl);
+            byte[] hostLabel = host.getBytes(StandardCharsets.US_ASCII);
+            out.writeShort(6 + 1 + hostLabel.length + 2);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(port);
+            int hostName = bytes.size();
+            label(out, hostLabel);
+            pointer(out, local);
+
+            // instance TXT path=/ caps=LDS
+            pointer(out, instanceName);
+            header(out, TYPE_TXT, CLASS_IN | CACHE_FLUSH, ttl);
+            out.writeShort(1 + "path=/".length() + 1 + "caps=LDS".length());
+            label(out, "path=/");
+            label(out, "caps=LDS");
+
+            // host.local A address, in the additional section
+            pointer(out, hostName);
+            header(out, TYPE_A, CLASS_IN | CACHE_FLUSH, 120);
+            out.writeShort(4);
+            out.writeInt(address);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The same announcement laid out as the fixed-offset parser of the first
+     * release expected: the SRV first under its full instance name, its target
+     * the bare host label, then the TXT, PTR and A records. The enumeration PTR
+     * is left out.
+     * @return the mDNS message
+     */
+    public static byte[] srvFirstAnnouncement(String instance, String host, int port, int address, long ttl) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(0);
+            out.writeShort(0x8400);
+            out.writeShort(0);
+            out.writeShort(3);
+            out.writeShort(0);
+            out.writeShort(1);
+
+            // instance._opcua-tcp._tcp.local SRV 0 0 port host
+            int instanceName = bytes.size();
+            byte[] instanceLabel = instance.getBytes(StandardCharsets.UTF_8);
+            label(out, instanceLabel);
+            int serviceType = bytes.size();
+            labels(out, SERVICE_LABEL, "_tcp", "local");
+            header(out, TYPE_SRV, CLASS_IN | CACHE_FLUSH, ttl);
+            out.writeShort(6 + 1 + host.length() + 1);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(port);
+            int hostName = bytes.size();
+            labels(out, host);
+
+            // instance TXT path=/ caps=LDS
+            pointer(out, instanceName);
+            header(out, TYPE_TXT, CLASS_IN | CACHE_FLUSH, ttl);
+            out.writeShort(1 + "path=/".length() + 1 + "caps=LDS".length());
+            label(out, "path=/");
+            label(out, "caps=LDS");
+
+            // _opcua-tcp._tcp.local PTR instance._opcua-tcp._tcp.local
+            pointer(out, serviceType);
+            header(out, TYPE_PTR, CLASS_IN, ttl);
+            out.writeShort(2);
+            pointer(out, instanceName);
+
+            // host A address, in the additional section
+            pointer(out, hostName);
+            header(out, TYPE_A, CLASS_IN | CACHE_FLUSH, 120);
+            out.writeShort(4);
+            out.writeInt(address);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Ethernet frame carrying message from srcAddr to the mDNS group
+     */
+    public static byte[] frame(int srcAddr, byte[] message) {
+        return frame(srcAddr, MDNS_MULTICAST_ADDR, MDNS_PORT, MDNS_PORT, message);
+    }
+
+    /**
+     * @return Ethernet frame carrying an IPv4 UDP datagram
+     */
+    public static byte[] frame(int srcAddr, int dstAddr, int srcPort, int dstPort, byte[] payload) {
+        byte[] frame = new byte[14 + 20 + 8 + payload.length];
+        // Multicast MAC of the group, locally administered source
+        frame[0] = 0x01;
+        frame[2] = 0x5E;
+        frame[3] = (byte) ((dstAddr >>> 16) & 0x7F);
+        frame[4] = (byte) (dstAddr >>> 8);
+        frame[5] = (byte) dstAddr;
+        frame[6] = 0x02;
+        putInt(frame, 8, srcAddr);
+        frame[12] = 0x08;
+        frame[13] = 0x00;
+
+        frame[14] = 0x45;
+        putShort(frame, 16, 20 + 8 + payload.length);
+        frame[22] = (byte) 255;
+        frame[23] = 17;
+        putInt(frame, 26, srcAddr);
+        putInt(frame, 30, dstAddr);
+
+        putShort(frame, 34, srcPort);
+        putShort(frame, 36, dstPort);
+        putShort(frame, 38, 8 + payload.length);
+        System.arraycopy(payload, 0, frame, 42, payload.length);
+        return frame;
+    }
+
+    /**
+     * @return offset of the UDP payload in a frame built here
+     */
+    public static int payloadOffset() {
+        return 42;
+    }
+
+    private static void header(DataOutputStream out, int type, int rrClass, long ttl) throws IOException {
+        out.writeShort(type);
+        out.writeShort(rrClass);
+        out.writeInt((int) ttl);
+    }
+
+    private static void labels(DataOutputStream out, String... labels) throws IOException {
+        for (String label : labels) {
+            label(out, label);
+        }
+        out.writeByte(0);
+    }
+
+    private static void label(DataOutputStream out, String label) throws IOException {
+        label(out, label.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void label(DataOutputStream out, byte[] label) throws IOException {
+        out.writeByte(label.length);
+        out.write(label);
+    }
+
+    private static void pointer(DataOutputStream out, int offset) throws IOException {
+        out.writeShort(0xC000 | offset);
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        putShort(bytes, offset, value >>> 16);
+        putShort(bytes, offset + 2, value);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.dns.OpcUaServiceRecord;
+import org.opendaylight.I4application.impl.dns.ServiceRecordCache;
+import org.opendaylight.I4application.impl.ingress.PacketIn;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.opendaylight.I4application.impl.utils.BytePatternMatcher;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.I4application.impl.utils.SlabAllocator;
+import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
+import org.opendaylight.controller.md.sal.binding.api.NotificationService;
+import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+
+/**
+ * Sends distinct announcements of many servers from several threads at once
+ * and checks no announcement was read with another one's bytes: through
+ * mDNSPacketHandler.handlePacket, the reassembly buffer and the parser
+ * thread, as the ingress ring consumers hand packets over, and directly
+ * through the per-thread parse state of mDNS_packet_parser.
+ *
+ * Each server is only ever sent by one thread with the same announcement, so
+ * any outcome but ADDED then REFRESHED, or a cached record or stored packet
+ * not matching the server, is cross-talk.
+ */
+public class ParseCrossTalkStressTest {
+
+    private static final int THREADS = 8;
+    private static final int SERVERS_PER_THREAD = 32;
+    private static final int ROUNDS = 50;
+    private static final byte[] SERVICE_LABEL = MdnsTestPackets.SERVICE_LABEL.getBytes(StandardCharsets.US_ASCII);
+
+    private ServiceRecordCache serviceRecordCache;
+    private MdnsPacketStore mdnsPacketStore;
+    private MdnsReassemblyBuffer mdnsReassemblyBuffer;
+    private CheckingParser parser;
+    private final AtomicInteger unexpectedOutcomes = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Counts the announcements parsed per server and checks each outcome
+     */
+    private final class CheckingParser extends mDNS_packet_parser {
+        private final AtomicInteger[] parsed = new AtomicInteger[THREADS * SERVERS_PER_THREAD];
+        private final CountDownLatch done = new CountDownLatch(THREADS * SERVERS_PER_THREAD * ROUNDS);
+
+        CheckingParser() {
+            super(mock(NotificationPublishService.class), serviceRecordCache, mdnsPacketStore);
+            for (int server = 0; server < parsed.length; server++) {
+                parsed[server] = new AtomicInteger();
+            }
+        }
+
+        @Override
+        public ServiceRecordCache.Outcome mDNSSRVRecordParser(byte[] packet, int offset, int length,
+                                                              byte[] serviceLabel, Ipv4Address src_address,
+                                                              List<byte[]> frames) {
+            try {
+                ServiceRecordCache.Outcome outcome = super.mDNSSRVRecordParser(packet, offset, length, serviceLabel,
+                        src_address, frames);
+                int server = PacketParsingUtils.ipv4AddressToInt(src_address) & 0xFFFF;
+                boolean first = parsed[server].getAndIncrement() == 0;
+                if (outcome != (first ? ServiceRecordCache.Outcome.ADDED : ServiceRecordCache.Outcome.REFRESHED)) {
+                    unexpectedOutcomes.incrementAndGet();
+                }
+                return outcome;
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                return null;
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        serviceRecordCache = new ServiceRecordCache(100, 512);
+        mdnsPacketStore = new MdnsPacketStore(8, 16 * 1024 * 1024,
+                new SlabAllocator(1024 * 1024, 32 * 1024 * 1024, 0));
+        mdnsReassemblyBuffer = new MdnsReassemblyBuffer(500, 9000, 256);
+        parser = new CheckingParser();
+    }
+
+    @After
+    public void tearDown() {
+        mdnsReassemblyBuffer.close();
+        serviceRecordCache.close();
+    }
+
+    private static int serverAddress(int server) {
+        return MdnsTestPackets.address(10, 1, server >>> 8, server & 0xFF);
+    }
+
+    private static String instanceName(int server) {
+        return "UA Local Discovery Server-host" + server;
+    }
+
+    private static byte[][] frames() {
+        byte[][] frames = new byte[THREADS * SERVERS_PER_THREAD][];
+        for (int server = 0; server < frames.length; server++) {
+            frames[server] = MdnsTestPackets.frame(serverAddress(server),
+                    MdnsTestPackets.announcement(instanceName(server), "host" + server, 4840 + server,
+                            serverAddress(server), 120));
+        }
+        return frames;
+    }
+
+    private void assertEveryServerKeptApart(byte[][] frames) {
+        assertEquals("announcements read with another server's bytes", 0, unexpectedOutcomes.get());
+        assertEquals(frames.length, serviceRecordCache.size());
+        for (int server = 0; server < frames.length; server++) {
+            String instance = instanceName(server) + "._opcua-tcp._tcp.local";
+            OpcUaServiceRecord record = serviceRecordCache.get(instance);
+            assertNotNull(instance, record);
+            assertEquals(instance, record.getInstanceName());
+            assertEquals("host" + server + ".local", record.getHost());
+            assertEquals(4840 + server, record.getPort());
+            assertEquals(PacketParsingUtils.intToIpv4Address(serverAddress(server)), record.getAddress());
+            List<ByteBuffer> stored = mdnsPacketStore.get(serverAddress(server));
+            assertNotNull("packets of " + instance, stored);
+            assertEquals(1, stored.size());
+            byte[] packet = new byte[stored.get(0).remaining()];
+            stored.get(0).get(packet);
+            assertArrayEquals(instance, frames[server], packet);
+        }
+    }
+
+    private void rethrow() throws Exception {
+        Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        }
+        if (t != null) {
+            throw new AssertionError(t);
+        }
+    }
+
+    /**
+     * Run one thread per slice of SERVERS_PER_THREAD servers, each sending its
+     * servers' frames ROUNDS times
+     */
+    private void runThreads(String name, FrameSender sender, byte[][] frames) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int firstServer = t * SERVERS_PER_THREAD;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int i = 0; i < SERVERS_PER_THREAD; i++) {
+                            sender.send(frames[firstServer + i]);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, name + "-" + t);
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        rethrow();
+    }
+
+    private interface FrameSender {
+        void send(byte[] frame) throws Exception;
+    }
+
+    @Test
+    public void packetHandlerKeepsAnnouncementsApart() throws Exception {
+        byte[][] frames = frames();
+        mDNSPacketHandler handler = new mDNSPacketHandler(mock(NotificationService.class), parser, null, null,
+                mock(RpcProviderRegistry.class), new BytePatternMatcher("_opcua-tcp", "_opcua-tls"),
+                new MdnsProxyResponder(null, null, serviceRecordCache), mdnsReassemblyBuffer, mdnsPacketStore,
+                frames.length * ROUNDS);
+        try {
+            runThreads("handler-stress",
+                    frame -> handler.handlePacket(new PacketIn(frame, null, TrafficClass.MDNS)), frames);
+            assertEquals(0, handler.getRejectedCount());
+            assertTrue("parser did not finish", parser.done.await(60, TimeUnit.SECONDS));
+            rethrow();
+        } finally {
+            handler.close();
+        }
+        assertEveryServerKeptApart(frames);
+    }
+
+    @Test
+    public void threadLocalParsersKeepAnnouncementsApart() throws Exception {
+        byte[][] frames = frames();
+        runThreads("parse-stress", frame -> {
+            int offset = PacketParsingUtils.mDNSPayloadOffset(frame);
+            parser.mDNSSRVRecordParser(frame, offset, frame.length - offset, SERVICE_LABEL,
+                    PacketParsingUtils.intToIpv4Address(PacketParsingUtils.srcIPAddrToInt(frame)),
+                    Collections.singletonList(frame));
+        }, frames);
+        rethrow();
+        assertEveryServerKeptApart(frames);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.opendaylight.I4application.impl.Topology.HostManager;
+import org.opendaylight.I4application.impl.utils.InstanceIdentifierUtils;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+
+/**
+ * Rate limiting of requests for targets HostManager does not know.
+ */
+public class ProxyArpResponderTest {
+
+    private static final int SENDER = 0x0A000001;
+    private static final NodeConnectorRef INGRESS = new NodeConnectorRef(
+            InstanceIdentifierUtils.createNodeConnectorIdentifier("openflow:1", "openflow:1:1"));
+
+    private final HostManager hostManager = new HostManager(mock(DataBroker.class),
+            mock(NotificationPublishService.class));
+
+    private static byte[] request(int target) {
+        byte[] frame = new byte[PacketParsingUtils.MIN_ARP_FRAME_LENGTH];
+        frame[12] = 0x08;
+        frame[13] = 0x06;
+        frame[21] = 1;
+        writeInt(frame, 28, SENDER);
+        writeInt(frame, 38, target);
+        return frame;
+    }
+
+    private static void writeInt(byte[] frame, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            frame[offset + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+
+    @Test
+    public void unknownTargetIsPassedOncePerInterval() {
+        ProxyArpResponder responder = new ProxyArpResponder(hostManager, null, 60000, 16);
+        int target = 0x0A000063;
+        assertEquals(ProxyArpResponder.Result.PASS, responder.handleArp(request(target), INGRESS));
+        assertEquals(ProxyArpResponder.Result.RATE_LIMITED, responder.handleArp(request(target), INGRESS));
+        assertEquals(ProxyArpResponder.Result.PASS, responder.handleArp(request(target + 1), INGRESS));
+        assertEquals(3, responder.getMissCount());
+        assertEquals(1, responder.getRateLimitedCount());
+    }
+
+    @Test
+    public void unknownTargetIsPassedAgainAfterInterval() throws InterruptedException {
+        ProxyArpResponder responder = new ProxyArpResponder(hostManager, null, 50, 16);
+        int target = 0x0A000063;
+        responder.handleArp(request(target), INGRESS);
+        Thread.sleep(100);
+        assertEquals(ProxyArpResponder.Result.PASS, responder.handleArp(request(target), INGRESS));
+    }
+
+    @Test
+    public void scanOfManyTargetsKeepsRecentLimits() {
+        ProxyArpResponder responder = new ProxyArpResponder(hostManager, null, 60000, 4096);
+        int recent = 0x0A0000FF;
+        // A scan of a /16 overflows the tracked misses many times over
+        for (int i = 1; i <= 65534; i++) {
+            responder.handleArp(request(0x0A010000 + i), INGRESS);
+        }
+        responder.handleArp(request(recent), INGRESS);
+        for (int i = 1; i <= 500; i++) {
+            responder.handleArp(request(0x0A020000 + i), INGRESS);
+        }
+        assertEquals(ProxyArpResponder.Result.RATE_LIMITED, responder.handleArp(request(recent), INGRESS));
+    }
+
+    @Test
+    public void unspecifiedTargetIsPassed() {
+        ProxyArpResponder responder = new ProxyArpResponder(hostManager, null, 60000, 16);
+        assertEquals(ProxyArpResponder.Result.PASS, responder.handleArp(request(0), INGRESS));
+        assertEquals(ProxyArpResponder.Result.PASS, responder.handleArp(request(0), INGRESS));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.Topology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.utils.InstanceIdentifierUtils;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev130715.MacAddress;
+
+/**
+ * Addresses the address tracker reports for hosts without one of their own.
+ */
+public class HostManagerTest {
+
+    private static final Ipv4Address UNSPECIFIED = new Ipv4Address("0.0.0.0");
+    private static final Ipv4Address HOST = new Ipv4Address("10.0.0.1");
+    private static final MacAddress HOST_MAC = new MacAddress("00:00:00:00:00:01");
+
+    private DataBroker dataBroker;
+    private NotificationPublishService notificationPublishService;
+    private HostManager hostManager;
+
+    @Before
+    public void setUp() {
+        dataBroker = mock(DataBroker.class);
+        notificationPublishService = mock(NotificationPublishService.class);
+        hostManager = new HostManager(dataBroker, notificationPublishService);
+    }
+
+    @Test
+    public void unspecifiedAddressIsNotBound() {
+        hostManager.addIpv4MacBinding(UNSPECIFIED, HOST_MAC);
+        assertNull(hostManager.getIpMacAddress(UNSPECIFIED));
+        assertEquals(0, hostManager.getIpMac(0));
+
+        // Bindings after it in the same change batch still go in
+        hostManager.addIpv4MacBinding(HOST, HOST_MAC);
+        assertEquals(HOST_MAC, hostManager.getIpMacAddress(HOST));
+    }
+
+    @Test
+    public void unspecifiedAddressIsNotAdded() {
+        hostManager.addIpv4Address(UNSPECIFIED,
+                InstanceIdentifierUtils.createNodeConnectorIdentifier("openflow:1", "openflow:1:1"));
+        assertNull(hostManager.getIpNodeConnectorRef(0));
+        // Skipped before the inventory is read, no host is announced
+        verifyZeroInteractions(dataBroker, notificationPublishService);
+    }
+
+    @Test
+    public void zeroMacAddressIsNotAdded() {
+        hostManager.addMacAddress(new MacAddress("00:00:00:00:00:00"),
+                InstanceIdentifierUtils.createNodeConnectorIdentifier("openflow:1", "openflow:1:1"));
+        assertNull(hostManager.getMacNodeConnector(new MacAddress("00:00:00:00:00:00")));
+        verifyZeroInteractions(dataBroker);
+    }
+}
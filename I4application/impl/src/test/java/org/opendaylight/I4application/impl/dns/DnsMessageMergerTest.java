@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+
+public class DnsMessageMergerTest {
+
+    private static byte[] announcement(int server, boolean truncated) {
+        byte[] message = MdnsTestPackets.announcement("UA Local Discovery Server-host" + server, "host" + server,
+                4840 + server, MdnsTestPackets.address(10, 0, 0, server), 120);
+        if (truncated) {
+            message[2] |= 0x02;
+        }
+        return message;
+    }
+
+    private static DnsMessage wrap(byte[] message) {
+        return new DnsMessage().wrap(message, 0, message.length);
+    }
+
+    @Test
+    public void partsAreMergedSectionBySection() {
+        byte[] merged = DnsMessageMerger.merge(Arrays.asList(wrap(announcement(1, true)),
+                wrap(announcement(2, false))), 0xFFFF);
+        assertNotNull(merged);
+        DnsMessage message = wrap(merged);
+        assertTrue(message.isResponse());
+        assertFalse(message.isTruncated());
+        assertEquals(8, message.answerCount());
+        assertEquals(2, message.additionalCount());
+
+        // Answers of both parts first, then the additional records, names readable without the parts
+        List<String> names = new ArrayList<>();
+        DnsRecordCursor records = message.records();
+        while (records.next()) {
+            if (records.isSrv()) {
+                names.add(DnsNames.toString(message.buffer(), records.srvTargetOffset()));
+            } else if (records.type() == DnsMessage.TYPE_A) {
+                names.add(records.section() + " " + DnsNames.toString(message.buffer(), records.nameOffset()));
+            }
+        }
+        assertFalse(records.isMalformed());
+        assertEquals(Arrays.asList("host1.local", "host2.local", "ADDITIONAL host1.local",
+                "ADDITIONAL host2.local"), names);
+    }
+
+    @Test
+    public void mergedMessageOverMaxLengthIsNotBuilt() {
+        List<DnsMessage> parts = Arrays.asList(wrap(announcement(1, true)), wrap(announcement(2, false)));
+        int length = DnsMessageMerger.merge(parts, 0xFFFF).length;
+        assertEquals(length, DnsMessageMerger.merge(parts, length).length);
+        assertNull(DnsMessageMerger.merge(parts, length - 1));
+    }
+
+    @Test
+    public void malformedPartIsNotMerged() {
+        byte[] second = announcement(2, false);
+        assertNull(DnsMessageMerger.merge(Arrays.asList(wrap(announcement(1, true)),
+                wrap(Arrays.copyOf(second, second.length - 3))), 0xFFFF));
+        assertNull(DnsMessageMerger.merge(Arrays.asList(wrap(new byte[4])), 0xFFFF));
+        assertNull(DnsMessageMerger.merge(new ArrayList<DnsMessage>(), 0xFFFF));
+    }
+}
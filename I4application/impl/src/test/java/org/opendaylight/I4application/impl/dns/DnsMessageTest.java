@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+
+/**
+ * Reads the records of an LDS-ME announcement, and checks that malformed
+ * messages, compression pointer loops and truncated records end the walk
+ * instead of throwing or looping.
+ */
+public class DnsMessageTest {
+
+    private static final String INSTANCE = "UA Local Discovery Server-host1";
+    private static final byte[] TCP = "_TCP".getBytes(StandardCharsets.US_ASCII);
+
+    private static byte[] announcement() {
+        return MdnsTestPackets.announcement(INSTANCE, "host1", 4840, MdnsTestPackets.address(10, 0, 0, 1), 120);
+    }
+
+    /**
+     * @return a response header with one answer, followed by body
+     */
+    private static byte[] message(int... body) {
+        byte[] message = new byte[DnsMessage.HEADER_LENGTH + body.length];
+        message[2] = (byte) 0x84;
+        message[7] = 1;
+        for (int i = 0; i < body.length; i++) {
+            message[DnsMessage.HEADER_LENGTH + i] = (byte) body[i];
+        }
+        return message;
+    }
+
+    private static ByteBuffer buffer(byte[] message) {
+        return new DnsMessage().wrap(message, 0, message.length).buffer();
+    }
+
+    @Test
+    public void announcementRecordsAreReadInOrder() {
+        byte[] packet = MdnsTestPackets.frame(MdnsTestPackets.address(10, 0, 0, 1), announcement());
+        int offset = MdnsTestPackets.payloadOffset();
+        DnsMessage message = new DnsMessage().wrap(packet, offset, packet.length - offset);
+        assertTrue(message.hasHeader());
+        assertTrue(message.isResponse());
+        assertFalse(message.isTruncated());
+        assertEquals(4, message.answerCount());
+        assertEquals(1, message.additionalCount());
+
+        DnsRecordCursor records = message.records();
+        int[] types = {DnsMessage.TYPE_PTR, DnsMessage.TYPE_PTR, DnsMessage.TYPE_SRV, DnsMessage.TYPE_TXT,
+            DnsMessage.TYPE_A};
+        for (int type : types) {
+            assertTrue(records.next());
+            assertEquals(type, records.type());
+            assertEquals(DnsMessage.CLASS_IN, records.recordClass());
+            if (type == DnsMessage.TYPE_SRV) {
+                assertTrue(records.isCacheFlush());
+                assertEquals(120, records.ttl());
+                assertEquals(4840, records.srvPort());
+                assertEquals(INSTANCE + "._opcua-tcp._tcp.local",
+                        DnsNames.toString(message.buffer(), records.nameOffset()));
+                assertEquals("host1.local", DnsNames.toString(message.buffer(), records.srvTargetOffset()));
+                assertTrue(DnsNames.hasLabel(message.buffer(), records.nameOffset(), TCP));
+            }
+        }
+        assertEquals(DnsRecordCursor.Section.ADDITIONAL, records.section());
+        assertFalse(records.next());
+        assertFalse(records.isMalformed());
+    }
+
+    @Test
+    public void namesCompareAcrossPointersIgnoringCase() {
+        byte[] packet = announcement();
+        ByteBuffer buffer = buffer(packet);
+        DnsRecordCursor records = new DnsMessage().wrap(packet, 0, packet.length).records();
+        records.next();
+        records.next();
+        int serviceType = records.nameOffset();
+        int instance = records.rdataOffset();
+        records.next();
+
+        // The SRV owner is a pointer to the PTR target
+        assertTrue(DnsNames.equals(buffer, records.nameOffset(), instance));
+        assertFalse(DnsNames.equals(buffer, records.nameOffset(), serviceType));
+        byte[] wire = DnsNames.toWireFormat(buffer, instance);
+        assertTrue(DnsNames.equals(buffer, serviceType, wire, DnsNames.skipLabel(wire, 0)));
+
+        byte[] upper = new String(wire, StandardCharsets.ISO_8859_1).toUpperCase()
+                .getBytes(StandardCharsets.ISO_8859_1);
+        assertTrue(DnsNames.equals(buffer, records.nameOffset(), upper, 0));
+    }
+
+    @Test
+    public void pointerToItselfIsRejected() {
+        byte[] packet = message(0xC0, 12);
+        ByteBuffer buffer = buffer(packet);
+        assertNull(DnsNames.toString(buffer, 12));
+        assertNull(DnsNames.toWireFormat(buffer, 12));
+        assertFalse(DnsNames.hasLabel(buffer, 12, TCP));
+        assertFalse(DnsNames.equals(buffer, 12, 12));
+    }
+
+    @Test
+    public void pointerLoopThroughEarlierNameIsRejected() {
+        // 12: "a" then a pointer forward to 17, 17: a pointer back to 12
+        byte[] packet = message(1, 'a', 0xC0, 17, 0, 0xC0, 12);
+        ByteBuffer buffer = buffer(packet);
+        assertNull(DnsNames.toString(buffer, 12));
+        assertNull(DnsNames.toString(buffer, 17));
+        assertNull(DnsNames.toWireFormat(buffer, 17));
+        assertFalse(DnsNames.hasLabel(buffer, 17, "b".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(DnsNames.equals(buffer, 12, 17));
+    }
+
+    @Test
+    public void pointerBackwardsIsFollowed() {
+        // 12: "a" and the root, 15: "b" then a pointer back to 12
+        byte[] packet = message(1, 'a', 0, 1, 'b', 0xC0, 12);
+        ByteBuffer buffer = buffer(packet);
+        assertEquals("b.a", DnsNames.toString(buffer, 15));
+        assertArrayEquals(new byte[] {1, 'b', 1, 'a', 0}, DnsNames.toWireFormat(buffer, 15));
+        assertEquals(19, DnsNames.skip(buffer, 15));
+    }
+
+    @Test
+    public void reservedLabelTypeIsRejected() {
+        byte[] packet = message(0x40, 'a', 0);
+        assertNull(DnsNames.toString(buffer(packet), 12));
+        assertEquals(-1, DnsNames.skip(buffer(packet), 12));
+    }
+
+    @Test
+    public void messageWithoutHeaderHasNoRecords() {
+        DnsMessage message = new DnsMessage().wrap(new byte[DnsMessage.HEADER_LENGTH - 1], 0,
+                DnsMessage.HEADER_LENGTH - 1);
+        assertFalse(message.hasHeader());
+        DnsRecordCursor records = message.records();
+        assertFalse(records.next());
+        assertTrue(records.isMalformed());
+    }
+
+    @Test
+    public void rdataPastTheEndIsMalformed() {
+        // Root owner, type A, class IN, ttl 120, rdata length 8 with 4 bytes left
+        byte[] packet = message(0, 0, 1, 0, 1, 0, 0, 0, 120, 0, 8, 10, 0, 0, 1);
+        DnsRecordCursor records = new DnsMessage().wrap(packet, 0, packet.length).records();
+        assertFalse(records.next());
+        assertTrue(records.isMalformed());
+    }
+
+    @Test
+    public void truncatedAnnouncementEndsTheWalk() {
+        byte[] full = announcement();
+        for (int length = DnsMessage.HEADER_LENGTH; length < full.length; length++) {
+            byte[] packet = Arrays.copyOf(full, length);
+            DnsMessage message = new DnsMessage().wrap(packet, 0, length);
+            DnsRecordCursor records = message.records();
+            int read = 0;
+            while (records.next()) {
+                // Names of the records read are complete or rejected, never read past the end
+                DnsNames.toString(message.buffer(), records.nameOffset());
+                if (records.isSrv()) {
+                    DnsNames.toString(message.buffer(), records.srvTargetOffset());
+                }
+                read++;
+            }
+            assertTrue("length " + length, read < 5);
+            assertTrue("length " + length, records.isMalformed());
+        }
+    }
+
+    @Test
+    public void messageIsReadWithinItsSlice() {
+        byte[] message = announcement();
+        byte[] packet = new byte[message.length + 20];
+        System.arraycopy(message, 0, packet, 10, message.length);
+        DnsMessage dnsMessage = new DnsMessage().wrap(packet, 10, message.length);
+        assertEquals(message.length, dnsMessage.length());
+        assertTrue(dnsMessage.buffer().isReadOnly());
+        DnsRecordCursor records = dnsMessage.records();
+        int read = 0;
+        while (records.next()) {
+            read++;
+        }
+        assertEquals(5, read);
+        assertFalse(records.isMalformed());
+    }
+}
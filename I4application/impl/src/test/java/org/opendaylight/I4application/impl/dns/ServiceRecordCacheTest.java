@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+
+/**
+ * Announcements, goodbyes and TTL expiry, with a 10 ms tick so TTLs of a
+ * second run out within the test.
+ */
+public class ServiceRecordCacheTest {
+
+    private static final String INSTANCE = "UA Local Discovery Server-host1._opcua-tcp._tcp.local";
+    private static final Ipv4Address HOST_A = new Ipv4Address("10.0.0.1");
+    private static final Ipv4Address HOST_B = new Ipv4Address("10.0.0.2");
+
+    private final List<String> removals = Collections.synchronizedList(new ArrayList<String>());
+    private final Semaphore removed = new Semaphore(0);
+    private ServiceRecordCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ServiceRecordCache(10, 64);
+        cache.registerListener((record, source, reason) -> {
+            removals.add(record.getInstanceName() + " " + reason);
+            removed.release();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    private static OpcUaServiceRecord record(String instance, int port, long ttl) {
+        return OpcUaServiceRecord.builder()
+                .setInstanceName(instance)
+                .setHost("host1.local")
+                .setPort(port)
+                .setAddress(HOST_A, 120)
+                .setPtrTtl(ttl)
+                .setSrvTtl(ttl)
+                .setTxtTtl(ttl)
+                .putTxt("path", "/")
+                .build();
+    }
+
+    @Test
+    public void reannouncementIsRefreshedOrUpdated() {
+        assertEquals(ServiceRecordCache.Outcome.ADDED, cache.put(record(INSTANCE, 4840, 120), HOST_A));
+        assertEquals(ServiceRecordCache.Outcome.REFRESHED, cache.put(record(INSTANCE, 4840, 120), HOST_A));
+        assertEquals(ServiceRecordCache.Outcome.UPDATED, cache.put(record(INSTANCE, 4841, 120), HOST_A));
+        assertEquals(ServiceRecordCache.Outcome.UPDATED, cache.put(record(INSTANCE, 4841, 120), HOST_B));
+        // DNS names compare ignoring case
+        assertEquals(ServiceRecordCache.Outcome.REFRESHED,
+                cache.put(record(INSTANCE.toUpperCase(), 4841, 120), HOST_B));
+        assertEquals(1, cache.size());
+        assertEquals(4841, cache.get(INSTANCE.toLowerCase()).getPort());
+        assertTrue(removals.isEmpty());
+    }
+
+    @Test
+    public void goodbyeRemovesInstanceRightAway() {
+        cache.put(record(INSTANCE, 4840, 120), HOST_A);
+        assertEquals(ServiceRecordCache.Outcome.REMOVED, cache.put(record(INSTANCE, 4840, 0), HOST_A));
+        assertNull(cache.get(INSTANCE));
+        assertEquals(Collections.singletonList(INSTANCE + " GOODBYE"), removals);
+
+        assertEquals(ServiceRecordCache.Outcome.UNKNOWN, cache.put(record(INSTANCE, 4840, 0), HOST_A));
+        assertEquals(1, removals.size());
+    }
+
+    @Test
+    public void goodbyeCancelsTheTtl() throws InterruptedException {
+        cache.put(record(INSTANCE, 4840, 1), HOST_A);
+        cache.goodbye(INSTANCE);
+        assertFalse(removed.tryAcquire(2, 1500, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(INSTANCE + " GOODBYE"), removals);
+    }
+
+    @Test
+    public void instanceExpiresAfterItsTtl() throws InterruptedException {
+        long start = System.nanoTime();
+        cache.put(record(INSTANCE, 4840, 1), HOST_A);
+        assertTrue(removed.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+        assertNull(cache.get(INSTANCE));
+        assertEquals(0, cache.size());
+        assertEquals(Collections.singletonList(INSTANCE + " TTL_EXPIRED"), removals);
+    }
+
+    @Test
+    public void reannouncementStartsTheTtlOver() throws InterruptedException {
+        cache.put(record(INSTANCE, 4840, 1), HOST_A);
+        Thread.sleep(600);
+        assertEquals(ServiceRecordCache.Outcome.REFRESHED, cache.put(record(INSTANCE, 4840, 1), HOST_A));
+        // Past the first TTL, within the second
+        Thread.sleep(600);
+        assertNotNull(cache.get(INSTANCE));
+        assertTrue(removals.isEmpty());
+
+        assertTrue(removed.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(INSTANCE + " TTL_EXPIRED"), removals);
+    }
+
+    @Test
+    public void removedHostTakesOnlyItsInstances() {
+        String other = "UA Local Discovery Server-host2._opcua-tcp._tcp.local";
+        cache.put(record(INSTANCE, 4840, 120), HOST_A);
+        cache.put(record(other, 4840, 120), HOST_B);
+        cache.removeHost(HOST_A);
+
+        assertFalse(cache.hasHost(HOST_A));
+        assertTrue(cache.hasHost(HOST_B));
+        assertNotNull(cache.get(other));
+        assertEquals(Collections.singletonList(INSTANCE + " HOST_REMOVED"), removals);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.flow;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class PendingFlowTableTest {
+
+    private static final int HOST_A = 0x0A000001;
+    private static final int HOST_B = 0x0A000002;
+    // Above 2^31, the key must not mix up signed and unsigned addresses
+    private static final int HOST_C = 0xC0A80001;
+
+    private PendingFlowTable table;
+
+    @After
+    public void tearDown() {
+        if (table != null) {
+            table.close();
+        }
+    }
+
+    @Test
+    public void installedPairIsForwardedInBothDirections() {
+        table = new PendingFlowTable(60000);
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_A, HOST_C));
+        table.complete(HOST_A, HOST_C, true);
+
+        assertEquals(PendingFlowTable.Admission.INSTALLED, table.admit(HOST_A, HOST_C));
+        assertEquals(PendingFlowTable.Admission.INSTALLED, table.admit(HOST_C, HOST_A));
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_A, HOST_B));
+        assertEquals(2, table.getInstallCount());
+        assertEquals(2, table.getInstalledHitCount());
+    }
+
+    @Test
+    public void failedInstallIsRetried() {
+        table = new PendingFlowTable(60000);
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_A, HOST_B));
+        table.complete(HOST_A, HOST_B, false);
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_B, HOST_A));
+
+        // A failure after an earlier success forgets the pair too
+        table.complete(HOST_B, HOST_A, true);
+        table.complete(HOST_B, HOST_A, false);
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_A, HOST_B));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void pairIsInstalledAgainAfterHoldTime() throws InterruptedException {
+        table = new PendingFlowTable(50);
+        table.admit(HOST_A, HOST_B);
+        table.complete(HOST_A, HOST_B, true);
+        assertEquals(PendingFlowTable.Admission.INSTALLED, table.admit(HOST_A, HOST_B));
+
+        Thread.sleep(100);
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_A, HOST_B));
+    }
+
+    @Test
+    public void sweepForgetsExpiredPairsOnly() throws InterruptedException {
+        table = new PendingFlowTable(60000);
+        table.complete(HOST_A, HOST_B, true);
+        table.sweep();
+        assertEquals(1, table.size());
+        table.close();
+
+        table = new PendingFlowTable(50);
+        table.complete(HOST_A, HOST_B, true);
+        Thread.sleep(100);
+        table.complete(HOST_A, HOST_C, true);
+        table.sweep();
+        assertEquals(1, table.size());
+        assertEquals(PendingFlowTable.Admission.INSTALLED, table.admit(HOST_C, HOST_A));
+        assertEquals(PendingFlowTable.Admission.INSTALL, table.admit(HOST_B, HOST_A));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import org.junit.Test;
+
+/**
+ * Single threaded checks of the slot sequences and the overload policies.
+ */
+public class IngressRingBufferTest {
+
+    private static byte[] packet(int id) {
+        return new byte[] {(byte) id};
+    }
+
+    private static IngressRingBuffer ring(int capacity, IngressRingBuffer.OverloadPolicy policy) {
+        return new IngressRingBuffer(capacity, policy, Collections.<TrafficClass>emptySet());
+    }
+
+    /**
+     * Claim the next packet, check it and hand the slot back
+     */
+    private static void assertNext(IngressRingBuffer ring, byte[] expected, TrafficClass trafficClass) {
+        long seq = ring.claim();
+        assertTrue("ring is empty", seq >= 0);
+        PacketIn packetIn = ring.get(seq);
+        assertSame(expected, packetIn.getPayload());
+        assertEquals(trafficClass, packetIn.getTrafficClass());
+        ring.release(seq);
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, ring(2, IngressRingBuffer.OverloadPolicy.DROP_NEWEST).capacity());
+        assertEquals(8, ring(5, IngressRingBuffer.OverloadPolicy.DROP_NEWEST).capacity());
+        assertEquals(8, ring(8, IngressRingBuffer.OverloadPolicy.DROP_NEWEST).capacity());
+    }
+
+    @Test
+    public void claimOnEmptyRing() {
+        IngressRingBuffer ring = ring(4, IngressRingBuffer.OverloadPolicy.DROP_NEWEST);
+        assertEquals(-1, ring.claim());
+        assertEquals(0, ring.depth());
+    }
+
+    @Test
+    public void packetsKeepTheirOrderAcrossWrapAround() {
+        IngressRingBuffer ring = ring(4, IngressRingBuffer.OverloadPolicy.DROP_NEWEST);
+        int id = 0;
+        // 3 packets per round do not line up with the 4 slots, every slot is reused at every offset
+        for (int round = 0; round < 10; round++) {
+            byte[][] packets = new byte[3][];
+            for (int i = 0; i < packets.length; i++) {
+                packets[i] = packet(id++);
+                assertTrue(ring.offer(packets[i], null, TrafficClass.MDNS));
+            }
+            assertEquals(3, ring.depth());
+            for (byte[] packet : packets) {
+                assertNext(ring, packet, TrafficClass.MDNS);
+            }
+            assertEquals(-1, ring.claim());
+        }
+        assertEquals(0, ring.getDropCount(TrafficClass.MDNS));
+    }
+
+    @Test
+    public void releaseClearsTheSlot() {
+        IngressRingBuffer ring = ring(2, IngressRingBuffer.OverloadPolicy.DROP_NEWEST);
+        ring.offer(packet(0), null, TrafficClass.ARP);
+        long seq = ring.claim();
+        ring.release(seq);
+        assertNull(ring.get(seq).getPayload());
+        assertNull(ring.get(seq).getTrafficClass());
+    }
+
+    @Test
+    public void dropNewestKeepsQueuedPackets() {
+        IngressRingBuffer ring = ring(4, IngressRingBuffer.OverloadPolicy.DROP_NEWEST);
+        byte[][] packets = new byte[4][];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = packet(i);
+            assertTrue(ring.offer(packets[i], null, TrafficClass.MDNS));
+        }
+        assertFalse(ring.offer(packet(4), null, TrafficClass.IPV4));
+        assertEquals(1, ring.getDropCount(TrafficClass.IPV4));
+        assertEquals(0, ring.getDropCount(TrafficClass.MDNS));
+        assertEquals(4, ring.depth());
+
+        for (byte[] packet : packets) {
+            assertNext(ring, packet, TrafficClass.MDNS);
+        }
+        // A released slot takes packets again
+        byte[] next = packet(5);
+        assertTrue(ring.offer(next, null, TrafficClass.IPV4));
+        assertNext(ring, next, TrafficClass.IPV4);
+    }
+
+    @Test
+    public void dropOldestReplacesUnclaimedPacket() {
+        IngressRingBuffer ring = ring(4, IngressRingBuffer.OverloadPolicy.DROP_OLDEST);
+        byte[][] packets = new byte[6][];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = packet(i);
+            assertTrue(ring.offer(packets[i], null, i == 0 ? TrafficClass.ARP : TrafficClass.MDNS));
+        }
+        // Packets 0 and 1 made room, each counted against its own class
+        assertEquals(1, ring.getDropCount(TrafficClass.ARP));
+        assertEquals(1, ring.getDropCount(TrafficClass.MDNS));
+        assertEquals(4, ring.depth());
+        for (int i = 2; i < packets.length; i++) {
+            assertNext(ring, packets[i], TrafficClass.MDNS);
+        }
+        assertEquals(-1, ring.claim());
+    }
+
+    @Test
+    public void dropOldestLeavesClaimedPacketAlone() {
+        IngressRingBuffer ring = ring(4, IngressRingBuffer.OverloadPolicy.DROP_OLDEST);
+        byte[][] packets = new byte[4][];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = packet(i);
+            ring.offer(packets[i], null, TrafficClass.MDNS);
+        }
+        // A consumer holds the oldest slot, the offered packet is the one dropped
+        long held = ring.claim();
+        assertFalse(ring.offer(packet(4), null, TrafficClass.IPV4));
+        assertEquals(1, ring.getDropCount(TrafficClass.IPV4));
+        assertEquals(0, ring.getDropCount(TrafficClass.MDNS));
+        assertSame(packets[0], ring.get(held).getPayload());
+        ring.release(held);
+
+        for (int i = 1; i < packets.length; i++) {
+            assertNext(ring, packets[i], TrafficClass.MDNS);
+        }
+    }
+
+    @Test
+    public void shedByClassDropsSheddableClassFirst() {
+        IngressRingBuffer ring = new IngressRingBuffer(8, IngressRingBuffer.OverloadPolicy.SHED_BY_CLASS,
+                EnumSet.of(TrafficClass.IPV4));
+        // Below the threshold of 6 every class gets in
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(packet(i), null, TrafficClass.MDNS));
+        }
+        assertTrue(ring.offer(packet(5), null, TrafficClass.IPV4));
+
+        assertFalse(ring.offer(packet(6), null, TrafficClass.IPV4));
+        assertEquals(1, ring.getDropCount(TrafficClass.IPV4));
+        // Other classes fill the remaining slots, then drop as with DROP_NEWEST
+        assertTrue(ring.offer(packet(7), null, TrafficClass.MDNS));
+        assertTrue(ring.offer(packet(8), null, TrafficClass.ARP));
+        assertFalse(ring.offer(packet(9), null, TrafficClass.MDNS));
+        assertEquals(1, ring.getDropCount(TrafficClass.MDNS));
+        assertEquals(0, ring.getDropCount(TrafficClass.ARP));
+        assertEquals(8, ring.depth());
+
+        // Back under the threshold, sheddable packets are taken again
+        for (int i = 0; i < 3; i++) {
+            ring.release(ring.claim());
+        }
+        assertTrue(ring.offer(packet(10), null, TrafficClass.IPV4));
+        assertEquals(1, ring.getDropCount(TrafficClass.IPV4));
+    }
+}
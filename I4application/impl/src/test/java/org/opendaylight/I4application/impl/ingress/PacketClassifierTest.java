@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.ingress;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+
+public class PacketClassifierTest {
+
+    private static final int HOST = MdnsTestPackets.address(10, 0, 0, 1);
+    private static final int OTHER_HOST = MdnsTestPackets.address(10, 0, 0, 2);
+    private static final int CLIENT = OpcUaClientRegistry.DEFAULT_OPCUA_CLIENT_ADDR;
+
+    private final PacketClassifier classifier = new PacketClassifier(new OpcUaClientRegistry(new int[] {CLIENT}));
+
+    private static byte[] udp(int srcAddr, int dstAddr, int dstPort) {
+        return MdnsTestPackets.frame(srcAddr, dstAddr, 50000, dstPort, new byte[16]);
+    }
+
+    private static byte[] withProtocol(byte[] frame, int protocol) {
+        frame[23] = (byte) protocol;
+        return frame;
+    }
+
+    private static byte[] withEtherType(byte[] frame, int etherType) {
+        frame[12] = (byte) (etherType >>> 8);
+        frame[13] = (byte) etherType;
+        return frame;
+    }
+
+    @Test
+    public void mdnsIsUdpToTheGroup() {
+        assertEquals(TrafficClass.MDNS, classifier.classify(udp(HOST, PacketClassifier.MDNS_MULTICAST_ADDR, 5353)));
+        // TCP to the group is not mDNS
+        assertEquals(TrafficClass.IPV4, classifier.classify(
+                withProtocol(udp(HOST, PacketClassifier.MDNS_MULTICAST_ADDR, 5353), 6)));
+    }
+
+    @Test
+    public void igmpWhateverTheAddress() {
+        assertEquals(TrafficClass.IGMP, classifier.classify(withProtocol(udp(HOST, 0xE0000016, 0), 2)));
+        assertEquals(TrafficClass.IGMP, classifier.classify(withProtocol(udp(CLIENT, HOST, 0), 2)));
+    }
+
+    @Test
+    public void clientTrafficEitherWay() {
+        assertEquals(TrafficClass.OPCUA_CLIENT, classifier.classify(withProtocol(udp(CLIENT, HOST, 4840), 6)));
+        assertEquals(TrafficClass.OPCUA_CLIENT, classifier.classify(withProtocol(udp(HOST, CLIENT, 4840), 6)));
+        assertEquals(TrafficClass.IPV4, classifier.classify(withProtocol(udp(HOST, OTHER_HOST, 4840), 6)));
+    }
+
+    @Test
+    public void etherTypeComesFirst() {
+        assertEquals(TrafficClass.ARP, classifier.classify(
+                withEtherType(udp(HOST, PacketClassifier.MDNS_MULTICAST_ADDR, 5353), 0x0806)));
+        assertEquals(TrafficClass.OTHER, classifier.classify(
+                withEtherType(udp(HOST, PacketClassifier.MDNS_MULTICAST_ADDR, 5353), 0x86DD)));
+    }
+
+    @Test
+    public void framesTooShortForTheIpv4HeaderAreOther() {
+        byte[] frame = udp(HOST, PacketClassifier.MDNS_MULTICAST_ADDR, 5353);
+        assertEquals(TrafficClass.MDNS, classifier.classify(Arrays.copyOf(frame, 34)));
+        assertEquals(TrafficClass.OTHER, classifier.classify(Arrays.copyOf(frame, 33)));
+        assertEquals(TrafficClass.OTHER, classifier.classify(new byte[0]));
+        assertEquals(TrafficClass.OTHER, classifier.classify(null));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Compares BitBufferHelper with {@link LegacyBitBufferHelper} on random
+ * buffers, offsets and widths. Where the old code had a bug the inputs stay
+ * clear of it; the intended differences are pinned by tests of their own.
+ */
+public class BitBufferHelperTest {
+
+    private static final int ROUNDS = 20000;
+
+    private final Random random = new Random(0x4934L);
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return ceil(numBits / 8) bytes holding a random value of numBits bits, LSB aligned
+     */
+    private byte[] randomField(int numBits) {
+        byte[] field = randomBytes((numBits + 7) / 8);
+        field[0] &= (byte) BitBufferHelper.getLSBMask(numBits % 8 == 0 ? 8 : numBits % 8);
+        return field;
+    }
+
+    @Test
+    public void getBitsMatchesLegacy() throws BufferException {
+        for (int i = 0; i < ROUNDS; i++) {
+            byte[] data = randomBytes(1 + random.nextInt(24));
+            int numBits = 1 + random.nextInt(data.length * 8);
+            int startOffset = random.nextInt(data.length * 8 - numBits + 1);
+            assertArrayEquals("offset " + startOffset + " bits " + numBits,
+                    LegacyBitBufferHelper.getBits(data, startOffset, numBits),
+                    BitBufferHelper.getBits(data, startOffset, numBits));
+        }
+    }
+
+    @Test
+    public void getNumberOfLastBitsMatchesLegacy() {
+        for (int i = 0; i < ROUNDS; i++) {
+            byte[] data = randomBytes(8 + random.nextInt(8));
+            // The old toNumber failed on whole bytes and shifted an int past 32 bits
+            int numBits = 1 + random.nextInt(31);
+            if (numBits % 8 == 0) {
+                continue;
+            }
+            if (numBits < Short.SIZE) {
+                assertEquals(LegacyBitBufferHelper.getShort(data, numBits), BitBufferHelper.getShort(data, numBits));
+            }
+            assertEquals(LegacyBitBufferHelper.getInt(data, numBits), BitBufferHelper.getInt(data, numBits));
+            assertEquals(LegacyBitBufferHelper.getLong(data, numBits), BitBufferHelper.getLong(data, numBits));
+        }
+    }
+
+    @Test
+    public void getWholeNumbersMatchLegacy() {
+        for (int i = 0; i < ROUNDS; i++) {
+            // Up to a long, the old toNumber wrapped its shifts around for longer arrays
+            byte[] data = randomBytes(1 + random.nextInt(8));
+            assertEquals(LegacyBitBufferHelper.getByte(data), BitBufferHelper.getByte(data));
+            assertEquals(LegacyBitBufferHelper.getShort(data), BitBufferHelper.getShort(data));
+            assertEquals(LegacyBitBufferHelper.getInt(data), BitBufferHelper.getInt(data));
+            assertEquals(LegacyBitBufferHelper.getLong(data), BitBufferHelper.getLong(data));
+            assertEquals(LegacyBitBufferHelper.toNumber(data), BitBufferHelper.toNumber(data));
+        }
+    }
+
+    @Test
+    public void setBytesIntoZeroedBufferMatchesLegacy() throws BufferException {
+        for (int i = 0; i < ROUNDS; i++) {
+            int length = 1 + random.nextInt(24);
+            int numBits = 1 + random.nextInt(Math.min(length * 8, 64));
+            int startOffset = random.nextInt(length * 8 - numBits + 1);
+            // The old insertBits ran off the input for unaligned fields of whole bytes
+            if (startOffset % 8 != 0 && numBits % 8 == 0) {
+                continue;
+            }
+            byte[] input = randomField(numBits);
+            byte[] expected = new byte[length];
+            byte[] actual = new byte[length];
+            LegacyBitBufferHelper.setBytes(expected, input, startOffset, numBits);
+            BitBufferHelper.setBytes(actual, input, startOffset, numBits);
+            assertArrayEquals("offset " + startOffset + " bits " + numBits, expected, actual);
+        }
+    }
+
+    @Test
+    public void setByteIntoZeroedBufferMatchesLegacy() throws BufferException {
+        for (int i = 0; i < ROUNDS; i++) {
+            int length = 1 + random.nextInt(8);
+            int numBits = 1 + random.nextInt(8);
+            int startOffset = random.nextInt(length * 8 - numBits + 1);
+            if (startOffset % 8 != 0 && numBits == 8) {
+                continue;
+            }
+            byte input = randomField(numBits)[0];
+            byte[] expected = new byte[length];
+            byte[] actual = new byte[length];
+            LegacyBitBufferHelper.setByte(expected, input, startOffset, numBits);
+            BitBufferHelper.setByte(actual, input, startOffset, numBits);
+            assertArrayEquals("offset " + startOffset + " bits " + numBits, expected, actual);
+        }
+    }
+
+    @Test
+    public void shiftBitsMatchLegacy() {
+        for (int i = 0; i < ROUNDS; i++) {
+            int numBits = 1 + random.nextInt(64);
+            byte[] field = randomField(numBits);
+            assertArrayEquals(LegacyBitBufferHelper.shiftBitsToMSB(field, numBits),
+                    BitBufferHelper.shiftBitsToMSB(field, numBits));
+            // Any array length, longer ones move right as a whole in both
+            byte[] bytes = randomBytes(1 + random.nextInt(16));
+            int shiftBits = 1 + random.nextInt(bytes.length * 8);
+            assertArrayEquals(LegacyBitBufferHelper.shiftBitsToLSB(bytes, shiftBits),
+                    BitBufferHelper.shiftBitsToLSB(bytes, shiftBits));
+        }
+    }
+
+    @Test
+    public void toByteArrayMatchesLegacy() {
+        for (int i = 0; i < ROUNDS; i++) {
+            long value = random.nextLong();
+            assertArrayEquals(LegacyBitBufferHelper.toByteArray((byte) value),
+                    BitBufferHelper.toByteArray((byte) value));
+            assertArrayEquals(LegacyBitBufferHelper.toByteArray((short) value),
+                    BitBufferHelper.toByteArray((short) value));
+            assertArrayEquals(LegacyBitBufferHelper.toByteArray((int) value),
+                    BitBufferHelper.toByteArray((int) value));
+            assertArrayEquals(LegacyBitBufferHelper.toByteArray(value), BitBufferHelper.toByteArray(value));
+            // The old code looked at leading zero bytes, a short holding numBits bits is left alone
+            int numBits = 9 + random.nextInt(7);
+            Short input = (short) (value & BitBufferHelper.getLSBMask(numBits));
+            assertArrayEquals(LegacyBitBufferHelper.toByteArray(input, numBits),
+                    BitBufferHelper.toByteArray(input, numBits));
+        }
+    }
+
+    @Test
+    public void masksMatchLegacy() {
+        for (int numBits = 0; numBits <= 8; numBits++) {
+            assertEquals(LegacyBitBufferHelper.getMSBMask(numBits), BitBufferHelper.getMSBMask(numBits));
+        }
+        for (int numBits = 0; numBits < 32; numBits++) {
+            assertEquals(LegacyBitBufferHelper.getLSBMask(numBits), BitBufferHelper.getLSBMask(numBits));
+        }
+    }
+
+    @Test
+    public void setByteOverwritesTheField() throws BufferException {
+        byte[] data = {(byte) 0xFF, (byte) 0xFF};
+        BitBufferHelper.setByte(data, (byte) 0x05, 5, 4);
+        // Bits 5 to 8 become 0101, the old code ORed them into the ones
+        assertArrayEquals(new byte[] {(byte) 0xFA, (byte) 0xFF}, data);
+    }
+
+    @Test
+    public void setByteWritesTheLowBits() throws BufferException {
+        byte[] data = new byte[1];
+        BitBufferHelper.setByte(data, (byte) 0xE5, 0, 3);
+        // Low bits 101, the old code wrote the high bits 111 of an input wider than the field
+        assertArrayEquals(new byte[] {(byte) 0xA0}, data);
+    }
+
+    @Test
+    public void shiftBitsToLSBMovesTheWholeArray() {
+        assertArrayEquals(new byte[] {0x07, 0x71},
+                BitBufferHelper.shiftBitsToLSB(new byte[] {0x77, 0x10}, 12));
+        // Three bytes for 12 bits, the bits end four bits short of the right end
+        assertArrayEquals(new byte[] {0x07, 0x71, 0x00},
+                BitBufferHelper.shiftBitsToLSB(new byte[] {0x77, 0x10, 0x00}, 12));
+    }
+}
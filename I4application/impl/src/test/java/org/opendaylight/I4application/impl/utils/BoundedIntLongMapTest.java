@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BoundedIntLongMapTest {
+
+    private static final int SUBNET = 0x0A000000;
+
+    @Test
+    public void valuesAreKeptPerKey() {
+        BoundedIntLongMap map = new BoundedIntLongMap(16);
+        map.put(SUBNET | 1, -5L);
+        map.put(SUBNET | 2, Long.MAX_VALUE);
+        map.put(SUBNET | 1, 7L);
+
+        assertEquals(7L, map.get(SUBNET | 1, 0));
+        assertEquals(Long.MAX_VALUE, map.get(SUBNET | 2, 0));
+        assertEquals(-1L, map.get(SUBNET | 3, -1L));
+        assertEquals(2, map.size());
+
+        map.remove(SUBNET | 1);
+        assertFalse(map.containsKey(SUBNET | 1));
+        assertEquals(1, map.size());
+        // Keys after a removed one in the same bucket are still found
+        assertTrue(map.containsKey(SUBNET | 2));
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(4, new BoundedIntLongMap(1).capacity());
+        assertEquals(4096, new BoundedIntLongMap(4096).capacity());
+        assertEquals(8192, new BoundedIntLongMap(4097).capacity());
+    }
+
+    @Test
+    public void fullMapEvictsLeastRecentlyWrittenKey() {
+        // A single bucket, every key competes for the same four slots
+        BoundedIntLongMap map = new BoundedIntLongMap(4);
+        for (int i = 1; i <= 4; i++) {
+            map.put(SUBNET | i, i);
+        }
+        // Rewriting key 1 makes key 2 the oldest
+        map.put(SUBNET | 1, 10);
+        map.put(SUBNET | 5, 5);
+
+        assertFalse(map.containsKey(SUBNET | 2));
+        assertEquals(10, map.get(SUBNET | 1, 0));
+        assertEquals(3, map.get(SUBNET | 3, 0));
+        assertEquals(5, map.get(SUBNET | 5, 0));
+        assertEquals(4, map.size());
+        assertEquals(1, map.getEvictionCount());
+    }
+
+    @Test
+    public void manyKeysNeverGrowTheMap() {
+        BoundedIntLongMap map = new BoundedIntLongMap(64);
+        for (int i = 1; i <= 100000; i++) {
+            map.put(SUBNET + i, i);
+            // The key just written is always kept
+            assertEquals(i, map.get(SUBNET + i, 0));
+        }
+        assertEquals(64, map.size());
+        assertEquals(100000 - 64, map.getEvictionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroKeyIsRefused() {
+        new BoundedIntLongMap(4).put(0, 1L);
+    }
+}
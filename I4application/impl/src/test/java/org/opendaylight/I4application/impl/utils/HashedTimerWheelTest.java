@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedTimerWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final List<String> expired = Collections.synchronizedList(new ArrayList<String>());
+    private HashedTimerWheel<String> timerWheel;
+
+    @After
+    public void tearDown() {
+        if (timerWheel != null) {
+            timerWheel.close();
+        }
+    }
+
+    private HashedTimerWheel<String> timerWheel(int wheelSize, CountDownLatch done) {
+        timerWheel = new HashedTimerWheel<>("timer-wheel-test", TICK_MILLIS, wheelSize, item -> {
+            expired.add(item);
+            done.countDown();
+        });
+        return timerWheel;
+    }
+
+    @Test
+    public void timeoutNeverFiresEarly() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timerWheel(8, done).schedule("a", 50);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertEquals(Collections.singletonList("a"), expired);
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotFire() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        HashedTimerWheel<String> wheel = timerWheel(8, done);
+        HashedTimerWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 20);
+        HashedTimerWheel.Timeout<String> fired = wheel.schedule("fired", 40);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(fired.cancel());
+        Thread.sleep(50);
+        assertEquals(Collections.singletonList("fired"), expired);
+    }
+
+    @Test
+    public void timeoutsLongerThanOneRoundWaitForTheirRound() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(3);
+        HashedTimerWheel<String> wheel = timerWheel(4, done);
+        // 4 buckets of 10 ms, the later timeouts share buckets with the first one
+        wheel.schedule("late", 130);
+        wheel.schedule("later", 210);
+        wheel.schedule("first", 10);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "late", "later"), expired);
+    }
+}
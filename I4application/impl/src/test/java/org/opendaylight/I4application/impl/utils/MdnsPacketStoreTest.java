@@ -0,0 +1,315 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+
+/**
+ * Budgets, eviction order, repeats, instance replacement and slab exhaustion of
+ * the packet store.
+ */
+public class MdnsPacketStoreTest {
+
+    private static final int HOST_A = 0x0A000001;
+    private static final int HOST_B = 0x0A000002;
+    private static final int HOST_C = 0x0A000003;
+    private static final int HOST_D = 0x0A000004;
+    private static final String INSTANCE = "UA Local Discovery Server._opcua-tcp._tcp.local";
+    private static final String OTHER_INSTANCE = "UA Server._opcua-tcp._tcp.local";
+    // One slot of the 12 KiB class per arena
+    private static final int LARGE = 9000;
+
+    private static byte[] packet(int length, int fill) {
+        byte[] packet = new byte[length];
+        Arrays.fill(packet, (byte) fill);
+        return packet;
+    }
+
+    private static byte[] announcement(int server) {
+        return MdnsTestPackets.frame(HOST_A, MdnsTestPackets.announcement("UA Local Discovery Server-host" + server,
+                "host" + server, 4840 + server, HOST_A, 120));
+    }
+
+    private static MdnsPacketStore store(int maxPacketsPerHost, long maxBytes, int arenas) {
+        int arenaBytes = SlabAllocator.maxSlotSize();
+        return new MdnsPacketStore(maxPacketsPerHost, maxBytes,
+                new SlabAllocator(arenaBytes, (long) arenaBytes * arenas, 0));
+    }
+
+    private static void add(MdnsPacketStore store, int host, byte[] packet) {
+        store.append(host, INSTANCE, Collections.singletonList(packet));
+    }
+
+    private static void assertPackets(MdnsPacketStore store, int host, byte[]... expected) {
+        List<ByteBuffer> stored = store.get(host);
+        assertEquals(expected.length, stored.size());
+        for (int i = 0; i < expected.length; i++) {
+            ByteBuffer buffer = stored.get(i).duplicate();
+            byte[] packet = new byte[buffer.remaining()];
+            buffer.get(packet);
+            assertArrayEquals(expected[i], packet);
+        }
+    }
+
+    @Test
+    public void oldestPacketOfHostMakesRoom() {
+        MdnsPacketStore store = store(2, 1024 * 1024, 4);
+        for (int i = 1; i <= 3; i++) {
+            add(store, HOST_A, packet(100, i));
+        }
+        assertPackets(store, HOST_A, packet(100, 2), packet(100, 3));
+        assertEquals(1, store.getEvictedPacketCount());
+        assertEquals(200, store.getByteCount());
+    }
+
+    @Test
+    public void byteBudgetEvictsLeastRecentlyUsedHost() {
+        MdnsPacketStore store = store(4, 300, 4);
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_B, packet(100, 2));
+        add(store, HOST_C, packet(100, 3));
+        // Reading A makes B the least recently used host
+        store.get(HOST_A);
+        add(store, HOST_D, packet(100, 4));
+
+        assertFalse(store.contains(HOST_B));
+        assertTrue(store.contains(HOST_A));
+        assertTrue(store.contains(HOST_C));
+        assertTrue(store.contains(HOST_D));
+        assertEquals(1, store.getEvictedHostCount());
+        assertEquals(300, store.getByteCount());
+        assertEquals(1, store.getHitCount());
+    }
+
+    @Test
+    public void hostIsDroppedWholeForTheBudget() {
+        MdnsPacketStore store = store(4, 300, 4);
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_A, packet(100, 2));
+        add(store, HOST_B, packet(100, 3));
+        add(store, HOST_C, packet(100, 4));
+
+        // One packet of A would have done, A goes with both
+        assertFalse(store.contains(HOST_A));
+        assertEquals(2, store.getEvictedPacketCount());
+        assertEquals(200, store.getByteCount());
+    }
+
+    @Test
+    public void packetOverTheBudgetIsRejected() {
+        MdnsPacketStore store = store(4, 300, 4);
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_B, packet(301, 2));
+        assertEquals(1, store.getRejectedCount());
+        assertTrue(store.contains(HOST_A));
+        assertFalse(store.contains(HOST_B));
+    }
+
+    @Test
+    public void handedOutListDoesNotChange() {
+        MdnsPacketStore store = store(1, 1024 * 1024, 4);
+        add(store, HOST_A, packet(100, 1));
+        List<ByteBuffer> stored = store.get(HOST_A);
+        add(store, HOST_A, packet(200, 2));
+        store.clear();
+
+        assertTrue(stored.get(0).isReadOnly());
+        assertEquals(100, stored.get(0).remaining());
+        assertEquals(1, stored.get(0).get(99));
+        assertNull(store.get(HOST_A));
+        assertEquals(1, store.getMissCount());
+        assertEquals(0, store.getPacketCount());
+    }
+
+    @Test
+    public void repeatsAreCountedNotKept() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 4);
+        byte[] first = announcement(1);
+        byte[] repeat = first.clone();
+        // A new DNS transaction ID in an otherwise equal frame
+        repeat[MdnsTestPackets.payloadOffset()] = 0x12;
+        byte[] other = announcement(2);
+        store.append(HOST_A, INSTANCE, Arrays.asList(first, other));
+        store.append(HOST_A, INSTANCE, Arrays.asList(repeat, first));
+
+        assertPackets(store, HOST_A, first, other);
+        assertArrayEquals(new int[] {3, 1}, store.getRepeatCounts(HOST_A));
+        assertEquals(2, store.getDuplicateCount());
+        assertEquals(first.length + other.length, store.getByteCount());
+    }
+
+    @Test
+    public void recordedRepeatsOnlyCountKeptPackets() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 4);
+        add(store, HOST_A, packet(100, 1));
+        store.recordRepeats(HOST_A, Arrays.asList(packet(100, 1), packet(100, 2)));
+        store.recordRepeats(HOST_B, Collections.singletonList(packet(100, 1)));
+
+        assertPackets(store, HOST_A, packet(100, 1));
+        assertArrayEquals(new int[] {2}, store.getRepeatCounts(HOST_A));
+        assertFalse(store.contains(HOST_B));
+        assertEquals(0, store.getRepeatCounts(HOST_B).length);
+    }
+
+    @Test
+    public void repeatKeepsHostRecentlyUsed() {
+        MdnsPacketStore store = store(4, 300, 4);
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_B, packet(100, 2));
+        add(store, HOST_C, packet(100, 3));
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_D, packet(100, 4));
+
+        assertTrue(store.contains(HOST_A));
+        assertFalse(store.contains(HOST_B));
+    }
+
+    @Test
+    public void changedInstanceReplacesOnlyItsOwnPackets() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 4);
+        store.append(HOST_A, INSTANCE, Collections.singletonList(packet(100, 1)));
+        store.append(HOST_A, OTHER_INSTANCE, Collections.singletonList(packet(100, 2)));
+        store.replace(HOST_A, INSTANCE, Collections.singletonList(packet(100, 3)));
+
+        // The other instance keeps its packet, the replaced one comes last
+        assertPackets(store, HOST_A, packet(100, 2), packet(100, 3));
+        assertTrue(store.contains(HOST_A, INSTANCE.toUpperCase()));
+        assertEquals(2, store.getPacketCount());
+        assertEquals(200, store.getByteCount());
+    }
+
+    @Test
+    public void movedInstanceTakesItsPacketsAlong() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 4);
+        store.append(HOST_A, INSTANCE, Collections.singletonList(packet(100, 1)));
+        store.replace(HOST_B, INSTANCE, Collections.singletonList(packet(100, 2)));
+
+        // A is left without packets and goes
+        assertFalse(store.contains(HOST_A));
+        assertFalse(store.contains(HOST_A, INSTANCE));
+        assertPackets(store, HOST_B, packet(100, 2));
+        assertEquals(1, store.getHostCount());
+    }
+
+    @Test
+    public void removedInstanceLeavesOtherInstancesOfItsHost() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 4);
+        store.append(HOST_A, INSTANCE, Collections.singletonList(packet(100, 1)));
+        store.append(HOST_A, OTHER_INSTANCE, Collections.singletonList(packet(100, 2)));
+        store.removeInstance(HOST_A, INSTANCE);
+        assertPackets(store, HOST_A, packet(100, 2));
+        assertFalse(store.contains(HOST_A, INSTANCE));
+
+        store.removeInstance(HOST_A, OTHER_INSTANCE);
+        assertFalse(store.contains(HOST_A));
+        assertEquals(0, store.getByteCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slabHoldingFreedSlotsBackIsRefused() {
+        new MdnsPacketStore(4, 1024, new SlabAllocator(SlabAllocator.maxSlotSize(),
+                SlabAllocator.maxSlotSize(), 1000));
+    }
+
+    @Test
+    public void fullSlabEvictsLeastRecentlyUsedHost() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 2);
+        add(store, HOST_A, packet(LARGE, 1));
+        add(store, HOST_B, packet(LARGE, 2));
+        // Reading A makes B the least recently used host
+        store.get(HOST_A);
+        add(store, HOST_C, packet(LARGE, 3));
+
+        assertFalse(store.contains(HOST_B));
+        assertPackets(store, HOST_A, packet(LARGE, 1));
+        assertPackets(store, HOST_C, packet(LARGE, 3));
+        assertEquals(1, store.getEvictedHostCount());
+        assertEquals(0, store.getRejectedCount());
+        assertEquals(2 * LARGE, store.getByteCount());
+    }
+
+    @Test
+    public void fullSlabMakesRoomForAnotherSizeClass() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 2);
+        add(store, HOST_A, packet(LARGE, 1));
+        add(store, HOST_B, packet(LARGE, 2));
+        // Both arenas hold large slots, the small packet takes over A's arena
+        add(store, HOST_C, packet(100, 3));
+
+        assertFalse(store.contains(HOST_A));
+        assertPackets(store, HOST_B, packet(LARGE, 2));
+        assertPackets(store, HOST_C, packet(100, 3));
+        assertEquals(0, store.getRejectedCount());
+        assertEquals(2L * SlabAllocator.maxSlotSize(), store.getReservedBytes());
+    }
+
+    @Test
+    public void fullSlabDropsOwnOldestPacketLast() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 1);
+        add(store, HOST_A, packet(LARGE, 1));
+        add(store, HOST_A, packet(LARGE, 2));
+        assertPackets(store, HOST_A, packet(LARGE, 2));
+        assertEquals(1, store.getEvictedPacketCount());
+        assertEquals(0, store.getEvictedHostCount());
+        assertEquals(0, store.getRejectedCount());
+    }
+
+    @Test
+    public void packetLargerThanAnySlotIsRejected() {
+        MdnsPacketStore store = store(4, 1024 * 1024, 2);
+        add(store, HOST_A, packet(LARGE, 1));
+        add(store, HOST_B, packet(SlabAllocator.maxSlotSize() + 1, 2));
+
+        // Nothing is dropped for it and the host is not left behind empty
+        assertEquals(1, store.getRejectedCount());
+        assertFalse(store.contains(HOST_B));
+        assertNull(store.get(HOST_B));
+        assertTrue(store.contains(HOST_A));
+        assertEquals(1, store.getHostCount());
+        assertEquals(1, store.getPacketCount());
+    }
+
+    @Test
+    public void snapshotKeepsPacketsRepeatsAndOrder() throws IOException {
+        MdnsPacketStore store = store(4, 300, 4);
+        add(store, HOST_A, packet(100, 1));
+        add(store, HOST_A, packet(100, 1));
+        store.append(HOST_B, OTHER_INSTANCE, Collections.singletonList(packet(100, 2)));
+        add(store, HOST_C, packet(100, 3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+
+        MdnsPacketStore restored = store(4, 300, 4);
+        assertEquals(2, restored.readFrom(ByteBuffer.wrap(bytes.toByteArray()), host -> host != HOST_C));
+        assertArrayEquals(new int[] {2}, restored.getRepeatCounts(HOST_A));
+        assertTrue(restored.contains(HOST_B, OTHER_INSTANCE));
+        assertFalse(restored.contains(HOST_C));
+        assertEquals(200, restored.getByteCount());
+
+        // A was the least recently used host when written and goes first again
+        add(restored, HOST_C, packet(100, 3));
+        add(restored, HOST_D, packet(100, 4));
+        assertFalse(restored.contains(HOST_A));
+        assertPackets(restored, HOST_B, packet(100, 2));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+import org.opendaylight.I4application.impl.MdnsTestPackets;
+
+public class PacketFingerprintTest {
+
+    // IP identification and checksum, UDP checksum, DNS transaction ID
+    private static final int[] VARYING_FIELDS = {18, 24, 40, 42};
+
+    private static byte[] frame() {
+        int server = MdnsTestPackets.address(10, 0, 0, 1);
+        return MdnsTestPackets.frame(server, MdnsTestPackets.announcement("UA Local Discovery Server-host1",
+                "host1", 4840, server, 120));
+    }
+
+    private static boolean isVarying(int offset) {
+        for (int field : VARYING_FIELDS) {
+            if (offset == field || offset == field + 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void repeatsWithNewIdsAndChecksumsMatch() {
+        byte[] frame = frame();
+        byte[] repeat = frame.clone();
+        for (int field : VARYING_FIELDS) {
+            repeat[field] = (byte) 0xAB;
+            repeat[field + 1] = (byte) 0xCD;
+        }
+        assertEquals(PacketFingerprint.of(frame), PacketFingerprint.of(repeat));
+    }
+
+    @Test
+    public void anyOtherChangedByteIsTold() {
+        byte[] frame = frame();
+        long fingerprint = PacketFingerprint.of(frame);
+        for (int offset = 0; offset < frame.length; offset++) {
+            if (isVarying(offset)) {
+                continue;
+            }
+            byte[] changed = frame.clone();
+            changed[offset] ^= 0x01;
+            assertNotEquals("offset " + offset, fingerprint, PacketFingerprint.of(changed));
+        }
+        assertNotEquals(fingerprint, PacketFingerprint.of(Arrays.copyOf(frame, frame.length + 1)));
+    }
+
+    @Test
+    public void otherFramesAreHashedWhole() {
+        byte[] frame = frame();
+        // Not IPv4, the IP identification counts
+        frame[12] = (byte) 0x86;
+        frame[13] = (byte) 0xDD;
+        byte[] changed = frame.clone();
+        changed[18] ^= 0x01;
+        assertNotEquals(PacketFingerprint.of(frame), PacketFingerprint.of(changed));
+
+        // Too short for the fields, no exception
+        PacketFingerprint.of(Arrays.copyOf(frame(), 20));
+        PacketFingerprint.of(Arrays.copyOf(frame(), 43));
+        PacketFingerprint.of(new byte[0]);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Slot reuse, quarantine and arenas moving between size classes, with arenas
+ * as small as the largest slot so a few packets fill the allocator.
+ */
+public class SlabAllocatorTest {
+
+    private static final int ARENA = SlabAllocator.maxSlotSize();
+
+    private static byte[] packet(int length, int fill) {
+        byte[] packet = new byte[length];
+        Arrays.fill(packet, (byte) fill);
+        return packet;
+    }
+
+    private static byte[] read(SlabAllocator allocator, long handle) {
+        ByteBuffer view = allocator.view(handle);
+        byte[] data = new byte[view.remaining()];
+        view.get(data);
+        return data;
+    }
+
+    @Test
+    public void viewReadsBackWhatWasAllocated() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA * 4, 0);
+        byte[] small = packet(100, 1);
+        byte[] large = packet(ARENA, 2);
+        long smallHandle = allocator.allocate(small);
+        long largeHandle = allocator.allocate(large);
+
+        assertEquals(100, SlabAllocator.length(smallHandle));
+        assertArrayEquals(small, read(allocator, smallHandle));
+        assertArrayEquals(large, read(allocator, largeHandle));
+        assertTrue(allocator.view(smallHandle).isReadOnly());
+        // Each packet takes a whole slot of its size class
+        assertEquals(128 + ARENA, allocator.getUsedBytes());
+        assertEquals(2 * ARENA, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void emptyAndOversizedPacketsAreRejected() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA, 0);
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(new byte[0]));
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(new byte[ARENA + 1]));
+        assertEquals(0, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void freedSlotIsReusedAfterReclaimTime() throws InterruptedException {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA, 50);
+        long first = allocator.allocate(packet(ARENA, 1));
+        allocator.free(first);
+        assertEquals(1, allocator.getQuarantinedSlots());
+        assertEquals(0, allocator.getUsedSlots());
+        // The only slot is still held back
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(packet(ARENA, 2)));
+
+        Thread.sleep(100);
+        long second = allocator.allocate(packet(ARENA, 2));
+        assertEquals(first, second);
+        assertEquals(0, allocator.getQuarantinedSlots());
+        assertArrayEquals(packet(ARENA, 2), read(allocator, second));
+    }
+
+    @Test
+    public void unusedArenaMovesToAnotherSizeClass() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA, 0);
+        long small = allocator.allocate(packet(100, 1));
+        assertFalse(small == SlabAllocator.NO_HANDLE);
+        // The one arena belongs to the 128 byte class
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(packet(200, 2)));
+
+        allocator.free(small);
+        long larger = allocator.allocate(packet(200, 2));
+        assertFalse(larger == SlabAllocator.NO_HANDLE);
+        assertArrayEquals(packet(200, 2), read(allocator, larger));
+        assertEquals(ARENA, allocator.getReservedBytes());
+
+        // And back again, the 128 byte class gets a fresh arena at the index it gave up
+        allocator.free(larger);
+        long again = allocator.allocate(packet(100, 3));
+        assertArrayEquals(packet(100, 3), read(allocator, again));
+        assertEquals(ARENA, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void arenaWithSlotInUseIsKept() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA, 0);
+        long first = allocator.allocate(packet(100, 1));
+        long second = allocator.allocate(packet(100, 2));
+        allocator.free(first);
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(packet(200, 3)));
+        assertArrayEquals(packet(100, 2), read(allocator, second));
+        // The freed slot is still handed out in its own class
+        assertEquals(first, allocator.allocate(packet(100, 4)));
+    }
+
+    @Test
+    public void quarantinedSlotKeepsItsArena() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA, 60000);
+        allocator.free(allocator.allocate(packet(100, 1)));
+        assertEquals(SlabAllocator.NO_HANDLE, allocator.allocate(packet(200, 2)));
+        assertEquals(ARENA, allocator.getReservedBytes());
+    }
+
+    @Test
+    public void clearDropsEveryArena() {
+        SlabAllocator allocator = new SlabAllocator(ARENA, ARENA * 2, 0);
+        allocator.allocate(packet(100, 1));
+        allocator.allocate(packet(ARENA, 2));
+        allocator.clear();
+        assertEquals(0, allocator.getReservedBytes());
+        assertEquals(0, allocator.getUsedSlots());
+        assertEquals(0, allocator.getUsedBytes());
+        allocator.allocate(packet(ARENA, 3));
+        allocator.allocate(packet(ARENA, 4));
+        assertEquals(2 * ARENA, allocator.getReservedBytes());
+    }
+}
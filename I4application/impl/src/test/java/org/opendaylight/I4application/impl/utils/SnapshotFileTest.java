@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.impl.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trips through a snapshot file in a temporary directory, and files
+ * which must read as no snapshot at all.
+ */
+public class SnapshotFileTest {
+
+    private static final int MAGIC = 0x54455354;
+    // Magic, version, payload length, CRC32
+    private static final int HEADER_LENGTH = 16;
+
+    private Path directory;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-file-test");
+        path = directory.resolve("state.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(directory.resolve("state.bin.tmp"));
+        Files.deleteIfExists(directory);
+    }
+
+    private static byte[] payload() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(1234567890123L);
+        SnapshotFile.writeString(out, "UA Local Discovery Server-höst1");
+        SnapshotFile.writeString(out, null);
+        SnapshotFile.writeBytes(out, new byte[] {1, 2, 3});
+        SnapshotFile.writeBytes(out, new byte[0]);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] rewrite(int offset, int value) throws IOException {
+        byte[] file = Files.readAllBytes(path);
+        file[offset] = (byte) value;
+        Files.write(path, file);
+        return file;
+    }
+
+    @Test
+    public void payloadSurvivesRoundTrip() throws IOException {
+        SnapshotFile file = new SnapshotFile(path, MAGIC, 1);
+        assertTrue(file.write(payload()));
+        assertFalse(Files.exists(directory.resolve("state.bin.tmp")));
+
+        ByteBuffer in = file.read();
+        assertTrue(in.isReadOnly());
+        assertEquals(1234567890123L, in.getLong());
+        assertEquals("UA Local Discovery Server-höst1", SnapshotFile.readString(in));
+        assertNull(SnapshotFile.readString(in));
+        assertArrayEquals(new byte[] {1, 2, 3}, SnapshotFile.readBytes(in));
+        assertArrayEquals(new byte[0], SnapshotFile.readBytes(in));
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void laterWriteReplacesFile() throws IOException {
+        SnapshotFile file = new SnapshotFile(path, MAGIC, 1);
+        file.write(payload());
+        file.write(new byte[] {7});
+        ByteBuffer in = file.read();
+        assertEquals(1, in.remaining());
+        assertEquals(7, in.get());
+    }
+
+    @Test
+    public void corruptedPayloadFailsChecksum() throws IOException {
+        SnapshotFile file = new SnapshotFile(path, MAGIC, 1);
+        byte[] payload = payload();
+        file.write(payload);
+        rewrite(HEADER_LENGTH + payload.length - 1, payload[payload.length - 1] ^ 0x01);
+        assertNull(file.read());
+    }
+
+    @Test
+    public void corruptedChecksumIsRejected() throws IOException {
+        SnapshotFile file = new SnapshotFile(path, MAGIC, 1);
+        file.write(payload());
+        byte[] written = Files.readAllBytes(path);
+        rewrite(HEADER_LENGTH - 1, written[HEADER_LENGTH - 1] ^ 0x01);
+        assertNull(file.read());
+    }
+
+    @Test
+    public void fileCutShortIsRejected() throws IOException {
+        SnapshotFile file = new SnapshotFile(path, MAGIC, 1);
+        file.write(payload());
+        byte[] written = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(written, written.length - 1));
+        assertNull(file.read());
+        Files.write(path, Arrays.copyOf(written, HEADER_LENGTH - 1));
+        assertNull(file.read());
+    }
+
+    @Test
+    public void otherVersionOrMagicIsNotRead() throws IOException {
+        new SnapshotFile(path, MAGIC, 1).write(payload());
+        assertNull(new SnapshotFile(path, MAGIC, 2).read());
+        assertNull(new SnapshotFile(path, MAGIC + 1, 1).read());
+    }
+
+    @Test
+    public void missingFileReadsAsNone() {
+        assertNull(new SnapshotFile(path, MAGIC, 1).read());
+    }
+
+    @Test
+    public void arrayLongerThanPayloadIsRejected() {
+        ByteBuffer in = ByteBuffer.allocate(8);
+        in.putInt(5).putInt(0).flip();
+        try {
+            SnapshotFile.readBytes(in);
+            fail("array past the end was read");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads classic libpcap capture files of Ethernet frames, as written by tcpdump
+ * and Wireshark with "pcap" format, in either byte order and with micro or
+ * nanosecond timestamps. pcapng files are not read, convert them with
+ * editcap -F pcap.
+ */
+public final class PcapReader implements AutoCloseable {
+
+    private static final int MAGIC_MICROS = 0xA1B2C3D4;
+    private static final int MAGIC_NANOS = 0xA1B23C4D;
+    private static final int LINKTYPE_ETHERNET = 1;
+    private static final int GLOBAL_HEADER_LENGTH = 24;
+    private static final int RECORD_HEADER_LENGTH = 16;
+    // Largest snapshot length libpcap writes
+    private static final int MAX_CAPTURE_LENGTH = 262144;
+
+    private final DataInputStream in;
+    private final ByteBuffer header = ByteBuffer.allocate(GLOBAL_HEADER_LENGTH);
+    private final boolean nanos;
+
+    private long timestampNanos;
+    private byte[] frame;
+    private int originalLength;
+
+    /**
+     * @throws IOException if the file can not be read or is not an Ethernet pcap file
+     */
+    public PcapReader(Path path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        try {
+            in.readFully(header.array(), 0, GLOBAL_HEADER_LENGTH);
+            int magic = header.getInt(0);
+            if (magic != MAGIC_MICROS && magic != MAGIC_NANOS) {
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                magic = header.getInt(0);
+            }
+            if (magic != MAGIC_MICROS && magic != MAGIC_NANOS) {
+                throw new IOException(path + " is not a pcap file");
+            }
+            this.nanos = magic == MAGIC_NANOS;
+            int linkType = header.getInt(20);
+            if (linkType != LINKTYPE_ETHERNET) {
+                throw new IOException(path + " has link type " + linkType + ", only Ethernet is replayed");
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Move to the next frame
+     * @return false at the end of the file
+     * @throws IOException on a read error or a record cut short
+     */
+    public boolean next() throws IOException {
+        try {
+            in.readFully(header.array(), 0, RECORD_HEADER_LENGTH);
+        } catch (EOFException e) {
+            return false;
+        }
+        long seconds = header.getInt(0) & 0xFFFFFFFFL;
+        long fraction = header.getInt(4) & 0xFFFFFFFFL;
+        int capturedLength = header.getInt(8);
+        originalLength = header.getInt(12);
+        if (capturedLength < 0 || capturedLength > MAX_CAPTURE_LENGTH) {
+            throw new IOException("Corrupt pcap record of " + capturedLength + " bytes");
+        }
+        timestampNanos = seconds * 1_000_000_000L + (nanos ? fraction : fraction * 1000);
+        frame = new byte[capturedLength];
+        in.readFully(frame);
+        return true;
+    }
+
+    /**
+     * @return capture time of the frame, nanoseconds since the epoch
+     */
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the frame as captured, shorter than {@link #originalLength()} if the capture cut it
+     */
+    public byte[] frame() {
+        return frame;
+    }
+
+    public int originalLength() {
+        return originalLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.replay;
+
+import org.opendaylight.I4application.impl.I4applicationProvider;
+import org.opendaylight.I4application.impl.ingress.PacketInPipeline;
+import org.opendaylight.I4application.impl.ingress.TrafficClass;
+import org.opendaylight.I4application.impl.stats.LatencyHistogram;
+import org.opendaylight.I4application.impl.stats.LatencyRecorder;
+import org.opendaylight.I4application.impl.stats.LatencyStage;
+import org.opendaylight.I4application.impl.utils.MdnsPacketStore;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SalFlowService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.service.rev130918.SalGroupService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketProcessingService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketReceived;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketReceivedBuilder;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a pcap capture of mDNS, ARP and IPv4 traffic as packet-ins through
+ * the packet-in pipeline of a real I4applicationProvider, wired to the stubs of
+ * {@link ReplayServices} instead of MD-SAL and the switches, and reports the
+ * packet rate and the latencies per traffic class and stage.
+ *
+ * Usage: PcapReplay capture.pcap [-rate packets/s | -speed factor] [-loops n]
+ *
+ * Without -rate the capture timing is kept, scaled by -speed; -rate 0 replays
+ * as fast as the pipeline takes packets. The UrlNotificationHandler still tries
+ * to reach its AMQP broker on localhost, replays run without one.
+ */
+public final class PcapReplay {
+
+    // Idle pipeline for this long after the last packet means the replay is done
+    private static final long SETTLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long SETTLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private PcapReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PcapReplay capture.pcap [-rate packets/s | -speed factor] [-loops n]");
+            System.exit(2);
+        }
+        double rate = -1;
+        double speed = 1;
+        int loops = 1;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "-speed":
+                    speed = Double.parseDouble(args[i + 1]);
+                    break;
+                case "-loops":
+                    loops = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        List<byte[]> frames = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        try (PcapReader reader = new PcapReader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                frames.add(reader.frame());
+                timestamps.add(reader.timestampNanos());
+            }
+        }
+        if (frames.isEmpty()) {
+            System.err.println(args[0] + " has no packets");
+            System.exit(1);
+        }
+
+        ReplayServices services = new ReplayServices();
+        I4applicationProvider provider = new I4applicationProvider(services.dataBroker(),
+                services.notificationService(), services.rpcService(SalFlowService.class),
+                services.notificationPublishService(), services.rpcService(PacketProcessingService.class),
+                services.rpcService(SalGroupService.class), services.rpcProviderRegistry());
+        provider.init();
+        ReplayTopology topology = new ReplayTopology(frames);
+        topology.install(services);
+
+        // Notifications are immutable, build them all before the clock starts
+        PacketReceived[] packets = new PacketReceived[frames.size()];
+        long[] offsets = new long[frames.size()];
+        long first = timestamps.get(0);
+        for (int i = 0; i < packets.length; i++) {
+            byte[] frame = frames.get(i);
+            packets[i] = new PacketReceivedBuilder().setPayload(frame).setIngress(topology.ingress(frame)).build();
+            offsets[i] = rate > 0 ? (long) (i * 1e9 / rate)
+                    : rate == 0 ? 0 : (long) ((timestamps.get(i) - first) / speed);
+        }
+        long loopNanos = rate > 0 ? (long) (packets.length * 1e9 / rate) : offsets[offsets.length - 1];
+
+        PacketInPipeline pipeline = provider.getPacketInPipeline();
+        LatencyHistogram lateness = new LatencyHistogram();
+        long start = System.nanoTime();
+        for (int loop = 0; loop < loops; loop++) {
+            long loopStart = start + loop * loopNanos;
+            for (int i = 0; i < packets.length; i++) {
+                long due = loopStart + offsets[i];
+                long now;
+                while ((now = System.nanoTime()) < due) {
+                    if (due - now > TimeUnit.MICROSECONDS.toNanos(100)) {
+                        LockSupport.parkNanos(due - now - TimeUnit.MICROSECONDS.toNanos(50));
+                    }
+                }
+                if (rate != 0) {
+                    lateness.record(now - due);
+                }
+                pipeline.onPacketReceived(packets[i]);
+            }
+        }
+        long sentNanos = System.nanoTime() - start;
+        long handledNanos = settle(pipeline) - start;
+        services.drainNotifications();
+
+        long sent = (long) packets.length * loops;
+        System.out.printf("Replayed %d packets from %d hosts in %.3f s: %.0f packets/s offered, %.0f packets/s handled%n",
+                sent, topology.getHostCount(), sentNanos / 1e9, sent * 1e9 / sentNanos, sent * 1e9 / handledNanos);
+        if (rate != 0) {
+            System.out.println("Send lateness (us)  " + percentiles(lateness));
+        }
+        System.out.printf("%-13s %9s %9s %9s  handler time (us) %s%n", "class", "received", "dropped", "unhandled",
+                percentileHeader());
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            System.out.printf("%-13s %9d %9d %9d  %s%n", trafficClass, pipeline.getReceivedCount(trafficClass),
+                    pipeline.getDroppedCount(trafficClass), pipeline.getUnhandledCount(trafficClass),
+                    percentiles(pipeline.getHandlerLatency(trafficClass)));
+        }
+        LatencyRecorder latencyRecorder = provider.getLatencyRecorder();
+        System.out.printf("%-13s %9s  stage time (us) %s%n", "stage", "count", percentileHeader());
+        for (LatencyStage stage : LatencyStage.values()) {
+            LatencyHistogram histogram = latencyRecorder.getHistogram(stage);
+            System.out.printf("%-13s %9d  %s%n", stage, histogram.getTotalCount(), percentiles(histogram));
+        }
+        for (Map.Entry<String, Long> rpc : services.getRpcCounts().entrySet()) {
+            System.out.printf("RPC %s: %d%n", rpc.getKey(), rpc.getValue());
+        }
+        System.out.printf("Notifications published: %d, listener failures: %d%n",
+                services.getNotificationCount(), services.getListenerFailureCount());
+        MdnsPacketStore store = provider.getMdnsPacketStore();
+        System.out.printf("mDNS store: %d hosts, %d packets, %d of %d bytes (%d off-heap), %d repeats, %d hits, "
+                        + "%d misses, %d packets and %d hosts evicted%n", store.getHostCount(), store.getPacketCount(),
+                store.getByteCount(), store.getMaxBytes(), store.getReservedBytes(), store.getDuplicateCount(),
+                store.getHitCount(), store.getMissCount(), store.getEvictedPacketCount(), store.getEvictedHostCount());
+
+        provider.close();
+        services.close();
+        // Handler executors of the application are not daemon threads
+        System.exit(0);
+    }
+
+    /**
+     * Wait until the pipeline is drained and no handler has finished a packet for a while
+     * @return when the last packet was seen handled
+     */
+    private static long settle(PacketInPipeline pipeline) throws InterruptedException {
+        long deadline = System.nanoTime() + SETTLE_TIMEOUT_NANOS;
+        long handled = handledCount(pipeline);
+        long lastChange = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            long count = handledCount(pipeline);
+            if (count != handled || pipeline.getQueueDepth() > 0) {
+                handled = count;
+                lastChange = System.nanoTime();
+            } else if (System.nanoTime() - lastChange > SETTLE_NANOS) {
+                break;
+            }
+        }
+        return lastChange;
+    }
+
+    private static long handledCount(PacketInPipeline pipeline) {
+        long count = 0;
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            count += pipeline.getHandlerLatency(trafficClass).getTotalCount();
+        }
+        return count;
+    }
+
+    private static String percentileHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            sb.append(String.format("%9s", "p" + (percentile == Math.rint(percentile)
+                    ? String.valueOf((long) percentile) : String.valueOf(percentile))));
+        }
+        return sb.append(String.format("%9s", "max")).toString();
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            sb.append(String.format("%9.1f", histogram.getValueAtPercentile(percentile) / 1e3));
+        }
+        return sb.append(String.format("%9.1f", histogram.getMaxValue() / 1e3)).toString();
+    }
+}
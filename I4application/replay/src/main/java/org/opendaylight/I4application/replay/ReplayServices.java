@@ -0,0 +1,362 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.replay;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.NotificationPublishService;
+import org.opendaylight.controller.md.sal.binding.api.NotificationService;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
+import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.binding.Notification;
+import org.opendaylight.yangtools.yang.binding.RpcService;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-ins for the MD-SAL services blueprint gives I4applicationProvider.
+ *
+ * - Notifications published are delivered on one thread to the listeners
+ *   registered here, by their on&lt;Notification&gt; methods, as the binding
+ *   notification broker does.
+ * - RPCs of the stubbed services succeed at once and are counted; RPCs the
+ *   application registers itself are called directly.
+ * - The operational datastore is a map, filled by {@link ReplayTopology}. Data
+ *   change listeners get the created data whose type they registered for.
+ *
+ * Anything else returns null, false or 0.
+ */
+final class ReplayServices implements AutoCloseable {
+
+    private final Map<InstanceIdentifier<?>, DataObject> operational = new ConcurrentHashMap<>();
+    private final List<Object> notificationListeners = new CopyOnWriteArrayList<>();
+    private final List<Object[]> dataChangeListeners = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Object> rpcImplementations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> rpcCounts = new ConcurrentHashMap<>();
+    private final AtomicLong notificationCount = new AtomicLong();
+    private final AtomicLong listenerFailureCount = new AtomicLong();
+    private final ExecutorService notificationExecutor = Executors.newSingleThreadExecutor();
+
+    DataBroker dataBroker() {
+        return stub(DataBroker.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "newReadOnlyTransaction":
+                    case "newWriteOnlyTransaction":
+                    case "newReadWriteTransaction":
+                        return stub(method.getReturnType(), new TransactionHandler());
+                    case "registerDataChangeListener":
+                        final Object[] registration = {args[1], args[2]};
+                        dataChangeListeners.add(registration);
+                        return stub(method.getReturnType(), new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) {
+                                if ("close".equals(method.getName())) {
+                                    dataChangeListeners.remove(registration);
+                                    return null;
+                                }
+                                return defaultValue(method.getReturnType());
+                            }
+                        });
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    NotificationService notificationService() {
+        return stub(NotificationService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("registerNotificationListener".equals(method.getName())) {
+                    final Object listener = args[0];
+                    notificationListeners.add(listener);
+                    return stub(method.getReturnType(), new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            switch (method.getName()) {
+                                case "close":
+                                    notificationListeners.remove(listener);
+                                    return null;
+                                case "getInstance":
+                                    return listener;
+                                default:
+                                    return defaultValue(method.getReturnType());
+                            }
+                        }
+                    });
+                }
+                return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    NotificationPublishService notificationPublishService() {
+        return stub(NotificationPublishService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("putNotification".equals(method.getName()) || "offerNotification".equals(method.getName())) {
+                    publish((Notification) args[0]);
+                }
+                return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    RpcProviderRegistry rpcProviderRegistry() {
+        return stub(RpcProviderRegistry.class, new InvocationHandler() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "addRpcImplementation":
+                    case "addRoutedRpcImplementation":
+                        rpcImplementations.put((Class<?>) args[0], args[1]);
+                        return stub(method.getReturnType(), NO_OP);
+                    case "getRpcService":
+                        return rpcService((Class<? extends RpcService>) args[0]);
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the implementation the application registered for type, else a stub
+     *         whose RPCs succeed with no output
+     */
+    <T extends RpcService> T rpcService(final Class<T> type) {
+        return stub(type, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object implementation = rpcImplementations.get(type);
+                if (implementation != null) {
+                    try {
+                        return method.invoke(implementation, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+                count(type.getSimpleName() + "." + method.getName());
+                if (Future.class.isAssignableFrom(method.getReturnType())) {
+                    return Futures.immediateFuture(RpcResultBuilder.success().build());
+                }
+                return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /**
+     * Store data in the operational datastore without telling listeners
+     */
+    void put(InstanceIdentifier<?> id, DataObject data) {
+        operational.put(id, data);
+    }
+
+    /**
+     * Store data in the operational datastore and tell the listeners registered for its type
+     */
+    void create(InstanceIdentifier<?> id, DataObject data) {
+        operational.put(id, data);
+        AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> event = createdEvent(id, data);
+        for (Object[] registration : dataChangeListeners) {
+            InstanceIdentifier<?> path = (InstanceIdentifier<?>) registration[0];
+            if (path.getTargetType().equals(id.getTargetType())) {
+                ((DataChangeListener) registration[1]).onDataChanged(event);
+            }
+        }
+    }
+
+    /**
+     * @return RPC calls by service and method name, sorted
+     */
+    Map<String, Long> getRpcCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : rpcCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    long getNotificationCount() {
+        return notificationCount.get();
+    }
+
+    long getListenerFailureCount() {
+        return listenerFailureCount.get();
+    }
+
+    /**
+     * Deliver the notifications published so far, later ones are dropped
+     */
+    void drainNotifications() throws InterruptedException {
+        notificationExecutor.shutdown();
+        notificationExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void close() {
+        notificationExecutor.shutdownNow();
+    }
+
+    private void publish(final Notification notification) {
+        notificationCount.incrementAndGet();
+        notificationExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Object listener : notificationListeners) {
+                    deliver(listener, notification);
+                }
+            }
+        });
+    }
+
+    /**
+     * Call the on&lt;Notification&gt; methods of listener which take the notification
+     */
+    private void deliver(Object listener, Notification notification) {
+        for (Method method : listener.getClass().getMethods()) {
+            Class<?>[] parameters = method.getParameterTypes();
+            if (parameters.length == 1 && method.getName().startsWith("on")
+                    && Notification.class.isAssignableFrom(parameters[0]) && parameters[0].isInstance(notification)) {
+                try {
+                    method.invoke(listener, notification);
+                } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+                    listenerFailureCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void count(String rpc) {
+        AtomicLong counter = rpcCounts.get(rpc);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = rpcCounts.putIfAbsent(rpc, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    private AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> createdEvent(final InstanceIdentifier<?> id,
+                                                                                final DataObject data) {
+        return stub(AsyncDataChangeEvent.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getCreatedData":
+                        return Collections.<InstanceIdentifier<?>, DataObject>singletonMap(id, data);
+                    case "getUpdatedData":
+                    case "getOriginalData":
+                        return Collections.emptyMap();
+                    case "getRemovedPaths":
+                        return Collections.emptySet();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads see the operational datastore, writes change it at once instead of on submit
+     */
+    private class TransactionHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "read":
+                    return Futures.immediateCheckedFuture(Optional.fromNullable(operational.get(args[1])));
+                case "put":
+                case "merge":
+                    operational.put((InstanceIdentifier<?>) args[1], (DataObject) args[2]);
+                    return null;
+                case "delete":
+                    operational.remove(args[1]);
+                    return null;
+                case "cancel":
+                    return true;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    private static final InvocationHandler NO_OP = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return defaultValue(method.getReturnType());
+        }
+    };
+
+    /**
+     * Proxy of type, Object methods answered by identity
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(final Class<T> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ReplayServices.class.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class) {
+                            switch (method.getName()) {
+                                case "equals":
+                                    return proxy == args[0];
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                default:
+                                    return type.getSimpleName() + " stub";
+                            }
+                        }
+                        return handler.invoke(proxy, method, args);
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == void.class) {
+            return null;
+        }
+        if (type.isPrimitive()) {
+            return Array.get(Array.newInstance(type, 1), 0);
+        }
+        if (Future.class.isAssignableFrom(type)) {
+            return Futures.immediateCheckedFuture(null);
+        }
+        if (type.isInterface()) {
+            return stub(type, NO_OP);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2016 Basavaraj and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.I4application.replay;
+
+import org.opendaylight.I4application.impl.utils.InstanceIdentifierUtils;
+import org.opendaylight.I4application.impl.utils.LongObjectHashMap;
+import org.opendaylight.I4application.impl.utils.NetUtils;
+import org.opendaylight.I4application.impl.utils.PacketParsingUtils;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.address.tracker.rev140617.AddressCapableNodeConnector;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.address.tracker.rev140617.address.node.connector.Addresses;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.address.tracker.rev140617.address.node.connector.AddressesBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.address.tracker.rev140617.address.node.connector.AddressesKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorRef;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnector;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnectorBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnectorKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The network a capture is replayed into: one switch with a port per host that
+ * sent IPv4 or ARP packets in the capture. Hosts are announced to the
+ * application the way the l2switch address tracker does, as Addresses created
+ * under their node connector, so HostManager learns them through
+ * TopologyChangeListener. Frames from a MAC address without a host come in on
+ * an extra uplink port.
+ */
+final class ReplayTopology {
+
+    static final String NODE_ID = "openflow:1";
+
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+
+    private final LongObjectHashMap<NodeConnectorRef> macPorts = new LongObjectHashMap<>();
+    private final List<long[]> hosts = new ArrayList<>();
+    private final NodeConnectorRef uplink;
+
+    /**
+     * @param frames capture to learn the hosts from
+     */
+    ReplayTopology(List<byte[]> frames) {
+        LongObjectHashMap<Boolean> seen = new LongObjectHashMap<>();
+        for (byte[] frame : frames) {
+            int address = senderAddress(frame);
+            if (address == 0) {
+                continue;
+            }
+            long mac = NetUtils.byteArray6ToLong(PacketParsingUtils.extractSrcMac(frame));
+            if (mac != 0 && seen.get(mac) == null) {
+                seen.put(mac, Boolean.TRUE);
+                hosts.add(new long[]{mac, address & 0xFFFFFFFFL});
+            }
+        }
+        uplink = new NodeConnectorRef(nodeConnector(hosts.size() + 1));
+    }
+
+    /**
+     * Put the switch into the operational datastore, then announce the hosts
+     */
+    void install(ReplayServices services) {
+        List<NodeConnector> nodeConnectors = new ArrayList<>();
+        for (int port = 1; port <= hosts.size() + 1; port++) {
+            InstanceIdentifier<NodeConnector> id = nodeConnector(port);
+            NodeConnector nodeConnector = new NodeConnectorBuilder()
+                    .setKey(id.firstKeyOf(NodeConnector.class, NodeConnectorKey.class))
+                    .setId(id.firstKeyOf(NodeConnector.class, NodeConnectorKey.class).getId())
+                    .build();
+            services.put(id, nodeConnector);
+            nodeConnectors.add(nodeConnector);
+        }
+        NodeId nodeId = new NodeId(NODE_ID);
+        services.put(InstanceIdentifierUtils.createNodePath(nodeId), new NodeBuilder()
+                .setKey(new NodeKey(nodeId))
+                .setId(nodeId)
+                .setNodeConnector(nodeConnectors)
+                .build());
+
+        for (int i = 0; i < hosts.size(); i++) {
+            long mac = hosts.get(i)[0];
+            int address = (int) hosts.get(i)[1];
+            InstanceIdentifier<NodeConnector> port = nodeConnector(i + 1);
+            macPorts.put(mac, new NodeConnectorRef(port));
+            BigInteger id = BigInteger.valueOf(i + 1);
+            Addresses addresses = new AddressesBuilder()
+                    .setKey(new AddressesKey(id))
+                    .setId(id)
+                    .setMac(PacketParsingUtils.longToMacAddress(mac))
+                    .setIp(new IpAddress(PacketParsingUtils.intToIpv4Address(address)))
+                    .build();
+            services.create(port.augmentation(AddressCapableNodeConnector.class)
+                    .child(Addresses.class, new AddressesKey(id)), addresses);
+        }
+    }
+
+    /**
+     * @return port the frame comes in on, the port of its source MAC address
+     */
+    NodeConnectorRef ingress(byte[] frame) {
+        if (frame.length < ETHERNET_HEADER_LENGTH) {
+            return uplink;
+        }
+        NodeConnectorRef port = macPorts.get(NetUtils.byteArray6ToLong(PacketParsingUtils.extractSrcMac(frame)));
+        return port == null ? uplink : port;
+    }
+
+    int getHostCount() {
+        return hosts.size();
+    }
+
+    private static InstanceIdentifier<NodeConnector> nodeConnector(int port) {
+        return InstanceIdentifierUtils.createNodeConnectorIdentifier(NODE_ID, NODE_ID + ":" + port);
+    }
+
+    /**
+     * @return IPv4 source or ARP sender address, 0 for other frames
+     */
+    private static int senderAddress(byte[] frame) {
+        if (PacketParsingUtils.isTruncated(frame)) {
+            return 0;
+        }
+        int etherType = PacketParsingUtils.etherTypeToInt(frame);
+        if (etherType == PacketParsingUtils.ETHER_TYPE_IPV4) {
+            return PacketParsingUtils.srcIPAddrToInt(frame);
+        }
+        if (etherType == PacketParsingUtils.ETHER_TYPE_ARP) {
+            return PacketParsingUtils.arpSenderIPAddrToInt(frame);
+        }
+        return 0;
+    }
+}